@@ -15,6 +15,10 @@
  */
 package dk.dma.epd.common.graphics;
 
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.Map;
@@ -39,6 +43,9 @@ import org.apache.commons.lang.StringUtils;
  */
 public final class Resources {
 
+    /** The number of pre-rendered rotations kept per image by {@linkplain #getCachedRotatedImageIcon(String, double)} */
+    public static final int ROTATION_BUCKETS = 72;
+
     private static Map<CacheKey, Object> cache = new ConcurrentHashMap<>();
     Class<?> loaderClass;
     String folder;
@@ -189,6 +196,69 @@ public final class Resources {
         return imageIcon;
     }
     
+    /**
+     * Returns a cached, pre-rendered {@linkplain ImageIcon} for the image given by the {@code path}
+     * parameter, rotated clockwise by the given angle.
+     * <p>
+     * The angle is snapped to one of {@linkplain #ROTATION_BUCKETS} buckets, so the cache holds
+     * a bounded number of variants per image, however many graphics use them. The rotated icon
+     * is square with an uneven side length and the original image centered, so it can be
+     * positioned using its center just like the unrotated image.
+     * 
+     * @param path the path to the resource
+     * @param angle the clockwise rotation in radians
+     * @return the rotated {@linkplain ImageIcon} with the given path
+     */
+    public ImageIcon getCachedRotatedImageIcon(String path, double angle) {
+        Objects.requireNonNull(path);
+        double turns = angle / (2.0 * Math.PI);
+        turns -= Math.floor(turns);
+        int bucket = (int) Math.round(turns * ROTATION_BUCKETS) % ROTATION_BUCKETS;
+        if (bucket == 0) {
+            return getCachedImageIcon(path);
+        }
+        
+        CacheKey key = new CacheKey(loaderClass, getFullPath(path) + "@" + bucket);
+        ImageIcon imageIcon = (ImageIcon)cache.get(key);
+        if (imageIcon != null) {
+            return imageIcon;
+        }
+        imageIcon = rotate(getCachedImageIcon(path), 2.0 * Math.PI * bucket / ROTATION_BUCKETS);
+        cache.put(key, imageIcon);
+        return imageIcon;
+    }
+    
+    /**
+     * Renders a rotated copy of the given image icon onto a square canvas
+     * large enough to hold the image at any rotation
+     * 
+     * @param imageIcon the image icon to rotate
+     * @param angle the clockwise rotation in radians
+     * @return the rotated image icon
+     */
+    private static ImageIcon rotate(ImageIcon imageIcon, double angle) {
+        int width = imageIcon.getIconWidth();
+        int height = imageIcon.getIconHeight();
+        int size = (int) Math.ceil(Math.sqrt(width * width + height * height));
+        // Keep the parity of the original so that the image stays centered
+        if ((size - width) % 2 != 0) {
+            size++;
+        }
+        
+        BufferedImage rotated = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = rotated.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.rotate(angle, size / 2.0, size / 2.0);
+            Image image = imageIcon.getImage();
+            g.drawImage(image, (size - width) / 2, (size - height) / 2, null);
+        } finally {
+            g.dispose();
+        }
+        return new ImageIcon(rotated);
+    }
+    
       /**********************************/
      /********* Helper classes *********/
     /**********************************/
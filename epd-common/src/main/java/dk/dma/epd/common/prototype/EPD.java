@@ -30,7 +30,9 @@ import dk.dma.epd.common.prototype.gui.MainFrameCommon;
 import dk.dma.epd.common.prototype.gui.SystemTrayCommon;
 import dk.dma.epd.common.prototype.gui.notification.NotificationCenterCommon;
 import dk.dma.epd.common.prototype.gui.settings.ISettingsListener;
+import dk.dma.epd.common.prototype.metrics.Metrics;
 import dk.dma.epd.common.prototype.msi.MsiHandler;
+import dk.dma.epd.common.prototype.scheduler.TaskScheduler;
 import dk.dma.epd.common.prototype.sensor.nmea.NmeaSensor;
 import dk.dma.epd.common.prototype.service.ChatServiceHandlerCommon;
 import dk.dma.epd.common.prototype.settings.SensorSettings;
@@ -46,6 +48,8 @@ public abstract class EPD implements ISettingsListener {
     protected Settings settings;
     protected SystemTrayCommon systemTray;
     protected Properties properties = new Properties();
+    protected final TaskScheduler taskScheduler = new TaskScheduler();
+    protected final Metrics metrics = new Metrics();
     
     // Common services
     protected ChatServiceHandlerCommon chatServiceHandler;
@@ -123,6 +127,22 @@ public abstract class EPD implements ISettingsListener {
         return thread;
     }
 
+    /**
+     * Returns the shared scheduler used for periodic and triggered background tasks
+     * @return the shared task scheduler
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
+    /**
+     * Returns the operational metrics exposed through JMX
+     * @return the operational metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Starts the sensors as defined in the {@linkplain SensorSettings} and hook up listeners
      */
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.util.ConcurrentHashSet;
 import org.slf4j.Logger;
@@ -47,6 +48,9 @@ import dk.dma.ais.message.AisMessage5;
 import dk.dma.ais.message.AisPositionMessage;
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.metrics.AisMetrics;
+import dk.dma.epd.common.prototype.metrics.AisMetrics.DropReason;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 import dk.dma.epd.common.prototype.sensor.nmea.IAisSensorListener;
 import dk.dma.epd.common.prototype.sensor.pnt.PntData;
 import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
@@ -55,9 +59,8 @@ import dk.dma.epd.common.prototype.status.AisStatus;
 import dk.dma.epd.common.prototype.status.ComponentStatus;
 import dk.dma.epd.common.prototype.status.IStatusComponent;
 import dk.dma.epd.common.util.Converter;
-import dk.dma.epd.common.util.Util;
 
-public abstract class AisHandlerCommon extends MapHandlerChild implements Runnable, IAisSensorListener, IStatusComponent {
+public abstract class AisHandlerCommon extends MapHandlerChild implements IAisSensorListener, IStatusComponent {
     
     private static final Logger LOG = LoggerFactory.getLogger(AisHandlerCommon.class);
     
@@ -76,9 +79,11 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
     protected final boolean strictAisMode;
     protected final String sartMmsiPrefix;
     protected final Set<String> simulatedSartMmsi = new ConcurrentHashSet<>();
+    protected final Set<Long> positionOnlyTargets = new ConcurrentHashSet<>();
     protected final int pastTrackMaxTime;       // NB: In minutes
     protected final int pastTrackDisplayTime;   // NB: In minutes
     protected final int pastTrackMinDist;       // NB: In meters
+    protected final AisMetrics aisMetrics = EPD.getInstance().getMetrics().getAisMetrics();
     
 
     /**
@@ -92,6 +97,7 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         this.pastTrackMaxTime = aisSettings.getPastTrackMaxTime();
         this.pastTrackDisplayTime = aisSettings.getPastTrackDisplayTime();
         this.pastTrackMinDist = aisSettings.getPastTrackMinDist();
+        aisMetrics.setAisHandler(this);
     }
     
     /**
@@ -101,6 +107,7 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
     public final void receive(AisMessage aisMessage) {
         // Mark successful reception
         aisStatus.markAisReception();
+        aisMetrics.markReceived(aisMessage.getMsgId());
 
         if (aisMessage instanceof AisPositionMessage) {
             AisPositionMessage aisPositionMessage = (AisPositionMessage) aisMessage;
@@ -108,14 +115,18 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
             VesselPositionData vesselPositionData = new VesselPositionData(aisPositionMessage);
             // Update or create entry
             if (vesselPositionData.hasPos()) {
-                updatePos(aisPositionMessage.getUserId(), vesselPositionData, VesselTarget.AisClass.A);
+                updatePos(aisMessage.getMsgId(), aisPositionMessage.getUserId(), vesselPositionData, VesselTarget.AisClass.A);
+            } else {
+                aisMetrics.markDropped(aisMessage.getMsgId(), DropReason.NO_POSITION);
             }
         } else if (aisMessage instanceof AisMessage18) {
             AisMessage18 posMessage = (AisMessage18) aisMessage;
             VesselPositionData vesselPositionData = new VesselPositionData(posMessage);
             // Update or create entry
             if (vesselPositionData.hasPos()) {
-                updatePos(posMessage.getUserId(), vesselPositionData, VesselTarget.AisClass.B);
+                updatePos(aisMessage.getMsgId(), posMessage.getUserId(), vesselPositionData, VesselTarget.AisClass.B);
+            } else {
+                aisMetrics.markDropped(aisMessage.getMsgId(), DropReason.NO_POSITION);
             }
         } else if (aisMessage instanceof AisMessage21) {
             AisMessage21 msg21 = (AisMessage21) aisMessage;
@@ -123,10 +134,12 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         } else if (aisMessage instanceof AisMessage5) {
             AisMessage5 msg5 = (AisMessage5) aisMessage;
             VesselStaticData staticData = new VesselStaticData(msg5);
-            updateStatics(msg5.getUserId(), staticData);
+            updateStatics(msg5.getMsgId(), msg5.getUserId(), staticData);
         } else if (aisMessage instanceof AisMessage24) {
             AisMessage24 msg24 = (AisMessage24) aisMessage;
             updateClassBStatics(msg24);
+        } else {
+            aisMetrics.markDropped(aisMessage.getMsgId(), DropReason.UNSUPPORTED_TYPE);
         }
     }
     
@@ -142,6 +155,7 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
      */
     protected void updateAton(AisMessage21 msg21) {
         if (!isWithinRange(msg21.getPos().getGeoLocation())) {
+            aisMetrics.markDropped(msg21.getMsgId(), DropReason.OUT_OF_RANGE);
             return;
         }
 
@@ -165,13 +179,14 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
     /**
      * Update vessel target statics
      * 
+     * @param msgId the id of the AIS message holding the static data
      * @param mmsi
      * @param staticData
      */
-    protected void updateStatics(long mmsi, VesselStaticData staticData) {
+    protected void updateStatics(int msgId, long mmsi, VesselStaticData staticData) {
         // Determine if this is SART
         if (isSarTarget(mmsi)) {
-            updateSartStatics(mmsi, staticData);
+            updateSartStatics(msgId, mmsi, staticData);
             return;
         }
 
@@ -179,6 +194,12 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         VesselTarget vesselTarget = vesselTargets.get(mmsi);
         // If not exists, wait for it to be created by position report
         if (vesselTarget == null) {
+            aisMetrics.markDropped(msgId, DropReason.UNKNOWN_TARGET);
+            return;
+        }
+        // Static data is not retained for position-only targets
+        if (positionOnlyTargets.contains(mmsi)) {
+            aisMetrics.markDropped(msgId, DropReason.RETENTION_POLICY);
             return;
         }
         // Update static data
@@ -196,6 +217,12 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         VesselTarget vesselTarget = vesselTargets.get( (long) msg24.getUserId());
         // If not exists, wait for it to be created by position report
         if (vesselTarget == null) {
+            aisMetrics.markDropped(msg24.getMsgId(), DropReason.UNKNOWN_TARGET);
+            return;
+        }
+        // Static data is not retained for position-only targets
+        if (positionOnlyTargets.contains((long) msg24.getUserId())) {
+            aisMetrics.markDropped(msg24.getMsgId(), DropReason.RETENTION_POLICY);
             return;
         }
 
@@ -213,14 +240,16 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
     /**
      * Update SART statics
      * 
+     * @param msgId the id of the AIS message holding the static data
      * @param mmsi
      * @param staticData
      */
-    protected void updateSartStatics(long mmsi, VesselStaticData staticData) {
+    protected void updateSartStatics(int msgId, long mmsi, VesselStaticData staticData) {
         // Try to find exiting target
         SarTarget sarTarget = sarTargets.get(mmsi);
         // If not exists, wait for it to be created by position report
         if (sarTarget == null) {
+            aisMetrics.markDropped(msgId, DropReason.UNKNOWN_TARGET);
             return;
         }
         // Update static data
@@ -234,12 +263,24 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
      * @param positionData the position data
      */
     protected void updateMobileTargetPos(MobileTarget mobileTarget, VesselPositionData positionData) {
+        updateMobileTargetPos(mobileTarget, positionData, true);
+    }
+
+    /**
+     * Update the vessel or SAR target with position data
+     * @param mobileTarget the target to update
+     * @param positionData the position data
+     * @param pastTrack whether to add the position to the past-track
+     */
+    protected void updateMobileTargetPos(MobileTarget mobileTarget, VesselPositionData positionData, boolean pastTrack) {
 
         // Update class pos data
         mobileTarget.setPositionData(positionData);
         
         // Update past-track
-        mobileTarget.addPastTrackPosition(positionData.getPos());
+        if (pastTrack) {
+            mobileTarget.addPastTrackPosition(positionData.getPos());
+        }
         
         // Update last received
         mobileTarget.setLastReceived(PntTime.getInstance().getDate());
@@ -254,12 +295,14 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
     /**
      * Update vessel target position data
      * 
+     * @param msgId the id of the AIS position message
      * @param mmsi
      * @param positionData
      * @param aisClass
      */
-    protected void updatePos(long mmsi, VesselPositionData positionData, VesselTarget.AisClass aisClass) {
+    protected void updatePos(int msgId, long mmsi, VesselPositionData positionData, VesselTarget.AisClass aisClass) {
         if (!isWithinRange(positionData.getPos())) {
+            aisMetrics.markDropped(msgId, DropReason.OUT_OF_RANGE);
             return;
         }
 
@@ -269,6 +312,14 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
             return;
         }
 
+        // Apply the retention policy of the zone the vessel is in
+        AisRetentionPolicy retentionPolicy = getRetentionPolicy(positionData.getPos());
+        if (retentionPolicy == AisRetentionPolicy.DROP) {
+            aisMetrics.markDropped(msgId, DropReason.RETENTION_POLICY);
+            dropVesselTarget(mmsi);
+            return;
+        }
+
         // Try to find exiting target
         VesselTarget vesselTarget = vesselTargets.get(mmsi);
         // If not exists, create and insert
@@ -281,8 +332,47 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         }
         // Update class 
         vesselTarget.setAisClass(aisClass);
+
+        // Promote or demote the target
+        if (retentionPolicy == AisRetentionPolicy.POSITION_ONLY) {
+            if (positionOnlyTargets.add(mmsi)) {
+                vesselTarget.setStaticData(null);
+                vesselTarget.setPastTrackData(new PastTrackSortedSet());
+            }
+        } else {
+            positionOnlyTargets.remove(mmsi);
+        }
+
         // Update target from position data
-        updateMobileTargetPos(vesselTarget, positionData);
+        updateMobileTargetPos(vesselTarget, positionData, retentionPolicy == AisRetentionPolicy.FULL);
+    }
+
+    /**
+     * Removes the vessel target with the given MMSI, if it exists, 
+     * and publishes it as gone
+     * 
+     * @param mmsi the MMSI of the vessel target
+     */
+    protected void dropVesselTarget(long mmsi) {
+        positionOnlyTargets.remove(mmsi);
+        VesselTarget vesselTarget = vesselTargets.remove(mmsi);
+        if (vesselTarget != null) {
+            vesselTarget.setStatus(AisTarget.Status.GONE);
+            publishUpdate(vesselTarget);
+        }
+    }
+
+    /**
+     * Returns the retention policy for vessel targets at the given position.
+     * <p>
+     * Sub-classes can override to limit the state retained for targets 
+     * outside the area of interest. SART targets are always retained in full.
+     * 
+     * @param pos the position of the vessel target
+     * @return the retention policy for the position
+     */
+    protected AisRetentionPolicy getRetentionPolicy(Position pos) {
+        return AisRetentionPolicy.FULL;
     }
 
     /**
@@ -405,6 +495,18 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         return vesselTargets.get(mmsi);
     }
     
+    public final int getVesselTargetCount() {
+        return vesselTargets.size();
+    }
+
+    public final int getAtonTargetCount() {
+        return atonTargets.size();
+    }
+
+    public final int getSarTargetCount() {
+        return sarTargets.size();
+    }
+
     /**
      * Get target with mmsi
      * 
@@ -469,6 +571,9 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
             LOG.debug("Dead target " + mmsi);
             // cater with atonTargets, which use Integer as a key
             aisTargets.remove(intKey ? Integer.valueOf((int)mmsi.longValue()) : mmsi);
+            if (!intKey) {
+                positionOnlyTargets.remove(mmsi);
+            }
         }
 
         deadTargets.clear();
@@ -655,17 +760,26 @@ public abstract class AisHandlerCommon extends MapHandlerChild implements Runnab
         }
     }
     
-    @Override
-    public void run() {
-        // Publish loaded targets
-        Util.sleep(2000);
-        publishAll();
-
-        while (true) {
-            Util.sleep(10000);
-            // Update status on targets
-            updateStatus();
-        }
+    /**
+     * Registers the AIS handler tasks with the task scheduler.
+     * Publishes the loaded targets after 2 seconds and updates 
+     * the status of all targets every 10 seconds.
+     */
+    public void start() {
+        EPD.getInstance().getTaskScheduler().schedule("AisHandlerPublishAll", TaskPriority.NORMAL, new Runnable() {
+            @Override
+            public void run() {
+                publishAll();
+            }
+        }, 2, TimeUnit.SECONDS);
+        
+        EPD.getInstance().getTaskScheduler().schedulePeriodic("AisHandler", TaskPriority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                // Update status on targets
+                updateStatus();
+            }
+        }, 12000L, 10000L, 500L, TimeUnit.MILLISECONDS);
     }
 
     public final class AisMessageExtended {
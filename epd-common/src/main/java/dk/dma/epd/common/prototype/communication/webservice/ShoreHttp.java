@@ -34,6 +34,7 @@ import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.settings.EnavSettings;
 import dk.dma.epd.common.util.Compressor;
 
@@ -72,6 +73,17 @@ public class ShoreHttp {
     }
 
     public void makeRequest() throws ShoreServiceException {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            executeRequest();
+            error = false;
+        } finally {
+            EPD.getInstance().getMetrics().getShoreServiceMetrics().markRequest(uri, System.nanoTime() - start, error);
+        }
+    }
+
+    private void executeRequest() throws ShoreServiceException {
         // Make the request
         int resCode = -1;
         try {
@@ -109,6 +121,15 @@ public class ShoreHttp {
         method.releaseConnection();
     }
 
+    /**
+     * Aborts the request, e.g. when its deadline has passed
+     */
+    public void abort() {
+        if (method != null) {
+            method.abort();
+        }
+    }
+
     public void init() {
         httpClient = new HttpClient();
         method = new PostMethod(url);
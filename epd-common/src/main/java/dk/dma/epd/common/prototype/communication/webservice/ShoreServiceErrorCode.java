@@ -31,6 +31,8 @@ public final class ShoreServiceErrorCode {
     public static final int NO_CONNECTION_TO_SERVER = 6;
     public static final int INVALID_RESPONSE = 7;
     public static final int SERVICE_ERROR = 8;    
+    public static final int TIMEOUT = 9;
+    public static final int CANCELLED = 10;
         
     private static ShoreServiceErrorCode instance;
     
@@ -46,6 +48,8 @@ public final class ShoreServiceErrorCode {
         errorMsg.put(NO_CONNECTION_TO_SERVER, "No connection to shore");
         errorMsg.put(INVALID_RESPONSE, "Invalid response");
         errorMsg.put(SERVICE_ERROR, "Service error");
+        errorMsg.put(TIMEOUT, "Shore service request timed out");
+        errorMsg.put(CANCELLED, "Shore service request cancelled");
     }
     
     public static String getErrorMessage(int errorCode) {
@@ -15,32 +15,65 @@
  */
 package dk.dma.epd.common.prototype.event;
 
-import java.util.ArrayList;
+import dk.dma.enav.model.geometry.Position;
 
 /**
  * This class works as an history, in which HistoryPosition objects
- * are stored in an ArrayList object. When a HistoryPosition objects
+ * are stored in a bounded ring buffer. When a HistoryPosition objects
  * is put in the list, a integer will point to this new object.
  * When this class is requested to go back into the history (or forward
  * into the history) the pointer will decrease (or increase) so that
  * it will point to another HistoryPosition object in the history.
+ * <p>
+ * The history holds at most {@code capacity} elements, after which the oldest
+ * elements are dropped. The center and zoom scale of each element are stored in 
+ * primitive arrays, with the center in 1e-7 degrees. Consecutive small pans, 
+ * i.e. moves of less than {@code COALESCE_PIXELS} at the same zoom scale, are 
+ * coalesced into a single element, so that auto-follow and nudging the map does 
+ * not flood the history.
  * 
  * @author adamduehansen
  *
  */
 public class HistoryList {
 
+    public static final int DEFAULT_CAPACITY = 100;
+    
+    /** Moves shorter than this number of pixels at the same scale are considered small pans */
+    private static final double COALESCE_PIXELS = 50.0;
+    /** The number of pixels per meter of the screen, as used by OpenMap for the map scale */
+    private static final double PIXELS_PER_METER = 3272.0;
+    private static final double E7 = 1e7;
+    
     /**
      * Private fields.
      */
-    private ArrayList<HistoryPosition> historyOfPositions;
+    private final int[] lats;
+    private final int[] lons;
+    private final float[] scales;
+    private int head;   // The physical index of the oldest element
+    private int size;
     private int pointerInHistory;
 
     /**
-     * Constructs a new MapHisotory.
+     * Constructs a new MapHisotory with the default capacity.
      */
     public HistoryList() {
-        this.historyOfPositions = new ArrayList<HistoryPosition>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new MapHisotory with the given capacity.
+     * 
+     * @param capacity the maximum number of elements in the history
+     */
+    public HistoryList(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        this.lats   = new int[capacity];
+        this.lons   = new int[capacity];
+        this.scales = new float[capacity];
         this.pointerInHistory   = -1; // No elements in the history.
     }
 
@@ -59,17 +92,34 @@ public class HistoryList {
         // The new history element must:
         //  - be initialized (not null) and
         //  - be equal to -1 or not equal to the newest element in history.
-        if ((newHistory != null) && 
-                (this.pointerInHistory == -1 || 
-                !newHistory.equals(this.historyOfPositions.get(this.historyOfPositions.size()-1)))) {
+        if (newHistory == null) {
+            return false;
+        }
+        int lat = encode(newHistory.getPosition().getLatitude());
+        int lon = encode(newHistory.getPosition().getLongitude());
+        float scale = newHistory.getZoomScale();
+        
+        if (this.pointerInHistory == -1 || !isEqual(size - 1, lat, lon, scale)) {
                         
             // If the pointer is not at the newest position, reset the history from the position of the pointer plus 1 to the end.
-            if (this.pointerInHistory != this.historyOfPositions.size()-1) {
-                this.resetHistory(this.historyOfPositions.size()-1, this.pointerInHistory);
+            if (this.pointerInHistory != this.size - 1) {
+                this.resetHistory(this.size - 1, this.pointerInHistory);
+                
+            } else if (increasePointer && size >= 2 
+                    && isSmallPan(size - 2, size - 1) && isSmallPan(size - 1, lat, lon, scale)) {
+                // The newest element was a small pan, and so is this. Coalesce them
+                set(size - 1, lat, lon, scale);
+                return true;
             }
             
-            // Add the new element in the history.
-            this.historyOfPositions.add(newHistory);
+            // Add the new element in the history. Drop the oldest if full
+            if (size == lats.length) {
+                head = (head + 1) % lats.length;
+                size--;
+                pointerInHistory--;
+            }
+            size++;
+            set(size - 1, lat, lon, scale);
             
             // Increase the pointer, if told so by the boolean.
             if (increasePointer) {
@@ -90,9 +140,9 @@ public class HistoryList {
      * @param endPoint
      *          From what index the history should reset to.
      */
-    public void resetHistory(int startPoint, int endPoint) {
+    public synchronized void resetHistory(int startPoint, int endPoint) {
         for(int i = startPoint; i >= endPoint; i--) {
-            this.historyOfPositions.remove(i);
+            remove(i);
         }
         
         this.pointerInHistory--;
@@ -103,12 +153,11 @@ public class HistoryList {
      * 
      * @return The position of one step back in the history.
      */
-    public HistoryPosition goOneHistoryElementBack() {
+    public synchronized HistoryPosition goOneHistoryElementBack() {
         
         this.pointerInHistory--;
 
-//        System.out.println("DEBUG:\t"+this.toString());
-        return this.historyOfPositions.get(pointerInHistory);
+        return get(pointerInHistory);
     }
 
     /**
@@ -116,13 +165,11 @@ public class HistoryList {
      * 
      * @return The position of one step forward in the history.
      */
-    public HistoryPosition goOneHistoryElementForward() {
-
+    public synchronized HistoryPosition goOneHistoryElementForward() {
 
         this.pointerInHistory++;
         
-//        System.out.println("DEBUG:\t"+this.toString());
-        return this.historyOfPositions.get(pointerInHistory);
+        return get(pointerInHistory);
     }
 
     /**
@@ -130,23 +177,23 @@ public class HistoryList {
      * 
      * @return True if the history contains any elements and false if not.
      */
-    public boolean containsElements() {
-        return this.historyOfPositions.size() > 0;
+    public synchronized boolean containsElements() {
+        return this.size > 0;
     }
     
     /**
      * 
      * @return True if the pointer is at the highest element in the history, or false if not.
      */
-    public boolean isAtHighestElement() {
-        return this.pointerInHistory == this.historyOfPositions.size()-1;
+    public synchronized boolean isAtHighestElement() {
+        return this.pointerInHistory == this.size - 1;
     }
     
     /**
      * 
      * @return True if the pointer is at the lowest element in the history, or false if not.
      */
-    public boolean isAtLowestElement() {
+    public synchronized boolean isAtLowestElement() {
         return this.pointerInHistory == 0;
     }
     
@@ -154,16 +201,105 @@ public class HistoryList {
      * 
      * @return The pointer in history.
      */
-    public int getPointerInHistory() {
+    public synchronized int getPointerInHistory() {
         return this.pointerInHistory;
     }
+    
+    /**
+     * 
+     * @return The number of elements in the history.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+    
+    /**
+     * Returns the element at the given index of the history
+     * 
+     * @param index the index of the element
+     * @return the element at the given index
+     */
+    private HistoryPosition get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int i = physical(index);
+        return new HistoryPosition(Position.create(lats[i] / E7, lons[i] / E7), scales[i]);
+    }
+    
+    /**
+     * Updates the element at the given index of the history
+     */
+    private void set(int index, int lat, int lon, float scale) {
+        int i = physical(index);
+        lats[i] = lat;
+        lons[i] = lon;
+        scales[i] = scale;
+    }
+    
+    /**
+     * Removes the element at the given index of the history
+     * 
+     * @param index the index of the element
+     */
+    private void remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        for (int j = index; j < size - 1; j++) {
+            int to = physical(j);
+            int from = physical(j + 1);
+            lats[to] = lats[from];
+            lons[to] = lons[from];
+            scales[to] = scales[from];
+        }
+        size--;
+    }
+    
+    private int physical(int index) {
+        return (head + index) % lats.length;
+    }
+    
+    private boolean isEqual(int index, int lat, int lon, float scale) {
+        int i = physical(index);
+        return lats[i] == lat && lons[i] == lon && scales[i] == scale;
+    }
+    
+    private boolean isSmallPan(int index1, int index2) {
+        int i = physical(index2);
+        return isSmallPan(index1, lats[i], lons[i], scales[i]);
+    }
+    
+    /**
+     * Returns if moving from the element at the given index to the given center
+     * and scale is a small pan, i.e. less than {@code COALESCE_PIXELS} at the same scale
+     */
+    private boolean isSmallPan(int index, int lat, int lon, float scale) {
+        int i = physical(index);
+        if (scales[i] != scale) {
+            return false;
+        }
+        Position from = Position.create(lats[i] / E7, lons[i] / E7);
+        Position to = Position.create(lat / E7, lon / E7);
+        double pixels = from.rhumbLineDistanceTo(to) / scale * PIXELS_PER_METER;
+        return pixels < COALESCE_PIXELS;
+    }
+    
+    private static int encode(double degrees) {
+        return (int) Math.round(degrees * E7);
+    }
 
     /*
      * (non-Javadoc)
      * @see java.lang.Object#toString()
      */
     @Override
-    public String toString() {
-        return "MapHistory [historyOfPositions=" + historyOfPositions + ", pointerInHistory=" + pointerInHistory + "]";
+    public synchronized String toString() {
+        StringBuilder positions = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            positions.append(i > 0 ? ", " : "").append(get(i));
+        }
+        positions.append("]");
+        return "MapHistory [historyOfPositions=" + positions + ", pointerInHistory=" + pointerInHistory + "]";
     }
 }
@@ -15,10 +15,12 @@
  */
 package dk.dma.epd.common.prototype.gui.metoc;
 
+import java.awt.geom.Point2D;
 import java.util.Date;
 import java.util.List;
 
 import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.Projection;
 
 import dk.dma.epd.common.prototype.model.route.Route;
 import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
@@ -27,11 +29,18 @@ import dk.frv.enav.common.xml.metoc.MetocForecast;
 import dk.frv.enav.common.xml.metoc.MetocForecastPoint;
 
 /**
- * Metoc graphic for route
+ * Metoc graphic for route.
+ * <p>
+ * When painted for a projection, the forecast points are thinned so that only points
+ * on screen, and at least {@linkplain #MIN_POINT_SPACING} pixels apart, are displayed.
+ * The number of graphics thus depends on the screen size rather than the route length.
  */
 public class MetocGraphic extends OMGraphicList {
 
     private static final long serialVersionUID = 1L;
+    
+    /** Minimum distance in pixels between two displayed metoc points */
+    public static final double MIN_POINT_SPACING = 40.0;
 
     private Route route;
     private boolean activeRoute;
@@ -45,11 +54,26 @@ public class MetocGraphic extends OMGraphicList {
         paintMetoc();
     }
     
+    /**
+     * Creates graphics for all forecast points, subject only to the step
+     */
     public void paintMetoc(){
+        paintMetoc(null);
+    }
+    
+    /**
+     * Creates graphics for the forecast points visible in the given projection, 
+     * skipping points closer than {@linkplain #MIN_POINT_SPACING} pixels to the
+     * previously displayed point
+     * 
+     * @param proj the projection to thin the points by. If {@code null}, no thinning is performed
+     */
+    public void paintMetoc(Projection proj){
         clear();
         MetocForecast metocForecast = route.getMetocForecast();
         List<MetocForecastPoint> forecasts = metocForecast.getForecasts();
         Date now = PntTime.getInstance().getDate();
+        Point2D lastPoint = null;
         for (int i = 0; i < forecasts.size(); i += step) {
             MetocForecastPoint metocPoint = forecasts.get(i);
 
@@ -60,6 +84,18 @@ public class MetocGraphic extends OMGraphicList {
                     continue;
                 }
             }
+            
+            if (proj != null) {
+                if (!proj.isPlotable(metocPoint.getLat(), metocPoint.getLon())) {
+                    continue;
+                }
+                Point2D point = proj.forward(metocPoint.getLat(), metocPoint.getLon());
+                if (!isOnScreen(proj, point)
+                        || (lastPoint != null && lastPoint.distance(point) < MIN_POINT_SPACING)) {
+                    continue;
+                }
+                lastPoint = point;
+            }
 
             MetocPointGraphic metocPointGraphic = new MetocPointGraphic(metocPoint, this, eNavSettings);
             add(metocPointGraphic);
@@ -67,6 +103,19 @@ public class MetocGraphic extends OMGraphicList {
         }
     }
 
+    /**
+     * Returns if the given screen point is within the projection, 
+     * allowing a margin for the extent of the metoc symbols
+     * 
+     * @param proj the projection
+     * @param point the screen point
+     * @return if the screen point is within the projection
+     */
+    private static boolean isOnScreen(Projection proj, Point2D point) {
+        return point.getX() >= -MIN_POINT_SPACING && point.getX() <= proj.getWidth() + MIN_POINT_SPACING
+                && point.getY() >= -MIN_POINT_SPACING && point.getY() <= proj.getHeight() + MIN_POINT_SPACING;
+    }
+
     public Route getRoute() {
         return route;
     }
@@ -20,9 +20,13 @@ import javax.swing.ImageIcon;
 import com.bbn.openmap.omGraphics.OMGraphicList;
 
 import dk.dma.epd.common.graphics.CenterRaster;
+import dk.dma.epd.common.graphics.Resources;
 
 /**
- * Abstract base class for metoc raster images
+ * Abstract base class for metoc raster images.
+ * <p>
+ * The rotated symbols are taken from the shared atlas maintained by {@linkplain Resources},
+ * so all metoc graphics share the same decoded and pre-rotated images.
  */
 public abstract class MetocRaster extends OMGraphicList {
 
@@ -46,10 +50,11 @@ public abstract class MetocRaster extends OMGraphicList {
      * @param lon
      *            Position of the raster's horizontal center
      * @param angle
-     *            Rotational angle in radians
+     *            Rotational angle in radians. Snapped to the nearest of the
+     *            {@linkplain Resources#ROTATION_BUCKETS} pre-rendered rotations
      */
     public void addRaster(String rasterURI, double lat, double lon, double angle) {
-        ImageIcon imageIcon = new ImageIcon(MetocRaster.class.getResource(rasterURI));
+        ImageIcon imageIcon = Resources.get(MetocRaster.class).getCachedRotatedImageIcon(rasterURI, angle);
         
         int imageWidth = imageIcon.getIconWidth();
         int imageHeight = imageIcon.getIconHeight();
@@ -57,7 +62,6 @@ public abstract class MetocRaster extends OMGraphicList {
                 imageHeight, imageIcon);
         // rasterMark.setStroke(new BasicStroke());
         // rasterMark.setSelected(true);
-        rasterMark.setRotationAngle(angle);
         add(rasterMark);
     }
 
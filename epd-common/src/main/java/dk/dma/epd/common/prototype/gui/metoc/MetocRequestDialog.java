@@ -18,24 +18,32 @@ package dk.dma.epd.common.prototype.gui.metoc;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.WindowConstants;
 
+import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceErrorCode;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
 import dk.dma.epd.common.prototype.model.route.Route;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
 import dk.dma.epd.common.prototype.route.RouteManagerCommon;
+import dk.dma.epd.common.prototype.shoreservice.ShoreServiceExecutor;
 import dk.frv.enav.common.xml.metoc.MetocForecast;
 
 /**
- * Dialog shown when requesting METOC
+ * Dialog shown when requesting METOC.
+ * <p>
+ * The request is submitted to the shore service executor, and cancelling
+ * the dialog cancels the request.
  */
-public class MetocRequestDialog extends JDialog implements Runnable, ActionListener {
+public class MetocRequestDialog extends JDialog implements ActionListener {
     
     private static final long serialVersionUID = 1L;
     
@@ -44,7 +52,8 @@ public class MetocRequestDialog extends JDialog implements Runnable, ActionListe
     private Window parent;
     private JLabel statusLbl;
     private JButton cancelBtn;
-    private Boolean cancelReq = false;
+    private boolean cancelReq;
+    private Future<MetocForecast> request;
     private Boolean rawMetoc = false;
     
     public MetocRequestDialog(Window parent, RouteManagerCommon routeManager, Route route) {
@@ -63,34 +72,49 @@ public class MetocRequestDialog extends JDialog implements Runnable, ActionListe
     }
     
     private void doRequestMetoc() {
-        // Start thread
-        new Thread(this).start();
+        // Submit the request and wait for the response off the EDT
+        request = routeManager.requestRouteMetocAsync(route);
+        new SwingWorker<MetocForecast, Void>() {
+            @Override
+            protected MetocForecast doInBackground() throws ShoreServiceException {
+                return ShoreServiceExecutor.get(request);
+            }
+
+            @Override
+            protected void done() {
+                requestDone(this);
+            }
+        }.execute();
         
         // Set dialog visible
         setVisible(true);
     }
     
-    @Override
-    public void run() {
-        ShoreServiceException error = null;
-        try {
-            routeManager.requestRouteMetoc(route);
-        } catch (ShoreServiceException e) {
-            error = e;
-        }
-        
-        if (isCancelReq()) {
-            route.removeMetoc();
-            routeManager.notifyListeners(RoutesUpdateEvent.ROUTE_METOC_CHANGED);
+    /**
+     * Called on the EDT when the METOC request has completed
+     * @param worker the worker waiting for the request
+     */
+    private void requestDone(SwingWorker<MetocForecast, Void> worker) {
+        if (cancelReq) {
             return;
         }
         
-        if (error == null) {
+        ShoreServiceException error = null;
+        try {
+            routeManager.setRouteMetoc(route, worker.get());
             routeManager.notifyListeners(RoutesUpdateEvent.ROUTE_METOC_CHANGED);
+        } catch (ExecutionException e) {
+            error = e.getCause() instanceof ShoreServiceException
+                    ? (ShoreServiceException) e.getCause()
+                    : new ShoreServiceException(ShoreServiceErrorCode.INTERNAL_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
         }
         
         // Close dialog        
-        setVisible(false);        
+        setVisible(false);
+        dispose();
         
         // Give response        
         if (error != null) {
@@ -106,7 +130,6 @@ public class MetocRequestDialog extends JDialog implements Runnable, ActionListe
                     JOptionPane.INFORMATION_MESSAGE);
 
         }
-        
     }
     
     private void initGui() {
@@ -126,23 +149,15 @@ public class MetocRequestDialog extends JDialog implements Runnable, ActionListe
         getContentPane().add(statusLbl);
     }
     
-    private boolean isCancelReq() {
-        synchronized (cancelReq) {
-            return cancelReq.booleanValue();
-        }
-    }
-    
-    private void setCancelReq(boolean cancel) {
-        synchronized (cancelReq) {
-            this.cancelReq = cancel;
-        }
-    }
-
     @Override
     public void actionPerformed(ActionEvent e) {
         if (e.getSource() == cancelBtn) {
-            setCancelReq(true);
+            cancelReq = true;
+            if (request != null) {
+                request.cancel(true);
+            }
             setVisible(false);
+            dispose();
             route.removeMetoc();
             routeManager.notifyListeners(RoutesUpdateEvent.METOC_SETTINGS_CHANGED);
         }
@@ -17,6 +17,8 @@ package dk.dma.epd.common.prototype.gui.notification;
 
 import javax.swing.ImageIcon;
 
+import net.maritimecloud.core.id.MaritimeId;
+import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.notification.GeneralNotification;
 import dk.dma.epd.common.prototype.notification.Notification;
 import dk.dma.epd.common.prototype.notification.NotificationType;
@@ -95,6 +97,19 @@ public class GeneralNotificationPanel extends NotificationPanel<GeneralNotificat
         };
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Chat notifications carry the id of the sender, and reading one
+     * marks the conversation as read in the chat history.
+     */
+    @Override
+    protected void notificationRead(GeneralNotification notification) {
+        if (notification.get() instanceof MaritimeId && EPD.getInstance().getChatServiceHandler() != null) {
+            EPD.getInstance().getChatServiceHandler().getChatHistory().markRead((MaritimeId) notification.get());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
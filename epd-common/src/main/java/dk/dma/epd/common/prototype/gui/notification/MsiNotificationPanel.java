@@ -22,13 +22,16 @@ import java.util.Set;
 
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
 
 import org.apache.commons.lang.StringUtils;
 
 import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.msi.IMsiViewListener;
 import dk.dma.epd.common.prototype.msi.MsiHandler;
 import dk.dma.epd.common.prototype.msi.MsiMessageExtended;
 import dk.dma.epd.common.prototype.notification.MsiNotification;
+import dk.dma.epd.common.prototype.notification.NotificationStore;
 import dk.dma.epd.common.prototype.notification.NotificationType;
 import dk.dma.epd.common.text.Formatter;
 import dk.frv.enav.common.xml.msi.MsiLocation;
@@ -37,8 +40,12 @@ import dk.frv.enav.common.xml.msi.MsiPoint;
 
 /**
  * An MSI-specific implementation of the {@linkplain NotificationPanel} class
+ * <p>
+ * The notifications are rebuilt in full by {@linkplain #refreshNotifications()},
+ * e.g. when the MSI filter changes, and are otherwise updated one message at a
+ * time as the MSI view model changes.
  */
-public class MsiNotificationPanel extends NotificationPanel<MsiNotification> {
+public class MsiNotificationPanel extends NotificationPanel<MsiNotification> implements IMsiViewListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -185,6 +192,69 @@ public class MsiNotificationPanel extends NotificationPanel<MsiNotification> {
         refreshTableData();
         notifyListeners();
     }
+
+    /**
+     * Updates the notifications of the changed messages only.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void msiViewChanged(final List<MsiMessageExtended> changed, final List<MsiMessageExtended> removed) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override public void run() {
+                    msiViewChanged(changed, removed);
+                }
+            });
+            return;
+        }
+
+        NotificationStore<MsiNotification> store = getNotificationStore();
+        for (MsiMessageExtended message : removed) {
+            MsiNotification notification = store.getById(message.getMsiMessage().getMessageId());
+            if (notification != null) {
+                store.remove(notification);
+            }
+        }
+
+        boolean filtered = EPD.getInstance().getSettings().getEnavSettings().isMsiFilter();
+        for (MsiMessageExtended message : changed) {
+            Integer msgId = message.getMsiMessage().getMessageId();
+            MsiNotification old = store.getById(msgId);
+            if (old != null) {
+                store.remove(old);
+            }
+            if (filtered && !message.visible) {
+                continue;
+            }
+            MsiNotification notification = new MsiNotification(message);
+            // Restore the "read" flag
+            if (old != null && old.isRead()) {
+                notification.setRead(true);
+            }
+            store.add(insertionIndex(store, msgId), notification);
+        }
+
+        refreshTableData();
+        notifyListeners();
+    }
+
+    /**
+     * Returns the index at which to insert a notification to keep the
+     * store ordered by message id
+     */
+    private static int insertionIndex(NotificationStore<MsiNotification> store, int msgId) {
+        int low = 0, high = store.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.get(mid).getId() < msgId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 }
 
 
@@ -58,6 +58,7 @@ import dk.dma.epd.common.prototype.notification.Notification;
 import dk.dma.epd.common.prototype.notification.NotificationAlert;
 import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
 import dk.dma.epd.common.prototype.notification.NotificationAlert.AlertType;
+import dk.dma.epd.common.prototype.notification.NotificationStore;
 import dk.dma.epd.common.prototype.notification.NotificationType;
 import dk.dma.epd.common.prototype.service.ChatServiceHandlerCommon;
 import dk.dma.epd.common.prototype.service.ChatServiceHandlerCommon.IChatServiceListener;
@@ -133,19 +134,33 @@ public class NotificationCenterCommon extends ComponentDialog implements
      */
     @Override
     public void actionPerformed(ActionEvent ae) {
-        // Run through all alerts of all notifications of all panels
-        // and check if they should be triggered
+        // The notification stores index the alerts by due time,
+        // so only the alerts that are due are checked
+        long now = System.currentTimeMillis();
         for (NotificationPanel<?> panel : panels) {
-            for (Notification<?, ?> notification : panel.getNotifications()) {
-                for (NotificationAlert alert : notification.getAlerts()) {
-                    if (alert.shouldTrigger(notification)) {
-                        triggerAlert(panel, notification, alert);
-                    }
-                }
-            }
+            triggerDueAlerts(panel, now);
         }
     }
     
+    /**
+     * Triggers the due alerts of the given panel
+     * 
+     * @param panel the notification panel
+     * @param now the current time
+     */
+    private <N extends Notification<?, ?>> void triggerDueAlerts(final NotificationPanel<N> panel, long now) {
+        NotificationStore<N> store = panel.getNotificationStore();
+        long next = store.getNextAlertTime();
+        if (next < 0 || next > now) {
+            return;
+        }
+        store.triggerDueAlerts(now, new NotificationStore.AlertHandler<N>() {
+            @Override public void triggerAlert(N notification, NotificationAlert alert) {
+                NotificationCenterCommon.this.triggerAlert(panel, notification, alert);
+            }
+        });
+    }
+    
     /**
      * Trigger the given alert for the given notification
      * 
@@ -195,6 +210,7 @@ public class NotificationCenterCommon extends ComponentDialog implements
         if (obj instanceof MsiHandler && msiHandler == null) {
             msiHandler = (MsiHandler) obj;
             msiHandler.addListener(this);
+            msiHandler.getViewModel().addListener(msiPanel);
             msiPanel.refreshNotifications();
         
         } else if (obj instanceof ChatServiceHandlerCommon && chatServiceHandler == null) {
@@ -354,6 +370,7 @@ public class NotificationCenterCommon extends ComponentDialog implements
     public void chatMessageReceived(MaritimeId senderId, ChatServiceMessage message) {
         GeneralNotification notification = new GeneralNotification();
         notification.setId(message.getId());
+        notification.setValue(senderId);
         notification.setDate(new Date(message.getSendDate()));
         notification.setTitle("Message from " + message.getSenderName());
         notification.setDescription(message.getMessage());
@@ -374,11 +391,11 @@ public class NotificationCenterCommon extends ComponentDialog implements
         GeneralNotification not1 = new GeneralNotification();
         not1.setTitle("hkjdfhg");
         not1.setSeverity(NotificationSeverity.ALERT);
-        n.generalPanel.tableModel.notifications.add(not1);
+        n.generalPanel.getNotificationStore().add(not1);
         GeneralNotification not2 = new GeneralNotification();
         not2.setTitle("ddd");
         not2.setRead(true);
-        n.generalPanel.tableModel.notifications.add(not2);
+        n.generalPanel.getNotificationStore().add(not2);
         n.setVisible(true);
         
     }
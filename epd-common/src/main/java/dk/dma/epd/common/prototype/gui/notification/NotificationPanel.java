@@ -42,6 +42,7 @@ import javax.swing.table.DefaultTableCellRenderer;
 import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.notification.Notification;
 import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
+import dk.dma.epd.common.prototype.notification.NotificationStore;
 import dk.dma.epd.common.prototype.notification.NotificationType;
 
 /**
@@ -127,6 +128,14 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
         return tableModel.getNotifications();
     }
     
+    /**
+     * Returns the notification store of this panel
+     * @return the notification store of this panel
+     */
+    public NotificationStore<N> getNotificationStore() {
+        return tableModel.getNotificationStore();
+    }
+    
     /**
      * Returns the notification with the given identifier.
      * Returns null if none is found.
@@ -134,15 +143,7 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      * @return the notification with the given identifier
      */
     public N getNotificationById(Object id) {
-        // TODO: Consider using an ID look-up map instead
-        if (id != null) {
-            for (N notification : getNotifications()) {
-                if (id.equals(notification.getId())) {
-                    return notification;
-                }
-            }
-        }
-        return null;
+        return getNotificationStore().getById(id);
     }
     
     /**
@@ -250,7 +251,8 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
         N notification = getSelectedNotification();
         if (notification != null) {
             if (!notification.isRead()) {
-                notification.setRead(true);
+                getNotificationStore().setRead(notification, true);
+                notificationRead(notification);
                 table.repaint();
                 notifyListeners();
                 
@@ -265,6 +267,15 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
         }
     }
     
+    /**
+     * Called when the given notification has been marked as read.
+     * Sub-classes can override to propagate the read state.
+     * 
+     * @param notification the notification that has been read
+     */
+    protected void notificationRead(N notification) {
+    }
+    
     /**
      * Selects the given row index
      * @param rowIndex the row to select
@@ -280,11 +291,9 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      * @param id the id of the notification to select
      */
     public void setSelectedId(Object id) {
-        for (int row = 0; row < tableModel.getNotifications().size(); row++) {
-            if (id.equals(tableModel.getNotification(row).getId())) {
-                setSelectedRow(row);
-                return;
-            }
+        int row = getNotificationStore().indexOf(id);
+        if (row >= 0) {
+            setSelectedRow(row);
         }
     }
     
@@ -294,11 +303,9 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      */
     protected void selectFirstUnacknowledgedRow() {
         // Change the selection to the next unacknowledged
-        for (int row = 0; row < tableModel.getNotifications().size(); row++) {
-            if (!tableModel.getNotification(row).isAcknowledged()) {
-                setSelectedRow(row);
-                return;
-            }
+        int row = getNotificationStore().getFirstUnacknowledgedIndex();
+        if (row >= 0) {
+            setSelectedRow(row);
         }
     }
     
@@ -322,8 +329,11 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      */
     public void acknowledgeNotification(N notification) {
         if (notification != null && !notification.isAcknowledged()) {
-            notification.setAcknowledged(true);
-            notification.setRead(true); // Implied by acknowledged
+            getNotificationStore().setAcknowledged(notification, true);
+            if (!notification.isRead()) {
+                getNotificationStore().setRead(notification, true); // Implied by acknowledged
+                notificationRead(notification);
+            }
             table.repaint();
             updateButtonEnabledState();
             selectFirstUnacknowledgedRow();
@@ -347,7 +357,7 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      */
     public void deleteNotification(N notification) {
         if (notification != null) {
-            tableModel.notifications.remove(notification);
+            getNotificationStore().remove(notification);
             tableModel.fireTableDataChanged();
             updateButtonEnabledState();
             notifyListeners();
@@ -415,8 +425,9 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      * Guaranteed to be run in the Swing event tread.
      */
     protected void doAddNotification(N notification) {
-        tableModel.getNotifications().add(notification);
-        tableModel.fireTableDataChanged();
+        getNotificationStore().add(notification);
+        int row = tableModel.getRowCount() - 1;
+        tableModel.fireTableRowsInserted(row, row);
         notifyListeners();
     }
     
@@ -481,16 +492,17 @@ public abstract class NotificationPanel<N extends Notification<?,?>> extends JPa
      * Notifies all listeners with the current statistics of the notifications
      */
     protected void notifyListeners() {
-        // Compute the statistics
+        // Read the statistics from the counters maintained by the store
+        NotificationStore<N> store = getNotificationStore();
         NotificationStatistics stats = new NotificationStatistics();
-        for (N n : tableModel.getNotifications()) {
-            stats.count++;
-            if (!n.isRead()) { stats.unreadCount++; }
-            if (!n.isAcknowledged()) { stats.unacknowledgedCount++; }
-            if (n.getSeverity() == NotificationSeverity.WARNING) { stats.warningCount++; }
-            if (n.getSeverity() == NotificationSeverity.WARNING && !n.isAcknowledged()) { stats.unacknowledgedWarningCount++; }
-            if (n.getSeverity() == NotificationSeverity.ALERT) { stats.alertCount++; }
-            if (n.getSeverity() == NotificationSeverity.ALERT && !n.isAcknowledged()) { stats.unacknowledgedAlertCount++; }
+        synchronized (store) {
+            stats.count = store.size();
+            stats.unreadCount = store.getUnreadCount();
+            stats.unacknowledgedCount = store.getUnacknowledgedCount();
+            stats.warningCount = store.getCount(NotificationSeverity.WARNING);
+            stats.unacknowledgedWarningCount = store.getUnacknowledgedCount(NotificationSeverity.WARNING);
+            stats.alertCount = store.getCount(NotificationSeverity.ALERT);
+            stats.unacknowledgedAlertCount = store.getUnacknowledgedCount(NotificationSeverity.ALERT);
         }
         
         // Notify listeners
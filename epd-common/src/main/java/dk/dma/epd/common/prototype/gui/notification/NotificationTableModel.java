@@ -15,7 +15,6 @@
  */
 package dk.dma.epd.common.prototype.gui.notification;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.ImageIcon;
@@ -23,6 +22,7 @@ import javax.swing.table.AbstractTableModel;
 
 import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.notification.Notification;
+import dk.dma.epd.common.prototype.notification.NotificationStore;
 
 /**
  * Base class for notification table models
@@ -36,7 +36,7 @@ public abstract class NotificationTableModel<N extends Notification<?,?>> extend
     protected static final ImageIcon ICON_ALERT         = EPD.res().getCachedImageIcon("images/notifications/error.png");
     protected static final ImageIcon ICON_WARNING       = EPD.res().getCachedImageIcon("images/notifications/warning.png");
     
-    List<N> notifications = new ArrayList<>();
+    final NotificationStore<N> store = new NotificationStore<>();
 
     /**
      * Returns the list of column names
@@ -49,7 +49,7 @@ public abstract class NotificationTableModel<N extends Notification<?,?>> extend
      */
     @Override
     public int getRowCount() {
-        return notifications.size();
+        return store.size();
     }
 
     /**
@@ -82,18 +82,23 @@ public abstract class NotificationTableModel<N extends Notification<?,?>> extend
      * @return the notification at the given row
      */
     public N getNotification(int row) {
-        if (row < 0 || row >= notifications.size()) {
-            return null;
-        }
-        return notifications.get(row);
+        return store.get(row);
     }
 
     /**
-     * Returns the notifications of this table model
-     * @return the notifications of this table model
+     * Returns the notification store backing this table model
+     * @return the notification store backing this table model
+     */
+    public NotificationStore<N> getNotificationStore() {
+        return store;
+    }
+
+    /**
+     * Returns a copy of the notifications of this table model
+     * @return a copy of the notifications of this table model
      */
     public List<N> getNotifications() {
-        return notifications;
+        return store.getNotifications();
     }
 
     /**
@@ -102,6 +107,6 @@ public abstract class NotificationTableModel<N extends Notification<?,?>> extend
      * @param notifications the notifications of this table model
      */
     public void setNotifications(List<N> notifications) {
-        this.notifications = notifications;
+        store.setAll(notifications);
     }
 }
@@ -0,0 +1,165 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.gui.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import net.jcip.annotations.ThreadSafe;
+
+import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.scheduler.TaskScheduler;
+
+/**
+ * Prepares the data displayed by a panel off the Swing event dispatch thread.
+ * <p>
+ * Sensor and handler callbacks call {@linkplain #invalidate()}, which may be done from any thread 
+ * and at any rate. The view model then computes a new snapshot via {@linkplain #computeSnapshot()}
+ * on a scheduler thread, at most once every {@code minInterval} ms, and hands the latest snapshot
+ * to {@linkplain #publish(Object)} on the event dispatch thread. At most one publication is queued
+ * on the event dispatch thread at any time, so bursts of updates do not delay user input.
+ * 
+ * @param <T> the type of the snapshot. Should be immutable
+ */
+@ThreadSafe
+public abstract class ViewModel<T> {
+
+    private final String name;
+    private final long minInterval;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+    private final AtomicReference<T> snapshot = new AtomicReference<>();
+    private volatile long lastComputed;
+    private volatile ScheduledTask computeTask;
+
+    private final Runnable computer = new Runnable() {
+        @Override
+        public void run() {
+            compute();
+        }
+    };
+
+    private final Runnable publisher = new Runnable() {
+        @Override
+        public void run() {
+            publishPending.set(false);
+            publish(snapshot.get());
+        }
+    };
+
+    /**
+     * Constructor
+     * 
+     * @param name the name of the view model, used for naming the scheduler task
+     * @param minInterval the minimum interval in ms between computing snapshots
+     */
+    protected ViewModel(String name, long minInterval) {
+        this.name = name + "-" + System.identityHashCode(this);
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Computes a snapshot of the data to display. Called on a scheduler thread.
+     * 
+     * @return the snapshot
+     */
+    protected abstract T computeSnapshot();
+
+    /**
+     * Displays the given snapshot. Called on the Swing event dispatch thread.
+     * 
+     * @param snapshot the snapshot to display
+     */
+    protected abstract void publish(T snapshot);
+
+    /**
+     * Signals that the displayed data has changed. May be called from any thread.
+     */
+    public void invalidate() {
+        if (dirty.getAndSet(true)) {
+            // Already pending
+            return;
+        }
+        long delay = lastComputed + minInterval - System.currentTimeMillis();
+        if (delay <= 0) {
+            getComputeTask().trigger();
+        } else {
+            getScheduler().schedule(name + "-Throttle", TaskPriority.NORMAL, new Runnable() {
+                @Override
+                public void run() {
+                    getComputeTask().trigger();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the most recently computed snapshot, or {@code null} if none has been computed
+     * 
+     * @return the most recently computed snapshot
+     */
+    public T getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Cancels any pending computation of the view model
+     */
+    public void dispose() {
+        TaskScheduler scheduler = getScheduler();
+        scheduler.cancel(name);
+        scheduler.cancel(name + "-Throttle");
+        computeTask = null;
+    }
+
+    /**
+     * Computes a new snapshot and queues its publication, unless a publication is already queued
+     */
+    private void compute() {
+        dirty.set(false);
+        lastComputed = System.currentTimeMillis();
+        snapshot.set(computeSnapshot());
+        if (publishPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(publisher);
+        }
+    }
+
+    /**
+     * Returns the scheduler task computing the snapshots, registering it upon first access
+     */
+    private ScheduledTask getComputeTask() {
+        ScheduledTask task = computeTask;
+        if (task == null) {
+            synchronized (this) {
+                task = computeTask;
+                if (task == null) {
+                    task = getScheduler().registerTriggered(name, TaskPriority.NORMAL, computer);
+                    computeTask = task;
+                }
+            }
+        }
+        return task;
+    }
+
+    private static TaskScheduler getScheduler() {
+        return EPD.getInstance().getTaskScheduler();
+    }
+}
@@ -22,7 +22,9 @@ import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.JPanel;
@@ -30,8 +32,8 @@ import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import com.bbn.openmap.MapBean;
-import com.bbn.openmap.event.MapEventUtils;
 import com.bbn.openmap.event.MapMouseListener;
+import com.bbn.openmap.event.ProjectionEvent;
 import com.bbn.openmap.layer.OMGraphicHandlerLayer;
 import com.bbn.openmap.omGraphics.OMGraphic;
 import com.bbn.openmap.omGraphics.OMGraphicList;
@@ -42,6 +44,7 @@ import dk.dma.epd.common.prototype.gui.MainFrameCommon;
 import dk.dma.epd.common.prototype.gui.MapMenuCommon;
 import dk.dma.epd.common.prototype.gui.util.InfoPanel;
 import dk.dma.epd.common.prototype.gui.util.InfoPanel.InfoPanelBinding;
+import dk.dma.epd.common.prototype.layers.util.GraphicSpatialIndex;
 import dk.dma.epd.common.prototype.layers.util.LayerVisiblityListener;
 
 /**
@@ -81,6 +84,7 @@ public abstract class EPDLayerCommon extends OMGraphicHandlerLayer implements Ma
 
     private Timer timer;
     private CopyOnWriteArrayList<LayerVisiblityListener> visibilityListener = new CopyOnWriteArrayList<>();
+    private final Map<OMGraphicList, GraphicSpatialIndex> spatialIndexes = new IdentityHashMap<>();
 
     /**
      * {@inheritDoc}
@@ -94,6 +98,37 @@ public abstract class EPDLayerCommon extends OMGraphicHandlerLayer implements Ma
         return graphics;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The graphics are about to be re-projected, so the spatial indexes are discarded.
+     */
+    @Override
+    public void doPrepare() {
+        invalidateSpatialIndexes();
+        super.doPrepare();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The graphics are about to be re-projected, so the spatial indexes are discarded.
+     */
+    @Override
+    public void projectionChanged(ProjectionEvent pe) {
+        invalidateSpatialIndexes();
+        super.projectionChanged(pe);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setList(OMGraphicList omgl) {
+        invalidateSpatialIndexes();
+        super.setList(omgl);
+    }
+
     /***************************************/
     /** Life-cycle functionality **/
     /***************************************/
@@ -409,7 +444,42 @@ public abstract class EPDLayerCommon extends OMGraphicHandlerLayer implements Ma
      * @return the first matching graphics element
      */
     public final OMGraphic getSelectedGraphic(OMGraphicList graphicsList, MouseEvent evt, Class<?>... types) {
-        return MapEventUtils.getSelectedGraphic(graphicsList, evt, getMouseSelectTolerance(), types);
+        if (graphicsList == null) {
+            return null;
+        }
+        return getSpatialIndex(graphicsList).getSelectedGraphic(evt.getX(), evt.getY(), getMouseSelectTolerance(), types);
+    }
+
+    /**
+     * Returns the screen-space index of the given graphics list.
+     * <p>
+     * The index is built on first use and shared by the mouse lookups until
+     * the layer is prepared or re-projected, or the graphics list changes.
+     * 
+     * @param graphicsList
+     *            the graphics list to return the index for
+     * @return the index of the graphics list
+     */
+    protected GraphicSpatialIndex getSpatialIndex(OMGraphicList graphicsList) {
+        synchronized (spatialIndexes) {
+            GraphicSpatialIndex index = spatialIndexes.get(graphicsList);
+            if (index == null || !index.isCurrent(graphicsList)) {
+                int width = getProjection() != null ? getProjection().getWidth() : getWidth();
+                int height = getProjection() != null ? getProjection().getHeight() : getHeight();
+                index = new GraphicSpatialIndex(graphicsList, width, height);
+                spatialIndexes.put(graphicsList, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Discards the spatial indexes used for mouse lookups
+     */
+    protected void invalidateSpatialIndexes() {
+        synchronized (spatialIndexes) {
+            spatialIndexes.clear();
+        }
     }
 
     /***************************************/
@@ -625,6 +695,16 @@ public abstract class EPDLayerCommon extends OMGraphicHandlerLayer implements Ma
         notifyVisibilityListeners();
     }
 
+    /**
+     * Records the time spent painting the layer in the render metrics.
+     */
+    @Override
+    public void paint(Graphics g) {
+        long start = System.nanoTime();
+        super.paint(g);
+        EPD.getInstance().getMetrics().getRenderMetrics().markPaint(getClass().getSimpleName(), System.nanoTime() - start);
+    }
+
 }
 
 /***************************************/
@@ -18,8 +18,13 @@ package dk.dma.epd.common.prototype.layers.msi;
 
 import java.awt.Point;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import net.jcip.annotations.GuardedBy;
 
 import com.bbn.openmap.omGraphics.OMGraphic;
 
@@ -28,6 +33,7 @@ import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.gui.util.InfoPanel;
 import dk.dma.epd.common.prototype.layers.EPDLayerCommon;
 import dk.dma.epd.common.prototype.msi.IMsiUpdateListener;
+import dk.dma.epd.common.prototype.msi.IMsiViewListener;
 import dk.dma.epd.common.prototype.msi.MsiHandler;
 import dk.dma.epd.common.prototype.msi.MsiMessageExtended;
 import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
@@ -36,13 +42,25 @@ import dk.frv.enav.common.xml.msi.MsiMessage;
 
 /**
  * Base layer class for handling all MSI messages
+ * <p>
+ * The graphics are rebuilt in full by {@linkplain #doUpdate()}, e.g. when the
+ * filter changes, and are otherwise updated one message at a time as the
+ * {@linkplain MsiHandler} view model changes.
  */
-public abstract class MsiLayerCommon extends EPDLayerCommon  implements IMsiUpdateListener {
+public abstract class MsiLayerCommon extends EPDLayerCommon  implements IMsiUpdateListener, IMsiViewListener {
 
     private static final long serialVersionUID = 1L;
 
     protected MsiHandler msiHandler;
     private MsiInfoPanel msiInfoPanel = new MsiInfoPanel();
+
+    /** The graphics of each message */
+    @GuardedBy("graphics")
+    private final Map<Integer, List<OMGraphic>> messageGraphics = new HashMap<>();
+
+    /** Messages skipped because they are not yet valid */
+    @GuardedBy("graphics")
+    private final Map<Integer, MsiMessageExtended> pendingMessages = new HashMap<>();
     
     /**
      * Constructor
@@ -58,39 +76,102 @@ public abstract class MsiLayerCommon extends EPDLayerCommon  implements IMsiUpda
      * Generate the graphics based on the current list of MSI messages
      */
     public void doUpdate() {
-        graphics.clear();
         Date now = PntTime.getInstance().getDate();
         // Get messages
         List<MsiMessageExtended> messages = msiHandler.getMessageList();
-        for (MsiMessageExtended message : messages) {
-            
-            // Not able to show messages without location
-            if (!message.msiMessage.hasLocation()) {
-                continue;
+        synchronized (graphics) {
+            graphics.clear();
+            messageGraphics.clear();
+            pendingMessages.clear();
+            for (MsiMessageExtended message : messages) {
+                addMessage(message, now);
             }
-            
-            // Is it valid now
-            if (!message.isValidAt(now)) {
-                continue;
+        }
+        doPrepare();
+    }
+
+    /**
+     * Updates the graphics of the changed messages only
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void msiViewChanged(List<MsiMessageExtended> changed, List<MsiMessageExtended> removed) {
+        Date now = PntTime.getInstance().getDate();
+        synchronized (graphics) {
+            for (MsiMessageExtended message : removed) {
+                removeMessage(message.msiMessage.getMessageId());
             }
-            
-            // Is the message included in the filter
-            if (!filterMessage(message)) {
-                continue;
+            for (MsiMessageExtended message : changed) {
+                removeMessage(message.msiMessage.getMessageId());
+                addMessage(message, now);
             }
-            
-            // Create MSI graphic
-            MsiGraphic msiGraphic = new MsiGraphic(message);
-            graphics.add(msiGraphic);
-            
-            if(mapBean != null && message.relevant){
-                MsiDirectionalIcon direction = new MsiDirectionalIcon(mapBean);
-                direction.setMarker(message);
-                graphics.add(direction);
+
+            // Add the pending messages that have become valid since
+            for (MsiMessageExtended message : new ArrayList<>(pendingMessages.values())) {
+                if (message.isValidAt(now)) {
+                    pendingMessages.remove(message.msiMessage.getMessageId());
+                    addMessage(message, now);
+                }
             }
         }
         doPrepare();
     }
+
+    /**
+     * Adds the graphics of the message, if it should be displayed
+     * 
+     * @param message the message to add
+     * @param now the current time
+     */
+    @GuardedBy("graphics")
+    private void addMessage(MsiMessageExtended message, Date now) {
+        // Not able to show messages without location
+        if (!message.msiMessage.hasLocation()) {
+            return;
+        }
+
+        // Is it valid now
+        if (!message.isValidAt(now)) {
+            pendingMessages.put(message.msiMessage.getMessageId(), message);
+            return;
+        }
+
+        // Is the message included in the filter
+        if (!filterMessage(message)) {
+            return;
+        }
+
+        // Create MSI graphic
+        List<OMGraphic> added = new ArrayList<>(2);
+        MsiGraphic msiGraphic = new MsiGraphic(message);
+        graphics.add(msiGraphic);
+        added.add(msiGraphic);
+
+        if(mapBean != null && message.relevant){
+            MsiDirectionalIcon direction = new MsiDirectionalIcon(mapBean);
+            direction.setMarker(message);
+            graphics.add(direction);
+            added.add(direction);
+        }
+        messageGraphics.put(message.msiMessage.getMessageId(), added);
+    }
+
+    /**
+     * Removes the graphics of the message with the given id
+     * 
+     * @param msgId the message id
+     */
+    @GuardedBy("graphics")
+    private void removeMessage(Integer msgId) {
+        pendingMessages.remove(msgId);
+        List<OMGraphic> removed = messageGraphics.remove(msgId);
+        if (removed != null) {
+            for (OMGraphic graphic : removed) {
+                graphics.remove(graphic);
+            }
+        }
+    }
     
     /**
      * If filtering is turned on, return whether to include the message or not
@@ -152,6 +233,8 @@ public abstract class MsiLayerCommon extends EPDLayerCommon  implements IMsiUpda
         if (obj instanceof MsiHandler) {
             msiHandler = (MsiHandler) obj;
             msiHandler.addListener(this);
+            msiHandler.getViewModel().addListener(this);
+            doUpdate();
         }
     }
 }
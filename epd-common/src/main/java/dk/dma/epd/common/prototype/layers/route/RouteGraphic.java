@@ -48,6 +48,9 @@ public class RouteGraphic extends OMGraphicList {
     protected boolean lineDash;
 
     private int routeIndex;
+    
+    private RouteWaypointGraphic activeWaypointGraphic;
+    private int activeWaypointIndex = -1;
 
     boolean animation;
 
@@ -96,9 +99,10 @@ public class RouteGraphic extends OMGraphicList {
         int i = 0;
         for (RouteWaypoint routeWaypoint : routeWaypoints) {
             if (route instanceof ActiveRoute && ((ActiveRoute) route).getActiveWaypointIndex() == i) {
-                RouteWaypointGraphic routeWaypointGraphicActive = new RouteWaypointGraphic(route, routeIndex, i, routeWaypoint,
+                activeWaypointGraphic = new RouteWaypointGraphic(route, routeIndex, i, routeWaypoint,
                         Color.RED, 30, 30, SCALE);
-                add(0, routeWaypointGraphicActive);
+                activeWaypointIndex = i;
+                add(0, activeWaypointGraphic);
             }
 
             if (routeWaypoint.getOutLeg() != null) {
@@ -134,9 +138,10 @@ public class RouteGraphic extends OMGraphicList {
         int i = 0;
         for (RouteWaypoint routeWaypoint : routeWaypoints) {
             if (route instanceof ActiveRoute && ((ActiveRoute) route).getActiveWaypointIndex() == i) {
-                RouteWaypointGraphic routeWaypointGraphicActive = new RouteWaypointGraphic(route, routeIndex, i, routeWaypoint,
+                activeWaypointGraphic = new RouteWaypointGraphic(route, routeIndex, i, routeWaypoint,
                         Color.RED, 30, 30, SCALE);
-                add(0, routeWaypointGraphicActive);
+                activeWaypointIndex = i;
+                add(0, activeWaypointGraphic);
             }
             if (routeWaypoint.getOutLeg() != null) {
                 RouteLeg routeLeg = routeWaypoint.getOutLeg();
@@ -159,6 +164,34 @@ public class RouteGraphic extends OMGraphicList {
         }
     }
 
+    /**
+     * Moves the active waypoint marker of an active route to the current active waypoint.
+     * <p>
+     * Use this rather than re-creating the graphic, when only the active waypoint has changed.
+     * 
+     * @return if the marker was moved
+     */
+    public boolean updateActiveWaypoint() {
+        if (!(route instanceof ActiveRoute)) {
+            return false;
+        }
+        int index = ((ActiveRoute) route).getActiveWaypointIndex();
+        if (index == activeWaypointIndex) {
+            return false;
+        }
+        if (activeWaypointGraphic != null) {
+            remove(activeWaypointGraphic);
+            activeWaypointGraphic = null;
+        }
+        activeWaypointIndex = index;
+        if (index >= 0 && index < routeWaypoints.size()) {
+            activeWaypointGraphic = new RouteWaypointGraphic(route, routeIndex, index, routeWaypoints.get(index),
+                    Color.RED, 30, 30, SCALE);
+            add(0, activeWaypointGraphic);
+        }
+        return true;
+    }
+
     public void activateAnimation() {
         for (int i = 0; i < routeLegs.size(); i++) {
             routeLegs.get(i).addAnimatorLine();
@@ -18,7 +18,9 @@ package dk.dma.epd.common.prototype.layers.route;
 import java.awt.Point;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -38,8 +40,9 @@ import dk.dma.epd.common.prototype.gui.metoc.MetocInfoPanel;
 import dk.dma.epd.common.prototype.gui.metoc.MetocPointGraphic;
 import dk.dma.epd.common.prototype.gui.util.InfoPanel;
 import dk.dma.epd.common.prototype.layers.EPDLayerCommon;
-import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
+import dk.dma.epd.common.prototype.model.route.IRouteUpdateListener;
 import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteUpdate;
 import dk.dma.epd.common.prototype.model.route.RouteWaypoint;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
 import dk.dma.epd.common.prototype.route.RouteManagerCommon;
@@ -47,9 +50,13 @@ import dk.frv.enav.common.xml.metoc.MetocForecast;
 import dk.frv.enav.common.xml.metoc.MetocForecastPoint;
 
 /**
- * Base class for EPDShip and EPDShore route layers
+ * Base class for EPDShip and EPDShore route layers.
+ * <p>
+ * The layer keeps one graphic per displayed route. Route-scoped updates, such as a change
+ * of the active waypoint or a moved waypoint, only update the graphic of the affected route.
+ * All other updates rebuild the graphics via {@linkplain #routesChanged(RoutesUpdateEvent)}.
  */
-public abstract class RouteLayerCommon extends EPDLayerCommon implements IRoutesUpdateListener {
+public abstract class RouteLayerCommon extends EPDLayerCommon implements IRouteUpdateListener {
 
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = LoggerFactory.getLogger(RouteLayerCommon.class);
@@ -63,6 +70,7 @@ public abstract class RouteLayerCommon extends EPDLayerCommon implements IRoutes
     protected boolean arrowsVisible;
     protected MetocGraphic routeMetoc;
     protected boolean dragging;
+    protected final Map<Route, RouteGraphic> routeGraphics = new IdentityHashMap<>();
 
     
     /**
@@ -79,6 +87,90 @@ public abstract class RouteLayerCommon extends EPDLayerCommon implements IRoutes
         registerMapMenuClasses(WaypointCircle.class, RouteLegGraphic.class);
     }
     
+    /**
+     * Called upon a route update. Patches the graphic of the affected route if possible,
+     * and otherwise rebuilds all graphics.
+     * @param update the route update
+     */
+    @Override
+    public void routeUpdated(RouteUpdate update) {
+        if (!patchRouteGraphic(update)) {
+            routesChanged(update.getEvent());
+        }
+    }
+    
+    /**
+     * Attempts to update only the graphic of the route affected by the given update
+     * 
+     * @param update the route update
+     * @return if the update was handled
+     */
+    protected synchronized boolean patchRouteGraphic(RouteUpdate update) {
+        if (!update.isRouteScoped()) {
+            return false;
+        }
+        RouteGraphic routeGraphic = routeGraphics.get(update.getRoute());
+        if (routeGraphic == null) {
+            return false;
+        }
+        
+        switch (update.getEvent()) {
+        case ACTIVE_ROUTE_UPDATE:
+            // Move the active waypoint marker
+            if (routeGraphic.updateActiveWaypoint()) {
+                routeGraphic.project(getProjection(), true);
+            }
+            break;
+            
+        case ROUTE_WAYPOINT_MOVED:
+            // Re-create the graphic of the route only
+            int index = graphics.indexOf(routeGraphic);
+            RouteGraphic newRouteGraphic = createRouteGraphic(update.getRoute(), update.getRouteIndex());
+            if (index < 0 || newRouteGraphic == null) {
+                return false;
+            }
+            graphics.set(index, newRouteGraphic);
+            routeGraphics.put(update.getRoute(), newRouteGraphic);
+            newRouteGraphic.project(getProjection(), true);
+            break;
+            
+        default:
+            return false;
+        }
+        
+        doPrepare();
+        return true;
+    }
+    
+    /**
+     * Creates the graphic for the given inactive route. Returns {@code null} 
+     * if the route graphics must be rebuilt using {@linkplain #routesChanged(RoutesUpdateEvent)}
+     * 
+     * @param route the route
+     * @param routeIndex the index of the route
+     * @return the route graphic, or {@code null}
+     */
+    protected RouteGraphic createRouteGraphic(Route route, int routeIndex) {
+        return null;
+    }
+    
+    /**
+     * Adds the route graphic to the layer graphics and registers it with its route
+     * @param routeGraphic the route graphic to add
+     */
+    protected void addRouteGraphic(RouteGraphic routeGraphic) {
+        graphics.add(routeGraphic);
+        routeGraphics.put(routeGraphic.getRoute(), routeGraphic);
+    }
+    
+    /**
+     * Clears the layer graphics and the registered route graphics
+     */
+    protected void clearGraphics() {
+        graphics.clear();
+        routeGraphics.clear();
+    }
+    
     /**
      * Calculate distance between displayed METOC-points projected onto the screen
      * @param metocGraphic METOC-graphics containing METOC-points
@@ -226,7 +318,8 @@ public abstract class RouteLayerCommon extends EPDLayerCommon implements IRoutes
                         LOG.debug("Failed to remove STCC Approved part of name");
                     }
                 }
-                routesChanged(RoutesUpdateEvent.ROUTE_WAYPOINT_MOVED);
+                routeUpdated(new RouteUpdate(RoutesUpdateEvent.ROUTE_WAYPOINT_MOVED, 
+                        wpc.getRoute(), wpc.getRouteIndex(), wpc.getWpIndex()));
                 dragging = true;
                 return true;
                 
@@ -282,15 +375,8 @@ public abstract class RouteLayerCommon extends EPDLayerCommon implements IRoutes
             MetocGraphic metocGraphic = (MetocGraphic) omGraphic;
             Route route = metocGraphic.getRoute();
             if(routeManager.showMetocForRoute(route)){
-                double minDist = calculateMetocDistance(route);
-                int step = Math.max((int) (5.0 / minDist), 1);
-                metocGraphic.setStep(step);
-                
-                // temporary fix for drawing metoc information
-                // All scales will draw all metoc.
-                metocGraphic.setStep(1);
-                
-                metocGraphic.paintMetoc();
+                // Only display the metoc points that are on screen and sufficiently spaced
+                metocGraphic.paintMetoc(getProjection());
             }
         }
 
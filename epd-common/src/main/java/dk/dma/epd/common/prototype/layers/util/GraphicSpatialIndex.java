@@ -0,0 +1,260 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.layers.util;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.jcip.annotations.Immutable;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+
+/**
+ * Screen-space grid index over the projected graphics of an {@linkplain OMGraphicList}.
+ * <p>
+ * The index is a snapshot of the list taken while holding the list lock once.
+ * Lookups only visit the graphics whose screen bounds fall in the grid cells
+ * near the mouse location, and do not lock the list. The candidates are
+ * checked using {@code OMGraphic.distance()}, so the result
+ * matches {@code OMGraphicList.findAll()} as long as the index is current.
+ * <p>
+ * Use {@linkplain #isCurrent(OMGraphicList)} to check that the graphics have
+ * not been added, removed, hidden or re-generated since the index was built.
+ * This walks the list, but is much cheaper than computing the distance to
+ * every graphic.
+ * <p>
+ * Graphics without a shape, and graphics covering a large part of the
+ * screen, are kept in a separate list which is checked on every lookup.
+ */
+@Immutable
+public final class GraphicSpatialIndex {
+
+    private static final int CELL_SIZE = 64; // pixels
+    private static final int MAX_CELLS_PER_GRAPHIC = 64;
+    private static final int MARGIN = 2 * CELL_SIZE;
+
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final List<Entry> unbounded = new ArrayList<>();
+    private final List<OMGraphic> leaves;
+    private final Shape[] shapes;
+
+    /**
+     * Builds an index over the given graphics list
+     * 
+     * @param graphicsList the graphics list to index
+     * @param width the screen width
+     * @param height the screen height
+     */
+    public GraphicSpatialIndex(OMGraphicList graphicsList, int width, int height) {
+        Rectangle screen = new Rectangle(-MARGIN, -MARGIN, width + 2 * MARGIN, height + 2 * MARGIN);
+        leaves = collect(graphicsList);
+        shapes = new Shape[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            shapes[i] = leaves.get(i).getShape();
+            add(new Entry(i, leaves.get(i), shapes[i]), screen);
+        }
+    }
+
+    /**
+     * Returns if the index still reflects the given graphics list, i.e. if the 
+     * list contains the same visible graphics in the same order, and none of 
+     * them have been re-generated since the index was built.
+     * 
+     * @param graphicsList the graphics list the index was built from
+     * @return if the index is current
+     */
+    public boolean isCurrent(OMGraphicList graphicsList) {
+        List<OMGraphic> current = collect(graphicsList);
+        if (current.size() != leaves.size()) {
+            return false;
+        }
+        for (int i = 0; i < shapes.length; i++) {
+            if (current.get(i) != leaves.get(i) || current.get(i).getShape() != shapes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flattens the graphics list while holding the list lock
+     */
+    private static List<OMGraphic> collect(OMGraphicList graphicsList) {
+        List<OMGraphic> leaves = new ArrayList<>();
+        synchronized (graphicsList) {
+            collect(graphicsList, leaves);
+        }
+        return leaves;
+    }
+
+    /**
+     * Flattens the graphics list in traversal order the same way as {@code findAll()},
+     * i.e. honouring the traverse mode of each list, and treating vague lists as a single graphic
+     */
+    private static void collect(OMGraphicList list, List<OMGraphic> leaves) {
+        boolean reverse = list.getTraverseMode() == OMGraphicList.LAST_ADDED_ON_TOP;
+        for (int n = list.size(), i = 0; i < n; i++) {
+            OMGraphic graphic = list.get(reverse ? n - 1 - i : i);
+            if (graphic == null || !graphic.isVisible()) {
+                continue;
+            }
+            if (graphic instanceof OMGraphicList && !((OMGraphicList) graphic).isVague()) {
+                collect((OMGraphicList) graphic, leaves);
+            } else {
+                leaves.add(graphic);
+            }
+        }
+    }
+
+    private void add(Entry entry, Rectangle screen) {
+        Shape shape = entry.shape;
+        if (shape == null) {
+            unbounded.add(entry);
+            return;
+        }
+        // Grow the bounds by a pixel, so that horizontal and vertical lines 
+        // and points, whose bounds have no width or height, are indexed too
+        Rectangle bounds = shape.getBounds();
+        bounds.grow(1, 1);
+        bounds = bounds.intersection(screen);
+        if (bounds.isEmpty()) {
+            // Off-screen graphics cannot be picked
+            return;
+        }
+        int x0 = cell(bounds.x), x1 = cell(bounds.x + bounds.width);
+        int y0 = cell(bounds.y), y1 = cell(bounds.y + bounds.height);
+        if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS_PER_GRAPHIC) {
+            unbounded.add(entry);
+            return;
+        }
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                Long key = key(cx, cy);
+                List<Entry> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>(4);
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns all graphics within {@code limit} pixels of the given screen location,
+     * in the same order as {@code OMGraphicList.findAll()}
+     * 
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param limit the max distance from the location
+     * @return the matching graphics
+     */
+    public List<OMGraphic> findAll(int x, int y, float limit) {
+        int reach = (int) Math.ceil(limit);
+        Map<Entry, Boolean> candidates = new IdentityHashMap<>();
+        for (int cx = cell(x - reach); cx <= cell(x + reach); cx++) {
+            for (int cy = cell(y - reach); cy <= cell(y + reach); cy++) {
+                List<Entry> cell = cells.get(key(cx, cy));
+                if (cell != null) {
+                    for (Entry entry : cell) {
+                        candidates.put(entry, Boolean.TRUE);
+                    }
+                }
+            }
+        }
+        for (Entry entry : unbounded) {
+            candidates.put(entry, Boolean.TRUE);
+        }
+
+        List<Entry> sorted = new ArrayList<>(candidates.keySet());
+        Collections.sort(sorted);
+        List<OMGraphic> result = new ArrayList<>();
+        for (Entry entry : sorted) {
+            if (entry.graphic.isVisible() && entry.graphic.distance(x, y) <= limit) {
+                result.add(entry.graphic);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first graphics element within {@code limit} pixels of the given
+     * screen location that matches any of the types passed along.
+     * 
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param limit the max distance from the location
+     * @param types the possible types
+     * @return the first matching graphics element
+     */
+    public OMGraphic getSelectedGraphic(int x, int y, float limit, Class<?>... types) {
+        List<OMGraphic> allClosest = findAll(x, y, limit);
+        if (allClosest.size() > 0 && types.length == 0) {
+            return allClosest.get(0);
+        }
+        for (Class<?> type : types) {
+            for (OMGraphic g : allClosest) {
+                if (type.isAssignableFrom(g.getClass())) {
+                    return g;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of indexed graphics
+     * @return the number of indexed graphics
+     */
+    public int size() {
+        return leaves.size();
+    }
+
+    private static int cell(int coord) {
+        return coord >= 0 ? coord / CELL_SIZE : -((-coord - 1) / CELL_SIZE) - 1;
+    }
+
+    private static Long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * An indexed graphic along with its position in the traversal order
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final int order;
+        final OMGraphic graphic;
+        final Shape shape;
+
+        Entry(int order, OMGraphic graphic, Shape shape) {
+            this.order = order;
+            this.graphic = graphic;
+            this.shape = shape;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Integer.compare(order, other.order);
+        }
+    }
+}
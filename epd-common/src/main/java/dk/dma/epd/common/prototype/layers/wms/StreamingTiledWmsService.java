@@ -28,6 +28,9 @@ import java.util.concurrent.TimeUnit;
 import com.bbn.openmap.omGraphics.OMGraphicList;
 import com.bbn.openmap.proj.Projection;
 
+import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.metrics.WmsMetrics;
+
 public class StreamingTiledWmsService extends TiledWMSService implements
         Runnable, AsyncWMSService {
 
@@ -59,13 +62,18 @@ public class StreamingTiledWmsService extends TiledWMSService implements
     public OMGraphicList getWmsList(Projection p) {
         final OMGraphicList result = new OMGraphicList();
         final String key = getID(p);
+        final WmsMetrics wmsMetrics = EPD.getInstance().getMetrics().getWmsMetrics();
         if (cache.containsKey(key)) {
             // LOG.debug("CACHE HIT");
             tmpCache.remove(key);
             result.addAll(cache.get(key));
+            wmsMetrics.markHit();
         } else if (tmpCache.containsKey(key)) {
             // LOG.debug("TMPCACHE HIT");
             result.addAll(tmpCache.get(key));
+            wmsMetrics.markPartialHit();
+        } else {
+            wmsMetrics.markMiss();
         }
 
         return result;
@@ -122,6 +130,7 @@ public class StreamingTiledWmsService extends TiledWMSService implements
 
             @Override
             public void run() {
+                long start = System.nanoTime();
                 Collection<SingleWMSService> workers = getTiles(job);
                 OMGraphicList result = new OMGraphicList();
 
@@ -151,6 +160,7 @@ public class StreamingTiledWmsService extends TiledWMSService implements
                     }
                 }
 
+                EPD.getInstance().getMetrics().getWmsMetrics().markDownload(System.nanoTime() - start, !allSuccess);
                 if (allSuccess) {
                     tmpCache.remove(getID(job));
                     cache.put(getID(job), result);
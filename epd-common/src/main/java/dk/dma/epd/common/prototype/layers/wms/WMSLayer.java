@@ -17,6 +17,7 @@ package dk.dma.epd.common.prototype.layers.wms;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,9 +27,12 @@ import com.bbn.openmap.omGraphics.OMGraphic;
 import com.bbn.openmap.omGraphics.OMGraphicList;
 import com.bbn.openmap.proj.Projection;
 
+import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.event.WMSEvent;
 import dk.dma.epd.common.prototype.event.WMSEventListener;
 import dk.dma.epd.common.prototype.layers.EPDLayerCommon;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 
 /**
  * Layer handling all WMS data and displaying of it
@@ -36,14 +40,14 @@ import dk.dma.epd.common.prototype.layers.EPDLayerCommon;
  * @author David A. Camre (davidcamre@gmail.com)
  * 
  */
-public class WMSLayer extends EPDLayerCommon implements Runnable, WMSEventListener {
+public class WMSLayer extends EPDLayerCommon implements WMSEventListener {
     
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = LoggerFactory.getLogger(WMSLayer.class);
     
     private static final int PROJ_SCALE_THRESHOLD = 3428460;
     
-    volatile boolean shouldRun = true;
+    private ScheduledTask refreshTask;
     private StreamingTiledWmsService wmsService;
     private int height = -1;
     private int width = -1;
@@ -52,26 +56,25 @@ public class WMSLayer extends EPDLayerCommon implements Runnable, WMSEventListen
     private CopyOnWriteArrayList<OMGraphic> internalCache = new CopyOnWriteArrayList<>();
 
     /**
-     * Constructor that starts the WMS layer in a separate thread
+     * Constructor that starts the periodic refresh of the WMS layer
      * @param query the WMS query
      */
     public WMSLayer(String query) {
         LOG.debug("WMS Layer inititated");
         wmsService = new StreamingTiledWmsService(query, 4);
         wmsService.addWMSEventListener(this);
-        new Thread(this).start();
-
+        startRefresh();
     }
     
     /**
-     * Constructor that starts the WMS layer in a separate thread
+     * Constructor that starts the periodic refresh of the WMS layer
      * @param query the WMS query
      * @param sharedCache the shared cache to use
      */
     public WMSLayer(String query,ConcurrentHashMap<String, OMGraphicList> sharedCache) {
         wmsService = new StreamingTiledWmsService(query, 4, sharedCache);
         wmsService.addWMSEventListener(this);
-        new Thread(this).start();
+        startRefresh();
     }
 
     /**
@@ -133,36 +136,44 @@ public class WMSLayer extends EPDLayerCommon implements Runnable, WMSEventListen
     }
 
     /**
-     * Main thread run method
+     * Registers the periodic refresh of the WMS layer with the task scheduler
      * TODO: remove this since we now use WMSEvent and AbstractWMSService is observable.
      */
-    @Override
-    public void run() {
-        while (shouldRun) {
-            try {
-                Thread.sleep(25000);
-                final Projection proj = this.getProjection();
-                if (proj != null) {
-                    width = proj.getWidth();
-                    height = proj.getHeight();
-    
-                    if (width > 0 && height > 0 && proj.getScale() <= PROJ_SCALE_THRESHOLD) {
-                        OMGraphicList result = wmsService.getWmsList(proj);
-                        drawWMS(result);
+    private void startRefresh() {
+        refreshTask = EPD.getInstance().getTaskScheduler().schedulePeriodic("WMSLayer-" + System.identityHashCode(this),
+                TaskPriority.LOW, new Runnable() {
+                    @Override
+                    public void run() {
+                        refresh();
                     }
-                }
+                }, 25, 25, 2, TimeUnit.SECONDS);
+    }
 
-            } catch (InterruptedException | NullPointerException e) {
-                // do nothing
+    /**
+     * Periodic refresh of the WMS layer
+     */
+    private void refresh() {
+        try {
+            final Projection proj = this.getProjection();
+            if (proj != null) {
+                width = proj.getWidth();
+                height = proj.getHeight();
+
+                if (width > 0 && height > 0 && proj.getScale() <= PROJ_SCALE_THRESHOLD) {
+                    OMGraphicList result = wmsService.getWmsList(proj);
+                    drawWMS(result);
+                }
             }
+        } catch (NullPointerException e) {
+            // do nothing
         }
     }
 
     /**
-     * Stop the thread
+     * Stop the periodic refresh
      */
     public void stop() {
-        shouldRun = false;
+        refreshTask.cancel();
     }
 
     /**
@@ -0,0 +1,256 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.gescobar.jmx.annotation.MBean;
+import net.gescobar.jmx.annotation.ManagedAttribute;
+import net.gescobar.jmx.annotation.ManagedOperation;
+import net.jcip.annotations.ThreadSafe;
+import dk.dma.epd.common.prototype.ais.AisHandlerCommon;
+
+/**
+ * AIS pipeline metrics.
+ * <p>
+ * Counts messages received and dropped by message type, messages and
+ * parse failures by sensor source, drops by sensor source and message type,
+ * and exposes the current target counts of the {@linkplain AisHandlerCommon}.
+ * <p>
+ * Sensors deliver their messages to the AIS handler on their own thread, so
+ * the source of a dropped message is the one set for the calling thread via
+ * {@linkplain #setCurrentSource(String)}.
+ */
+@MBean
+@ThreadSafe
+public class AisMetrics {
+
+    /**
+     * The reasons for dropping an AIS message in the AIS handler
+     */
+    public enum DropReason {
+        OUT_OF_RANGE, NO_POSITION, UNKNOWN_TARGET, UNSUPPORTED_TYPE, RETENTION_POLICY
+    }
+
+    private static final int MAX_MSG_ID = 64;
+    private static final String UNKNOWN_SOURCE = "Unknown";
+
+    private final AtomicLongArray receivedByType = new AtomicLongArray(MAX_MSG_ID);
+    private final AtomicLongArray droppedByType = new AtomicLongArray(MAX_MSG_ID);
+    private final AtomicLongArray droppedByReason = new AtomicLongArray(DropReason.values().length);
+    private final ConcurrentHashMap<String, AtomicLong> receivedBySource = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> errorsBySource = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> droppedBySource = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentSource = new ThreadLocal<>();
+    private final RateMeter receivedRate = new RateMeter();
+    private final RateMeter droppedRate = new RateMeter();
+
+    private volatile AisHandlerCommon aisHandler;
+
+    /**
+     * Sets the AIS handler used for reporting target counts
+     * @param aisHandler the AIS handler
+     */
+    public void setAisHandler(AisHandlerCommon aisHandler) {
+        this.aisHandler = aisHandler;
+    }
+
+    /**
+     * Registers an AIS message received by the AIS handler
+     * @param msgId the AIS message id
+     */
+    public void markReceived(int msgId) {
+        receivedByType.incrementAndGet(index(msgId));
+        receivedRate.mark();
+    }
+
+    /**
+     * Registers an AIS message dropped by the AIS handler
+     * @param msgId the AIS message id
+     * @param reason the reason for dropping the message
+     */
+    public void markDropped(int msgId, DropReason reason) {
+        droppedByType.incrementAndGet(index(msgId));
+        droppedByReason.incrementAndGet(reason.ordinal());
+        String source = currentSource.get();
+        counter(droppedBySource, (source == null ? UNKNOWN_SOURCE : source) + " type " + index(msgId))
+                .incrementAndGet();
+        droppedRate.mark();
+    }
+
+    /**
+     * Sets the sensor source of the messages delivered by the calling thread
+     * @param source the sensor name, or null when done delivering
+     */
+    public void setCurrentSource(String source) {
+        if (source == null) {
+            currentSource.remove();
+        } else {
+            currentSource.set(source);
+        }
+    }
+
+    /**
+     * Registers an AIS message parsed by the given sensor
+     * @param source the sensor name
+     */
+    public void markSourceReceived(String source) {
+        counter(receivedBySource, source).incrementAndGet();
+    }
+
+    /**
+     * Registers a sentence the given sensor failed to parse
+     * @param source the sensor name
+     */
+    public void markSourceError(String source) {
+        counter(errorsBySource, source).incrementAndGet();
+    }
+
+    @ManagedAttribute
+    public long getReceived() {
+        return sum(receivedByType);
+    }
+
+    @ManagedAttribute
+    public long getDropped() {
+        return sum(droppedByType);
+    }
+
+    @ManagedAttribute
+    public double getReceivedRate() {
+        return receivedRate.getRate();
+    }
+
+    @ManagedAttribute
+    public double getDroppedRate() {
+        return droppedRate.getRate();
+    }
+
+    @ManagedAttribute
+    public String[] getReceivedByType() {
+        return format(receivedByType);
+    }
+
+    @ManagedAttribute
+    public String[] getDroppedByType() {
+        return format(droppedByType);
+    }
+
+    @ManagedAttribute
+    public String[] getDroppedByReason() {
+        List<String> result = new ArrayList<>();
+        for (DropReason reason : DropReason.values()) {
+            result.add(reason + ": " + droppedByReason.get(reason.ordinal()));
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    @ManagedAttribute
+    public String[] getReceivedBySource() {
+        return format(receivedBySource);
+    }
+
+    @ManagedAttribute
+    public String[] getErrorsBySource() {
+        return format(errorsBySource);
+    }
+
+    @ManagedAttribute
+    public String[] getDroppedBySource() {
+        return format(droppedBySource);
+    }
+
+    @ManagedAttribute
+    public int getVesselTargets() {
+        AisHandlerCommon handler = aisHandler;
+        return handler == null ? 0 : handler.getVesselTargetCount();
+    }
+
+    @ManagedAttribute
+    public int getAtonTargets() {
+        AisHandlerCommon handler = aisHandler;
+        return handler == null ? 0 : handler.getAtonTargetCount();
+    }
+
+    @ManagedAttribute
+    public int getSarTargets() {
+        AisHandlerCommon handler = aisHandler;
+        return handler == null ? 0 : handler.getSarTargetCount();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        for (int i = 0; i < MAX_MSG_ID; i++) {
+            receivedByType.set(i, 0);
+            droppedByType.set(i, 0);
+        }
+        for (int i = 0; i < droppedByReason.length(); i++) {
+            droppedByReason.set(i, 0);
+        }
+        receivedBySource.clear();
+        errorsBySource.clear();
+        droppedBySource.clear();
+        receivedRate.reset();
+        droppedRate.reset();
+    }
+
+    private static int index(int msgId) {
+        return msgId >= 0 && msgId < MAX_MSG_ID ? msgId : 0;
+    }
+
+    private static AtomicLong counter(ConcurrentHashMap<String, AtomicLong> counters, String key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(key, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    private static long sum(AtomicLongArray counters) {
+        long sum = 0;
+        for (int i = 0; i < counters.length(); i++) {
+            sum += counters.get(i);
+        }
+        return sum;
+    }
+
+    private static String[] format(AtomicLongArray counters) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < counters.length(); i++) {
+            if (counters.get(i) > 0) {
+                result.add("Type " + i + ": " + counters.get(i));
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static String[] format(Map<String, AtomicLong> counters) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            result.add(entry.getKey() + ": " + entry.getValue().get());
+        }
+        return result.toArray(new String[result.size()]);
+    }
+}
@@ -0,0 +1,90 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A set of {@linkplain LatencyStats} keyed by name, e.g. per URI or per layer
+ */
+@ThreadSafe
+class KeyedLatencyStats {
+
+    private final ConcurrentHashMap<String, LatencyStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the statistics for the given key, creating them if necessary
+     * @param key the key
+     * @return the statistics for the key
+     */
+    LatencyStats get(String key) {
+        LatencyStats result = stats.get(key);
+        if (result == null) {
+            LatencyStats newStats = new LatencyStats();
+            result = stats.putIfAbsent(key, newStats);
+            if (result == null) {
+                result = newStats;
+            }
+        }
+        return result;
+    }
+
+    long getCount() {
+        long count = 0;
+        for (LatencyStats s : stats.values()) {
+            count += s.getCount();
+        }
+        return count;
+    }
+
+    long getErrors() {
+        long errors = 0;
+        for (LatencyStats s : stats.values()) {
+            errors += s.getErrors();
+        }
+        return errors;
+    }
+
+    /**
+     * Returns a line per key, ordered by descending total time
+     * @return the formatted statistics
+     */
+    String[] format() {
+        List<Map.Entry<String, LatencyStats>> entries = new ArrayList<>(stats.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, LatencyStats>>() {
+            @Override
+            public int compare(Map.Entry<String, LatencyStats> e1, Map.Entry<String, LatencyStats> e2) {
+                return Double.compare(e2.getValue().getTotalMillis(), e1.getValue().getTotalMillis());
+            }
+        });
+        String[] result = new String[entries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = entries.get(i).getKey() + ": " + entries.get(i).getValue();
+        }
+        return result;
+    }
+
+    void reset() {
+        stats.clear();
+    }
+}
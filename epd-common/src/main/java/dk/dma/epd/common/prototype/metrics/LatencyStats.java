@@ -0,0 +1,118 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Accumulates the count, error count and timing of a recurring operation
+ */
+@ThreadSafe
+public class LatencyStats {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private volatile long lastNanos;
+    private final RateMeter rate = new RateMeter();
+    private final RateMeter errorRate = new RateMeter();
+
+    /**
+     * Records a single completed operation
+     * 
+     * @param nanos the duration of the operation in nanoseconds
+     * @param error whether the operation failed
+     */
+    public void record(long nanos, boolean error) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        lastNanos = nanos;
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+        rate.mark();
+        if (error) {
+            errors.incrementAndGet();
+            errorRate.mark();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public double getAverageMillis() {
+        long n = count.get();
+        return n == 0 ? 0.0 : toMillis(totalNanos.get()) / n;
+    }
+
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    public double getLastMillis() {
+        return toMillis(lastNanos);
+    }
+
+    public double getTotalMillis() {
+        return toMillis(totalNanos.get());
+    }
+
+    /**
+     * Returns the number of operations per second over the last minute
+     * @return the operation rate
+     */
+    public double getRate() {
+        return rate.getRate();
+    }
+
+    /**
+     * Returns the number of failed operations per second over the last minute
+     * @return the error rate
+     */
+    public double getErrorRate() {
+        return errorRate.getRate();
+    }
+
+    public void reset() {
+        count.set(0);
+        errors.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        lastNanos = 0;
+        rate.reset();
+        errorRate.reset();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, errors=%d, rate=%.2f/s, avg=%.1f ms, max=%.1f ms, last=%.1f ms", getCount(),
+                getErrors(), getRate(), getAverageMillis(), getMaxMillis(), getLastMillis());
+    }
+}
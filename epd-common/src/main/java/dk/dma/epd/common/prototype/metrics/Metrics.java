@@ -0,0 +1,84 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.gescobar.jmx.Management;
+
+/**
+ * Holds the operational metrics of the EPD system and exposes
+ * them as JMX MBeans under the {@code dk.dma.epd} domain.
+ */
+public class Metrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+    private static final String OBJECT_NAME_PREFIX = "dk.dma.epd:type=Metrics,name=";
+
+    private final AisMetrics aisMetrics = new AisMetrics();
+    private final PntMetrics pntMetrics = new PntMetrics();
+    private final RouteMetrics routeMetrics = new RouteMetrics();
+    private final ShoreServiceMetrics shoreServiceMetrics = new ShoreServiceMetrics();
+    private final WmsMetrics wmsMetrics = new WmsMetrics();
+    private final RenderMetrics renderMetrics = new RenderMetrics();
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     * A failure to register is logged but otherwise ignored.
+     */
+    public void register() {
+        register(aisMetrics, "Ais");
+        register(pntMetrics, "Pnt");
+        register(routeMetrics, "Route");
+        register(shoreServiceMetrics, "ShoreServices");
+        register(wmsMetrics, "Wms");
+        register(renderMetrics, "Render");
+    }
+
+    private void register(Object bean, String name) {
+        try {
+            Management.register(bean, OBJECT_NAME_PREFIX + name);
+        } catch (Exception e) {
+            LOG.warn("Failed to register metrics MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    public AisMetrics getAisMetrics() {
+        return aisMetrics;
+    }
+
+    public PntMetrics getPntMetrics() {
+        return pntMetrics;
+    }
+
+    public RouteMetrics getRouteMetrics() {
+        return routeMetrics;
+    }
+
+    public ShoreServiceMetrics getShoreServiceMetrics() {
+        return shoreServiceMetrics;
+    }
+
+    public WmsMetrics getWmsMetrics() {
+        return wmsMetrics;
+    }
+
+    public RenderMetrics getRenderMetrics() {
+        return renderMetrics;
+    }
+}
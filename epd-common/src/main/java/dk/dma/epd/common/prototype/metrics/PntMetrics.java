@@ -0,0 +1,154 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.gescobar.jmx.annotation.MBean;
+import net.gescobar.jmx.annotation.ManagedAttribute;
+import net.gescobar.jmx.annotation.ManagedOperation;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * PNT pipeline metrics.
+ * <p>
+ * Covers the updates distributed by the {@code PntHandler}, including
+ * the age of the current fix, and the resilient PNT data handled
+ * by the {@code MultiSourcePntHandler}.
+ */
+@MBean
+@ThreadSafe
+public class PntMetrics {
+
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong badPositions = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rpntUpdates = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong sourceChanges = new AtomicLong();
+    private final RateMeter updateRate = new RateMeter();
+    private volatile long lastUpdate;
+
+    /**
+     * Registers a PNT message received by the {@code PntHandler}
+     */
+    public void markMessage() {
+        messages.incrementAndGet();
+    }
+
+    /**
+     * Registers a PNT update distributed by the {@code PntHandler}
+     * @param badPosition whether the update carried an invalid position
+     */
+    public void markUpdate(boolean badPosition) {
+        updates.incrementAndGet();
+        updateRate.mark();
+        lastUpdate = System.currentTimeMillis();
+        if (badPosition) {
+            badPositions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Registers that the {@code PntHandler} timed out the current fix
+     */
+    public void markTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    /**
+     * Registers a resilient PNT update received by the {@code MultiSourcePntHandler}
+     * @param sourceChanged whether the PNT source changed
+     */
+    public void markRpntUpdate(boolean sourceChanged) {
+        rpntUpdates.incrementAndGet();
+        if (sourceChanged) {
+            sourceChanges.incrementAndGet();
+        }
+    }
+
+    /**
+     * Registers a PNT message rejected by the {@code MultiSourcePntHandler}
+     * because it does not stem from the current PNT source
+     */
+    public void markRejected() {
+        rejectedMessages.incrementAndGet();
+    }
+
+    @ManagedAttribute
+    public long getMessages() {
+        return messages.get();
+    }
+
+    @ManagedAttribute
+    public long getUpdates() {
+        return updates.get();
+    }
+
+    @ManagedAttribute
+    public double getUpdateRate() {
+        return updateRate.getRate();
+    }
+
+    /**
+     * Returns the age of the last distributed PNT update in milliseconds,
+     * or -1 if no update has been distributed
+     * @return the age of the last PNT update
+     */
+    @ManagedAttribute
+    public long getAgeMillis() {
+        long last = lastUpdate;
+        return last == 0 ? -1 : System.currentTimeMillis() - last;
+    }
+
+    @ManagedAttribute
+    public long getBadPositions() {
+        return badPositions.get();
+    }
+
+    @ManagedAttribute
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    @ManagedAttribute
+    public long getRpntUpdates() {
+        return rpntUpdates.get();
+    }
+
+    @ManagedAttribute
+    public long getRejectedMessages() {
+        return rejectedMessages.get();
+    }
+
+    @ManagedAttribute
+    public long getSourceChanges() {
+        return sourceChanges.get();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        messages.set(0);
+        updates.set(0);
+        badPositions.set(0);
+        timeouts.set(0);
+        rpntUpdates.set(0);
+        rejectedMessages.set(0);
+        sourceChanges.set(0);
+        updateRate.reset();
+    }
+}
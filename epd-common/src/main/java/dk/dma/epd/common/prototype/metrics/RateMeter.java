@@ -0,0 +1,90 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Counts events in one-second buckets over a sliding one minute window.
+ * <p>
+ * Buckets are recycled lazily when a new second starts. A mark racing with
+ * the recycling of its bucket may be lost, which is acceptable for
+ * operational metrics.
+ */
+@ThreadSafe
+public class RateMeter {
+
+    private static final int WINDOW = 60; // seconds
+
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW);
+    private final AtomicLongArray seconds = new AtomicLongArray(WINDOW);
+
+    /**
+     * Registers a single event
+     */
+    public void mark() {
+        mark(1);
+    }
+
+    /**
+     * Registers the given number of events
+     * @param n the number of events
+     */
+    public void mark(long n) {
+        long now = System.currentTimeMillis() / 1000L;
+        int idx = (int) (now % WINDOW);
+        long second = seconds.get(idx);
+        if (second != now && seconds.compareAndSet(idx, second, now)) {
+            counts.set(idx, 0);
+        }
+        counts.addAndGet(idx, n);
+    }
+
+    /**
+     * Returns the number of events registered within the last minute
+     * @return the number of events within the last minute
+     */
+    public long getCount() {
+        long now = System.currentTimeMillis() / 1000L;
+        long sum = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            if (now - seconds.get(i) < WINDOW) {
+                sum += counts.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the average number of events per second over the last minute
+     * @return the average rate in events per second
+     */
+    public double getRate() {
+        return getCount() / (double) WINDOW;
+    }
+
+    /**
+     * Clears all buckets
+     */
+    public void reset() {
+        for (int i = 0; i < WINDOW; i++) {
+            seconds.set(i, 0);
+            counts.set(i, 0);
+        }
+    }
+}
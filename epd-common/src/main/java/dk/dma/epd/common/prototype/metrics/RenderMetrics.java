@@ -0,0 +1,62 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import net.gescobar.jmx.annotation.MBean;
+import net.gescobar.jmx.annotation.ManagedAttribute;
+import net.gescobar.jmx.annotation.ManagedOperation;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Rendering metrics.
+ * <p>
+ * Records the time spent painting each map layer on the event dispatch thread.
+ */
+@MBean
+@ThreadSafe
+public class RenderMetrics {
+
+    private final KeyedLatencyStats byLayer = new KeyedLatencyStats();
+
+    /**
+     * Registers a completed layer paint
+     * 
+     * @param layer the layer name
+     * @param nanos the duration of the paint in nanoseconds
+     */
+    public void markPaint(String layer, long nanos) {
+        byLayer.get(layer).record(nanos, false);
+    }
+
+    @ManagedAttribute
+    public long getPaints() {
+        return byLayer.getCount();
+    }
+
+    /**
+     * Returns the paint statistics per layer, ordered by descending total paint time
+     * @return the paint statistics per layer
+     */
+    @ManagedAttribute
+    public String[] getPaintTimesByLayer() {
+        return byLayer.format();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        byLayer.reset();
+    }
+}
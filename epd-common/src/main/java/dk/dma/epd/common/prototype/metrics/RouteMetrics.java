@@ -0,0 +1,80 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.gescobar.jmx.annotation.MBean;
+import net.gescobar.jmx.annotation.ManagedAttribute;
+import net.gescobar.jmx.annotation.ManagedOperation;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Route persistence metrics.
+ * <p>
+ * The route manager persists all routes on every route change, so
+ * the write rate and duration are a direct measure of the cost of
+ * route editing and route updates received from the network.
+ */
+@MBean
+@ThreadSafe
+public class RouteMetrics {
+
+    private final LatencyStats writes = new LatencyStats();
+    private final AtomicLong lastWriteSize = new AtomicLong();
+
+    /**
+     * Registers a persistence write
+     * 
+     * @param nanos the duration of the write in nanoseconds
+     * @param routes the number of routes written
+     */
+    public void markWrite(long nanos, int routes) {
+        writes.record(nanos, false);
+        lastWriteSize.set(routes);
+    }
+
+    @ManagedAttribute
+    public long getWrites() {
+        return writes.getCount();
+    }
+
+    @ManagedAttribute
+    public double getWriteRate() {
+        return writes.getRate();
+    }
+
+    @ManagedAttribute
+    public double getAverageWriteMillis() {
+        return writes.getAverageMillis();
+    }
+
+    @ManagedAttribute
+    public double getMaxWriteMillis() {
+        return writes.getMaxMillis();
+    }
+
+    @ManagedAttribute
+    public long getLastWriteRoutes() {
+        return lastWriteSize.get();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        writes.reset();
+        lastWriteSize.set(0);
+    }
+}
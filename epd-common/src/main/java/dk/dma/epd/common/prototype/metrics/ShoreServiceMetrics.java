@@ -0,0 +1,93 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import net.gescobar.jmx.annotation.MBean;
+import net.gescobar.jmx.annotation.ManagedAttribute;
+import net.gescobar.jmx.annotation.ManagedOperation;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Shore service metrics.
+ * <p>
+ * Records latency and errors of the HTTP requests made through
+ * {@code ShoreHttp}, in total and per service URI.
+ */
+@MBean
+@ThreadSafe
+public class ShoreServiceMetrics {
+
+    private final LatencyStats total = new LatencyStats();
+    private final KeyedLatencyStats byUri = new KeyedLatencyStats();
+
+    /**
+     * Registers a completed shore request
+     * 
+     * @param uri the service URI
+     * @param nanos the duration of the request in nanoseconds
+     * @param error whether the request failed
+     */
+    public void markRequest(String uri, long nanos, boolean error) {
+        total.record(nanos, error);
+        byUri.get(uri).record(nanos, error);
+    }
+
+    @ManagedAttribute
+    public long getRequests() {
+        return total.getCount();
+    }
+
+    @ManagedAttribute
+    public long getErrors() {
+        return total.getErrors();
+    }
+
+    @ManagedAttribute
+    public double getRequestRate() {
+        return total.getRate();
+    }
+
+    @ManagedAttribute
+    public double getErrorRate() {
+        return total.getErrorRate();
+    }
+
+    @ManagedAttribute
+    public double getAverageLatencyMillis() {
+        return total.getAverageMillis();
+    }
+
+    @ManagedAttribute
+    public double getMaxLatencyMillis() {
+        return total.getMaxMillis();
+    }
+
+    @ManagedAttribute
+    public double getLastLatencyMillis() {
+        return total.getLastMillis();
+    }
+
+    @ManagedAttribute
+    public String[] getRequestsByUri() {
+        return byUri.format();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        total.reset();
+        byUri.reset();
+    }
+}
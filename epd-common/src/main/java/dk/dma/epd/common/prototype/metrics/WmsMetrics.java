@@ -0,0 +1,110 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.gescobar.jmx.annotation.MBean;
+import net.gescobar.jmx.annotation.ManagedAttribute;
+import net.gescobar.jmx.annotation.ManagedOperation;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * WMS tile cache metrics.
+ * <p>
+ * A lookup is a hit when the complete set of tiles is cached, partial when
+ * only some tiles of a pending download are available, and a miss otherwise.
+ */
+@MBean
+@ThreadSafe
+public class WmsMetrics {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong partialHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final LatencyStats downloads = new LatencyStats();
+
+    public void markHit() {
+        hits.incrementAndGet();
+    }
+
+    public void markPartialHit() {
+        partialHits.incrementAndGet();
+    }
+
+    public void markMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Registers a completed tile set download
+     * 
+     * @param nanos the duration of the download in nanoseconds
+     * @param error whether one or more tiles failed to download
+     */
+    public void markDownload(long nanos, boolean error) {
+        downloads.record(nanos, error);
+    }
+
+    @ManagedAttribute
+    public long getHits() {
+        return hits.get();
+    }
+
+    @ManagedAttribute
+    public long getPartialHits() {
+        return partialHits.get();
+    }
+
+    @ManagedAttribute
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the ratio of complete cache hits to all lookups
+     * @return the hit ratio
+     */
+    @ManagedAttribute
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + partialHits.get() + misses.get();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    @ManagedAttribute
+    public long getDownloads() {
+        return downloads.getCount();
+    }
+
+    @ManagedAttribute
+    public long getFailedDownloads() {
+        return downloads.getErrors();
+    }
+
+    @ManagedAttribute
+    public double getAverageDownloadMillis() {
+        return downloads.getAverageMillis();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        hits.set(0);
+        partialHits.set(0);
+        misses.set(0);
+        downloads.reset();
+    }
+}
@@ -0,0 +1,301 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.epd.common.prototype.settings.NavSettings;
+
+/**
+ * Index of route files on disk.
+ * <p>
+ * Directories of route files are imported in parallel, and only a compact
+ * entry with name, bounding box, time window and waypoint count is kept per
+ * route. The index is saved in a small binary file, so listing and searching
+ * the library does not require loading the routes. Full routes are loaded from
+ * their files on demand.
+ */
+@ThreadSafe
+public class RouteLibrary {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RouteLibrary.class);
+
+    private static final String LIBRARY_FILE = ".routelibrary";
+    private static final int FORMAT_VERSION = 1;
+    private static final String[] EXTENSIONS = { ".txt", ".rou", ".rt3" };
+
+    private final Path homePath;
+
+    @GuardedBy("this")
+    private final Map<String, RouteLibraryEntry> entries = new LinkedHashMap<>();
+
+    public RouteLibrary(Path homePath) {
+        this.homePath = homePath;
+    }
+
+    /**
+     * Imports all route files in the directory and its sub directories. Files
+     * already indexed and unchanged since are skipped. Blocks until the import
+     * is done and must not be called on the EDT.
+     * 
+     * @param dir
+     *            the directory to import
+     * @param navSettings
+     *            navigation settings used for defaults when loading
+     * @return the number of routes imported
+     */
+    public int importDirectory(File dir, final NavSettings navSettings) throws InterruptedException {
+        List<File> files = new ArrayList<>();
+        collectFiles(dir, files);
+
+        List<Callable<RouteLibraryEntry>> tasks = new ArrayList<>();
+        for (final File file : files) {
+            RouteLibraryEntry existing = getEntry(file);
+            if (existing != null && existing.isCurrent(file)) {
+                continue;
+            }
+            tasks.add(new Callable<RouteLibraryEntry>() {
+                @Override
+                public RouteLibraryEntry call() throws Exception {
+                    return new RouteLibraryEntry(file, RouteLoader.load(file, navSettings));
+                }
+            });
+        }
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        int workers = Math.min(tasks.size(), Math.max(1, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "RouteLibraryImport-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        int imported = 0;
+        try {
+            for (Future<RouteLibraryEntry> future : executor.invokeAll(tasks)) {
+                try {
+                    put(future.get());
+                    imported++;
+                } catch (ExecutionException e) {
+                    LOG.warn("Skipping route file: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LOG.info("Imported " + imported + " of " + tasks.size() + " route files from " + dir + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return imported;
+    }
+
+    private static void collectFiles(File dir, List<File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectFiles(child, files);
+            } else if (isRouteFile(child)) {
+                files.add(child);
+            }
+        }
+    }
+
+    private static boolean isRouteFile(File file) {
+        String name = file.getName().toLowerCase(Locale.US);
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the full route of an entry from its file
+     * 
+     * @param entry
+     *            the library entry
+     * @param navSettings
+     *            navigation settings used for defaults when loading
+     * @return the route
+     * @throws RouteLoadException
+     */
+    public Route loadRoute(RouteLibraryEntry entry, NavSettings navSettings) throws RouteLoadException {
+        return RouteLoader.load(entry.getFile(), navSettings);
+    }
+
+    private synchronized void put(RouteLibraryEntry entry) {
+        entries.put(entry.getPath(), entry);
+    }
+
+    private synchronized RouteLibraryEntry getEntry(File file) {
+        return entries.get(file.getAbsolutePath());
+    }
+
+    /**
+     * Removes the entry, the route file itself is left untouched
+     */
+    public synchronized void remove(RouteLibraryEntry entry) {
+        entries.remove(entry.getPath());
+    }
+
+    /**
+     * Removes entries whose files no longer exist
+     * 
+     * @return the number of entries removed
+     */
+    public synchronized int removeMissing() {
+        int removed = 0;
+        for (String path : new ArrayList<>(entries.keySet())) {
+            if (!new File(path).exists()) {
+                entries.remove(path);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized List<RouteLibraryEntry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds entries matching all the given criteria. Null criteria are
+     * ignored.
+     * 
+     * @param text
+     *            case insensitive text contained in the name, departure or
+     *            destination
+     * @param bbox
+     *            bounding box as {minLat, minLon, maxLat, maxLon} the route
+     *            must intersect
+     * @param from
+     *            start of a period the route time window must overlap
+     * @param to
+     *            end of a period the route time window must overlap
+     * @return the matching entries
+     */
+    public synchronized List<RouteLibraryEntry> search(String text, double[] bbox, Date from, Date to) {
+        String query = text != null ? text.toLowerCase(Locale.US) : null;
+        List<RouteLibraryEntry> result = new ArrayList<>();
+        for (RouteLibraryEntry entry : entries.values()) {
+            if (query != null && !contains(entry.getName(), query) && !contains(entry.getDeparture(), query)
+                    && !contains(entry.getDestination(), query)) {
+                continue;
+            }
+            if (bbox != null && !entry.intersects(bbox[0], bbox[1], bbox[2], bbox[3])) {
+                continue;
+            }
+            if ((from != null || to != null) && !entry.overlaps(from, to)) {
+                continue;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private static boolean contains(String value, String query) {
+        return value != null && value.toLowerCase(Locale.US).contains(query);
+    }
+
+    /**
+     * Saves the index to the home folder
+     */
+    public synchronized void saveToFile() {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(homePath
+                .resolve(LIBRARY_FILE).toFile())))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (RouteLibraryEntry entry : entries.values()) {
+                entry.write(out);
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to save route library file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the index from the home folder, or returns an empty library
+     * 
+     * @param homePath
+     *            the application home folder
+     * @return the library
+     */
+    public static RouteLibrary loadFromFile(Path homePath) {
+        RouteLibrary library = new RouteLibrary(homePath);
+        File file = homePath.resolve(LIBRARY_FILE).toFile();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported route library version");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                library.put(RouteLibraryEntry.read(in));
+            }
+        } catch (FileNotFoundException e) {
+            // Not an error
+        } catch (IOException e) {
+            LOG.error("Failed to load route library file: " + e.getMessage());
+            // Delete possible corrupted or old file
+            file.delete();
+            return new RouteLibrary(homePath);
+        }
+        return library;
+    }
+}
@@ -0,0 +1,232 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.route;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import net.jcip.annotations.Immutable;
+import dk.dma.enav.model.geometry.Position;
+
+/**
+ * Index entry of a route file in the {@link RouteLibrary}. Holds what is
+ * needed to list and search routes without loading their geometry.
+ */
+@Immutable
+public class RouteLibraryEntry {
+
+    private final String path;
+    private final long lastModified;
+    private final long length;
+
+    private final String name;
+    private final String departure;
+    private final String destination;
+    private final int waypointCount;
+    private final double distance;
+
+    private final double minLat;
+    private final double minLon;
+    private final double maxLat;
+    private final double maxLon;
+
+    private final long starttime;
+    private final long eta;
+
+    /**
+     * Creates an entry from a loaded route
+     * 
+     * @param file
+     *            the route file
+     * @param route
+     *            the route loaded from the file
+     */
+    public RouteLibraryEntry(File file, Route route) {
+        this.path = file.getAbsolutePath();
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.name = route.getName() != null ? route.getName() : file.getName();
+        this.departure = route.getDeparture();
+        this.destination = route.getDestination();
+        this.waypointCount = route.getWaypoints().size();
+        Double dtg = route.getRouteDtg();
+        this.distance = dtg != null ? dtg : 0;
+
+        double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (RouteWaypoint waypoint : route.getWaypoints()) {
+            Position pos = waypoint.getPos();
+            minLat = Math.min(minLat, pos.getLatitude());
+            minLon = Math.min(minLon, pos.getLongitude());
+            maxLat = Math.max(maxLat, pos.getLatitude());
+            maxLon = Math.max(maxLon, pos.getLongitude());
+        }
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+
+        Date eta = route.getEta();
+        this.starttime = route.getStarttime() != null ? route.getStarttime().getTime() : -1L;
+        this.eta = eta != null ? eta.getTime() : -1L;
+    }
+
+    private RouteLibraryEntry(DataInput in) throws IOException {
+        path = in.readUTF();
+        lastModified = in.readLong();
+        length = in.readLong();
+        name = in.readUTF();
+        departure = readNullableUTF(in);
+        destination = readNullableUTF(in);
+        waypointCount = in.readInt();
+        distance = in.readDouble();
+        minLat = in.readDouble();
+        minLon = in.readDouble();
+        maxLat = in.readDouble();
+        maxLon = in.readDouble();
+        starttime = in.readLong();
+        eta = in.readLong();
+    }
+
+    static RouteLibraryEntry read(DataInput in) throws IOException {
+        return new RouteLibraryEntry(in);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(path);
+        out.writeLong(lastModified);
+        out.writeLong(length);
+        out.writeUTF(name);
+        writeNullableUTF(out, departure);
+        writeNullableUTF(out, destination);
+        out.writeInt(waypointCount);
+        out.writeDouble(distance);
+        out.writeDouble(minLat);
+        out.writeDouble(minLon);
+        out.writeDouble(maxLat);
+        out.writeDouble(maxLon);
+        out.writeLong(starttime);
+        out.writeLong(eta);
+    }
+
+    private static String readNullableUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * @return if the file has not changed since it was indexed
+     */
+    public boolean isCurrent(File file) {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    /**
+     * @return if the route bounding box intersects the given box
+     */
+    public boolean intersects(double minLat, double minLon, double maxLat, double maxLon) {
+        return waypointCount > 0 && this.minLat <= maxLat && this.maxLat >= minLat && this.minLon <= maxLon
+                && this.maxLon >= minLon;
+    }
+
+    /**
+     * @return if the time window of the route overlaps the given period.
+     *         Routes without a start time never match.
+     */
+    public boolean overlaps(Date from, Date to) {
+        if (starttime < 0) {
+            return false;
+        }
+        long end = eta >= 0 ? eta : starttime;
+        return (to == null || starttime <= to.getTime()) && (from == null || end >= from.getTime());
+    }
+
+    public File getFile() {
+        return new File(path);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDeparture() {
+        return departure;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public int getWaypointCount() {
+        return waypointCount;
+    }
+
+    /**
+     * @return the route length in nautical miles
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    /**
+     * @return the start time, or null if the route has none
+     */
+    public Date getStarttime() {
+        return starttime < 0 ? null : new Date(starttime);
+    }
+
+    /**
+     * @return the ETA at the last waypoint, or null if the route has no start
+     *         time
+     */
+    public Date getEta() {
+        return eta < 0 ? null : new Date(eta);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + waypointCount + " waypoints)";
+    }
+}
@@ -331,6 +331,35 @@ public class RouteLoader {
         return route;
     }
 
+    /**
+     * Loads a route using the format given by the file extension:
+     * <ul>
+     *   <li>.txt: Simple text based format</li>
+     *   <li>.rou: ECDIS900 V3 route format</li>
+     *   <li>.rt3: Navisailor 3000 route</li>
+     *   <li>Otherwise: pertinacious format</li>
+     * </ul>
+     * 
+     * @param file the route file
+     * @param navSettings navigation settings used for defaults
+     * @return the route
+     * @throws RouteLoadException
+     */
+    public static Route load(File file, NavSettings navSettings) throws RouteLoadException {
+        String ext = "";
+        int mid = file.getName().lastIndexOf('.');
+        ext = file.getName().substring(mid + 1, file.getName().length())
+                .toUpperCase();
+        if (ext.equals("TXT")) {
+            return loadSimple(file);
+        } else if (ext.equals("ROU")) {
+            return loadRou(file, navSettings);
+        } else if (ext.equals("RT3")) {
+            return loadRt3(file, navSettings);
+        }
+        return pertinaciousLoad(file, navSettings);
+    }
+
     public static Route pertinaciousLoad(File file, NavSettings navSettings) throws RouteLoadException {
         Route route = null;
         try {
@@ -0,0 +1,92 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.route;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A route-scoped update event.
+ * <p>
+ * Wraps a {@linkplain RoutesUpdateEvent} along with the route, route index and
+ * waypoint index affected, where known. This allows listeners implementing
+ * {@linkplain IRouteUpdateListener} to update only the affected route, rather 
+ * than rebuilding everything.
+ */
+@Immutable
+public final class RouteUpdate {
+
+    private final RoutesUpdateEvent event;
+    private final Route route;
+    private final int routeIndex;
+    private final int waypointIndex;
+
+    /**
+     * Constructor for an update that is not scoped to a specific route
+     * 
+     * @param event the update event
+     */
+    public RouteUpdate(RoutesUpdateEvent event) {
+        this(event, null, -1, -1);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param event the update event
+     * @param route the affected route
+     * @param routeIndex the index of the affected route
+     * @param waypointIndex the index of the affected waypoint, or -1 if not waypoint specific
+     */
+    public RouteUpdate(RoutesUpdateEvent event, Route route, int routeIndex, int waypointIndex) {
+        this.event = event;
+        this.route = route;
+        this.routeIndex = routeIndex;
+        this.waypointIndex = waypointIndex;
+    }
+
+    public RoutesUpdateEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the affected route, or {@code null} if the update is not route specific
+     * @return the affected route
+     */
+    public Route getRoute() {
+        return route;
+    }
+
+    public int getRouteIndex() {
+        return routeIndex;
+    }
+
+    public int getWaypointIndex() {
+        return waypointIndex;
+    }
+
+    /**
+     * Returns if the update is scoped to a specific route
+     * @return if the update is scoped to a specific route
+     */
+    public boolean isRouteScoped() {
+        return route != null;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteUpdate [event=" + event + ", routeIndex=" + routeIndex + ", waypointIndex=" + waypointIndex + "]";
+    }
+}
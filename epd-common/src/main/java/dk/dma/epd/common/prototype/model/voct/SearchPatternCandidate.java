@@ -0,0 +1,127 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.voct;
+
+import net.jcip.annotations.Immutable;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.model.voct.sardata.SearchPatternRoute;
+
+/**
+ * A generated search pattern together with the coverage score it was ranked
+ * by in the {@link SearchPatternPlanner}
+ */
+@Immutable
+public class SearchPatternCandidate implements Comparable<SearchPatternCandidate> {
+
+    private final SearchPatternGenerator.searchPattern pattern;
+    private final int sruIndex;
+    private final Position csp;
+    private final double orientation;
+    private final double trackSpacing;
+    private final SearchPatternRoute route;
+    private final double pod;
+    private final double coverage;
+    private final double trackLength;
+
+    public SearchPatternCandidate(SearchPatternGenerator.searchPattern pattern, int sruIndex, Position csp,
+            double orientation, double trackSpacing, SearchPatternRoute route, double pod, double coverage,
+            double trackLength) {
+        this.pattern = pattern;
+        this.sruIndex = sruIndex;
+        this.csp = csp;
+        this.orientation = orientation;
+        this.trackSpacing = trackSpacing;
+        this.route = route;
+        this.pod = pod;
+        this.coverage = coverage;
+        this.trackLength = trackLength;
+    }
+
+    public SearchPatternGenerator.searchPattern getPattern() {
+        return pattern;
+    }
+
+    public int getSruIndex() {
+        return sruIndex;
+    }
+
+    /**
+     * @return the commence search point the pattern was generated from
+     */
+    public Position getCsp() {
+        return csp;
+    }
+
+    /**
+     * @return the bearing in degrees of the effective area edge the pattern is aligned with
+     */
+    public double getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * @return the track spacing in nautical miles
+     */
+    public double getTrackSpacing() {
+        return trackSpacing;
+    }
+
+    public SearchPatternRoute getRoute() {
+        return route;
+    }
+
+    /**
+     * @return the estimated probability of detection averaged over the effective area
+     */
+    public double getPod() {
+        return pod;
+    }
+
+    /**
+     * @return the fraction of the effective area swept at least once
+     */
+    public double getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * @return the length of the search track in nautical miles
+     */
+    public double getTrackLength() {
+        return trackLength;
+    }
+
+    /**
+     * Orders candidates best first: highest POD, then highest coverage, then shortest track
+     */
+    @Override
+    public int compareTo(SearchPatternCandidate other) {
+        int result = Double.compare(other.pod, pod);
+        if (result == 0) {
+            result = Double.compare(other.coverage, coverage);
+        }
+        if (result == 0) {
+            result = Double.compare(trackLength, other.trackLength);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s SRU %d %03.0f\u00B0 S=%.2fnm POD=%.2f coverage=%.2f track=%.1fnm", pattern, sruIndex,
+                orientation, trackSpacing, pod, coverage, trackLength);
+    }
+}
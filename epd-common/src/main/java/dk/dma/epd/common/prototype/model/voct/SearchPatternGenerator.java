@@ -17,6 +17,7 @@ package dk.dma.epd.common.prototype.model.voct;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -54,18 +55,29 @@ public class SearchPatternGenerator {
     public SearchPatternRoute generateSearchPattern(searchPattern pattern,
             SARData data, NavSettings settings, int i) {
         
+        return generateSearchPattern(pattern, data.getCSP(),
+                data.getEffortAllocationData().get(i), data, settings);
+    }
+
+    /**
+     * Generates a search pattern from an explicit commence search point and
+     * effort allocation rather than the ones stored on the SAR data. The SAR
+     * data is only read, which allows several candidates to be generated for
+     * the same operation, each by its own generator instance.
+     */
+    public SearchPatternRoute generateSearchPattern(searchPattern pattern,
+            Position CSP, EffortAllocationData effortAllocationData,
+            SARData data, NavSettings settings) {
+        
         this.settings = settings;
 
         switch (pattern) {
         case Parallel_Sweep_Search:
-            return parallelSweepSearch(data.getCSP(),
-                    data.getEffortAllocationData().get(i), data);
+            return parallelSweepSearch(CSP, effortAllocationData, data);
         case Creeping_Line_Search:
-            return creepingLineSearch(data.getCSP(),
-                    data.getEffortAllocationData().get(i), data);
+            return creepingLineSearch(CSP, effortAllocationData, data);
         case Expanding_Square_Search:
-            return expandingSquareSearch(data.getCSP(),
-                    data.getEffortAllocationData().get(i), data);
+            return expandingSquareSearch(CSP, effortAllocationData, data);
         default:
             return null;
         }
@@ -277,32 +289,7 @@ public class SearchPatternGenerator {
         
 
 
-        // Dynamic waypoints
-        List<Position> waypointsAdjustedForWeather = new ArrayList<Position>();
-
-        // We must calculate from time 0 of our arrival as the effective area
-        // has been calculated from LKP
-        // Thus our time 0 is Commence Search Start
-        DateTime cssDate = sarData.getCSSDate();
-
-        for (int i = 0; i < searchRoute.getWaypoints().size(); i++) {
-            Date wpETA = searchRoute.getEtas().get(i);
-            Position wpPos = searchRoute.getWaypoints().get(i).getPos();
-
-            // How long has elapsed since time 0
-            double timeElapsed = ((double) (wpETA.getTime() - cssDate
-                    .getMillis())) / 60 / 60 / 1000;
-
-            // System.out.println("Elapsed is for " + i + " is " + timeElapsed);
-
-            Position newPos = sarOperation.applyDriftToPoint(sarData, wpPos,
-                    timeElapsed);
-
-            waypointsAdjustedForWeather.add(newPos);
-            // searchRoute.getWaypoints().get(i).setPos(newPos);
-        }
-
-        searchRoute.setDynamicPositions(waypointsAdjustedForWeather);
+        calculateDynamicWaypoints(searchRoute, sarData);
         
         searchRoute.getWaypoints().get(0).setName("Start");
         
@@ -491,32 +478,7 @@ public class SearchPatternGenerator {
         
 
 
-        // Dynamic waypoints
-        List<Position> waypointsAdjustedForWeather = new ArrayList<Position>();
-
-        // We must calculate from time 0 of our arrival as the effective area
-        // has been calculated from LKP
-        // Thus our time 0 is Commence Search Start
-        DateTime cssDate = sarData.getCSSDate();
-
-        for (int i = 0; i < searchRoute.getWaypoints().size(); i++) {
-            Date wpETA = searchRoute.getEtas().get(i);
-            Position wpPos = searchRoute.getWaypoints().get(i).getPos();
-
-            // How long has elapsed since time 0
-            double timeElapsed = ((double) (wpETA.getTime() - cssDate
-                    .getMillis())) / 60 / 60 / 1000;
-
-            // System.out.println("Elapsed is for " + i + " is " + timeElapsed);
-
-            Position newPos = sarOperation.applyDriftToPoint(sarData, wpPos,
-                    timeElapsed);
-
-            waypointsAdjustedForWeather.add(newPos);
-            // searchRoute.getWaypoints().get(i).setPos(newPos);
-        }
-
-        searchRoute.setDynamicPositions(waypointsAdjustedForWeather);
+        calculateDynamicWaypoints(searchRoute, sarData);
         
         searchRoute.getWaypoints().get(0).setName("Start");
         
@@ -539,21 +501,22 @@ public class SearchPatternGenerator {
         // Thus our time 0 is Commence Search Start
         DateTime cssDate = sarData.getCSSDate();
 
-        for (int i = 0; i < searchRoute.getWaypoints().size(); i++) {
-            Date wpETA = searchRoute.getEtas().get(i);
-            Position wpPos = searchRoute.getWaypoints().get(i).getPos();
+        // Walk waypoints and ETAs side by side, the waypoints are kept in a
+        // linked list so indexed access would be quadratic
+        Iterator<RouteWaypoint> waypoints = searchRoute.getWaypoints().iterator();
+        Iterator<Date> etas = searchRoute.getEtas().iterator();
+        while (waypoints.hasNext() && etas.hasNext()) {
+            Date wpETA = etas.next();
+            Position wpPos = waypoints.next().getPos();
 
             // How long has elapsed since time 0
             double timeElapsed = ((double) (wpETA.getTime() - cssDate
                     .getMillis())) / 60 / 60 / 1000;
 
-            // System.out.println("Elapsed is for " + i + " is " + timeElapsed);
-
             Position newPos = sarOperation.applyDriftToPoint(sarData, wpPos,
                     timeElapsed);
 
             waypointsAdjustedForWeather.add(newPos);
-            // searchRoute.getWaypoints().get(i).setPos(newPos);
         }
 
         searchRoute.setDynamicPositions(waypointsAdjustedForWeather);
@@ -735,32 +698,7 @@ public class SearchPatternGenerator {
         
 
 
-        // Dynamic waypoints
-        List<Position> waypointsAdjustedForWeather = new ArrayList<Position>();
-
-        // We must calculate from time 0 of our arrival as the effective area
-        // has been calculated from LKP
-        // Thus our time 0 is Commence Search Start
-        DateTime cssDate = sarData.getCSSDate();
-
-        for (int i = 0; i < searchRoute.getWaypoints().size(); i++) {
-            Date wpETA = searchRoute.getEtas().get(i);
-            Position wpPos = searchRoute.getWaypoints().get(i).getPos();
-
-            // How long has elapsed since time 0
-            double timeElapsed = ((double) (wpETA.getTime() - cssDate
-                    .getMillis())) / 60 / 60 / 1000;
-
-            // System.out.println("Elapsed is for " + i + " is " + timeElapsed);
-
-            Position newPos = sarOperation.applyDriftToPoint(sarData, wpPos,
-                    timeElapsed);
-
-            waypointsAdjustedForWeather.add(newPos);
-            // searchRoute.getWaypoints().get(i).setPos(newPos);
-        }
-
-        searchRoute.setDynamicPositions(waypointsAdjustedForWeather);
+        calculateDynamicWaypoints(searchRoute, sarData);
         
         searchRoute.getWaypoints().get(0).setName("Start");
         
@@ -0,0 +1,282 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.voct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.model.route.RouteWaypoint;
+import dk.dma.epd.common.prototype.model.voct.sardata.EffortAllocationData;
+import dk.dma.epd.common.prototype.model.voct.sardata.SARData;
+import dk.dma.epd.common.prototype.model.voct.sardata.SearchPatternRoute;
+import dk.dma.epd.common.prototype.settings.NavSettings;
+
+/**
+ * Generates a set of search pattern candidates for an SRU in parallel and
+ * ranks them by how well they cover the effective area.
+ * <p>
+ * Candidates vary the pattern type, the commence search point (each corner of
+ * the effective area), the orientation and the track spacing. The total track
+ * length the SRU can cover is kept constant, so a tighter spacing sweeps a
+ * smaller part of the area more thoroughly.
+ * <p>
+ * The generator aligns the patterns with the A-B edge of the effective area,
+ * so the orientation is varied by swapping the B and C corners, which aligns
+ * the pattern with the A-C edge instead. Each SRU is planned against its own
+ * effective area.
+ * <p>
+ * Each candidate is scored by rasterising the effective area into a grid and
+ * counting the passes within half a sweep width of every cell. A cell swept
+ * {@code n} times is assigned a POD of {@code 1 - exp(-n)}, the score of the
+ * candidate is the mean POD over the area.
+ */
+@ThreadSafe
+public class SearchPatternPlanner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SearchPatternPlanner.class);
+
+    private static final SearchPatternGenerator.searchPattern[] PATTERNS = {
+            SearchPatternGenerator.searchPattern.Parallel_Sweep_Search,
+            SearchPatternGenerator.searchPattern.Creeping_Line_Search,
+            SearchPatternGenerator.searchPattern.Expanding_Square_Search };
+
+    private static final double[] SPACING_FACTORS = { 0.75, 1.0, 1.25 };
+
+    /** Whether the pattern is aligned with the A-C edge rather than the A-B edge */
+    private static final boolean[] ORIENTATIONS = { false, true };
+
+    private static final int GRID_SIZE = 48;
+    private static final double NM_PER_DEGREE = 60.0;
+
+    private final ThreadPoolExecutor executor;
+
+    public SearchPatternPlanner() {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+        executor = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "SearchPatternPlanner-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Generates and scores all candidates for the given SRU. Blocks until all
+     * candidates are generated and must not be called on the EDT.
+     * 
+     * @param sarOperation
+     *            the operation used to drift the generated waypoints
+     * @param data
+     *            the SAR data, only read during planning
+     * @param sruIndex
+     *            index of the effort allocation data to plan for
+     * @param settings
+     *            navigation settings used for the generated routes
+     * @return the candidates, best first
+     */
+    public List<SearchPatternCandidate> plan(final SAROperation sarOperation, final SARData data, final int sruIndex,
+            final NavSettings settings) throws InterruptedException {
+
+        final EffortAllocationData effortAllocationData = data.getEffortAllocationData().get(sruIndex);
+        Position[] corners = { effortAllocationData.getEffectiveAreaA(), effortAllocationData.getEffectiveAreaB(),
+                effortAllocationData.getEffectiveAreaC(), effortAllocationData.getEffectiveAreaD() };
+
+        List<Callable<SearchPatternCandidate>> tasks = new ArrayList<>();
+        for (final SearchPatternGenerator.searchPattern pattern : PATTERNS) {
+            for (boolean transposed : ORIENTATIONS) {
+                for (double factor : SPACING_FACTORS) {
+                    final EffortAllocationData variant = withTrackSpacing(effortAllocationData,
+                            effortAllocationData.getTrackSpacing() * factor, transposed);
+
+                    // The expanding square unfolds around the CSP of the operation,
+                    // or around the A corner if no CSP has been set
+                    Position[] csps = pattern == SearchPatternGenerator.searchPattern.Expanding_Square_Search ? new Position[] { data
+                            .getCSP() != null ? data.getCSP() : corners[0] } : corners;
+
+                    for (final Position csp : csps) {
+                        tasks.add(new Callable<SearchPatternCandidate>() {
+                            @Override
+                            public SearchPatternCandidate call() {
+                                SearchPatternGenerator generator = new SearchPatternGenerator(sarOperation);
+                                SearchPatternRoute route = generator.generateSearchPattern(pattern, csp, variant, data,
+                                        settings);
+                                return score(pattern, sruIndex, csp, variant, route);
+                            }
+                        });
+                    }
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        List<SearchPatternCandidate> candidates = new ArrayList<>();
+        for (Future<SearchPatternCandidate> future : executor.invokeAll(tasks)) {
+            try {
+                SearchPatternCandidate candidate = future.get();
+                if (candidate != null) {
+                    candidates.add(candidate);
+                }
+            } catch (ExecutionException e) {
+                LOG.error("Failed generating search pattern candidate", e.getCause());
+            }
+        }
+        Collections.sort(candidates);
+
+        LOG.info("Planned " + candidates.size() + " search pattern candidates for SRU " + sruIndex + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return candidates;
+    }
+
+    /**
+     * Stops the worker threads. Pending plans are abandoned.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Copies the effort allocation with a different track spacing, keeping
+     * the total length of track the SRU can cover unchanged. If {@code transposed}
+     * is set, the B and C corners are swapped to align the pattern with the A-C edge.
+     */
+    private static EffortAllocationData withTrackSpacing(EffortAllocationData source, double trackSpacing,
+            boolean transposed) {
+        double totalLengthOfTrack = source.getEffectiveAreaSize() / source.getTrackSpacing();
+
+        EffortAllocationData copy = new EffortAllocationData();
+        copy.setW(source.getW());
+        copy.setGroundSpeed(source.getGroundSpeed());
+        copy.setPod(source.getPod());
+        copy.setSearchTime(source.getSearchTime());
+        copy.setTrackSpacing(trackSpacing);
+        copy.setEffectiveAreaSize(totalLengthOfTrack * trackSpacing);
+        copy.setEffectiveAreaA(source.getEffectiveAreaA());
+        copy.setEffectiveAreaB(transposed ? source.getEffectiveAreaC() : source.getEffectiveAreaB());
+        copy.setEffectiveAreaC(transposed ? source.getEffectiveAreaB() : source.getEffectiveAreaC());
+        copy.setEffectiveAreaD(source.getEffectiveAreaD());
+        return copy;
+    }
+
+    /**
+     * Scores the route against the effective area. The area is projected onto
+     * a local plane in nautical miles with the A corner as origin, which is
+     * accurate enough for the size of a search area.
+     */
+    static SearchPatternCandidate score(SearchPatternGenerator.searchPattern pattern, int sruIndex,
+            Position csp, EffortAllocationData effortAllocationData, SearchPatternRoute route) {
+        if (route == null || route.getWaypoints().size() < 2) {
+            return null;
+        }
+
+        Position origin = effortAllocationData.getEffectiveAreaA();
+        double cosLat = Math.cos(Math.toRadians(origin.getLatitude()));
+
+        // Route legs in local coordinates
+        List<RouteWaypoint> waypoints = route.getWaypoints();
+        double[] xs = new double[waypoints.size()];
+        double[] ys = new double[waypoints.size()];
+        int n = 0;
+        double trackLength = 0;
+        for (RouteWaypoint waypoint : waypoints) {
+            xs[n] = toX(waypoint.getPos(), origin, cosLat);
+            ys[n] = toY(waypoint.getPos(), origin);
+            if (n > 0) {
+                trackLength += Math.hypot(xs[n] - xs[n - 1], ys[n] - ys[n - 1]);
+            }
+            n++;
+        }
+
+        // The area is spanned by the A-B and A-C edges
+        double ux = toX(effortAllocationData.getEffectiveAreaB(), origin, cosLat);
+        double uy = toY(effortAllocationData.getEffectiveAreaB(), origin);
+        double vx = toX(effortAllocationData.getEffectiveAreaC(), origin, cosLat);
+        double vy = toY(effortAllocationData.getEffectiveAreaC(), origin);
+
+        double sweepWidth = effortAllocationData.getW() > 0 ? effortAllocationData.getW() : effortAllocationData
+                .getTrackSpacing();
+        double halfWidthSq = sweepWidth * sweepWidth / 4;
+
+        double podSum = 0;
+        int covered = 0;
+        for (int i = 0; i < GRID_SIZE; i++) {
+            double fu = (i + 0.5) / GRID_SIZE;
+            for (int j = 0; j < GRID_SIZE; j++) {
+                double fv = (j + 0.5) / GRID_SIZE;
+                double px = fu * ux + fv * vx;
+                double py = fu * uy + fv * vy;
+
+                int passes = 0;
+                for (int k = 1; k < n; k++) {
+                    if (distanceSq(px, py, xs[k - 1], ys[k - 1], xs[k], ys[k]) <= halfWidthSq) {
+                        passes++;
+                    }
+                }
+                if (passes > 0) {
+                    covered++;
+                    podSum += 1 - Math.exp(-passes);
+                }
+            }
+        }
+
+        int cells = GRID_SIZE * GRID_SIZE;
+        double orientation = origin.rhumbLineBearingTo(effortAllocationData.getEffectiveAreaB());
+        return new SearchPatternCandidate(pattern, sruIndex, csp, orientation, effortAllocationData.getTrackSpacing(),
+                route, podSum / cells, (double) covered / cells, trackLength);
+    }
+
+    private static double toX(Position pos, Position origin, double cosLat) {
+        return (pos.getLongitude() - origin.getLongitude()) * NM_PER_DEGREE * cosLat;
+    }
+
+    private static double toY(Position pos, Position origin) {
+        return (pos.getLatitude() - origin.getLatitude()) * NM_PER_DEGREE;
+    }
+
+    /**
+     * Squared distance from a point to a line segment
+     */
+    private static double distanceSq(double px, double py, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? ((px - x1) * dx + (py - y1) * dy) / lengthSq : 0;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (x1 + t * dx);
+        double ey = py - (y1 + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
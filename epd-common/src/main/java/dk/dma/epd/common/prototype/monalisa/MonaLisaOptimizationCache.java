@@ -0,0 +1,179 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.monalisa;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.jcip.annotations.ThreadSafe;
+
+import dk.dma.epd.common.prototype.monalisa.sspa.CurrentShipDataType;
+import dk.dma.epd.common.prototype.monalisa.sspa.RouterequestType;
+import dk.dma.epd.common.prototype.monalisa.sspa.RouteresponseType;
+import dk.dma.epd.common.prototype.monalisa.sspa.WaypointType;
+
+/**
+ * Cache of Mona Lisa route optimization responses.
+ * <p>
+ * Responses are keyed by a content hash of the route request, i.e. the selected waypoints
+ * and ETAs, the ship data and the request options, so that re-submitting an unchanged 
+ * request does not cause a new server round trip.<br/>
+ * The cache is bounded and least-recently-used entries are evicted first.
+ * Entries expire after a fixed time, since the optimization depends on the forecast.
+ */
+@ThreadSafe
+public class MonaLisaOptimizationCache {
+
+    private final int maxEntries;
+    private final long ttl;
+    private final Map<String, CachedResponse> cache;
+
+    /**
+     * Constructor
+     * 
+     * @param maxEntries the max number of cached responses
+     * @param ttl the time-to-live of a cached response in ms
+     */
+    public MonaLisaOptimizationCache(final int maxEntries, long ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > MonaLisaOptimizationCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached response for the given key, or null if not cached
+     * @param key the request key
+     * @return the cached response, or null if not cached
+     */
+    public synchronized RouteresponseType get(String key) {
+        CachedResponse cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        } else if (System.currentTimeMillis() - cached.time > ttl) {
+            cache.remove(key);
+            return null;
+        }
+        return cached.response;
+    }
+
+    /**
+     * Caches the response for the given key
+     * @param key the request key
+     * @param response the response
+     */
+    public synchronized void put(String key, RouteresponseType response) {
+        cache.put(key, new CachedResponse(response));
+    }
+
+    /**
+     * Removes all expired responses
+     */
+    public synchronized void expire() {
+        long now = System.currentTimeMillis();
+        for (Iterator<CachedResponse> it = cache.values().iterator(); it.hasNext();) {
+            if (now - it.next().time > ttl) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Clears the cache
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the number of cached responses
+     * @return the number of cached responses
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Computes the cache key of the given request as an SHA-1 hash
+     * of the request content
+     * 
+     * @param request the request
+     * @return the cache key
+     */
+    public static String key(RouterequestType request) {
+        StringBuilder str = new StringBuilder();
+
+        CurrentShipDataType shipData = request.getCurrentShipData();
+        if (shipData != null) {
+            str.append(shipData.getMmsi()).append('|')
+                .append(shipData.getImoid()).append('|')
+                .append(shipData.getUkcrequested()).append('|')
+                .append(shipData.getOptimization()).append('|');
+            if (shipData.getDraft() != null) {
+                str.append(shipData.getDraft().getForward()).append('|')
+                    .append(shipData.getDraft().getAft()).append('|');
+            }
+        }
+
+        if (request.getRoute() != null && request.getRoute().getWaypoints() != null) {
+            for (WaypointType wp : request.getRoute().getWaypoints().getWaypoint()) {
+                str.append('\n').append(wp.getWptId()).append('|')
+                    .append(wp.getWptName()).append('|');
+                if (wp.getPosition() != null) {
+                    str.append(wp.getPosition().getLatitude()).append('|')
+                        .append(wp.getPosition().getLongitude()).append('|');
+                }
+                if (wp.getETA() != null) {
+                    str.append(wp.getETA().toXMLFormat());
+                }
+            }
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(str.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is mandatory on all Java platforms
+            return str.toString();
+        }
+    }
+
+    /**
+     * A cached response along with the time it was cached
+     */
+    private static final class CachedResponse {
+        final RouteresponseType response;
+        final long time = System.currentTimeMillis();
+
+        CachedResponse(RouteresponseType response) {
+            this.response = response;
+        }
+    }
+}
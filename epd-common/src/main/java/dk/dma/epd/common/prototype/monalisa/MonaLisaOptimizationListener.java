@@ -0,0 +1,40 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.monalisa;
+
+/**
+ * Interface implemented by clients of an asynchronous Mona Lisa
+ * route optimization.
+ * <p>
+ * All methods are called on the Swing event dispatch thread.
+ */
+public interface MonaLisaOptimizationListener {
+
+    /**
+     * Called when the optimization progresses
+     * @param status a description of the current step
+     */
+    void optimizationProgress(String status);
+
+    /**
+     * Called when the optimization has completed.
+     * <p>
+     * Not called if the optimization was cancelled.
+     * 
+     * @param response the optimization response
+     */
+    void optimizationCompleted(MonaLisaOptimizationResponse response);
+}
@@ -15,11 +15,14 @@
  */
 package dk.dma.epd.common.prototype.monalisa;
 
+import dk.dma.epd.common.prototype.model.route.Route;
+
 public class MonaLisaOptimizationResponse {
 
     String type;
     String response;
     boolean valid;
+    Route optimizedRoute;
     
     public MonaLisaOptimizationResponse(String message, String response) {
         this.type = message;
@@ -45,8 +48,18 @@ public class MonaLisaOptimizationResponse {
     public void setResponse(String response) {
         this.response = response;
     }
-    
-    
-    
-    
+
+
+    /**
+     * Returns the optimized route, or null if the optimization failed
+     * @return the optimized route
+     */
+    public Route getOptimizedRoute() {
+        return optimizedRoute;
+    }
+
+
+    public void setOptimizedRoute(Route optimizedRoute) {
+        this.optimizedRoute = optimizedRoute;
+    }
 }
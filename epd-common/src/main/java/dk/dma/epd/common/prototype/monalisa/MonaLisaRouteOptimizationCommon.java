@@ -20,7 +20,15 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.LinkedList;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeConstants;
 import javax.xml.datatype.DatatypeFactory;
@@ -61,8 +69,27 @@ public class MonaLisaRouteOptimizationCommon extends MapHandlerChild
     protected ShoreServicesCommon shoreService;
     protected RouteManagerCommon routeManager;
 
-    public MonaLisaRouteOptimizationCommon() {
+    private static final int MAX_WORKERS = 2;
+    private static final int MAX_PENDING_REQUESTS = 4;
+    private static final int CACHE_SIZE = 32;
+    private static final long CACHE_TTL = 30 * 60 * 1000L; // 30 minutes
+
+    protected final MonaLisaOptimizationCache cache = new MonaLisaOptimizationCache(CACHE_SIZE, CACHE_TTL);
+    private final ThreadPoolExecutor executor;
 
+    public MonaLisaRouteOptimizationCommon() {
+        executor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_PENDING_REQUESTS), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "MonaLisaOptimization-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
     }
 
     public RouterequestType convertRoute(Route route,
@@ -260,65 +287,165 @@ public class MonaLisaRouteOptimizationCommon extends MapHandlerChild
         return route;
     }
 
+    /**
+     * Requests an optimized route from the Mona Lisa server and adds it to the route manager.
+     * <p>
+     * Blocks the calling thread for the server round trip. UI code should use
+     * {@linkplain #makeRouteRequestAsync} instead.
+     */
     public MonaLisaOptimizationResponse makeRouteRequest(Route route,
             boolean removeIntermediateETA, float draft, int ukc, int timeout,
             List<Boolean> selectedWp, boolean showInput, boolean showOutput) {
 
-        // new Thread(this).start();
-
         RouterequestType monaLisaRoute = convertRoute(route,
                 removeIntermediateETA, draft, ukc, selectedWp);
 
-        // monaLisaRoute.
+        MonaLisaOptimizationResponse response = optimizeRoute(monaLisaRoute,
+                timeout, showInput, showOutput, null);
 
-        SSPAResponse routeResponse = null;
-        try {
-            routeResponse = shoreService.makeMonaLisaRouteRequest(
-                    monaLisaRoute, timeout, showInput, showOutput);
-        } catch (Exception e) {
-            return new MonaLisaOptimizationResponse("An exception occured",
-                    e.getMessage());
+        if (response.getOptimizedRoute() != null) {
+            route.setVisible(false);
+            routeManager.addRoute(response.getOptimizedRoute());
         }
+        return response;
+    }
 
-        if (!routeResponse.isValid()) {
-            return new MonaLisaOptimizationResponse("Server error",
-                    routeResponse.getErrorMessage());
-        }
+    /**
+     * Submits a route optimization request to the worker pool.
+     * <p>
+     * The route is converted on the calling thread, so later edits to the route do not
+     * affect the request. The optimized route is returned in the response passed to
+     * {@linkplain MonaLisaOptimizationListener#optimizationCompleted}, and it is up to
+     * the listener to apply it.<br/>
+     * The returned future may be used to cancel the request, in which case the
+     * listener is not notified of completion.
+     * 
+     * @return the future result of the optimization
+     * @throws java.util.concurrent.RejectedExecutionException if too many requests are pending
+     */
+    public Future<MonaLisaOptimizationResponse> makeRouteRequestAsync(Route route,
+            boolean removeIntermediateETA, float draft, int ukc, final int timeout,
+            List<Boolean> selectedWp, final boolean showInput, final boolean showOutput,
+            final MonaLisaOptimizationListener listener) {
+
+        final RouterequestType monaLisaRoute = convertRoute(route,
+                removeIntermediateETA, draft, ukc, selectedWp);
 
-        Route newRoute = null;
+        fireProgress(listener, "Waiting for an available worker ...");
+        return executor.submit(new Callable<MonaLisaOptimizationResponse>() {
+            @Override
+            public MonaLisaOptimizationResponse call() {
+                final MonaLisaOptimizationResponse response = optimizeRoute(
+                        monaLisaRoute, timeout, showInput, showOutput, listener);
+
+                if (listener != null && !Thread.currentThread().isInterrupted()) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.optimizationCompleted(response);
+                        }
+                    });
+                }
+                return response;
+            }
+        });
+    }
 
-        if (routeResponse.isValid()) {
+    /**
+     * Performs the route optimization, using a cached response if
+     * the same request has been made recently.
+     * 
+     * @param monaLisaRoute the converted route request
+     * @param timeout the server timeout
+     * @param showInput whether to show the request XML
+     * @param showOutput whether to show the response XML
+     * @param listener an optional listener notified of the progress
+     * @return the optimization response
+     */
+    protected MonaLisaOptimizationResponse optimizeRoute(RouterequestType monaLisaRoute,
+            int timeout, boolean showInput, boolean showOutput,
+            MonaLisaOptimizationListener listener) {
+
+        String key = MonaLisaOptimizationCache.key(monaLisaRoute);
+        RouteresponseType monaLisaResponse = cache.get(key);
+        boolean cached = monaLisaResponse != null;
+
+        if (cached) {
+            fireProgress(listener, "Using recently optimized route ...");
+
+        } else {
+            fireProgress(listener, "Getting Optimized Route from server ...");
+
+            SSPAResponse routeResponse = null;
             try {
-                newRoute = convertRouteBack(routeResponse.getMonaLisaResponse());
+                routeResponse = shoreService.makeMonaLisaRouteRequest(
+                        monaLisaRoute, timeout, showInput, showOutput);
             } catch (Exception e) {
                 return new MonaLisaOptimizationResponse("An exception occured",
                         e.getMessage());
             }
+
+            if (routeResponse == null || !routeResponse.isValid()) {
+                return new MonaLisaOptimizationResponse("Server error",
+                        routeResponse != null ? routeResponse.getErrorMessage() : null);
+            }
+            monaLisaResponse = routeResponse.getMonaLisaResponse();
         }
 
-        if (newRoute != null) {
-            route.setVisible(false);
-            routeManager.addRoute(newRoute);
+        fireProgress(listener, "Converting optimized route ...");
+
+        Route newRoute = null;
+        try {
+            newRoute = convertRouteBack(monaLisaResponse);
+        } catch (Exception e) {
+            return new MonaLisaOptimizationResponse("An exception occured",
+                    e.getMessage());
+        }
+
+        if (!cached) {
+            cache.put(key, monaLisaResponse);
         }
 
-        float fuelSaving = (routeResponse.getMonaLisaResponse()
-                .getFuelRequested() - routeResponse.getMonaLisaResponse()
+        float fuelSaving = (monaLisaResponse.getFuelRequested() - monaLisaResponse
                 .getFuelFinal())
-                / routeResponse.getMonaLisaResponse().getFuelRequested() * 100;
+                / monaLisaResponse.getFuelRequested() * 100;
 
-        return new MonaLisaOptimizationResponse(
+        MonaLisaOptimizationResponse response = new MonaLisaOptimizationResponse(
                 "Succesfully received optimized route",
 
                 "\nInitial route consumption is "
-                        + routeResponse.getMonaLisaResponse()
-                                .getFuelRequested() + " Metric Tons.\n"
+                        + monaLisaResponse.getFuelRequested() + " Metric Tons.\n"
                         + "MonaLisa optimized route consumption is "
-                        + routeResponse.getMonaLisaResponse().getFuelFinal()
+                        + monaLisaResponse.getFuelFinal()
                         + " Metric Tons.\n" + "The relative fuel saving is "
                         + fuelSaving + " percent\n\n" + "Minimum route UKC is "
-                        + routeResponse.getMonaLisaResponse().getUkcActual()
+                        + monaLisaResponse.getUkcActual()
                         + " meters.\n");
+        response.setOptimizedRoute(newRoute);
+        return response;
+    }
+
+    /**
+     * Notifies the listener, if any, of the progress on the event dispatch thread
+     */
+    private void fireProgress(final MonaLisaOptimizationListener listener, final String status) {
+        if (listener == null) {
+            return;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                listener.optimizationProgress(status);
+            }
+        });
+    }
 
+    /**
+     * Returns the cache of optimization responses
+     * @return the cache of optimization responses
+     */
+    public MonaLisaOptimizationCache getCache() {
+        return cache;
     }
 
     @Override
@@ -17,6 +17,11 @@ package dk.dma.epd.common.prototype.msi;
 
 /**
  * Interface to implement for classes wanting to be notified of MSI update
+ * <p>
+ * The listeners are asked to refresh themselves in full, e.g. after the 
+ * MSI filter has been changed. Incremental changes to the messages are 
+ * reported to the {@linkplain IMsiViewListener} listeners of the
+ * {@linkplain MsiViewModel}.
  */
 public interface IMsiUpdateListener {
     
@@ -0,0 +1,37 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.msi;
+
+import java.util.List;
+
+/**
+ * Interface to implement for classes wanting to be notified of
+ * incremental changes to the {@linkplain MsiViewModel}
+ */
+public interface IMsiViewListener {
+
+    /**
+     * Called when entries of the view have been added, replaced or removed.
+     * <p>
+     * Called on the thread that changed the view, which may hold the lock of 
+     * the {@linkplain MsiHandler}, so implementations must not block.
+     * 
+     * @param changed the added or replaced entries
+     * @param removed the last version of the removed entries
+     */
+    void msiViewChanged(List<MsiMessageExtended> changed, List<MsiMessageExtended> removed);
+
+}
@@ -15,11 +15,13 @@
  */
 package dk.dma.epd.common.prototype.msi;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
@@ -33,17 +35,17 @@ import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.Heading;
 import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
-import dk.dma.epd.common.prototype.layers.msi.MsiLayerCommon;
 import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
 import dk.dma.epd.common.prototype.route.RouteManagerCommon;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 import dk.dma.epd.common.prototype.sensor.pnt.IPntDataListener;
 import dk.dma.epd.common.prototype.sensor.pnt.PntData;
 import dk.dma.epd.common.prototype.sensor.pnt.PntHandler;
 import dk.dma.epd.common.prototype.settings.EnavSettings;
 import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
 import dk.dma.epd.common.util.Calculator;
-import dk.dma.epd.common.util.Util;
 import dk.frv.enav.common.xml.msi.MsiMessage;
 import dk.frv.enav.common.xml.msi.response.MsiResponse;
 
@@ -51,17 +53,18 @@ import dk.frv.enav.common.xml.msi.response.MsiResponse;
  * Component for handling MSI messages
  */
 @ThreadSafe
-public class MsiHandler extends MapHandlerChild implements Runnable,
+public class MsiHandler extends MapHandlerChild implements
         IRoutesUpdateListener, IPntDataListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(MsiHandler.class);
 
     private ShoreServicesCommon shoreServices;
     private RouteManagerCommon routeManager;
-    
-    private MsiLayerCommon msiLayer;
 
     private MsiStore msiStore;
+    private final MsiViewModel viewModel = new MsiViewModel();
+    @GuardedBy("this")
+    private final Set<Integer> changedIds = new HashSet<>();
     private Date lastUpdate;
     private long pollInterval;
     private final EnavSettings enavSettings;
@@ -73,34 +76,44 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
     private CopyOnWriteArrayList<IMsiUpdateListener> listeners = new CopyOnWriteArrayList<>();
     private PntHandler pntHandler;
     private boolean pntUpdate;
+    private final ScheduledTask updateTask;
 
     public MsiHandler(EnavSettings enavSettings) {
         this.enavSettings = enavSettings;
         pollInterval = enavSettings.getMsiPollInterval();
         msiStore = MsiStore.loadFromFile(EPD.getInstance().getHomePath(), enavSettings);
-        EPD.startThread(this, "MsiHandler");
+        viewModel.update(msiStore.getMessages(), msiStore.getAcknowledged(), msiStore.getVisible(),
+                msiStore.getRelevant());
+        updateTask = EPD.getInstance().getTaskScheduler().schedulePeriodic("MsiHandler", TaskPriority.NORMAL, new Runnable() {
+            @Override
+            public void run() {
+                updateMsi();
+            }
+        }, 30, 30, 2, TimeUnit.SECONDS);
     }
 
     public synchronized Collection<MsiMessage> getMessages() {
         return msiStore.getMessages().values();
     }
 
+    /**
+     * Returns the materialised view of the MSI messages. The view is kept up
+     * to date by the handler and can be read without locking. Register an
+     * {@linkplain IMsiViewListener} with the view to be notified of changes.
+     * 
+     * @return the MSI view model
+     */
+    public MsiViewModel getViewModel() {
+        return viewModel;
+    }
+
     /**
      * Get the amount of unacknowledged msi messages
      * 
      * @return
      */
     public int getUnAcknowledgedMSI() {
-        List<MsiMessageExtended> messageList = getMessageList();
-        int counter = 0;
-
-        for (int i = 0; i < messageList.size(); i++) {
-            if (!messageList.get(i).acknowledged) {
-                counter++;
-            }
-        }
-
-        return counter;
+        return viewModel.getUnacknowledgedCount();
     }
 
     /**
@@ -109,69 +122,33 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
      * @return
      */
     public int getUnAcknowledgedFilteredMSI() {
-        List<MsiMessageExtended> messageList = getFilteredMessageList();
-        int counter = 0;
-
-        for (int i = 0; i < messageList.size(); i++) {
-            if (!messageList.get(i).acknowledged) {
-                counter++;
-            }
-        }
-
-        return counter;
+        return viewModel.getUnacknowledgedFilteredCount();
     }
 
     /**
      * Get the list of filtered messages
+     * <p>
+     * The list is an unmodifiable snapshot of the view model, copy it if it must be modified
      *
-     * @return
+     * @return the visible messages ordered by message id
      */
-    public synchronized List<MsiMessageExtended> getFilteredMessageList() {
-        List<MsiMessageExtended> list = new ArrayList<>();
-        for (Integer msgId : msiStore.getMessages().keySet()) {
-            MsiMessage msiMessage = msiStore.getMessages().get(msgId);
-            boolean acknowledged = msiStore.getAcknowledged().contains(msgId);
-            boolean visible = msiStore.getVisible().contains(msgId);
-            boolean relevant = msiStore.getRelevant().contains(msgId);
-            MsiMessageExtended msiMessageExtended = new MsiMessageExtended(
-                    msiMessage, acknowledged, visible, relevant);
-            if (visible) {
-                list.add(msiMessageExtended);
-            }
-        }
-        
-        return list;
+    public List<MsiMessageExtended> getFilteredMessageList() {
+        return viewModel.getFilteredMessages();
     }
     
     /**
      * Get the list of MSI messages
+     * <p>
+     * The list is an unmodifiable snapshot of the view model, copy it if it must be modified
      *
-     * @return
+     * @return the messages ordered by message id
      */
-    public synchronized List<MsiMessageExtended> getMessageList() {
-        List<MsiMessageExtended> list = new ArrayList<>();
-        for (Integer msgId : msiStore.getMessages().keySet()) {
-            MsiMessage msiMessage = msiStore.getMessages().get(msgId);
-            boolean acknowledged = msiStore.getAcknowledged().contains(msgId);
-            boolean visible = msiStore.getVisible().contains(msgId);
-            boolean relevant = msiStore.getRelevant().contains(msgId);
-            MsiMessageExtended msiMessageExtended = new MsiMessageExtended(
-                    msiMessage, acknowledged, visible, relevant);
-            list.add(msiMessageExtended);
-        }
-        return list;
+    public List<MsiMessageExtended> getMessageList() {
+        return viewModel.getMessages();
     }
 
-    public synchronized int getFirstNonAcknowledged() {
-        int index = 0;
-        List<MsiMessageExtended> list = getMessageList();
-        while (index < list.size()) {
-            if (!list.get(index).acknowledged) {
-                return index;
-            }
-            index++;
-        }
-        return list.size() - 1;
+    public int getFirstNonAcknowledged() {
+        return viewModel.getFirstNonAcknowledged();
     }
 
     /**
@@ -179,16 +156,43 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
      *
      * @return
      */
-    public synchronized int getFirstNonAcknowledgedFiltered() {
-        int index = 0;
-        List<MsiMessageExtended> list = getFilteredMessageList();
-        while (index < list.size()) {
-            if (!list.get(index).acknowledged) {
-                return index;
+    public int getFirstNonAcknowledgedFiltered() {
+        return viewModel.getFirstNonAcknowledgedFiltered();
+    }
+
+    /**
+     * Brings the changed messages of the view model in line with the store
+     * 
+     * @return if the view model changed
+     */
+    private synchronized boolean refreshViewModel() {
+        if (changedIds.isEmpty()) {
+            return false;
+        }
+        boolean changed = viewModel.update(changedIds, msiStore.getMessages(), msiStore.getAcknowledged(),
+                msiStore.getVisible(), msiStore.getRelevant());
+        changedIds.clear();
+        return changed;
+    }
+
+    /**
+     * Flags the messages whose membership differs between the two sets as changed
+     * 
+     * @param before the set of message ids before the change
+     * @param after the set of message ids after the change
+     */
+    @GuardedBy("this")
+    private void markChanged(Set<Integer> before, Set<Integer> after) {
+        for (Integer msgId : before) {
+            if (!after.contains(msgId)) {
+                changedIds.add(msgId);
+            }
+        }
+        for (Integer msgId : after) {
+            if (!before.contains(msgId)) {
+                changedIds.add(msgId);
             }
-            index++;
         }
-        return list.size() - 1;
     }
 
     /**
@@ -200,8 +204,8 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
             msiStore.getAcknowledged().add(msiMessage.getMessageId());
             saveToFile();
             reCalcMsiStatus();            
+            viewModel.acknowledge(msiMessage.getMessageId());
         }
-        notifyUpdate();
     }
 
     /**
@@ -223,70 +227,59 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
             msiStore.deleteMessage(msiMessage);
             saveToFile();
             reCalcMsiStatus();            
-        }
-        notifyUpdate();
-    }
-
-    @Override
-    public void run() {
-        while (true) {
-            Util.sleep(30000);
-            updateMsi();
+            viewModel.remove(msiMessage.getMessageId());
         }
     }
 
     /**
      * Update the msi
+     * <p>
+     * Only the messages that have been received, expired or changed visibility
+     * are updated in the view model, which notifies its listeners of the changes.
      */
     public void updateMsi() {
-        boolean msiUpdated = false;
+        Set<Integer> visibleBefore;
+        synchronized (this) {
+            visibleBefore = new HashSet<>(msiStore.getVisible());
+        }
 
         Date now = new Date();
         if (getLastUpdate() == null
                 || now.getTime() - getLastUpdate().getTime() > pollInterval * 1000) {
             // Poll for new messages from shore
             try {
-                if (poll()) {
-                    msiUpdated = true;
-                }
+                poll();
                 setLastUpdate(now);
             } catch (ShoreServiceException e) {
                 LOG.error("Failed to get MSI from shore: " + e.getMessage());
             }
         }
 
-        // Cleanup msi store
-        if (msiStore.cleanup()) {
-            msiUpdated = true;
+        synchronized (this) {
+            // Cleanup msi store
+            changedIds.addAll(msiStore.cleanup());
+
+            // Visibility is recalculated on every run, only messages
+            // that changed visibility are updated in the view model
+            reCalcMsiVisibility();
+            markChanged(visibleBefore, msiStore.getVisible());
+            if (refreshViewModel()) {
+                LOG.debug("MSI view model changed");
+            }
         }
 
         // Check if new pending messages
         if (reCalcMsiStatus()) {
             LOG.debug("reCalcMsiStatus() changed MSI status");
-            msiUpdated = true;
-        }
-
-        if (reCalcMsiVisibility()) {
-            LOG.debug("reCalcMsiRelevance() changed MSI relevance");
-            msiUpdated = true;
-        }
-
-        // Notify if update
-        if (msiUpdated) {
-            notifyUpdate();
         }
     }
 
     /** 
-     * Pushes msi updates to all listeners.
+     * Asks all listeners to refresh themselves in full, e.g. after the
+     * MSI filter has been changed. Changes to the messages are reported
+     * by the view model.
      */
     public void notifyUpdate() {
-        // Update layer
-        if (msiLayer != null) {
-            //doUpdate() will ask msiHandler 
-            //getMessageList() which is currently guarded by a lock
-            msiLayer.doUpdate(); 
-        }
         // Notify of MSI change, MUST NOT lock.
         for (IMsiUpdateListener listener : listeners) {
             listener.msiUpdate();
@@ -345,6 +338,11 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
                 + " new MSI messages");
         msiStore.update(msiResponse.getMessages(), calculationPosition,
                 routeManager.getRoutes());
+        synchronized (this) {
+            for (MsiMessage message : msiResponse.getMessages()) {
+                changedIds.add(message.getMessageId());
+            }
+        }
         return true;
     }
 
@@ -390,22 +388,38 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
     public void routesChanged(RoutesUpdateEvent e) {
         if (e == RoutesUpdateEvent.ROUTE_ACTIVATED) {
             //these two are commented out in the original non-common implementation
-            msiStore.setRelevance(routeManager.getActiveRoute());
-            notifyUpdate();
+            updateRelevance(true);
         }
         if (e == RoutesUpdateEvent.ROUTE_DEACTIVATED) {
-            msiStore.clearRelevance();
-            notifyUpdate();
+            updateRelevance(false);
         }
         if (e == RoutesUpdateEvent.ROUTE_MSI_UPDATE
                 || e == RoutesUpdateEvent.ROUTE_ADDED
                 || e == RoutesUpdateEvent.ROUTE_REMOVED
                 || e == RoutesUpdateEvent.ROUTE_CHANGED) {
-            updateMsi();
+            // Run the update task rather than polling shore on the route event bus
+            // delivery thread, which would hold up the other route listeners.
+            // The task coalesces a burst of route events into one update.
+            updateTask.trigger();
         }
-        if (reCalcMsiStatus()) {
-            notifyUpdate();
+        reCalcMsiStatus();
+    }
+
+    /**
+     * Recalculates the relevance of the messages for the active route, and
+     * updates the messages that changed relevance in the view model
+     * 
+     * @param active if a route is active
+     */
+    private synchronized void updateRelevance(boolean active) {
+        Set<Integer> relevantBefore = new HashSet<>(msiStore.getRelevant());
+        if (active) {
+            msiStore.setRelevance(routeManager.getActiveRoute());
+        } else {
+            msiStore.clearRelevance();
         }
+        markChanged(relevantBefore, msiStore.getRelevant());
+        refreshViewModel();
     }
     
 
@@ -438,9 +452,6 @@ public class MsiHandler extends MapHandlerChild implements Runnable,
         if (obj instanceof RouteManagerCommon) {
             routeManager = (RouteManagerCommon) obj;
         }
-        if (obj instanceof MsiLayerCommon) {
-            msiLayer = (MsiLayerCommon) obj;
-        }
         if (obj instanceof IMsiUpdateListener) {
             addListener((IMsiUpdateListener) obj);
         }
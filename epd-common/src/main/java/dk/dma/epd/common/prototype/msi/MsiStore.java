@@ -258,7 +258,12 @@ public class MsiStore implements Serializable {
         relevant.clear();
     }
 
-    public synchronized boolean cleanup() {
+    /**
+     * Removes the messages whose validity has ended
+     * 
+     * @return the ids of the removed messages
+     */
+    public synchronized List<Integer> cleanup() {
         List<Integer> doDelete = new ArrayList<>();
         Date now = PntTime.getInstance().getDate();
         for (MsiMessage message : messages.values()) {
@@ -272,7 +277,7 @@ public class MsiStore implements Serializable {
             messages.remove(msgId);
             acknowledged.remove(msgId);
         }
-        return doDelete.size() > 0;
+        return doDelete;
     }
 
     public synchronized void deleteMessage(MsiMessage msiMessage) {
@@ -0,0 +1,338 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.msi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import dk.frv.enav.common.xml.msi.MsiMessage;
+
+/**
+ * Materialised view of the MSI messages maintained by the {@linkplain MsiHandler}.
+ * <p>
+ * The handler updates the view with the messages that have arrived, expired, been 
+ * acknowledged or changed visibility or relevance. Entries are only replaced when 
+ * their message or flags actually change, and the counters and the filtered entries
+ * are maintained incrementally.
+ * <p>
+ * The lists returned by {@linkplain #getMessages()} and {@linkplain #getFilteredMessages()}
+ * are unmodifiable snapshots. A snapshot is built on the first read after the list has 
+ * changed, so a burst of changes costs one copy. Readers of an up-to-date snapshot 
+ * and of the counters do not take a lock.
+ * <p>
+ * Changes are reported to the registered {@linkplain IMsiViewListener} listeners.
+ */
+@ThreadSafe
+public class MsiViewModel {
+
+    /**
+     * A published list along with the index of its first unacknowledged entry
+     */
+    @Immutable
+    private static final class Snapshot {
+        final List<MsiMessageExtended> messages;
+        final int firstNonAcknowledged;
+
+        Snapshot(Collection<MsiMessageExtended> entries) {
+            List<MsiMessageExtended> messages = new ArrayList<>(entries);
+            int first = -1;
+            for (int i = 0; i < messages.size() && first < 0; i++) {
+                if (!messages.get(i).acknowledged) {
+                    first = i;
+                }
+            }
+            this.messages = Collections.unmodifiableList(messages);
+            this.firstNonAcknowledged = first < 0 ? messages.size() - 1 : first;
+        }
+    }
+
+    @GuardedBy("this")
+    private final TreeMap<Integer, MsiMessageExtended> entries = new TreeMap<>();
+
+    @GuardedBy("this")
+    private final TreeMap<Integer, MsiMessageExtended> filteredEntries = new TreeMap<>();
+
+    // Written while holding the lock, and reset to null when the list changes
+    private volatile Snapshot messages;
+    private volatile Snapshot filteredMessages;
+
+    // Written while holding the lock
+    private volatile int unacknowledged;
+    private volatile int unacknowledgedFiltered;
+    private volatile long version;
+
+    private final CopyOnWriteArrayList<IMsiViewListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Brings the given messages of the view in line with the store. Messages that
+     * are no longer in the store are removed, and entries whose message and flags 
+     * are unchanged are kept.
+     * 
+     * @param msgIds the ids of the messages that may have changed
+     * @param messages the messages by message id
+     * @param acknowledged ids of acknowledged messages
+     * @param visible ids of visible messages
+     * @param relevant ids of relevant messages
+     * @return if the view changed
+     */
+    public boolean update(Collection<Integer> msgIds, Map<Integer, MsiMessage> messages, Set<Integer> acknowledged,
+            Set<Integer> visible, Set<Integer> relevant) {
+        List<MsiMessageExtended> changed = new ArrayList<>();
+        List<MsiMessageExtended> removed = new ArrayList<>();
+        synchronized (this) {
+            for (Integer msgId : msgIds) {
+                MsiMessage message = messages.get(msgId);
+                if (message == null) {
+                    apply(msgId, null, changed, removed);
+                    continue;
+                }
+                boolean isAcknowledged = acknowledged.contains(msgId);
+                boolean isVisible = visible.contains(msgId);
+                boolean isRelevant = relevant.contains(msgId);
+
+                MsiMessageExtended entry = entries.get(msgId);
+                if (entry == null || entry.msiMessage != message || entry.acknowledged != isAcknowledged
+                        || entry.visible != isVisible || entry.relevant != isRelevant) {
+                    apply(msgId, new MsiMessageExtended(message, isAcknowledged, isVisible, isRelevant), changed,
+                            removed);
+                }
+            }
+        }
+        return fireChanged(changed, removed);
+    }
+
+    /**
+     * Brings the whole view in line with the store, e.g. after the store has been loaded
+     * 
+     * @param messages the messages by message id
+     * @param acknowledged ids of acknowledged messages
+     * @param visible ids of visible messages
+     * @param relevant ids of relevant messages
+     * @return if the view changed
+     */
+    public boolean update(Map<Integer, MsiMessage> messages, Set<Integer> acknowledged, Set<Integer> visible,
+            Set<Integer> relevant) {
+        Set<Integer> msgIds;
+        synchronized (this) {
+            msgIds = new TreeSet<>(entries.keySet());
+        }
+        synchronized (messages) {
+            msgIds.addAll(messages.keySet());
+        }
+        return update(msgIds, messages, acknowledged, visible, relevant);
+    }
+
+    /**
+     * Marks a single message acknowledged without consulting the store
+     * 
+     * @param msgId the message id
+     * @return if the view changed
+     */
+    public boolean acknowledge(int msgId) {
+        List<MsiMessageExtended> changed = new ArrayList<>();
+        List<MsiMessageExtended> removed = new ArrayList<>();
+        synchronized (this) {
+            MsiMessageExtended entry = entries.get(msgId);
+            if (entry != null && !entry.acknowledged) {
+                apply(msgId, new MsiMessageExtended(entry.msiMessage, true, entry.visible, entry.relevant), changed,
+                        removed);
+            }
+        }
+        return fireChanged(changed, removed);
+    }
+
+    /**
+     * Removes a single message without consulting the store
+     * 
+     * @param msgId the message id
+     * @return if the view changed
+     */
+    public boolean remove(int msgId) {
+        List<MsiMessageExtended> changed = new ArrayList<>();
+        List<MsiMessageExtended> removed = new ArrayList<>();
+        synchronized (this) {
+            apply(msgId, null, changed, removed);
+        }
+        return fireChanged(changed, removed);
+    }
+
+    /**
+     * Replaces or removes a single entry and updates the counters and filtered entries
+     * 
+     * @param msgId the message id
+     * @param entry the new entry, or null to remove the entry
+     * @param changed collects the new entry
+     * @param removed collects the removed entry
+     */
+    @GuardedBy("this")
+    private void apply(Integer msgId, MsiMessageExtended entry, List<MsiMessageExtended> changed,
+            List<MsiMessageExtended> removed) {
+        MsiMessageExtended old = (entry == null) ? entries.remove(msgId) : entries.put(msgId, entry);
+        if (old == null && entry == null) {
+            return;
+        }
+
+        boolean filteredChanged = false;
+        if (old != null) {
+            count(old, -1);
+            filteredChanged = old.visible;
+            if (old.visible) {
+                filteredEntries.remove(msgId);
+            }
+        }
+        if (entry != null) {
+            count(entry, 1);
+            filteredChanged |= entry.visible;
+            if (entry.visible) {
+                filteredEntries.put(msgId, entry);
+            }
+            changed.add(entry);
+        } else {
+            removed.add(old);
+        }
+
+        messages = null;
+        if (filteredChanged) {
+            filteredMessages = null;
+        }
+        version++;
+    }
+
+    /**
+     * Adds or subtracts the entry from the counters
+     */
+    @GuardedBy("this")
+    private void count(MsiMessageExtended entry, int delta) {
+        if (!entry.acknowledged) {
+            unacknowledged += delta;
+            if (entry.visible) {
+                unacknowledgedFiltered += delta;
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners of the changes, if any
+     * @return if there were any changes
+     */
+    private boolean fireChanged(List<MsiMessageExtended> changed, List<MsiMessageExtended> removed) {
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return false;
+        }
+        List<MsiMessageExtended> changedView = Collections.unmodifiableList(changed);
+        List<MsiMessageExtended> removedView = Collections.unmodifiableList(removed);
+        for (IMsiViewListener listener : listeners) {
+            listener.msiViewChanged(changedView, removedView);
+        }
+        return true;
+    }
+
+    private Snapshot messages() {
+        Snapshot snapshot = messages;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (messages == null) {
+                    messages = new Snapshot(entries.values());
+                }
+                snapshot = messages;
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot filteredMessages() {
+        Snapshot snapshot = filteredMessages;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (filteredMessages == null) {
+                    filteredMessages = new Snapshot(filteredEntries.values());
+                }
+                snapshot = filteredMessages;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Adds a listener for changes to the view
+     * @param listener the listener to add
+     */
+    public void addListener(IMsiViewListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes a listener for changes to the view
+     * @param listener the listener to remove
+     */
+    public void removeListener(IMsiViewListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return an unmodifiable snapshot of all messages ordered by message id
+     */
+    public List<MsiMessageExtended> getMessages() {
+        return messages().messages;
+    }
+
+    /**
+     * @return an unmodifiable snapshot of the visible messages ordered by message id
+     */
+    public List<MsiMessageExtended> getFilteredMessages() {
+        return filteredMessages().messages;
+    }
+
+    public int getUnacknowledgedCount() {
+        return unacknowledged;
+    }
+
+    public int getUnacknowledgedFilteredCount() {
+        return unacknowledgedFiltered;
+    }
+
+    /**
+     * @return index of the first unacknowledged message, or the last index if all are acknowledged
+     */
+    public int getFirstNonAcknowledged() {
+        return messages().firstNonAcknowledged;
+    }
+
+    /**
+     * @return index of the first unacknowledged visible message, or the last index if all are
+     *         acknowledged
+     */
+    public int getFirstNonAcknowledgedFiltered() {
+        return filteredMessages().firstNonAcknowledged;
+    }
+
+    /**
+     * @return a counter that changes whenever the view changes
+     */
+    public long getVersion() {
+        return version;
+    }
+}
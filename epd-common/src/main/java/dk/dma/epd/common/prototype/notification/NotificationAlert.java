@@ -118,6 +118,39 @@ public class NotificationAlert implements Serializable {
         return false;
     }
     
+    /**
+     * Returns the earliest time at which {@linkplain #shouldTrigger(Notification)}
+     * may return true, or -1 if the alert will not trigger again.
+     * <p>
+     * Used for indexing the alerts by due time, so that not all alerts
+     * have to be checked periodically.
+     *
+     * @param notification the associated notification
+     * @return the earliest time the alert may trigger, or -1
+     */
+    public long getNextTriggerTime(Notification<?,?> notification) {
+        // Handle the initial alert
+        if (lastTriggered == -1 && initial) {
+            return 0L;
+        }
+
+        // Check if the alert repeats and if the stop conditions have been met
+        if (!repeats() ||
+            (repeatUntilAcknowledged && notification.isAcknowledged()) ||
+             repeatUntilRead && notification.isRead()) {
+            return -1L;
+        }
+
+        long next = Long.MAX_VALUE;
+        if (repeatAtTimes.size() > 0) {
+            next = repeatAtTimes.get(0).getTime() + 1L;
+        }
+        for (Long interval : repeatEveryTimes) {
+            next = Math.min(next, lastTriggered + interval.longValue() + 1L);
+        }
+        return next;
+    }
+
     /**
      * Must be called whenever the alert has been triggered
      */
@@ -0,0 +1,404 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.notification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
+
+/**
+ * Stores the notifications of a single notification type.
+ * <p>
+ * Besides the ordered list of notifications, the store maintains
+ * an id look-up map, counters for the read, acknowledged and severity
+ * state and an index of the notification alerts ordered by the time
+ * they are next due. Hence, the statistics and the next due alert can be
+ * looked up without running through all notifications.
+ * <p>
+ * The read and acknowledged state of stored notifications should be
+ * changed via {@linkplain #setRead(Notification, boolean)} and
+ * {@linkplain #setAcknowledged(Notification, boolean)}, and the alerts of a
+ * notification must be set before it is added to the store.
+ */
+@ThreadSafe
+public class NotificationStore<N extends Notification<?, ?>> {
+
+    /**
+     * Interface implemented by the handler of due alerts
+     */
+    public interface AlertHandler<N> {
+        void triggerAlert(N notification, NotificationAlert alert);
+    }
+
+    @GuardedBy("this")
+    private final List<N> notifications = new ArrayList<>();
+    @GuardedBy("this")
+    private final Set<N> contained = Collections.newSetFromMap(new IdentityHashMap<N, Boolean>());
+    @GuardedBy("this")
+    private final Map<Object, N> byId = new HashMap<>();
+    @GuardedBy("this")
+    private final PriorityQueue<DueAlert<N>> dueAlerts = new PriorityQueue<>();
+
+    @GuardedBy("this")
+    private final int[] severityCount = new int[NotificationSeverity.values().length];
+    @GuardedBy("this")
+    private final int[] unacknowledgedSeverityCount = new int[NotificationSeverity.values().length];
+    @GuardedBy("this")
+    private int unreadCount;
+    @GuardedBy("this")
+    private int unacknowledgedCount;
+    @GuardedBy("this")
+    private long sequence;
+
+    /**
+     * Adds the notification to the end of the store
+     * 
+     * @param notification the notification to add
+     */
+    public synchronized void add(N notification) {
+        add(notifications.size(), notification);
+    }
+
+    /**
+     * Inserts the notification at the given position of the store
+     * 
+     * @param index the position to insert the notification at
+     * @param notification the notification to add
+     */
+    public synchronized void add(int index, N notification) {
+        if (!contained.add(notification)) {
+            return;
+        }
+        notifications.add(index, notification);
+        if (notification.getId() != null) {
+            byId.put(notification.getId(), notification);
+        }
+        count(notification, 1);
+        for (NotificationAlert alert : notification.getAlerts()) {
+            scheduleAlert(notification, alert, 0L);
+        }
+    }
+
+    /**
+     * Removes the notification from the store
+     * 
+     * @param notification the notification to remove
+     * @return if the notification was removed
+     */
+    public synchronized boolean remove(N notification) {
+        if (!contained.remove(notification)) {
+            return false;
+        }
+        notifications.remove(notification);
+        Object id = notification.getId();
+        if (id != null && byId.get(id) == notification) {
+            byId.remove(id);
+            // Fall back to any other notification with the same id
+            for (N n : notifications) {
+                if (id.equals(n.getId())) {
+                    byId.put(id, n);
+                }
+            }
+        }
+        count(notification, -1);
+        // Pending alerts of the notification are discarded when they are due
+        return true;
+    }
+
+    /**
+     * Replaces the content of the store with the given notifications
+     * 
+     * @param notifications the new notifications
+     */
+    public synchronized void setAll(Collection<? extends N> notifications) {
+        this.notifications.clear();
+        contained.clear();
+        byId.clear();
+        dueAlerts.clear();
+        unreadCount = unacknowledgedCount = 0;
+        for (int x = 0; x < severityCount.length; x++) {
+            severityCount[x] = unacknowledgedSeverityCount[x] = 0;
+        }
+        for (N notification : notifications) {
+            add(notification);
+        }
+    }
+
+    /**
+     * Updates the read flag of the notification
+     * 
+     * @param notification the notification to update
+     * @param read the new read state
+     */
+    public synchronized void setRead(N notification, boolean read) {
+        boolean stored = contained.contains(notification);
+        if (stored) {
+            count(notification, -1);
+        }
+        notification.setRead(read);
+        if (stored) {
+            count(notification, 1);
+        }
+    }
+
+    /**
+     * Updates the acknowledged flag of the notification
+     * 
+     * @param notification the notification to update
+     * @param acknowledged the new acknowledged state
+     */
+    public synchronized void setAcknowledged(N notification, boolean acknowledged) {
+        boolean stored = contained.contains(notification);
+        if (stored) {
+            count(notification, -1);
+        }
+        notification.setAcknowledged(acknowledged);
+        if (stored) {
+            count(notification, 1);
+        }
+    }
+
+    /**
+     * Adds or subtracts the notification from the counters
+     * 
+     * @param notification the notification
+     * @param delta 1 or -1
+     */
+    @GuardedBy("this")
+    private void count(N notification, int delta) {
+        int severity = notification.getSeverity().ordinal();
+        severityCount[severity] += delta;
+        if (!notification.isRead()) {
+            unreadCount += delta;
+        }
+        if (!notification.isAcknowledged()) {
+            unacknowledgedCount += delta;
+            unacknowledgedSeverityCount[severity] += delta;
+        }
+    }
+
+    /*************************************/
+    /** Look-up methods                 **/
+    /*************************************/
+
+    /**
+     * Returns the number of notifications
+     * @return the number of notifications
+     */
+    public synchronized int size() {
+        return notifications.size();
+    }
+
+    /**
+     * Returns the notification at the given index, or null if the index is out of range
+     * 
+     * @param index the index
+     * @return the notification at the given index
+     */
+    public synchronized N get(int index) {
+        if (index < 0 || index >= notifications.size()) {
+            return null;
+        }
+        return notifications.get(index);
+    }
+
+    /**
+     * Returns the notification with the given id, or null if none is found
+     * 
+     * @param id the notification id
+     * @return the notification with the given id
+     */
+    public synchronized N getById(Object id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    /**
+     * Returns the index of the notification with the given id, or -1 if none is found
+     * 
+     * @param id the notification id
+     * @return the index of the notification with the given id
+     */
+    public synchronized int indexOf(Object id) {
+        N notification = getById(id);
+        return notification == null ? -1 : notifications.indexOf(notification);
+    }
+
+    /**
+     * Returns the index of the first unacknowledged notification, or -1 if none is found
+     * 
+     * @return the index of the first unacknowledged notification
+     */
+    public synchronized int getFirstUnacknowledgedIndex() {
+        if (unacknowledgedCount > 0) {
+            for (int x = 0; x < notifications.size(); x++) {
+                if (!notifications.get(x).isAcknowledged()) {
+                    return x;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a copy of the list of notifications
+     * @return a copy of the list of notifications
+     */
+    public synchronized List<N> getNotifications() {
+        return new ArrayList<>(notifications);
+    }
+
+    /**
+     * Returns the number of unread notifications
+     * @return the number of unread notifications
+     */
+    public synchronized int getUnreadCount() {
+        return unreadCount;
+    }
+
+    /**
+     * Returns the number of unacknowledged notifications
+     * @return the number of unacknowledged notifications
+     */
+    public synchronized int getUnacknowledgedCount() {
+        return unacknowledgedCount;
+    }
+
+    /**
+     * Returns the number of notifications with the given severity
+     * 
+     * @param severity the severity
+     * @return the number of notifications with the given severity
+     */
+    public synchronized int getCount(NotificationSeverity severity) {
+        return severityCount[severity.ordinal()];
+    }
+
+    /**
+     * Returns the number of unacknowledged notifications with the given severity
+     * 
+     * @param severity the severity
+     * @return the number of unacknowledged notifications with the given severity
+     */
+    public synchronized int getUnacknowledgedCount(NotificationSeverity severity) {
+        return unacknowledgedSeverityCount[severity.ordinal()];
+    }
+
+    /*************************************/
+    /** Alert methods                   **/
+    /*************************************/
+
+    /**
+     * Returns the time the next alert is due, or -1 if no alerts are pending.
+     * <p>
+     * The returned time may be earlier than the actual time, e.g. if the
+     * notification has since been acknowledged or removed.
+     * 
+     * @return the time the next alert is due
+     */
+    public synchronized long getNextAlertTime() {
+        DueAlert<N> next = dueAlerts.peek();
+        return next == null ? -1L : next.due;
+    }
+
+    /**
+     * Triggers all alerts that are due at the given time.
+     * <p>
+     * The handler is called outside the store lock and is expected to
+     * flag the alert as triggered, after which the alert is re-indexed
+     * by its next due time.
+     * 
+     * @param now the current time
+     * @param handler the alert handler
+     */
+    public void triggerDueAlerts(long now, AlertHandler<? super N> handler) {
+        List<DueAlert<N>> due = new ArrayList<>();
+        synchronized (this) {
+            while (!dueAlerts.isEmpty() && dueAlerts.peek().due <= now) {
+                DueAlert<N> dueAlert = dueAlerts.poll();
+                if (!contained.contains(dueAlert.notification)) {
+                    continue;
+                } else if (dueAlert.alert.shouldTrigger(dueAlert.notification)) {
+                    due.add(dueAlert);
+                } else {
+                    scheduleAlert(dueAlert.notification, dueAlert.alert, now + 1L);
+                }
+            }
+        }
+
+        for (DueAlert<N> dueAlert : due) {
+            try {
+                handler.triggerAlert(dueAlert.notification, dueAlert.alert);
+            } finally {
+                synchronized (this) {
+                    if (contained.contains(dueAlert.notification)) {
+                        scheduleAlert(dueAlert.notification, dueAlert.alert, now + 1L);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the alert by its next due time, unless it will not trigger again
+     * 
+     * @param notification the notification
+     * @param alert the alert
+     * @param earliest the earliest time to index the alert at
+     */
+    @GuardedBy("this")
+    private void scheduleAlert(N notification, NotificationAlert alert, long earliest) {
+        long next = alert.getNextTriggerTime(notification);
+        if (next >= 0) {
+            dueAlerts.add(new DueAlert<>(Math.max(next, earliest), sequence++, notification, alert));
+        }
+    }
+
+    /**
+     * An alert indexed by the time it is next due
+     */
+    private static final class DueAlert<N> implements Comparable<DueAlert<N>> {
+        final long due;
+        final long seq;
+        final N notification;
+        final NotificationAlert alert;
+
+        DueAlert(long due, long seq, N notification, NotificationAlert alert) {
+            this.due = due;
+            this.seq = seq;
+            this.notification = notification;
+            this.alert = alert;
+        }
+
+        @Override
+        public int compareTo(DueAlert<N> other) {
+            if (due != other.due) {
+                return due < other.due ? -1 : 1;
+            }
+            return seq < other.seq ? -1 : (seq == other.seq ? 0 : 1);
+        }
+    }
+}
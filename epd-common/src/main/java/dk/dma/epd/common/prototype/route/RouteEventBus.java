@@ -0,0 +1,258 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.route;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.epd.common.prototype.model.route.IRouteUpdateListener;
+import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
+import dk.dma.epd.common.prototype.model.route.RouteUpdate;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.scheduler.TaskScheduler;
+
+/**
+ * Delivers route updates to the route listeners off the publishing thread.
+ * <p>
+ * Every listener has its own queue of pending updates, delivered in order by
+ * one task at a time on the shared {@linkplain TaskScheduler}, and no more
+ * often than the minimum interval given when the listener subscribed.
+ * While an update is pending, a newer update with the same event for the same
+ * route replaces it, so a burst collapses into its latest update.
+ * <p>
+ * Updates for the same route are always delivered in the order they were
+ * published. Updates not scoped to a route act as barriers which nothing is
+ * moved past.
+ * <p>
+ * Listeners updating Swing components should subscribe for delivery on the
+ * event dispatch thread. The delivery task then hands the updates over to the
+ * event dispatch thread and is not rescheduled until they have been delivered.
+ * <p>
+ * Listeners must not block the delivery thread, e.g. with a shore service call.
+ * Long running work should be handed to a task of its own; {@code MsiHandler}
+ * triggers its periodic update task rather than polling shore in
+ * {@code routesChanged}.
+ */
+@ThreadSafe
+public class RouteEventBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RouteEventBus.class);
+
+    private final String name;
+    private final TaskScheduler scheduler;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriptionIds = new AtomicInteger();
+
+    /**
+     * Constructor
+     * 
+     * @param name prefix of the names of the delivery tasks
+     * @param scheduler the scheduler to deliver updates on
+     */
+    public RouteEventBus(String name, TaskScheduler scheduler) {
+        this.name = name;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Subscribes the listener for delivery on a scheduler thread. Subscribing
+     * an already subscribed listener replaces its subscription.
+     * 
+     * @param listener the listener
+     * @param minInterval the minimum time in milliseconds between deliveries to the listener
+     */
+    public void subscribe(IRoutesUpdateListener listener, long minInterval) {
+        subscribe(listener, minInterval, false);
+    }
+
+    /**
+     * Subscribes the listener. Subscribing an already subscribed listener
+     * replaces its subscription.
+     * 
+     * @param listener the listener
+     * @param minInterval the minimum time in milliseconds between deliveries to the listener
+     * @param swing whether to deliver the updates on the event dispatch thread
+     */
+    public void subscribe(IRoutesUpdateListener listener, long minInterval, boolean swing) {
+        unsubscribe(listener);
+        subscriptions.add(new Subscription(listener, minInterval, swing, name + "-" + subscriptionIds.incrementAndGet()));
+    }
+
+    /**
+     * Unsubscribes the listener, dropping its pending updates
+     * 
+     * @param listener the listener
+     */
+    public void unsubscribe(IRoutesUpdateListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * Queues the update for all listeners and returns immediately
+     * 
+     * @param update the update to publish
+     */
+    public void publish(RouteUpdate update) {
+        for (Subscription subscription : subscriptions) {
+            subscription.enqueue(update);
+        }
+    }
+
+    /**
+     * @return the subscribed listeners
+     */
+    public List<IRoutesUpdateListener> getListeners() {
+        List<IRoutesUpdateListener> listeners = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            listeners.add(subscription.listener);
+        }
+        return listeners;
+    }
+
+    /**
+     * Appends the update to the pending updates, first removing a pending update 
+     * made obsolete by it. Only looks back as far as the update may be moved 
+     * without changing the order of updates for its route.
+     * 
+     * @param pending the pending updates
+     * @param update the new update
+     */
+    static void coalesce(List<RouteUpdate> pending, RouteUpdate update) {
+        ListIterator<RouteUpdate> it = pending.listIterator(pending.size());
+        while (it.hasPrevious()) {
+            RouteUpdate previous = it.previous();
+            if (previous.getRoute() == update.getRoute()) {
+                if (previous.getEvent() == update.getEvent()) {
+                    it.remove();
+                }
+                break;
+            }
+            if (previous.getRoute() == null || update.getRoute() == null) {
+                break;
+            }
+        }
+        pending.add(update);
+    }
+
+    /**
+     * Pending updates and delivery state of a single listener
+     */
+    private final class Subscription implements Runnable {
+
+        private final IRoutesUpdateListener listener;
+        private final long minInterval;
+        private final boolean swing;
+        private final String taskName;
+
+        @GuardedBy("this") private final LinkedList<RouteUpdate> pending = new LinkedList<>();
+        @GuardedBy("this") private boolean scheduled;
+        @GuardedBy("this") private boolean cancelled;
+        @GuardedBy("this") private long lastDelivery;
+
+        Subscription(IRoutesUpdateListener listener, long minInterval, boolean swing, String taskName) {
+            this.listener = listener;
+            this.minInterval = minInterval;
+            this.swing = swing;
+            this.taskName = taskName;
+        }
+
+        synchronized void enqueue(RouteUpdate update) {
+            if (cancelled) {
+                return;
+            }
+            coalesce(pending, update);
+            if (!scheduled) {
+                scheduled = true;
+                long delay = Math.max(0L, lastDelivery + minInterval - System.currentTimeMillis());
+                scheduler.schedule(taskName, TaskPriority.NORMAL, this, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            pending.clear();
+            scheduler.cancel(taskName);
+        }
+
+        /**
+         * Delivers the pending updates, on the event dispatch thread if requested
+         */
+        @Override
+        public void run() {
+            final List<RouteUpdate> updates;
+            synchronized (this) {
+                updates = new ArrayList<>(pending);
+                pending.clear();
+            }
+
+            if (!swing) {
+                deliver(updates);
+                return;
+            }
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(updates);
+                }
+            });
+        }
+
+        /**
+         * Delivers the updates to the listener and schedules the next delivery if needed
+         */
+        private void deliver(List<RouteUpdate> updates) {
+            for (RouteUpdate update : updates) {
+                try {
+                    if (listener instanceof IRouteUpdateListener) {
+                        ((IRouteUpdateListener) listener).routeUpdated(update);
+                    } else {
+                        listener.routesChanged(update.getEvent());
+                    }
+                } catch (RuntimeException e) {
+                    LOG.error("Route listener " + listener.getClass().getSimpleName() + " failed on "
+                            + update.getEvent(), e);
+                }
+            }
+
+            synchronized (this) {
+                lastDelivery = System.currentTimeMillis();
+                if (pending.isEmpty() || cancelled) {
+                    scheduled = false;
+                } else {
+                    scheduler.schedule(taskName, TaskPriority.NORMAL, this, minInterval, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+}
@@ -15,12 +15,16 @@
  */
 package dk.dma.epd.common.prototype.route;
 
+import java.awt.Component;
 import java.io.File;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,12 +37,17 @@ import com.bbn.openmap.MapHandlerChild;
 import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
 import dk.dma.epd.common.prototype.model.route.ActiveRoute;
+import dk.dma.epd.common.prototype.model.route.IRouteUpdateListener;
 import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
 import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteLibrary;
+import dk.dma.epd.common.prototype.model.route.RouteLibraryEntry;
 import dk.dma.epd.common.prototype.model.route.RouteLoadException;
 import dk.dma.epd.common.prototype.model.route.RouteLoader;
 import dk.dma.epd.common.prototype.model.route.RouteMetocSettings;
+import dk.dma.epd.common.prototype.model.route.RouteUpdate;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
 import dk.dma.epd.common.prototype.settings.EnavSettings;
 import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
@@ -57,7 +66,10 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
     private static final long serialVersionUID = -3781810760698987644L;
     private static final Logger LOG = LoggerFactory.getLogger(RouteManagerCommon.class);
     
-    private CopyOnWriteArrayList<IRoutesUpdateListener> listeners = new CopyOnWriteArrayList<>();
+    private static final long SAVE_DELAY = 1000L; // ms
+
+    private final transient RouteEventBus eventBus;
+    private final transient AtomicBoolean savePending = new AtomicBoolean();
     protected EnavSettings enavSettings;
     protected ShoreServicesCommon shoreServices;
     
@@ -67,13 +79,29 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
     protected ActiveRoute activeRoute;
     @GuardedBy("this")
     protected int activeRouteIndex = -1;
+
+    private transient volatile RouteLibrary routeLibrary;
+    private final transient CountDownLatch routeLibraryLoaded = new CountDownLatch(1);
     
     /**
      * Constructor
      */
     public RouteManagerCommon() {
         enavSettings = EPD.getInstance().getSettings().getEnavSettings();
+        eventBus = new RouteEventBus("RouteEvents", EPD.getInstance().getTaskScheduler());
         EPD.startThread(this, "RouteManager");
+
+        // Load the route library index in the background
+        EPD.getInstance().getTaskScheduler().schedule("RouteLibraryLoader", TaskPriority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    routeLibrary = RouteLibrary.loadFromFile(EPD.getInstance().getHomePath());
+                } finally {
+                    routeLibraryLoaded.countDown();
+                }
+            }
+        }, 0L, TimeUnit.MILLISECONDS);
     }
     
     /**************************************/
@@ -279,14 +307,16 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
      * @param index the index of the active way point
      */
     public void changeActiveWp(int index) {
+        RouteUpdate update;
         synchronized (this) {
             if (!isRouteActive()) {
                 return;
             }
             activeRoute.changeActiveWaypoint(index);
+            update = new RouteUpdate(RoutesUpdateEvent.ACTIVE_ROUTE_UPDATE, activeRoute, activeRouteIndex, index);
         }
 
-        notifyListeners(RoutesUpdateEvent.ACTIVE_ROUTE_UPDATE);
+        notifyListeners(update);
     }
 
     /**************************************/
@@ -298,11 +328,46 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
      * @param e the route update event
      */
     public void notifyListeners(RoutesUpdateEvent e) {
-        for (IRoutesUpdateListener listener : listeners) {
-            listener.routesChanged(e);
+        notifyListeners(new RouteUpdate(e));
+    }
+
+    /**
+     * Notifies the listeners that the route has updated.
+     * <p>
+     * Listeners implementing {@linkplain IRouteUpdateListener} receive the route-scoped
+     * update, whereas other listeners receive the plain update event.
+     * <p>
+     * The update is delivered asynchronously through the {@linkplain RouteEventBus},
+     * and the routes are persisted shortly after, so the calling thread never waits
+     * on listeners or disk.
+     * 
+     * @param update the route update
+     */
+    public void notifyListeners(RouteUpdate update) {
+        eventBus.publish(update);
+        scheduleSave();
+    }
+
+    /**
+     * Persists the routes after a short delay, coalescing the saves of bursts of updates
+     */
+    private void scheduleSave() {
+        if (!savePending.compareAndSet(false, true)) {
+            return;
         }
-        // Persist routes on update
-        saveToFile();
+        EPD.getInstance().getTaskScheduler().schedule("RoutesSave", TaskPriority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                savePending.set(false);
+                long start = System.nanoTime();
+                saveToFile();
+                int count;
+                synchronized (RouteManagerCommon.this) {
+                    count = routes.size();
+                }
+                EPD.getInstance().getMetrics().getRouteMetrics().markWrite(System.nanoTime() - start, count);
+            }
+        }, SAVE_DELAY, TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -310,7 +375,20 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
      * @param listener the listener to add
      */
     public void addListener(IRoutesUpdateListener listener) {
-        listeners.add(listener);
+        addListener(listener, 0L);
+    }
+
+    /**
+     * Adds a new listener which receives updates at most once per the given interval.
+     * Updates published in between are coalesced.
+     * <p>
+     * Listeners that are Swing components receive the updates on the event dispatch thread.
+     * 
+     * @param listener the listener to add
+     * @param minInterval the minimum time in milliseconds between deliveries
+     */
+    public void addListener(IRoutesUpdateListener listener, long minInterval) {
+        eventBus.subscribe(listener, minInterval, listener instanceof Component);
     }
 
     /**
@@ -318,7 +396,7 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
      * @param listener the listener to remove
      */
     public void removeListener(IRoutesUpdateListener listener) {
-        listeners.remove(listener);
+        eventBus.unsubscribe(listener);
     }
 
     /**************************************/
@@ -348,12 +426,34 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
     }
     
     /**
-     * Get METOC data for the route
+     * Get METOC data for the route.
+     * Blocks until the METOC has been received, use {@linkplain #requestRouteMetocAsync(Route)}
+     * from the GUI.
      * @param route the route to get METOC data for
      */
     public void requestRouteMetoc(Route route) throws ShoreServiceException {
         // Request METOC from shore
         MetocForecast metocForecast = shoreServices.routeMetoc(route);
+        setRouteMetoc(route, metocForecast);
+    }
+
+    /**
+     * Submits a request for METOC data for the route.
+     * Once received, the METOC must be added using {@linkplain #setRouteMetoc(Route, MetocForecast)}.
+     * Cancelling the returned future aborts the request.
+     * @param route the route to get METOC data for
+     * @return the future METOC forecast
+     */
+    public Future<MetocForecast> requestRouteMetocAsync(Route route) {
+        return shoreServices.routeMetocAsync(route);
+    }
+
+    /**
+     * Adds the METOC data to the route and flags it to be shown
+     * @param route the route
+     * @param metocForecast the METOC forecast of the route
+     */
+    public void setRouteMetoc(Route route, MetocForecast metocForecast) {
         // Add the METOC to route
         route.setMetocForecast(metocForecast);
         // Set show to true
@@ -536,26 +636,63 @@ public abstract class RouteManagerCommon extends MapHandlerChild implements Runn
      */
     public void loadFromFile(File file) throws RouteLoadException {
         LOG.debug("Load route from file: " + file.getAbsolutePath());
-        // Create new route instance
-        Route route;
-
-        // Some pertinacious loading
-        String ext = "";
-        int mid = file.getName().lastIndexOf('.');
-        ext = file.getName().substring(mid + 1, file.getName().length())
-                .toUpperCase();
-        if (ext.equals("TXT")) {
-            // Load simple from file
-            route = RouteLoader.loadSimple(file);
-        } else if (ext.equals("ROU")) {
-            // Load ECDIS900 V3 route
-            route = RouteLoader.loadRou(file, EPD.getInstance().getSettings().getNavSettings());
-        } else if (ext.equals("RT3")) {
-            // Load Navisailor 3000 route
-            route = RouteLoader.loadRt3(file, EPD.getInstance().getSettings().getNavSettings());
-        } else {
-            route = RouteLoader.pertinaciousLoad(file, EPD.getInstance().getSettings().getNavSettings());
+        Route route = RouteLoader.load(file, EPD.getInstance().getSettings().getNavSettings());
+
+        // Add route to list
+        synchronized (this) {
+            routes.add(route);
+        }
+        // Notify of new route
+        notifyListeners(RoutesUpdateEvent.ROUTE_ADDED);
+    }
+    
+    /**
+     * Returns the route library. The index is loaded in the background at start-up,
+     * and this method blocks until it has been loaded, so call off the EDT.
+     * 
+     * @return the route library
+     */
+    public RouteLibrary getRouteLibrary() throws InterruptedException {
+        routeLibraryLoaded.await();
+        RouteLibrary library = routeLibrary;
+        if (library == null) {
+            // The load failed, start with an empty library
+            synchronized (this) {
+                if (routeLibrary == null) {
+                    routeLibrary = new RouteLibrary(EPD.getInstance().getHomePath());
+                }
+                library = routeLibrary;
+            }
         }
+        return library;
+    }
+
+    /**
+     * Imports the route files of the given directory into the route library
+     * and saves the index. Blocks while importing, call off the EDT.
+     * 
+     * @param dir
+     *            the directory to import
+     * @return the number of routes imported
+     */
+    public int importRouteLibrary(File dir) throws InterruptedException {
+        RouteLibrary library = getRouteLibrary();
+        int imported = library.importDirectory(dir, EPD.getInstance().getSettings().getNavSettings());
+        library.removeMissing();
+        library.saveToFile();
+        return imported;
+    }
+
+    /**
+     * Loads the full route of a library entry and adds it to the routes.
+     * Blocks while loading, call off the EDT.
+     * 
+     * @param entry
+     *            the library entry
+     * @throws RouteLoadException
+     */
+    public void loadFromLibrary(RouteLibraryEntry entry) throws RouteLoadException, InterruptedException {
+        Route route = getRouteLibrary().loadRoute(entry, EPD.getInstance().getSettings().getNavSettings());
 
         // Add route to list
         synchronized (this) {
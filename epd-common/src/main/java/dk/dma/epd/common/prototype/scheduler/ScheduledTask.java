@@ -0,0 +1,337 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.scheduler;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A named task registered with the {@linkplain TaskScheduler}.
+ * <p>
+ * A task is either periodic, in which case it is re-scheduled with its period
+ * (plus a random jitter) after each execution, or triggered only, in which
+ * case it is executed whenever {@linkplain #trigger()} is called.
+ * <p>
+ * At most one execution of a task is ever running or pending. A trigger that
+ * arrives while the task is executing is coalesced into a single re-execution,
+ * and a periodic task that runs for longer than its period is counted as
+ * an overrun rather than being queued up.
+ */
+@ThreadSafe
+public class ScheduledTask {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScheduledTask.class);
+    private static final Random JITTER = new Random();
+
+    private final String name;
+    private final TaskPriority priority;
+    private final Runnable task;
+    private final long period;
+    private final long jitter;
+    private final ScheduledExecutorService executor;
+
+    @GuardedBy("this")
+    private ScheduledFuture<?> future;
+    @GuardedBy("this")
+    private boolean running;
+    @GuardedBy("this")
+    private boolean pending;
+    @GuardedBy("this")
+    private boolean cancelled;
+    @GuardedBy("this")
+    private long scheduledTime;
+
+    // Statistics
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong totalRunTime = new AtomicLong();
+    private final AtomicLong maxRunTime = new AtomicLong();
+    private final AtomicLong maxLateness = new AtomicLong();
+    private final AtomicLong overrunCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private volatile long lastRunTime;
+
+    private final Runnable runner = new Runnable() {
+        @Override
+        public void run() {
+            execute();
+        }
+    };
+
+    /**
+     * Constructor
+     * 
+     * @param name the name of the task
+     * @param priority the priority of the task
+     * @param task the task to execute
+     * @param period the period in ms. If zero, the task is only executed when triggered
+     * @param jitter the maximum random jitter in ms to add to the period
+     * @param executor the executor used for executing the task
+     */
+    ScheduledTask(String name, TaskPriority priority, Runnable task, long period, long jitter, ScheduledExecutorService executor) {
+        this.name = name;
+        this.priority = priority;
+        this.task = task;
+        this.period = period;
+        this.jitter = jitter;
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules the next execution of the task after the given delay
+     * 
+     * @param delay the delay in ms
+     */
+    synchronized void schedule(long delay) {
+        if (cancelled) {
+            return;
+        }
+        if (future != null) {
+            future.cancel(false);
+        }
+        scheduledTime = System.currentTimeMillis() + delay;
+        future = executor.schedule(runner, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Requests an immediate execution of the task.
+     * <p>
+     * If the task is currently executing, the request is coalesced into
+     * a single re-execution once the current execution completes.
+     */
+    public synchronized void trigger() {
+        if (cancelled) {
+            return;
+        }
+        if (running) {
+            if (pending) {
+                coalescedCount.incrementAndGet();
+            }
+            pending = true;
+            return;
+        }
+        schedule(0);
+    }
+
+    /**
+     * Requests an execution of the task after the given delay, unless an
+     * execution is already scheduled to start no later than that.
+     * <p>
+     * If the task is currently executing, the request is coalesced into
+     * a single re-execution once the current execution completes.
+     * 
+     * @param delay the delay
+     * @param unit the time unit of the delay
+     */
+    public synchronized void triggerAfter(long delay, TimeUnit unit) {
+        if (cancelled) {
+            return;
+        }
+        if (running) {
+            if (pending) {
+                coalescedCount.incrementAndGet();
+            }
+            pending = true;
+            return;
+        }
+        long delayMillis = Math.max(0L, unit.toMillis(delay));
+        if (future != null && !future.isDone() && scheduledTime <= System.currentTimeMillis() + delayMillis) {
+            coalescedCount.incrementAndGet();
+            return;
+        }
+        schedule(delayMillis);
+    }
+
+    /**
+     * Cancels the task. A currently running execution is allowed to complete.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        pending = false;
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Executes the task and records the statistics
+     */
+    private void execute() {
+        long lateness;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            running = true;
+            lateness = System.currentTimeMillis() - scheduledTime;
+        }
+        updateMax(maxLateness, lateness);
+
+        long t0 = System.nanoTime();
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failureCount.incrementAndGet();
+            LOG.error("Scheduled task " + name + " failed", t);
+        } finally {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            lastRunTime = elapsed;
+            runCount.incrementAndGet();
+            totalRunTime.addAndGet(elapsed);
+            updateMax(maxRunTime, elapsed);
+            if (period > 0 && elapsed > period) {
+                overrunCount.incrementAndGet();
+                LOG.debug("Scheduled task " + name + " overran its period of " + period + " ms by " + (elapsed - period) + " ms");
+            }
+
+            synchronized (this) {
+                running = false;
+                future = null;
+                if (pending) {
+                    pending = false;
+                    schedule(0);
+                } else if (period > 0) {
+                    schedule(nextDelay());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the delay until the next periodic execution, including jitter
+     * @return the delay until the next periodic execution
+     */
+    private long nextDelay() {
+        if (jitter <= 0) {
+            return period;
+        }
+        return period + (long) (JITTER.nextDouble() * jitter);
+    }
+
+    /**
+     * Atomically updates the maximum value
+     */
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /*******************************/
+    /** Getters                   **/
+    /*******************************/
+
+    public String getName() {
+        return name;
+    }
+
+    public TaskPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns the period in ms, or 0 if the task is triggered only
+     * @return the period in ms, or 0 if the task is triggered only
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    public long getJitter() {
+        return jitter;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    /**
+     * Returns the accumulated run time in ms
+     * @return the accumulated run time in ms
+     */
+    public long getTotalRunTime() {
+        return totalRunTime.get();
+    }
+
+    /**
+     * Returns the average run time in ms
+     * @return the average run time in ms
+     */
+    public long getAverageRunTime() {
+        long runs = runCount.get();
+        return (runs == 0) ? 0 : totalRunTime.get() / runs;
+    }
+
+    public long getMaxRunTime() {
+        return maxRunTime.get();
+    }
+
+    public long getLastRunTime() {
+        return lastRunTime;
+    }
+
+    /**
+     * Returns the maximum time in ms an execution has been delayed
+     * beyond its scheduled time, i.e. waited for a free thread
+     * @return the maximum lateness in ms
+     */
+    public long getMaxLateness() {
+        return maxLateness.get();
+    }
+
+    public long getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "%s [%s, period=%d ms]: runs=%d, total=%d ms, avg=%d ms, max=%d ms, "
+                        + "last=%d ms, maxLate=%d ms, overruns=%d, coalesced=%d, failures=%d",
+                name, priority, period, getRunCount(), getTotalRunTime(), getAverageRunTime(), getMaxRunTime(),
+                getLastRunTime(), getMaxLateness(), getOverrunCount(), getCoalescedCount(), getFailureCount());
+    }
+}
@@ -0,0 +1,74 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.scheduler;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Defines the priority classes of the {@linkplain TaskScheduler}.
+ * <p>
+ * Each priority class is served by its own bounded thread pool, so that
+ * slow, blocking tasks such as shore service polls cannot delay
+ * latency-sensitive housekeeping tasks.
+ */
+public enum TaskPriority {
+    HIGH(2, Thread.NORM_PRIORITY + 1),
+    NORMAL(3, Thread.NORM_PRIORITY),
+    LOW(2, Thread.MIN_PRIORITY + 1);
+
+    private final int poolSize;
+    private final int threadPriority;
+
+    private TaskPriority(int poolSize, int threadPriority) {
+        this.poolSize = poolSize;
+        this.threadPriority = threadPriority;
+    }
+
+    /**
+     * Returns the number of threads serving this priority class
+     * @return the number of threads serving this priority class
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Returns the priority of the threads serving this priority class
+     * @return the priority of the threads serving this priority class
+     */
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    /**
+     * Returns a thread factory for the threads of this priority class
+     * @return a thread factory for the threads of this priority class
+     */
+    ThreadFactory newThreadFactory() {
+        final AtomicInteger threadNo = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("TaskScheduler-" + name() + "-" + threadNo.incrementAndGet());
+                thread.setPriority(threadPriority);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
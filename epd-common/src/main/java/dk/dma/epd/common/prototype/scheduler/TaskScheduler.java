@@ -0,0 +1,221 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared, bounded scheduling service used by the EPD components for periodic
+ * and triggered background work, in place of dedicated polling threads.
+ * <p>
+ * Tasks are registered by name and with a {@linkplain TaskPriority}. Each priority
+ * class is served by a small, fixed-size thread pool. Registering a task with the
+ * name of an existing task replaces the existing task.
+ * <p>
+ * The scheduler is reachable via {@code EPD.getInstance().getTaskScheduler()}.
+ */
+@ThreadSafe
+public class TaskScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskScheduler.class);
+
+    private static final long STATISTICS_LOG_PERIOD = 15 * 60 * 1000; // 15 min
+
+    private final Map<TaskPriority, ScheduledThreadPoolExecutor> executors = new EnumMap<>(TaskPriority.class);
+    private final ConcurrentHashMap<String, ScheduledTask> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     */
+    public TaskScheduler() {
+        for (TaskPriority priority : TaskPriority.values()) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(priority.getPoolSize(),
+                    priority.newThreadFactory());
+            executor.setRemoveOnCancelPolicy(true);
+            executors.put(priority, executor);
+        }
+
+        schedulePeriodic("TaskSchedulerStatistics", TaskPriority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                logStatistics();
+            }
+        }, STATISTICS_LOG_PERIOD, STATISTICS_LOG_PERIOD, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a periodic task. The task is executed after the initial delay
+     * and subsequently with the given period (plus a random jitter) between
+     * the end of one execution and the start of the next.
+     * 
+     * @param name the unique name of the task
+     * @param priority the priority of the task
+     * @param task the task to execute
+     * @param initialDelay the initial delay
+     * @param period the period between executions
+     * @param jitter the maximum random jitter to add to each period
+     * @param unit the time unit of the delay, period and jitter
+     * @return the registered task
+     */
+    public ScheduledTask schedulePeriodic(String name, TaskPriority priority, Runnable task, long initialDelay, long period,
+            long jitter, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("The period of task " + name + " must be positive");
+        }
+        ScheduledTask scheduledTask = register(new ScheduledTask(name, priority, task, unit.toMillis(period),
+                unit.toMillis(jitter), executors.get(priority)));
+        scheduledTask.schedule(unit.toMillis(initialDelay));
+        return scheduledTask;
+    }
+
+    /**
+     * Registers a task that is only executed when triggered,
+     * either via {@linkplain ScheduledTask#trigger()} or {@linkplain #trigger(String)}.
+     * 
+     * @param name the unique name of the task
+     * @param priority the priority of the task
+     * @param task the task to execute
+     * @return the registered task
+     */
+    public ScheduledTask registerTriggered(String name, TaskPriority priority, Runnable task) {
+        return register(new ScheduledTask(name, priority, task, 0L, 0L, executors.get(priority)));
+    }
+
+    /**
+     * Executes a one-off task after the given delay
+     * 
+     * @param name the unique name of the task
+     * @param priority the priority of the task
+     * @param task the task to execute
+     * @param delay the delay before executing the task
+     * @param unit the time unit of the delay
+     * @return the registered task
+     */
+    public ScheduledTask schedule(String name, TaskPriority priority, Runnable task, long delay, TimeUnit unit) {
+        ScheduledTask scheduledTask = register(new ScheduledTask(name, priority, task, 0L, 0L, executors.get(priority)));
+        scheduledTask.schedule(unit.toMillis(delay));
+        return scheduledTask;
+    }
+
+    /**
+     * Registers the task, replacing and cancelling any existing task with the same name
+     * 
+     * @param scheduledTask the task to register
+     * @return the registered task
+     */
+    private ScheduledTask register(ScheduledTask scheduledTask) {
+        ScheduledTask oldTask = tasks.put(scheduledTask.getName(), scheduledTask);
+        if (oldTask != null) {
+            LOG.debug("Replacing scheduled task " + scheduledTask.getName());
+            oldTask.cancel();
+        }
+        return scheduledTask;
+    }
+
+    /**
+     * Triggers an immediate execution of the task with the given name
+     * 
+     * @param name the name of the task
+     * @return if the task was found
+     */
+    public boolean trigger(String name) {
+        ScheduledTask task = tasks.get(name);
+        if (task != null) {
+            task.trigger();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancels and unregisters the task with the given name
+     * 
+     * @param name the name of the task
+     */
+    public void cancel(String name) {
+        ScheduledTask task = tasks.remove(name);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Returns the task with the given name, or null if not found
+     * 
+     * @param name the name of the task
+     * @return the task with the given name
+     */
+    public ScheduledTask getTask(String name) {
+        return tasks.get(name);
+    }
+
+    /**
+     * Returns the registered tasks sorted by accumulated run time, in descending order
+     * 
+     * @return the registered tasks
+     */
+    public List<ScheduledTask> getTasks() {
+        List<ScheduledTask> result = new ArrayList<>(tasks.values());
+        Collections.sort(result, new Comparator<ScheduledTask>() {
+            @Override
+            public int compare(ScheduledTask t1, ScheduledTask t2) {
+                return Long.compare(t2.getTotalRunTime(), t1.getTotalRunTime());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Logs the run-time statistics of all registered tasks
+     */
+    public void logStatistics() {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Task scheduler statistics:");
+        for (ScheduledTask task : getTasks()) {
+            sb.append("\n  ").append(task);
+        }
+        LOG.info(sb.toString());
+    }
+
+    /**
+     * Cancels all tasks and shuts down the scheduler
+     */
+    public void shutdown() {
+        logStatistics();
+        for (ScheduledTask task : tasks.values()) {
+            task.cancel();
+        }
+        tasks.clear();
+        for (ScheduledThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+    }
+}
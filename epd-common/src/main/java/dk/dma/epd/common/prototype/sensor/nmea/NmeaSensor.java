@@ -51,6 +51,8 @@ import dk.dma.ais.sentence.SentenceException;
 import dk.dma.ais.sentence.SentenceLine;
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.enav.util.function.Consumer;
+import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.metrics.AisMetrics;
 import dk.dma.epd.common.prototype.sensor.rpnt.ResilientPntData;
 import dk.dma.epd.common.util.Util;
 
@@ -253,6 +255,7 @@ public abstract class NmeaSensor extends MapHandlerChild implements Runnable {
             packet = packetReader.readLine(msg);
         } catch (SentenceException se) {
             LOG.info("Sentence error: " + se.getMessage() + " msg: " + msg);
+            EPD.getInstance().getMetrics().getAisMetrics().markSourceError(getClass().getSimpleName());
             return;
         }
 
@@ -271,20 +274,28 @@ public abstract class NmeaSensor extends MapHandlerChild implements Runnable {
         } catch (SixbitException se) {
             LOG.info("Sixbit error: " + se.getMessage() + " vdm: " + packet.getVdm().getOrgLinesJoined());
         }
+        AisMetrics aisMetrics = EPD.getInstance().getMetrics().getAisMetrics();
         if (message == null) {
+            aisMetrics.markSourceError(getClass().getSimpleName());
             return;
         }
+        aisMetrics.markSourceReceived(getClass().getSimpleName());
 
         // Check if simulated own ship
         boolean ownMessage = packet.getVdm().isOwnMessage();
 
         // Distribute message
-        for (IAisSensorListener aisListener : aisListeners) {
-            if (ownMessage) {
-                aisListener.receiveOwnMessage(message);
-            } else {
-                aisListener.receive(message);
+        aisMetrics.setCurrentSource(getClass().getSimpleName());
+        try {
+            for (IAisSensorListener aisListener : aisListeners) {
+                if (ownMessage) {
+                    aisListener.receiveOwnMessage(message);
+                } else {
+                    aisListener.receive(message);
+                }
             }
+        } finally {
+            aisMetrics.setCurrentSource(null);
         }
         
         // Distribute PNT from own mesasge
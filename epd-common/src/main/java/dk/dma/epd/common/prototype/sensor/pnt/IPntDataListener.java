@@ -21,7 +21,9 @@ package dk.dma.epd.common.prototype.sensor.pnt;
 public interface IPntDataListener {
     
     /**
-     * Method called when the position of ship changes, or the known position is lost
+     * Method called when the position of ship changes, or the known position is lost.
+     * <p>
+     * Called on a scheduler thread. The {@code pntData} is a shared snapshot and must not be modified.
      * @param pntData 
      */
     void pntDataUpdate(PntData pntData);
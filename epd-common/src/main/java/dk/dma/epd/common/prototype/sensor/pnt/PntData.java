@@ -23,7 +23,12 @@ import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.sensor.nmea.PntSource;
 
 /**
- * Class representing PNT data 
+ * Class representing PNT data.
+ * <p>
+ * The class itself is mutable. Instances published by the {@linkplain PntHandler} are
+ * shared snapshots, which must not be modified; use the copy constructor, or
+ * {@linkplain PntHandler#getCurrentData()}, to get a copy that may be modified.
+ * The version is incremented with every snapshot.
  */
 @NotThreadSafe
 public class PntData implements Serializable {
@@ -37,6 +42,7 @@ public class PntData implements Serializable {
     private Double sog;
     private Long time;
     private boolean badPosition = true;
+    private long version;
     
     public PntData() {
         
@@ -59,6 +65,7 @@ public class PntData implements Serializable {
             this.time = new Long(pntData.time);
         }
         this.badPosition = pntData.badPosition;        
+        this.version = pntData.version;
     }
 
     public PntSource getPntSource() {
@@ -121,6 +128,18 @@ public class PntData implements Serializable {
         this.badPosition = badPosition;
     }
 
+    /**
+     * Returns the version of the snapshot
+     * @return the version of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -17,113 +17,188 @@ package dk.dma.epd.common.prototype.sensor.pnt;
 
 import java.util.Date;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 
 import com.bbn.openmap.MapHandlerChild;
 
 import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.metrics.PntMetrics;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.scheduler.TaskScheduler;
 import dk.dma.epd.common.prototype.sensor.nmea.IPntSensorListener;
 import dk.dma.epd.common.prototype.sensor.nmea.PntMessage;
 import dk.dma.epd.common.prototype.sensor.nmea.PntMessage.MessageType;
 import dk.dma.epd.common.prototype.status.IStatusComponent;
 import dk.dma.epd.common.prototype.status.PntStatus;
-import dk.dma.epd.common.util.Util;
 
 /**
  * Component class for handling received PNT messages.
+ * <p>
+ * The current PNT data is published as an immutable, versioned snapshot via a single
+ * atomic reference. PNT messages are integrated at the native sensor rate without locking,
+ * so readers never contend with the sensors. Listeners are notified asynchronously, at most
+ * once every {@code DISTRIBUTE_INTERVAL} ms, on a scheduler thread and with the latest snapshot.
+ * An update received within the interval is distributed when the interval ends.
  */
 @ThreadSafe
-public class PntHandler extends MapHandlerChild implements IPntSensorListener, IStatusComponent, Runnable {
+public class PntHandler extends MapHandlerChild implements IPntSensorListener, IStatusComponent {
 
     private static final long PNT_TIMEOUT = 60 * 1000; // 1 min
+    private static final long DISTRIBUTE_INTERVAL = 900;
+    private static final String DISTRIBUTE_TASK = "PntDistribute";
+    
     private CopyOnWriteArrayList<IPntDataListener> listeners = new CopyOnWriteArrayList<>();
-    @GuardedBy("this")
-    private PntData currentData = new PntData();
+    private final AtomicReference<PntData> currentData = new AtomicReference<>(new PntData());
+    private final AtomicLong lastDistributed = new AtomicLong();
+    private final AtomicBoolean deferred = new AtomicBoolean();
+    private final PntMetrics pntMetrics;
+    private final ScheduledTask distributeTask;
 
     public PntHandler() {
-        EPD.startThread(this, "PntHandler");
+        this(EPD.getInstance().getTaskScheduler(), EPD.getInstance().getMetrics().getPntMetrics());
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param scheduler the scheduler used for distributing updates and monitoring timeouts
+     * @param pntMetrics the PNT metrics
+     */
+    public PntHandler(TaskScheduler scheduler, PntMetrics pntMetrics) {
+        this.pntMetrics = pntMetrics;
+        distributeTask = scheduler.registerTriggered(DISTRIBUTE_TASK, TaskPriority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                distributeUpdate();
+            }
+        });
+        scheduler.schedulePeriodic("PntTimeoutMonitor", TaskPriority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                checkTimeout();
+            }
+        }, 10, 10, 0, TimeUnit.SECONDS);
     }
 
     @Override
     public PntStatus getStatus() {
-        return new PntStatus(getCurrentData());
+        return new PntStatus(getSnapshot());
     }
 
     /**
      * Receive PNT message
      */
     @Override
-    public synchronized void receive(PntMessage pntMessage) {
+    public void receive(PntMessage pntMessage) {
         // The PntHandler is not interested in time-only PNT messages
         if (pntMessage.getMessageType() == MessageType.TIME) {
             return;
         }
         
+        pntMetrics.markMessage();
         Date now = new Date();
-        long elapsed = now.getTime() - currentData.getLastUpdated().getTime();
-        if (elapsed < 900) {
-            return;
-        }
-
-        currentData.setPntSource(pntMessage.getPntSource());
-        currentData.setLastUpdated(now);
-        if (pntMessage.getPos() == null || !pntMessage.isValidPosition()) {
-            currentData.setBadPosition(true);
-        } else {
-            currentData.setPosition(pntMessage.getPos());
-            currentData.setBadPosition(false);
-        }
-        if (pntMessage.getCog() != null) {
-            currentData.setCog(pntMessage.getCog());
-        }
-        if (pntMessage.getSog() != null) {
-            currentData.setSog(pntMessage.getSog());
+        
+        PntData current, data;
+        do {
+            current = currentData.get();
+            data = new PntData(current);
+            data.setVersion(current.getVersion() + 1);
+            data.setPntSource(pntMessage.getPntSource());
+            data.setLastUpdated(now);
+            if (pntMessage.getPos() == null || !pntMessage.isValidPosition()) {
+                data.setBadPosition(true);
+            } else {
+                data.setPosition(pntMessage.getPos());
+                data.setBadPosition(false);
+            }
+            if (pntMessage.getCog() != null) {
+                data.setCog(pntMessage.getCog());
+            }
+            if (pntMessage.getSog() != null) {
+                data.setSog(pntMessage.getSog());
+            }
+        } while (!currentData.compareAndSet(current, data));
+        
+        pntMetrics.markUpdate(data.isBadPosition());
+        
+        // Throttle the distribution to listeners
+        long last = lastDistributed.get();
+        long elapsed = now.getTime() - last;
+        if (elapsed >= DISTRIBUTE_INTERVAL) {
+            if (lastDistributed.compareAndSet(last, now.getTime())) {
+                distributeTask.trigger();
+            }
+        } else if (deferred.compareAndSet(false, true)) {
+            // Distribute the latest snapshot when the interval ends
+            distributeTask.triggerAfter(DISTRIBUTE_INTERVAL - elapsed, TimeUnit.MILLISECONDS);
         }
-        distributeUpdate();
     }
 
     /**
-     * Mark the current data as invalid
+     * Mark the current data as invalid if it has timed out
      */
-    private synchronized void markBadPos() {
-        currentData.setBadPosition(true);
+    private void checkTimeout() {
+        PntData current, data;
+        do {
+            current = currentData.get();
+            if (!pntTimedOut(current)) {
+                return;
+            }
+            data = new PntData(current);
+            data.setVersion(current.getVersion() + 1);
+            data.setBadPosition(true);
+        } while (!currentData.compareAndSet(current, data));
+        
+        pntMetrics.markTimeout();
+        distributeTask.trigger();
     }
 
     /**
-     * Distribute update to all listeners
+     * Distribute the latest snapshot to all listeners
      */
     private void distributeUpdate() {
+        lastDistributed.set(System.currentTimeMillis());
+        deferred.set(false);
+        PntData data = getSnapshot();
         for (IPntDataListener listener : listeners) {
-            listener.pntDataUpdate(getCurrentData());
+            listener.pntDataUpdate(data);
         }
     }
 
     /**
      * Return if the current data has timed out
      */
-    public synchronized boolean pntTimedOut() {
-        Date now = new Date();
-        return now.getTime() - currentData.getLastUpdated().getTime() > PNT_TIMEOUT;
+    public boolean pntTimedOut() {
+        return pntTimedOut(getSnapshot());
+    }
+
+    private static boolean pntTimedOut(PntData data) {
+        return System.currentTimeMillis() - data.getLastUpdated().getTime() > PNT_TIMEOUT;
     }
 
     /**
-     * Routine for monitoring timeout
+     * Returns a copy of the current PNT data, which the caller may modify
+     * @return a copy of the current PNT data
      */
-    @Override
-    public void run() {
-        while (true) {
-            if (pntTimedOut()) {
-                markBadPos();
-                distributeUpdate();
-            }
-            Util.sleep(10000);
-        }
+    public PntData getCurrentData() {
+        return new PntData(getSnapshot());
     }
 
-    public synchronized PntData getCurrentData() {
-        return new PntData(currentData);
+    /**
+     * Returns the current PNT data snapshot without copying it.
+     * <p>
+     * The snapshot is shared and must not be modified.
+     * 
+     * @return the current PNT data snapshot
+     */
+    public PntData getSnapshot() {
+        return currentData.get();
     }
 
     public void addListener(IPntDataListener listener) {
@@ -16,16 +16,18 @@
 package dk.dma.epd.common.prototype.sensor.rpnt;
 
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 import com.bbn.openmap.MapHandlerChild;
 
 import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.metrics.PntMetrics;
 import dk.dma.epd.common.prototype.notification.GeneralNotification;
 import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
 import dk.dma.epd.common.prototype.notification.NotificationAlert;
@@ -37,30 +39,38 @@ import dk.dma.epd.common.prototype.sensor.nmea.PntSource;
 import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
 
 /**
- * Component to handle multi-source PNT messages
+ * Component to handle multi-source PNT messages.
+ * <p>
+ * The current resilient PNT data and PNT message are published together as an immutable 
+ * {@linkplain State} via a single atomic reference, so readers never block the sensors,
+ * and listeners are notified without holding any lock.
  */
 @ThreadSafe
 public class MultiSourcePntHandler extends MapHandlerChild implements IResilientPntSensorListener {
     
     private static final Logger LOG = LoggerFactory.getLogger(MultiSourcePntHandler.class);
     
-    @GuardedBy("this")
-    private ResilientPntData rpntData;
-    
-    @GuardedBy("this")
-    private PntMessage pntMessage;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(null, null));
 
-    @GuardedBy("this")
     private final CopyOnWriteArrayList<IPntSensorListener> pntListeners = new CopyOnWriteArrayList<>();
 
-    @GuardedBy("this")
     private final CopyOnWriteArrayList<IResilientPntDataListener> rpntListeners = new CopyOnWriteArrayList<>();
 
+    private final PntMetrics pntMetrics;
+
     /**
      * Constructor
-     * @param pntHandler
      */
     public MultiSourcePntHandler() {
+        this(EPD.getInstance().getMetrics().getPntMetrics());
+    }
+
+    /**
+     * Constructor
+     * @param pntMetrics the PNT metrics
+     */
+    public MultiSourcePntHandler(PntMetrics pntMetrics) {
+        this.pntMetrics = pntMetrics;
     }
     
     /**
@@ -68,22 +78,28 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * @param rpntData the new {@code ResilientPntData} data
      */
     @Override
-    public synchronized void receive(ResilientPntData rpntData) {
+    public void receive(ResilientPntData rpntData) {
+        State current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, new State(rpntData, current.pntMessage)));
+        
         // Log significant changes
-        if (this.rpntData != null && this.rpntData.getPntSource() != rpntData.getPntSource()) {
-            String desc = String.format("Changed PNT source from %s to %s", this.rpntData.getPntSource(), rpntData.getPntSource());
+        ResilientPntData oldRpntData = current.rpntData;
+        if (oldRpntData != null && oldRpntData.getPntSource() != rpntData.getPntSource()) {
+            String desc = String.format("Changed PNT source from %s to %s", oldRpntData.getPntSource(), rpntData.getPntSource());
             LOG.warn("******** " + desc);
             sendNotification(NotificationSeverity.ALERT, "PNT Source Changed", desc);
         }
-        if (this.rpntData != null && this.rpntData.getJammingFlag() != rpntData.getJammingFlag()) {
-            String desc = String.format("Changed GPS jamming state from %s to %s", this.rpntData.getJammingFlag(), rpntData.getJammingFlag());
+        if (oldRpntData != null && oldRpntData.getJammingFlag() != rpntData.getJammingFlag()) {
+            String desc = String.format("Changed GPS jamming state from %s to %s", oldRpntData.getJammingFlag(), rpntData.getJammingFlag());
             LOG.warn("******** " + desc);
             sendNotification(NotificationSeverity.WARNING, "GPS Jamming Change", desc);
         }
-        this.rpntData = rpntData;
+        pntMetrics.markRpntUpdate(oldRpntData != null && oldRpntData.getPntSource() != rpntData.getPntSource());
         
         // Publish the update to all listeners
-        publishResilientPntDataUpdated();
+        publishResilientPntDataUpdated(rpntData);
     }
     
     /**
@@ -111,27 +127,37 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * @param pntMessage the new {@code PntMessage}
      */
     @Override
-    public synchronized void receive(PntMessage pntMessage) {
-        if (usePnt() && pntMessage != null && pntMessage.getPntSource() == rpntData.getPntSource()) {
-            this.pntMessage = pntMessage;
-            checkPublishPntMessage();
+    public void receive(PntMessage pntMessage) {
+        if (pntMessage == null) {
+            return;
         }
+        State current, next;
+        do {
+            current = state.get();
+            next = new State(current.rpntData, pntMessage);
+            if (next.getValidPntMessage() == null) {
+                pntMetrics.markRejected();
+                return;
+            }
+        } while (!state.compareAndSet(current, next));
+        
+        publishPntMessage(pntMessage);
     }
     
     /**
      * Returns if PNT should be used or not
      * @return if PNT should be used or not
      */
-    public synchronized boolean usePnt() {
-        return rpntData != null && rpntData.getPntSource() != PntSource.NONE;
+    public boolean usePnt() {
+        return state.get().usePnt();
     }
 
     /**
      * Returns the current resilient PNT data
      * @return the current resilient PNT data
      */
-    public synchronized ResilientPntData getRpntData() {
-        return rpntData;
+    public ResilientPntData getRpntData() {
+        return state.get().rpntData;
     }
 
     /**
@@ -141,31 +167,25 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * 
      * @return the current PNT message
      */
-    public synchronized PntMessage getPntMessage() {
-        return usePnt() && pntMessage != null && pntMessage.getPntSource() == rpntData.getPntSource() 
-                ? pntMessage
-                : null;
+    public PntMessage getPntMessage() {
+        return state.get().getValidPntMessage();
     }
 
     /**
-     * Publishes the current PNT message to all listeners.
-     * if the message is valid, i.e. if it matches the 
-     * requirements of the current RPNT data.
+     * Publishes the PNT message to all listeners.
+     * @param msg the PNT message to publish
      */
-    private void checkPublishPntMessage() {
-        // Check if the current PntMessage is valid (otherwise null)
-        PntMessage msg = getPntMessage();
-        if (msg != null) {
-            for (IPntSensorListener pntListener : pntListeners) {
-                pntListener.receive(msg);
-            }
+    private void publishPntMessage(PntMessage msg) {
+        for (IPntSensorListener pntListener : pntListeners) {
+            pntListener.receive(msg);
         }
     }
     
     /**
-     * Publishes the current {@code ResilientPntData}  to all listeners.
+     * Publishes the {@code ResilientPntData}  to all listeners.
+     * @param rpntData the resilient PNT data to publish
      */
-    private void publishResilientPntDataUpdated() {
+    private void publishResilientPntDataUpdated(ResilientPntData rpntData) {
         for (IResilientPntDataListener rpntListener : rpntListeners) {
             rpntListener.rpntDataUpdate(rpntData);
          }
@@ -175,7 +195,7 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * Adds a new {@code IPntSensorListener} listener if absent
      * @param pntListener the listener to add
      */
-    public synchronized void addPntListener(IPntSensorListener pntListener) {
+    public void addPntListener(IPntSensorListener pntListener) {
         pntListeners.addIfAbsent(pntListener);
     }
     
@@ -183,7 +203,7 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * Removes a {@code IPntSensorListener} listener if present
      * @param pntListener the listener to remove
      */
-    public synchronized void removePntListener(IPntSensorListener pntListener) {
+    public void removePntListener(IPntSensorListener pntListener) {
         pntListeners.remove(pntListener);
     }
     
@@ -191,7 +211,7 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * Adds a new {@code IResilientPntDataListener} listener if absent
      * @param rpntListener the listener to add
      */
-    public synchronized void addResilientPntDataListener(IResilientPntDataListener rpntListener) {
+    public void addResilientPntDataListener(IResilientPntDataListener rpntListener) {
         rpntListeners.addIfAbsent(rpntListener);
     }
     
@@ -199,7 +219,31 @@ public class MultiSourcePntHandler extends MapHandlerChild implements IResilient
      * Removes a {@code IResilientPntDataListener} listener if present
      * @param rpntListener the listener to remove
      */
-    public synchronized void removeResilientPntDataListener(IResilientPntDataListener rpntListener) {
+    public void removeResilientPntDataListener(IResilientPntDataListener rpntListener) {
         rpntListeners.remove(rpntListener);
     }
+    
+    /**
+     * Immutable snapshot of the current resilient PNT data and PNT message
+     */
+    @Immutable
+    private static final class State {
+        final ResilientPntData rpntData;
+        final PntMessage pntMessage;
+        
+        State(ResilientPntData rpntData, PntMessage pntMessage) {
+            this.rpntData = rpntData;
+            this.pntMessage = pntMessage;
+        }
+        
+        boolean usePnt() {
+            return rpntData != null && rpntData.getPntSource() != PntSource.NONE;
+        }
+        
+        PntMessage getValidPntMessage() {
+            return usePnt() && pntMessage != null && pntMessage.getPntSource() == rpntData.getPntSource() 
+                    ? pntMessage
+                    : null;
+        }
+    }
 }
@@ -0,0 +1,649 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import net.maritimecloud.core.id.MaritimeId;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.epd.common.prototype.enavcloud.ChatService.ChatServiceMessage;
+import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
+
+/**
+ * Persistent history of the chat messages sent and received.
+ * <p>
+ * The messages are appended to a log file in the home folder as they
+ * are sent or received, and are kept in memory as one time-ordered
+ * conversation per MMSI. Conversations can be read a page at a time,
+ * which allows a chat view to only load the visible window.
+ * <p>
+ * If the application stops while a record is being written, the
+ * incomplete trailing record is truncated when the file is next loaded.
+ * <p>
+ * Each conversation keeps at most {@code maxMessages} messages, none
+ * older than {@code maxAge}. Messages dropped by the retention and
+ * superseded read markers are only removed from the log file when it
+ * is compacted, which happens once enough of them have accumulated.
+ */
+@ThreadSafe
+public class ChatHistoryStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChatHistoryStore.class);
+
+    private static final String HISTORY_FILE = ".chathistory";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte RECORD_MESSAGE = 1;
+    private static final byte RECORD_READ = 2;
+    private static final int MAX_STRING_LENGTH = 1024 * 1024;
+
+    private static final int MAX_MESSAGES = 1000;
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(90);
+    static final int COMPACT_THRESHOLD = 500;
+
+    private final File file;
+    private final int maxMessages;
+    private final long maxAge;
+
+    @GuardedBy("this")
+    private final Map<Integer, Conversation> conversations = new HashMap<>();
+
+    /** The number of records in the file that a compaction would drop */
+    @GuardedBy("this")
+    private int obsoleteRecords;
+
+    /**
+     * Constructor
+     * 
+     * @param file
+     *            the history file
+     * @param maxMessages
+     *            the maximum number of messages kept per conversation
+     * @param maxAge
+     *            the maximum age of the messages kept in milliseconds
+     */
+    private ChatHistoryStore(File file, int maxMessages, long maxAge) {
+        this.file = file;
+        this.maxMessages = maxMessages;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Records a sent or received chat message
+     * 
+     * @param id
+     *            the maritime id of the other party
+     * @param message
+     *            the chat message
+     * @param incoming
+     *            whether the message was received or sent
+     * @return the history entry, or null if the id has no MMSI
+     */
+    public synchronized ChatHistoryEntry add(MaritimeId id, ChatServiceMessage message, boolean incoming) {
+        Integer mmsi = MaritimeCloudUtils.toMmsi(id);
+        if (mmsi == null) {
+            return null;
+        }
+        ChatHistoryEntry entry = new ChatHistoryEntry(mmsi, incoming, message.getId(), message.getSendDate(),
+                message.getSenderName(), message.getMessage(), message.getSeverity());
+        put(entry);
+
+        try (DataOutputStream out = openForAppend()) {
+            out.writeByte(RECORD_MESSAGE);
+            entry.write(out);
+        } catch (IOException e) {
+            LOG.error("Failed to append to chat history file: " + e.getMessage());
+        }
+        compactIfNeeded();
+        return entry;
+    }
+
+    /**
+     * Marks all messages of the conversation with the given maritime id as read
+     * 
+     * @param id
+     *            the maritime id of the other party
+     */
+    public synchronized void markRead(MaritimeId id) {
+        Integer mmsi = MaritimeCloudUtils.toMmsi(id);
+        Conversation conversation = mmsi == null ? null : conversations.get(mmsi);
+        if (conversation == null || conversation.unread == 0) {
+            return;
+        }
+        conversation.unread = 0;
+
+        try (DataOutputStream out = openForAppend()) {
+            out.writeByte(RECORD_READ);
+            out.writeInt(mmsi);
+        } catch (IOException e) {
+            LOG.error("Failed to append to chat history file: " + e.getMessage());
+        }
+        obsoleteRecords++;
+        compactIfNeeded();
+    }
+
+    /**
+     * Adds the entry to its conversation, keeping the conversation ordered by time,
+     * and drops the messages falling outside the retention limits
+     */
+    @GuardedBy("this")
+    private void put(ChatHistoryEntry entry) {
+        Conversation conversation = conversations.get(entry.getMmsi());
+        if (conversation == null) {
+            conversation = new Conversation();
+            conversations.put(entry.getMmsi(), conversation);
+        }
+        List<ChatHistoryEntry> messages = conversation.messages;
+        int index = messages.size();
+        // Messages nearly always arrive in order, so search from the end
+        while (index > 0 && messages.get(index - 1).getSendDate() > entry.getSendDate()) {
+            index--;
+        }
+        messages.add(index, entry);
+        if (entry.isIncoming()) {
+            conversation.incoming++;
+            conversation.unread++;
+        }
+
+        // Apply the retention limits to the oldest messages
+        int drop = Math.max(messages.size() - maxMessages,
+                conversation.indexOf(System.currentTimeMillis() - maxAge));
+        if (drop > 0) {
+            List<ChatHistoryEntry> dropped = messages.subList(0, drop);
+            for (ChatHistoryEntry message : dropped) {
+                if (message.isIncoming()) {
+                    conversation.incoming--;
+                }
+            }
+            dropped.clear();
+            conversation.unread = Math.min(conversation.unread, conversation.incoming);
+            obsoleteRecords += drop;
+            if (messages.isEmpty()) {
+                conversations.remove(entry.getMmsi());
+            }
+        }
+    }
+
+    /**
+     * Opens the history file for appending, writing the header if the file is new
+     */
+    @GuardedBy("this")
+    private DataOutputStream openForAppend() throws IOException {
+        boolean create = !file.exists() || file.length() == 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (create) {
+            out.writeInt(FORMAT_VERSION);
+        }
+        return out;
+    }
+
+    /**
+     * Compacts the history file once enough obsolete records have accumulated
+     */
+    @GuardedBy("this")
+    private void compactIfNeeded() {
+        if (obsoleteRecords >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the history file with only the retained messages and,
+     * per conversation, a single read marker preserving the unread count.
+     * The new file is written next to the old one and moved into place,
+     * so a failure leaves the old file intact.
+     * 
+     * @return if the file was compacted
+     */
+    synchronized boolean compact() {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(FORMAT_VERSION);
+            for (Map.Entry<Integer, Conversation> e : conversations.entrySet()) {
+                Conversation conversation = e.getValue();
+                List<ChatHistoryEntry> messages = conversation.messages;
+
+                // The read marker goes before the last "unread" incoming messages
+                int split = messages.size();
+                for (int unread = conversation.unread; unread > 0; split--) {
+                    if (messages.get(split - 1).isIncoming()) {
+                        unread--;
+                    }
+                }
+                for (int i = 0; i < messages.size(); i++) {
+                    if (i == split && conversation.incoming > conversation.unread) {
+                        out.writeByte(RECORD_READ);
+                        out.writeInt(e.getKey());
+                    }
+                    out.writeByte(RECORD_MESSAGE);
+                    messages.get(i).write(out);
+                }
+                if (split == messages.size() && conversation.incoming > 0) {
+                    out.writeByte(RECORD_READ);
+                    out.writeInt(e.getKey());
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to compact chat history file: " + e.getMessage());
+            tmpFile.delete();
+            return false;
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("Compacted chat history file, dropped " + obsoleteRecords + " obsolete records");
+            obsoleteRecords = 0;
+            return true;
+        } catch (IOException e) {
+            LOG.error("Failed to replace chat history file: " + e.getMessage());
+            tmpFile.delete();
+            return false;
+        }
+    }
+
+    /*************************************/
+    /** Look-up methods                 **/
+    /*************************************/
+
+    /**
+     * Returns the MMSI of the conversations, the most recently active first
+     * 
+     * @return the MMSI of the conversations
+     */
+    public synchronized List<Integer> getConversations() {
+        List<Integer> result = new ArrayList<>(conversations.keySet());
+        Collections.sort(result, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer m1, Integer m2) {
+                long t1 = conversations.get(m1).getLastSendDate();
+                long t2 = conversations.get(m2).getLastSendDate();
+                return t1 > t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the number of messages in the conversation with the given maritime id
+     * 
+     * @param id
+     *            the maritime id of the other party
+     * @return the number of messages
+     */
+    public synchronized int getMessageCount(MaritimeId id) {
+        Conversation conversation = getConversation(id);
+        return conversation == null ? 0 : conversation.messages.size();
+    }
+
+    /**
+     * Returns a page of the conversation with the given maritime id in
+     * chronological order
+     * 
+     * @param id
+     *            the maritime id of the other party
+     * @param fromIndex
+     *            the index of the first message, 0 being the oldest
+     * @param count
+     *            the maximum number of messages to return
+     * @return the messages
+     */
+    public synchronized List<ChatHistoryEntry> getMessages(MaritimeId id, int fromIndex, int count) {
+        Conversation conversation = getConversation(id);
+        if (conversation == null) {
+            return Collections.emptyList();
+        }
+        List<ChatHistoryEntry> messages = conversation.messages;
+        int from = Math.max(0, fromIndex);
+        int to = Math.min(messages.size(), from + Math.max(0, count));
+        return from >= to ? Collections.<ChatHistoryEntry> emptyList() : new ArrayList<>(messages.subList(from, to));
+    }
+
+    /**
+     * Returns up to {@code count} messages of the conversation with the given
+     * maritime id sent before the given date, in chronological order. Used for
+     * loading older messages when scrolling back through a conversation.
+     * 
+     * @param id
+     *            the maritime id of the other party
+     * @param before
+     *            the date the messages must be sent before, or null for the
+     *            latest messages
+     * @param count
+     *            the maximum number of messages to return
+     * @return the messages
+     */
+    public synchronized List<ChatHistoryEntry> getMessagesBefore(MaritimeId id, Date before, int count) {
+        Conversation conversation = getConversation(id);
+        if (conversation == null) {
+            return Collections.emptyList();
+        }
+        int to = before == null ? conversation.messages.size() : conversation.indexOf(before.getTime());
+        return getMessages(id, to - count, Math.min(count, to));
+    }
+
+    /**
+     * Returns the number of unread messages in the conversation with the given maritime id
+     * 
+     * @param id
+     *            the maritime id of the other party
+     * @return the number of unread messages
+     */
+    public synchronized int getUnreadCount(MaritimeId id) {
+        Conversation conversation = getConversation(id);
+        return conversation == null ? 0 : conversation.unread;
+    }
+
+    /**
+     * Returns the total number of unread messages
+     * 
+     * @return the total number of unread messages
+     */
+    public synchronized int getUnreadCount() {
+        int unread = 0;
+        for (Conversation conversation : conversations.values()) {
+            unread += conversation.unread;
+        }
+        return unread;
+    }
+
+    /**
+     * Returns the messages containing the given text, the most recent first
+     * 
+     * @param text
+     *            the text to search for, case insensitive
+     * @param maxResults
+     *            the maximum number of messages to return
+     * @return the matching messages
+     */
+    public synchronized List<ChatHistoryEntry> search(String text, int maxResults) {
+        String query = text.toLowerCase(Locale.US);
+        List<ChatHistoryEntry> result = new ArrayList<>();
+        for (Conversation conversation : conversations.values()) {
+            for (ChatHistoryEntry entry : conversation.messages) {
+                if (contains(entry.getMessage(), query) || contains(entry.getSenderName(), query)) {
+                    result.add(entry);
+                }
+            }
+        }
+        Collections.sort(result, new Comparator<ChatHistoryEntry>() {
+            @Override
+            public int compare(ChatHistoryEntry e1, ChatHistoryEntry e2) {
+                return e1.getSendDate() > e2.getSendDate() ? -1 : (e1.getSendDate() == e2.getSendDate() ? 0 : 1);
+            }
+        });
+        return result.size() > maxResults ? new ArrayList<>(result.subList(0, maxResults)) : result;
+    }
+
+    private static boolean contains(String value, String query) {
+        return value != null && value.toLowerCase(Locale.US).contains(query);
+    }
+
+    @GuardedBy("this")
+    private Conversation getConversation(MaritimeId id) {
+        Integer mmsi = MaritimeCloudUtils.toMmsi(id);
+        return mmsi == null ? null : conversations.get(mmsi);
+    }
+
+    /*************************************/
+    /** Persistence methods             **/
+    /*************************************/
+
+    /**
+     * Loads the chat history from the home folder
+     * 
+     * @param homePath
+     *            the application home folder
+     * @return the chat history
+     */
+    public static ChatHistoryStore loadFromFile(Path homePath) {
+        return loadFromFile(homePath, MAX_MESSAGES, MAX_AGE);
+    }
+
+    /**
+     * Loads the chat history from the home folder using the given retention limits.
+     * <p>
+     * The file is streamed, so only the retained messages are kept in memory.
+     * 
+     * @param homePath
+     *            the application home folder
+     * @param maxMessages
+     *            the maximum number of messages kept per conversation
+     * @param maxAge
+     *            the maximum age of the messages kept in milliseconds
+     * @return the chat history
+     */
+    static ChatHistoryStore loadFromFile(Path homePath, int maxMessages, long maxAge) {
+        File file = homePath.resolve(HISTORY_FILE).toFile();
+        ChatHistoryStore store = new ChatHistoryStore(file, maxMessages, maxAge);
+        if (!file.exists()) {
+            return store;
+        }
+
+        long length = file.length();
+        long validLength = 0;
+        synchronized (store) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    throw new IOException("Unsupported chat history version");
+                }
+                validLength = length - in.available();
+                while (in.available() > 0) {
+                    byte type = in.readByte();
+                    if (type == RECORD_MESSAGE) {
+                        store.put(ChatHistoryEntry.read(in));
+                    } else if (type == RECORD_READ) {
+                        Conversation conversation = store.conversations.get(in.readInt());
+                        if (conversation != null) {
+                            conversation.unread = 0;
+                        }
+                        store.obsoleteRecords++;
+                    } else {
+                        throw new IOException("Unknown chat history record " + type);
+                    }
+                    validLength = length - in.available();
+                }
+            } catch (EOFException e) {
+                LOG.warn("Incomplete record at the end of the chat history file");
+            } catch (IOException e) {
+                LOG.error("Failed to load chat history file: " + e.getMessage());
+            }
+
+            if (validLength > 0 && store.obsoleteRecords >= COMPACT_THRESHOLD && store.compact()) {
+                // Rewriting the file also dropped an incomplete trailing record
+                return store;
+            }
+        }
+
+        if (validLength == 0) {
+            // Delete possible corrupted or old file
+            file.delete();
+        } else if (validLength < length) {
+            // Keep the valid records and drop the rest
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                LOG.error("Failed to truncate chat history file: " + e.getMessage());
+            }
+        }
+        return store;
+    }
+
+    /*************************************/
+    /** Helper classes                  **/
+    /*************************************/
+
+    /**
+     * The time-ordered messages exchanged with a single MMSI
+     */
+    private static final class Conversation {
+        final List<ChatHistoryEntry> messages = new ArrayList<>();
+        int incoming;
+        int unread;
+
+        long getLastSendDate() {
+            return messages.isEmpty() ? 0L : messages.get(messages.size() - 1).getSendDate();
+        }
+
+        /**
+         * Returns the index of the first message sent at or after the given time
+         */
+        int indexOf(long time) {
+            int low = 0;
+            int high = messages.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (messages.get(mid).getSendDate() < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A single message of the chat history
+     */
+    @Immutable
+    public static final class ChatHistoryEntry {
+        private final int mmsi;
+        private final boolean incoming;
+        private final long id;
+        private final long sendDate;
+        private final String senderName;
+        private final String message;
+        private final NotificationSeverity severity;
+
+        ChatHistoryEntry(int mmsi, boolean incoming, long id, long sendDate, String senderName, String message,
+                NotificationSeverity severity) {
+            this.mmsi = mmsi;
+            this.incoming = incoming;
+            this.id = id;
+            this.sendDate = sendDate;
+            this.senderName = senderName;
+            this.message = message;
+            this.severity = severity;
+        }
+
+        public int getMmsi() {
+            return mmsi;
+        }
+
+        public boolean isIncoming() {
+            return incoming;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getSendDate() {
+            return sendDate;
+        }
+
+        public String getSenderName() {
+            return senderName;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public NotificationSeverity getSeverity() {
+            return severity;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeInt(mmsi);
+            out.writeBoolean(incoming);
+            out.writeLong(id);
+            out.writeLong(sendDate);
+            writeString(out, senderName);
+            writeString(out, message);
+            out.writeByte(severity == null ? -1 : severity.ordinal());
+        }
+
+        static ChatHistoryEntry read(DataInput in) throws IOException {
+            int mmsi = in.readInt();
+            boolean incoming = in.readBoolean();
+            long id = in.readLong();
+            long sendDate = in.readLong();
+            String senderName = readString(in);
+            String message = readString(in);
+            int severity = in.readByte();
+            if (severity >= NotificationSeverity.values().length) {
+                throw new IOException("Invalid chat message severity " + severity);
+            }
+            return new ChatHistoryEntry(mmsi, incoming, id, sendDate, senderName, message,
+                    severity < 0 ? null : NotificationSeverity.values()[severity]);
+        }
+
+        /** Strings are length-prefixed UTF-8, since writeUTF is limited to 64 KB */
+        private static void writeString(DataOutput out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private static String readString(DataInput in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            } else if (length > MAX_STRING_LENGTH) {
+                throw new IOException("Invalid chat history string length " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.enavcloud.ChatService;
 import dk.dma.epd.common.prototype.enavcloud.ChatService.ChatServiceMessage;
 import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
@@ -41,6 +42,7 @@ public class ChatServiceHandlerCommon extends EnavServiceHandlerCommon {
     
     private List<ServiceEndpoint<ChatServiceMessage, Void>> chatServiceList = new ArrayList<>();
     protected List<IChatServiceListener> listeners = new CopyOnWriteArrayList<>();
+    private final ChatHistoryStore chatHistory;
     
     /**
      * Constructor
@@ -48,6 +50,8 @@ public class ChatServiceHandlerCommon extends EnavServiceHandlerCommon {
     public ChatServiceHandlerCommon() {
         super();
         
+        chatHistory = ChatHistoryStore.loadFromFile(EPD.getInstance().getHomePath());
+        
         // Schedule a refresh of the chat services approximately every minute
         scheduleWithFixedDelayWhenConnected(new Runnable() {
             @Override public void run() {
@@ -105,6 +109,14 @@ public class ChatServiceHandlerCommon extends EnavServiceHandlerCommon {
         return chatServiceList;
     }
 
+    /**
+     * Returns the persistent history of sent and received chat messages
+     * @return the chat history
+     */
+    public ChatHistoryStore getChatHistory() {
+        return chatHistory;
+    }
+
     /**
      * Checks for a ship with the given mmsi in the chat service list
      * 
@@ -124,37 +136,47 @@ public class ChatServiceHandlerCommon extends EnavServiceHandlerCommon {
      */
     public void sendChatMessage(MaritimeId targetId, String message, String sender, NotificationSeverity severity, List<NotificationAlert> alerts)  {
 
-        Integer mmsi = MaritimeCloudUtils.toMmsi(targetId);
+        final Integer mmsi = MaritimeCloudUtils.toMmsi(targetId);
         long id = System.currentTimeMillis();
         
-        // Find a matching chat end point
-        ServiceEndpoint<ChatServiceMessage, Void> end 
-            = MaritimeCloudUtils.findServiceWithMmsi(chatServiceList, (int)mmsi);
-
         // Create a new chat message
-        ChatServiceMessage chatMessage = new ChatServiceMessage(message, id, System.currentTimeMillis(), sender);
+        final ChatServiceMessage chatMessage = new ChatServiceMessage(message, id, System.currentTimeMillis(), sender);
         chatMessage.setSeverity(severity);
         chatMessage.setAlerts(alerts);
 
         LOG.info("Sending chat messasge to mmsi: " + mmsi + " with ID: " + chatMessage.getId());
+        chatHistory.add(targetId, chatMessage, false);
 
-        if (end != null) {
-            end.invoke(chatMessage);
-        } else {
-            // notifyRouteExchangeListeners();
-            LOG.error("Could not find chat service for MMSI " + mmsi);
-        }
-
+        // Alerts take precedence over other queued cloud messages
+        CloudMessagePriority priority = severity == NotificationSeverity.ALERT 
+                ? CloudMessagePriority.SAFETY 
+                : CloudMessagePriority.NORMAL;
+        
+        maritimeCloudService.send(priority, null, 0L, new ICloudSender() {
+            @Override
+            public void send(MaritimeCloudClient connection) {
+                // Find a matching chat end point
+                ServiceEndpoint<ChatServiceMessage, Void> end 
+                    = MaritimeCloudUtils.findServiceWithMmsi(chatServiceList, (int)mmsi);
+                
+                if (end != null) {
+                    end.invoke(chatMessage);
+                } else {
+                    LOG.error("Could not find chat service for MMSI " + mmsi);
+                }
+            }
+        });
     }
     
     /**
      * Called upon receiving a new chat message.
-     * Broadcasts the message to all listeners.
+     * Records the message in the chat history and broadcasts it to all listeners.
      * 
      * @param senderId the id of the sender
      * @param message the message
      */
     protected void receiveChatMessage(MaritimeId senderId, ChatServiceMessage message) {
+        chatHistory.add(senderId, message, true);
         for (IChatServiceListener listener : listeners) {
             listener.chatMessageReceived(senderId, message);
         }
@@ -0,0 +1,34 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+/**
+ * The priority of a message in the Maritime Cloud outbound queue.
+ * <p>
+ * Messages are sent in priority order, and lower priority messages 
+ * are evicted first when the queue is full.
+ */
+public enum CloudMessagePriority {
+
+    /** Latency-sensitive safety messages, e.g. SAR and alert chat messages */
+    SAFETY,
+
+    /** Operational messages, e.g. route exchange and intended routes */
+    NORMAL,
+
+    /** Bulk traffic, which may be delayed or evicted */
+    BULK
+}
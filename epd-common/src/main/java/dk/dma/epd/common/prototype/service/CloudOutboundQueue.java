@@ -0,0 +1,247 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
+
+/**
+ * Bounded, prioritised queue of outbound Maritime Cloud messages.
+ * <p>
+ * Messages are polled in priority order and FIFO within a priority.
+ * A message with a coalescing key supersedes any queued message with the
+ * same key, e.g. an intended-route broadcast supersedes the previous one.
+ * Messages may have an expiry time, after which they are discarded.
+ * <p>
+ * When the queue is full, the oldest message of the lowest priority is evicted,
+ * unless the new message has an even lower priority, in which case it is rejected.
+ */
+@ThreadSafe
+public class CloudOutboundQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CloudOutboundQueue.class);
+
+    private final int capacity;
+
+    @GuardedBy("this")
+    private final ArrayDeque<Entry>[] queues;
+
+    @GuardedBy("this")
+    private final Map<String, Entry> entriesByKey = new HashMap<>();
+
+    @GuardedBy("this")
+    private int size;
+
+    @GuardedBy("this")
+    private long coalescedCount;
+
+    @GuardedBy("this")
+    private long droppedCount;
+
+    /**
+     * Constructor
+     * @param capacity the max number of queued messages
+     */
+    @SuppressWarnings("unchecked")
+    public CloudOutboundQueue(int capacity) {
+        this.capacity = capacity;
+        queues = new ArrayDeque[CloudMessagePriority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Adds a message to the queue
+     * 
+     * @param priority the message priority
+     * @param key the coalescing key, or null if the message should not be coalesced
+     * @param expiryTime the time in ms after which the message is discarded, or 0 for never
+     * @param sender the sender of the message
+     * @return if the message was queued
+     */
+    public synchronized boolean offer(CloudMessagePriority priority, String key, long expiryTime, ICloudSender sender) {
+        Entry entry = new Entry(priority, key, expiryTime, sender);
+
+        // A superseded message frees its slot, so only check the capacity otherwise
+        Entry old = (key != null) ? entriesByKey.get(key) : null;
+        if (old != null && remove(old)) {
+            coalescedCount++;
+        } else if (size >= capacity && !evict(priority)) {
+            LOG.warn("Outbound cloud queue full, rejecting " + priority + " message " + key);
+            droppedCount++;
+            return false;
+        }
+
+        if (key != null) {
+            entriesByKey.put(key, entry);
+        }
+        queues[priority.ordinal()].addLast(entry);
+        size++;
+        return true;
+    }
+
+    /**
+     * Evicts the oldest message with a priority lower than or equal to the given priority
+     * @return if a message was evicted
+     */
+    @GuardedBy("this")
+    private boolean evict(CloudMessagePriority priority) {
+        for (int i = queues.length - 1; i >= priority.ordinal(); i--) {
+            Entry victim = pollFirst(queues[i]);
+            if (victim != null) {
+                LOG.warn("Outbound cloud queue full, evicting " + victim.priority + " message " + victim.key);
+                forget(victim);
+                droppedCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes and returns the next message to send, or null if the queue is empty.
+     * Expired messages are discarded.
+     * 
+     * @return the next message to send
+     */
+    public synchronized Entry poll() {
+        long now = System.currentTimeMillis();
+        for (ArrayDeque<Entry> queue : queues) {
+            Entry entry;
+            while ((entry = pollFirst(queue)) != null) {
+                forget(entry);
+                if (entry.expiryTime > 0 && entry.expiryTime < now) {
+                    droppedCount++;
+                    continue;
+                }
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a message that failed to be sent back at the head of its queue,
+     * unless it has been superseded in the mean time.
+     * <p>
+     * If the queue has filled up in the mean time, the message is subject 
+     * to the same eviction rules as {@linkplain #offer}.
+     * 
+     * @param entry the message to re-queue
+     * @return if the message was re-queued
+     */
+    public synchronized boolean requeue(Entry entry) {
+        if (entry.key != null && entriesByKey.containsKey(entry.key)) {
+            return false;
+        }
+        if (size >= capacity && !evict(entry.priority)) {
+            LOG.warn("Outbound cloud queue full, dropping re-queued " + entry.priority + " message " + entry.key);
+            droppedCount++;
+            return false;
+        }
+        if (entry.key != null) {
+            entriesByKey.put(entry.key, entry);
+        }
+        queues[entry.priority.ordinal()].addFirst(entry);
+        size++;
+        return true;
+    }
+
+    @GuardedBy("this")
+    private Entry pollFirst(ArrayDeque<Entry> queue) {
+        Entry entry = queue.pollFirst();
+        if (entry != null) {
+            size--;
+        }
+        return entry;
+    }
+
+    /**
+     * Removes the entry from its queue. The queues are bounded by the 
+     * capacity, so the linear search is cheap.
+     * @return if the entry was queued
+     */
+    @GuardedBy("this")
+    private boolean remove(Entry entry) {
+        if (queues[entry.priority.ordinal()].removeFirstOccurrence(entry)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    @GuardedBy("this")
+    private void forget(Entry entry) {
+        if (entry.key != null && entriesByKey.get(entry.key) == entry) {
+            entriesByKey.remove(entry.key);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * A queued message
+     */
+    public static final class Entry {
+        private final CloudMessagePriority priority;
+        private final String key;
+        private final long expiryTime;
+        private final ICloudSender sender;
+
+        Entry(CloudMessagePriority priority, String key, long expiryTime, ICloudSender sender) {
+            this.priority = priority;
+            this.key = key;
+            this.expiryTime = expiryTime;
+            this.sender = sender;
+        }
+
+        public CloudMessagePriority getPriority() {
+            return priority;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public ICloudSender getSender() {
+            return sender;
+        }
+    }
+}
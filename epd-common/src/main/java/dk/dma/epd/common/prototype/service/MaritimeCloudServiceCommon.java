@@ -35,9 +35,10 @@ import com.bbn.openmap.MapHandlerChild;
 
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.scheduler.TaskScheduler;
 import dk.dma.epd.common.prototype.status.CloudStatus;
 import dk.dma.epd.common.prototype.status.IStatusComponent;
-import dk.dma.epd.common.util.Util;
 
 /**
  * Service that provides an interface to the Maritime Cloud connection.
@@ -50,31 +51,42 @@ import dk.dma.epd.common.util.Util;
  * Clients of this service should hook up a listeners to be notified 
  * when the service is running or stopped.
  * <p>
- * Future improvements:
- * <ul>
- *   <li>Perform listener tasks in a thread pool</li>
- * </ul>
+ * The connection is maintained by tasks on the shared {@linkplain TaskScheduler}:
+ * connection attempts are retried with an exponential back-off, and a periodic
+ * probe re-establishes the connection if it is lost.<br/>
+ * Outbound messages should be sent via {@linkplain #send}, which queues them
+ * in a bounded, prioritised {@linkplain CloudOutboundQueue} while the connection is down.
  */
 public abstract class MaritimeCloudServiceCommon 
     extends MapHandlerChild 
-    implements Runnable, IStatusComponent {
+    implements IStatusComponent {
 
     /** 
      * Set this flag to true, if you want to log all 
      * messages sent and received by the {@linkplain MaritimeCloudClient} 
      */
     private static final boolean LOG_MARITIME_CLOUD_ACTIVITY = false;
-    private static final int MARITIME_CLOUD_SLEEP_TIME = 10000;
+    private static final long INITIAL_RECONNECT_DELAY = 2000L;
+    private static final long MAX_RECONNECT_DELAY = 5 * 60 * 1000L;
+    private static final long PROBE_PERIOD = 10000L;
+    private static final int OUTBOUND_QUEUE_CAPACITY = 500;
+    
+    private static final String CONNECT_TASK = "MaritimeCloudConnect";
+    private static final String PROBE_TASK = "MaritimeCloudProbe";
+    private static final String FLUSH_TASK = "MaritimeCloudFlush";
 
     private static final Logger LOG = LoggerFactory.getLogger(MaritimeCloudServiceCommon.class);
 
-    protected MaritimeCloudClient connection;
+    protected volatile MaritimeCloudClient connection;
     
     protected List<IMaritimeCloudListener> listeners = new CopyOnWriteArrayList<>();
     protected CloudStatus cloudStatus = new CloudStatus();
     protected String hostPort;
     protected boolean stopped = true;
     
+    private final CloudOutboundQueue outboundQueue = new CloudOutboundQueue(OUTBOUND_QUEUE_CAPACITY);
+    private long reconnectDelay = INITIAL_RECONNECT_DELAY;
+    
     /**
      * Constructor 
      */
@@ -125,33 +137,51 @@ public abstract class MaritimeCloudServiceCommon
     /**
      * Starts the Maritime cloud client
      */
-    public void start() {
+    public synchronized void start() {
         if (!stopped) {
             return;
         }
         // Update the eNav settings
         readEnavSettings();
         stopped = false;
-        new Thread(this).start();
+        reconnectDelay = INITIAL_RECONNECT_DELAY;
+
+        TaskScheduler scheduler = EPD.getInstance().getTaskScheduler();
+        scheduler.registerTriggered(FLUSH_TASK, TaskPriority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        });
+        scheduleConnect(INITIAL_RECONNECT_DELAY);
     }
     
     /**
-     * Stops the Maritime cloud client
+     * Stops the Maritime cloud client.
+     * <p>
+     * Messages still in the outbound queue are kept, and will be sent
+     * if the client is started again.
      */
-    public synchronized void stop() {
-        if (stopped) {
-            return;
+    public void stop() {
+        MaritimeCloudClient conn;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+
+            this.stopped = true;
+            TaskScheduler scheduler = EPD.getInstance().getTaskScheduler();
+            scheduler.cancel(CONNECT_TASK);
+            scheduler.cancel(PROBE_TASK);
+            scheduler.cancel(FLUSH_TASK);
+
+            conn = detachConnection();
         }
+        closeConnection(conn);
         
-        this.stopped = true;
-        if (connection != null) {
-            try {
-                connection.close();
-                connection.awaitTermination(2, TimeUnit.SECONDS);
-            } catch (Exception e) {
-                LOG.error("Error terminating cloud connection");
-            }
-            connection = null;
+        // Flag that we are stopped
+        if (conn != null) {
+            fireDisconnected();
         }
     }
     
@@ -160,47 +190,212 @@ public abstract class MaritimeCloudServiceCommon
      * @return if there is a live connection to the Maritime Cloud
      */
     public synchronized boolean isConnected() {
-        // Consider using the isClosed()/isConnected methods of the connection
-        return !stopped && connection != null;
+        return !stopped && connection != null && !connection.isClosed();
     }
     
     /**
-     * Thread run method
+     * Schedules a connection attempt after the given delay
+     * @param delay the delay in ms
      */
-    @Override
-    public void run() {
+    private synchronized void scheduleConnect(long delay) {
+        if (stopped) {
+            return;
+        }
+        EPD.getInstance().getTaskScheduler().schedule(CONNECT_TASK, TaskPriority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                connect();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Attempts to connect to the Maritime Cloud.
+     * <p>
+     * If the attempt fails, a new attempt is scheduled with an exponential 
+     * back-off (plus jitter), so that a fleet of clients does not 
+     * hammer the server in lock-step when it comes back up.
+     */
+    private void connect() {
+        String host;
+        MaritimeId id;
+        synchronized (this) {
+            if (stopped || connection != null) {
+                return;
+            }
+            host = hostPort;
+            id = getMaritimeId();
+        }
 
-        // Start by connecting 
-        while (!stopped) {
-            Util.sleep(MARITIME_CLOUD_SLEEP_TIME);
-            if (getMaritimeId() != null) {
-                if (initConnection(hostPort, getMaritimeId())) {
-                    try {
-                        fireConnected(connection);
-                    } catch (Exception e) {
-                        cloudStatus.markFailedSend();
-                        cloudStatus.markFailedReceive();
-                        fireError(e.getMessage());
+        // Connect without holding the lock, as building the connection blocks
+        MaritimeCloudClient conn = (id == null) ? null : initConnection(host, id);
+        MaritimeCloudClient connected = conn;
+
+        synchronized (this) {
+            if (conn == null) {
+                long delay = reconnectDelay + (long) (Math.random() * reconnectDelay / 2);
+                reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+                LOG.info("Retrying cloud connection in " + delay / 1000 + " seconds");
+                scheduleConnect(delay);
+                return;
+            }
+            if (!stopped && connection == null) {
+                connection = conn;
+                conn = null;
+                reconnectDelay = INITIAL_RECONNECT_DELAY;
+
+                EPD.getInstance().getTaskScheduler().schedulePeriodic(PROBE_TASK, TaskPriority.NORMAL, new Runnable() {
+                    @Override
+                    public void run() {
+                        probe();
                     }
-                    break;
-                }
+                }, PROBE_PERIOD, PROBE_PERIOD, 0, TimeUnit.MILLISECONDS);
             }
         }
-        
-        // Periodic tasks
-        while (!stopped) {
-            cloudStatus.markCloudReception();
-            Util.sleep(MARITIME_CLOUD_SLEEP_TIME);
+        if (conn != null) {
+            // Stopped, or connected by another attempt, while connecting
+            closeConnection(conn);
+            return;
+        }
+
+        try {
+            fireConnected(connected);
+        } catch (Exception e) {
+            cloudStatus.markFailedSend();
+            cloudStatus.markFailedReceive();
+            fireError(e.getMessage());
         }
         
-        // Flag that we are stopped
+        // Send what has been queued up while disconnected
+        EPD.getInstance().getTaskScheduler().trigger(FLUSH_TASK);
+    }
+
+    /**
+     * Called periodically to check the health of the connection
+     */
+    private void probe() {
+        MaritimeCloudClient conn;
+        synchronized (this) {
+            if (stopped || connection == null) {
+                return;
+            }
+            if (!connection.isClosed()) {
+                cloudStatus.markCloudReception();
+                if (!outboundQueue.isEmpty()) {
+                    EPD.getInstance().getTaskScheduler().trigger(FLUSH_TASK);
+                }
+                return;
+            }
+            
+            LOG.warn("Lost connection to the maritime cloud");
+            cloudStatus.markFailedReceive();
+            EPD.getInstance().getTaskScheduler().cancel(PROBE_TASK);
+            conn = detachConnection();
+            scheduleConnect(reconnectDelay);
+        }
+        closeConnection(conn);
         fireDisconnected();
     }
+    
+    /**
+     * Resets the current connection and returns it for closing
+     * @return the current connection, or null if none
+     */
+    private synchronized MaritimeCloudClient detachConnection() {
+        MaritimeCloudClient conn = connection;
+        connection = null;
+        return conn;
+    }
+    
+    /**
+     * Closes the given connection. Must not be called while holding the lock,
+     * as it waits for the connection to terminate.
+     * @param conn the connection to close. May be null
+     */
+    private void closeConnection(MaritimeCloudClient conn) {
+        if (conn != null) {
+            try {
+                conn.close();
+                conn.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                LOG.error("Error terminating cloud connection");
+            }
+        }
+    }
+    
+    /*********************************/
+    /** Outbound queue              **/
+    /*********************************/
+    
+    /**
+     * Queues a message for sending to the Maritime Cloud.
+     * <p>
+     * The message is sent as soon as there is a live connection. Messages
+     * queued while disconnected are sent, in priority order, upon reconnecting.
+     * 
+     * @param priority the message priority
+     * @param coalesceKey if not null, the message supersedes any queued message with the same key
+     * @param ttl the time-to-live of the message in ms, or 0 if the message should not expire
+     * @param sender performs the actual sending of the message
+     * @return if the message was queued
+     */
+    public boolean send(CloudMessagePriority priority, String coalesceKey, long ttl, ICloudSender sender) {
+        long expiryTime = ttl > 0 ? System.currentTimeMillis() + ttl : 0L;
+        boolean queued = outboundQueue.offer(priority, coalesceKey, expiryTime, sender);
+        if (queued && isConnected()) {
+            EPD.getInstance().getTaskScheduler().trigger(FLUSH_TASK);
+        }
+        return queued;
+    }
+    
+    /**
+     * Returns the outbound message queue
+     * @return the outbound message queue
+     */
+    public CloudOutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+    
+    /**
+     * Sends the queued messages in priority order while the connection is live.
+     * <p>
+     * If a message fails because the connection has been lost, it is re-queued
+     * and sent upon reconnecting. Other failures cause the message to be dropped.
+     */
+    private void flush() {
+        CloudOutboundQueue.Entry entry;
+        while (true) {
+            MaritimeCloudClient conn;
+            synchronized (this) {
+                if (!isConnected()) {
+                    return;
+                }
+                conn = connection;
+            }
+            if ((entry = outboundQueue.poll()) == null) {
+                return;
+            }
+            
+            try {
+                entry.getSender().send(conn);
+                cloudStatus.markSuccesfullSend();
+            } catch (Exception e) {
+                cloudStatus.markFailedSend();
+                if (conn.isClosed()) {
+                    LOG.warn("Connection lost while sending cloud message, re-queueing: " + e);
+                    outboundQueue.requeue(entry);
+                    return;
+                }
+                LOG.error("Failed sending cloud message " + entry.getKey() + ", dropping it", e);
+            }
+        }
+    }
 
     /**
-     * Create the Maritime Cloud connection
+     * Creates a Maritime Cloud connection
+     * @return the new connection, or null if the connection failed
      */
-    private boolean initConnection(String host, MaritimeId id) {
+    private MaritimeCloudClient initConnection(String host, MaritimeId id) {
         LOG.info("Connecting to cloud server: " + host  + " with maritime id " + id);
 
         MaritimeCloudClientConfiguration enavCloudConnection = MaritimeCloudClientConfiguration.create(id);
@@ -240,23 +435,22 @@ public abstract class MaritimeCloudServiceCommon
         
         try {
             enavCloudConnection.setHost(host);
-            connection = enavCloudConnection.build();
+            MaritimeCloudClient conn = enavCloudConnection.build();
 
-            if (connection != null) {
+            if (conn != null) {
                 cloudStatus.markCloudReception();
                 cloudStatus.markSuccesfullSend();
                 LOG.info("Connected succesfully to cloud server: " + host + " with shipId " + id);
-                return true;
             } else {
                 fireError("Failed building a maritime cloud connection");
-                return false; 
             }
+            return conn;
         } catch (Exception e) {
             fireError(e.getMessage());
             cloudStatus.markFailedSend();
             cloudStatus.markFailedReceive();
             LOG.error("Failed to connect to server: " + e);
-            return false; 
+            return null; 
         }
     }
     
@@ -309,6 +503,19 @@ public abstract class MaritimeCloudServiceCommon
         }
     }
     
+    /**
+     * Performs the sending of a queued message via the Maritime Cloud connection
+     */
+    public interface ICloudSender {
+        
+        /**
+         * Sends the message
+         * 
+         * @param connection the live maritime cloud connection
+         */
+        void send(MaritimeCloudClient connection) throws Exception;
+    }
+    
     /**
      * Provides a listener interface to the Maritime Cloud connection status.
      * <p>
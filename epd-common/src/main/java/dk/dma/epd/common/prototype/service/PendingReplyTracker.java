@@ -0,0 +1,284 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracker of pending replies, e.g. Maritime Cloud invocation
+ * contexts awaiting an answer from the operator, or sent requests awaiting
+ * a reply from the recipient.
+ * <p>
+ * Each entry has its own deadline. Deadlines are kept in a hashed time wheel
+ * of {@code wheelSize} buckets, each spanning {@code tickMillis} ms, so that
+ * adding, completing and expiring an entry are all O(1).
+ * <p>
+ * Looking up and completing entries does not lock. Adding an entry takes the
+ * shared lock of the wheel, so that it cannot be placed in a bucket that 
+ * {@linkplain #advance()} is processing or has just processed.
+ * <p>
+ * The owner must call {@linkplain #advance()} periodically, ideally once per tick.
+ * Entries are expired no earlier than their deadline, and no later than the
+ * first call to {@linkplain #advance()} after the tick containing the deadline.
+ * Registered {@linkplain TimeoutListener} are notified of expired entries.
+ */
+@ThreadSafe
+public class PendingReplyTracker<K, V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PendingReplyTracker.class);
+
+    private final long tickMillis;
+    private final ConcurrentLinkedQueue<Pending<K, V>>[] wheel;
+    private final ConcurrentMap<K, Pending<K, V>> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock wheelLock = new ReentrantReadWriteLock();
+    @GuardedBy("wheelLock")
+    private long lastTick;
+    private final AtomicBoolean advancing = new AtomicBoolean();
+    private final List<TimeoutListener<K, V>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor
+     * 
+     * @param tickMillis the time span of each bucket of the wheel in ms
+     * @param wheelSize the number of buckets of the wheel
+     */
+    @SuppressWarnings("unchecked")
+    public PendingReplyTracker(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.wheel = new ConcurrentLinkedQueue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Starts tracking the {@code value} keyed by {@code key}.
+     * Any value already tracked with the same key is replaced.
+     * 
+     * @param key the key
+     * @param value the value
+     * @param timeout the timeout in ms
+     */
+    public void track(K key, V value, long timeout) {
+        Pending<K, V> entry = new Pending<>(key, value, currentTimeMillis() + timeout);
+        pending.put(key, entry);
+        schedule(entry);
+    }
+
+    /**
+     * Returns the value associated with {@code key}
+     * @param key the key
+     * @return the value or null if not present
+     */
+    public V get(K key) {
+        Pending<K, V> entry = pending.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Returns if a value is tracked for {@code key}
+     * @param key the key
+     * @return if a value is tracked for {@code key}
+     */
+    public boolean containsKey(K key) {
+        return pending.containsKey(key);
+    }
+
+    /**
+     * Stops tracking and returns the value associated with {@code key}.
+     * <p>
+     * The entry is left in its wheel bucket and discarded lazily.
+     * 
+     * @param key the key of the value to complete
+     * @return the removed value or null if not present
+     */
+    public V complete(K key) {
+        Pending<K, V> entry = pending.remove(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Returns the number of pending entries
+     * @return the number of pending entries
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the tick duration in ms
+     * @return the tick duration in ms
+     */
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Expires the entries of all buckets whose tick has passed since the last call.
+     * <p>
+     * Concurrent calls are ignored, as the calling thread will process all due buckets.
+     * The listeners are notified after the wheel lock has been released.
+     */
+    public void advance() {
+        if (!advancing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Pending<K, V>> expired = new ArrayList<>();
+            wheelLock.writeLock().lock();
+            try {
+                long now = currentTimeMillis();
+                long nowTick = now / tickMillis;
+                long fromTick = Math.max(lastTick + 1, nowTick - wheel.length + 1);
+
+                List<Pending<K, V>> notDue = new ArrayList<>();
+                for (long tick = fromTick; tick <= nowTick; tick++) {
+                    ConcurrentLinkedQueue<Pending<K, V>> bucket = wheel[(int) (tick % wheel.length)];
+                    Pending<K, V> entry;
+                    while ((entry = bucket.poll()) != null) {
+                        if (pending.get(entry.key) != entry) {
+                            // Completed or replaced
+                            continue;
+                        }
+                        if (entry.deadline > now) {
+                            // Due in a later rotation of the wheel
+                            notDue.add(entry);
+                        } else if (pending.remove(entry.key, entry)) {
+                            expired.add(entry);
+                        }
+                    }
+                }
+                lastTick = Math.max(lastTick, nowTick);
+
+                for (Pending<K, V> entry : notDue) {
+                    addToBucket(entry);
+                }
+            } finally {
+                wheelLock.writeLock().unlock();
+            }
+
+            for (Pending<K, V> entry : expired) {
+                fireTimeout(entry);
+            }
+        } finally {
+            advancing.set(false);
+        }
+    }
+
+    /**
+     * Adds the entry to the wheel while holding the shared wheel lock
+     */
+    private void schedule(Pending<K, V> entry) {
+        wheelLock.readLock().lock();
+        try {
+            addToBucket(entry);
+        } finally {
+            wheelLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the entry to the bucket of its deadline, or to the next 
+     * bucket to be processed if the deadline tick has already been processed
+     */
+    @GuardedBy("wheelLock")
+    private void addToBucket(Pending<K, V> entry) {
+        long tick = Math.max(entry.deadline / tickMillis, lastTick + 1);
+        wheel[(int) (tick % wheel.length)].add(entry);
+    }
+
+    /**
+     * Returns the current time in ms. May be overridden by tests.
+     * @return the current time in ms
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Adds a listener for entries timing out
+     * @param listener the listener to add
+     */
+    public void addTimeoutListener(TimeoutListener<K, V> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener for entries timing out
+     * @param listener the listener to remove
+     */
+    public void removeTimeoutListener(TimeoutListener<K, V> listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireTimeout(Pending<K, V> entry) {
+        for (TimeoutListener<K, V> listener : listeners) {
+            try {
+                listener.replyTimedOut(entry.key, entry.value);
+            } catch (Exception e) {
+                LOG.error("Error notifying timeout of pending reply " + entry.key, e);
+            }
+        }
+    }
+
+    /**
+     * Interface implemented by clients wishing to be notified
+     * when a pending entry times out
+     */
+    public interface TimeoutListener<K, V> {
+
+        /**
+         * Called when the entry has timed out and is no longer tracked
+         * 
+         * @param key the key of the entry
+         * @param value the value of the entry
+         */
+        void replyTimedOut(K key, V value);
+    }
+
+    /**
+     * A tracked entry
+     */
+    private static final class Pending<K, V> {
+        final K key;
+        final V value;
+        final long deadline;
+
+        Pending(K key, V value, long deadline) {
+            this.key = key;
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+}
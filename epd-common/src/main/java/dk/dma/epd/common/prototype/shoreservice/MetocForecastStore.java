@@ -0,0 +1,330 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.shoreservice;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.frv.enav.common.xml.metoc.MetocForecast;
+import dk.frv.enav.common.xml.metoc.MetocForecastPoint;
+import dk.frv.enav.common.xml.metoc.request.MetocForecastRequestWp;
+
+/**
+ * Local store of METOC forecast points, keyed by grid cell and forecast time.
+ * <p>
+ * Every forecast point received from the shore service is filed under the grid cell
+ * of {@code CELL_SIZE} degrees and the time bucket of {@code TIME_BUCKET} it falls into.
+ * A route leg is covered by the store if every position sampled along the leg, at the
+ * requested forecast interval, has a stored point within one cell and one time bucket.
+ * Covered legs are served locally, so that overlapping and re-planned routes only need
+ * to fetch the legs that are not covered.
+ * <p>
+ * Points expire {@code ttl} after the forecast they came from was created, and the
+ * store holds at most {@code MAX_CELLS} points by default, evicting the least recently used.
+ * The store can be saved to and loaded from disk, so it survives restarts.
+ */
+@ThreadSafe
+public class MetocForecastStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetocForecastStore.class);
+
+    static final double CELL_SIZE = 0.2; // degrees
+    static final long TIME_BUCKET = 60 * 60 * 1000; // 1 hour
+    static final int MAX_CELLS = 50000;
+
+    private final String storeFile;
+    private final int maxCells;
+
+    @GuardedBy("this")
+    private final LinkedHashMap<CellKey, StoredPoint> cells = new LinkedHashMap<CellKey, StoredPoint>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CellKey, StoredPoint> eldest) {
+            return size() > maxCells;
+        }
+    };
+
+    @GuardedBy("this")
+    private boolean dirty;
+
+    /**
+     * Constructor
+     * 
+     * @param homePath the home path to store the forecast points in. May be {@code null}
+     */
+    public MetocForecastStore(Path homePath) {
+        this(homePath, MAX_CELLS);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param homePath the home path to store the forecast points in. May be {@code null}
+     * @param maxCells the maximum number of points to hold
+     */
+    MetocForecastStore(Path homePath, int maxCells) {
+        storeFile = (homePath == null) ? null : homePath.resolve(".metoc").toString();
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Files all points of the given forecast in the store
+     * 
+     * @param forecast the forecast to store
+     */
+    public synchronized void store(MetocForecast forecast) {
+        if (forecast == null || forecast.getForecasts() == null) {
+            return;
+        }
+        Date created = (forecast.getCreated() != null) ? forecast.getCreated() : new Date();
+        for (MetocForecastPoint point : forecast.getForecasts()) {
+            if (point.getTime() == null) {
+                continue;
+            }
+            CellKey key = CellKey.of(point.getLat(), point.getLon(), point.getTime().getTime());
+            StoredPoint existing = cells.get(key);
+            if (existing == null || !existing.created.after(created)) {
+                cells.put(key, new StoredPoint(point, created));
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the stored points for the leg between the two given waypoints, sampled
+     * every {@code dt} ms from the first to the last waypoint, or {@code null} if the 
+     * leg is not fully covered by the store.
+     * 
+     * @param from the start of the leg
+     * @param to the end of the leg
+     * @param dt the sample interval in ms
+     * @param created the oldest creation time of the forecasts to use
+     * @return the stored points for the leg, or {@code null} if not covered
+     */
+    public synchronized List<StoredPoint> lookupLeg(MetocForecastRequestWp from, MetocForecastRequestWp to,
+            long dt, Date created) {
+        long start = from.getEta().getTime();
+        long end = Math.max(start, to.getEta().getTime());
+        List<StoredPoint> points = new ArrayList<>();
+        for (long t = start;; t = Math.min(t + Math.max(dt, 1), end)) {
+            double f = (end > start) ? (double) (t - start) / (end - start) : 0.0;
+            double lat = from.getLat() + f * (to.getLat() - from.getLat());
+            double lon = from.getLon() + f * (to.getLon() - from.getLon());
+            StoredPoint stored = nearest(lat, lon, t, created);
+            if (stored == null) {
+                return null;
+            }
+            if (points.isEmpty() || points.get(points.size() - 1) != stored) {
+                points.add(stored);
+            }
+            if (t >= end) {
+                return points;
+            }
+        }
+    }
+
+    /**
+     * Returns the stored point nearest to the given position and time, searching the
+     * neighbouring cells and time buckets
+     */
+    @GuardedBy("this")
+    private StoredPoint nearest(double lat, double lon, long time, Date created) {
+        CellKey center = CellKey.of(lat, lon, time);
+        StoredPoint best = null;
+        double bestDist = Double.MAX_VALUE;
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                for (int k = -1; k <= 1; k++) {
+                    StoredPoint stored = cells.get(new CellKey(center.lat + i, center.lon + j, center.time + k));
+                    if (stored == null || stored.created.before(created)) {
+                        continue;
+                    }
+                    double dLat = (stored.point.getLat() - lat) / CELL_SIZE;
+                    double dLon = (stored.point.getLon() - lon) / CELL_SIZE;
+                    double dTime = (double) (stored.point.getTime().getTime() - time) / TIME_BUCKET;
+                    if (Math.abs(dLat) > 1.0 || Math.abs(dLon) > 1.0 || Math.abs(dTime) > 1.0) {
+                        continue;
+                    }
+                    double dist = dLat * dLat + dLon * dLon + dTime * dTime;
+                    if (dist < bestDist) {
+                        bestDist = dist;
+                        best = stored;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Removes all points from forecasts created before the given time
+     * 
+     * @param created the oldest creation time to keep
+     */
+    public synchronized void expire(Date created) {
+        for (Iterator<StoredPoint> it = cells.values().iterator(); it.hasNext();) {
+            if (it.next().created.before(created)) {
+                it.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of stored points
+     * 
+     * @return the number of stored points
+     */
+    public synchronized int size() {
+        return cells.size();
+    }
+
+    /**
+     * Saves the store to disk, if it has changed since it was last saved or loaded
+     */
+    public void saveToFile() {
+        if (storeFile == null) {
+            return;
+        }
+        Map<CellKey, StoredPoint> snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            snapshot = new LinkedHashMap<>(cells);
+            dirty = false;
+        }
+
+        try (FileOutputStream fileOut = new FileOutputStream(storeFile);
+                ObjectOutputStream objectOut = new ObjectOutputStream(fileOut);) {
+            objectOut.writeObject(snapshot);
+        } catch (IOException e) {
+            LOG.error("Failed to save METOC store file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the store from disk, leaving out points from forecasts created before the given time
+     * 
+     * @param homePath the home path to load the forecast points from
+     * @param created the oldest creation time to keep
+     * @return the loaded store
+     */
+    @SuppressWarnings("unchecked")
+    public static MetocForecastStore loadFromFile(Path homePath, Date created) {
+        MetocForecastStore store = new MetocForecastStore(homePath);
+
+        try (FileInputStream fileIn = new FileInputStream(store.storeFile);
+                ObjectInputStream objectIn = new ObjectInputStream(fileIn);) {
+            Map<CellKey, StoredPoint> loaded = (Map<CellKey, StoredPoint>) objectIn.readObject();
+            synchronized (store) {
+                store.cells.putAll(loaded);
+            }
+            store.expire(created);
+            LOG.info("Loaded " + store.size() + " METOC forecast points");
+        } catch (FileNotFoundException e) {
+            // Not an error
+        } catch (Exception e) {
+            LOG.error("Failed to load METOC store file: " + e.getMessage());
+            // Delete possible corrupted or old file
+            new File(store.storeFile).delete();
+        }
+        return store;
+    }
+
+    /**
+     * Grid cell and time bucket of a forecast point
+     */
+    static final class CellKey implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final int lat;
+        final int lon;
+        final long time;
+
+        CellKey(int lat, int lon, long time) {
+            this.lat = lat;
+            this.lon = lon;
+            this.time = time;
+        }
+
+        static CellKey of(double lat, double lon, long time) {
+            return new CellKey((int) Math.floor(lat / CELL_SIZE), (int) Math.floor(lon / CELL_SIZE),
+                    (long) Math.floor((double) time / TIME_BUCKET));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lat, lon, time);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CellKey)) {
+                return false;
+            }
+            CellKey other = (CellKey) obj;
+            return lat == other.lat && lon == other.lon && time == other.time;
+        }
+    }
+
+    /**
+     * A stored forecast point along with the creation time of its forecast
+     */
+    public static final class StoredPoint implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final MetocForecastPoint point;
+        final Date created;
+
+        StoredPoint(MetocForecastPoint point, Date created) {
+            this.point = point;
+            this.created = created;
+        }
+
+        public MetocForecastPoint getPoint() {
+            return point;
+        }
+
+        public Date getCreated() {
+            return created;
+        }
+    }
+}
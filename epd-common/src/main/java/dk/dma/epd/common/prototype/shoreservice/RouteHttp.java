@@ -92,6 +92,15 @@ public class RouteHttp {
         method.releaseConnection();
     }
 
+    /**
+     * Aborts the request, e.g. when its deadline has passed
+     */
+    public void abort() {
+        if (method != null) {
+            method.abort();
+        }
+    }
+
     public void init(int timeout) {
         httpClient = new HttpClient();
         method = new PostMethod(url);
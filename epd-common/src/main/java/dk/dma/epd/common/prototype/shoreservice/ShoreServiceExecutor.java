@@ -0,0 +1,417 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.shoreservice;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceErrorCode;
+import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+
+/**
+ * Executes shore service requests on a small pool of worker threads.
+ * <p>
+ * Queued requests are served in {@linkplain TaskPriority} order, so that
+ * safety related requests such as NoGo and MSI outrank METOC and risk
+ * requests. The number of concurrent requests per endpoint is limited, so a
+ * slow endpoint cannot occupy all workers. Requests waiting for their endpoint
+ * are parked and do not hold a worker.
+ * <p>
+ * Note that priority only decides the order in which queued requests are
+ * started once all workers are busy, and the order in which parked requests
+ * get a slot of their endpoint. No workers are reserved for high priority
+ * requests, so e.g. with 4 workers, 2 METOC and 2 risk requests in progress
+ * will hold up a NoGo request until one of them completes or its deadline passes.
+ * <p>
+ * Every request has a deadline. A request that is still queued or running when
+ * the deadline passes fails with {@linkplain ShoreServiceErrorCode#TIMEOUT},
+ * and its HTTP connection is aborted if one has been registered via
+ * {@linkplain #onAbort(Runnable)}. Cancelling the returned future also aborts
+ * the connection.
+ */
+@ThreadSafe
+public class ShoreServiceExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShoreServiceExecutor.class);
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+    public static final int DEFAULT_ENDPOINT_LIMIT = 2;
+
+    private static final ThreadLocal<ShoreRequest<?>> CURRENT = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor deadlines;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int defaultEndpointLimit;
+
+    @GuardedBy("endpoints")
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+    /**
+     * Constructor
+     */
+    public ShoreServiceExecutor() {
+        this(DEFAULT_POOL_SIZE, DEFAULT_ENDPOINT_LIMIT);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param poolSize
+     *            the number of worker threads
+     * @param defaultEndpointLimit
+     *            the default number of concurrent requests per endpoint
+     */
+    public ShoreServiceExecutor(int poolSize, int defaultEndpointLimit) {
+        this.defaultEndpointLimit = defaultEndpointLimit;
+
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), newThreadFactory("ShoreService-"));
+        executor.allowCoreThreadTimeOut(true);
+
+        deadlines = new ScheduledThreadPoolExecutor(1, newThreadFactory("ShoreServiceDeadline-"));
+        deadlines.setRemoveOnCancelPolicy(true);
+        deadlines.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        deadlines.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        final AtomicInteger threadNo = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName(prefix + threadNo.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests for the given endpoint
+     * 
+     * @param endpoint
+     *            the endpoint, e.g. the request URI
+     * @param limit
+     *            the maximum number of concurrent requests
+     */
+    public void setEndpointLimit(String endpoint, int limit) {
+        Endpoint e = getEndpoint(endpoint);
+        synchronized (e) {
+            e.limit = Math.max(1, limit);
+        }
+    }
+
+    private Endpoint getEndpoint(String endpoint) {
+        synchronized (endpoints) {
+            Endpoint e = endpoints.get(endpoint);
+            if (e == null) {
+                e = new Endpoint(endpoint, defaultEndpointLimit);
+                endpoints.put(endpoint, e);
+            }
+            return e;
+        }
+    }
+
+    /**
+     * Returns the number of requests parked waiting for a slot of the endpoint
+     * 
+     * @param endpoint
+     *            the endpoint
+     * @return the number of parked requests
+     */
+    int getParkedCount(String endpoint) {
+        Endpoint e = getEndpoint(endpoint);
+        synchronized (e) {
+            return e.waiting.size();
+        }
+    }
+
+    /**
+     * Submits a shore service request
+     * 
+     * @param endpoint
+     *            the endpoint, e.g. the request URI
+     * @param priority
+     *            the priority of the request
+     * @param timeout
+     *            the time from now until the request deadline
+     * @param unit
+     *            the time unit of the timeout
+     * @param request
+     *            the request
+     * @return the future result of the request
+     */
+    public <T> Future<T> submit(String endpoint, TaskPriority priority, long timeout, TimeUnit unit,
+            Callable<T> request) {
+        final ShoreRequest<T> shoreRequest = new ShoreRequest<>(request, getEndpoint(endpoint), priority,
+                sequence.incrementAndGet());
+        try {
+            shoreRequest.deadline = deadlines.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    shoreRequest.expire();
+                }
+            }, timeout, unit);
+            executor.execute(shoreRequest);
+        } catch (RejectedExecutionException e) {
+            shoreRequest.cancel(false);
+        }
+        return shoreRequest;
+    }
+
+    /**
+     * Waits for the result of the given request future and translates
+     * failures into a {@linkplain ShoreServiceException}
+     * 
+     * @param future
+     *            the request future
+     * @return the result of the request
+     */
+    public static <T> T get(Future<T> future) throws ShoreServiceException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ShoreServiceException(ShoreServiceErrorCode.CANCELLED);
+        } catch (CancellationException e) {
+            throw new ShoreServiceException(ShoreServiceErrorCode.CANCELLED);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ShoreServiceException) {
+                throw (ShoreServiceException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            LOG.error("Shore service request failed", cause);
+            throw new ShoreServiceException(ShoreServiceErrorCode.INTERNAL_ERROR);
+        }
+    }
+
+    /**
+     * Registers an action that aborts the connection of the request being
+     * executed by the calling thread, e.g. by aborting the HTTP method. If the
+     * calling thread is not executing a request, the call has no effect.
+     * 
+     * @param abortAction
+     *            the abort action
+     */
+    public static void onAbort(Runnable abortAction) {
+        ShoreRequest<?> request = CURRENT.get();
+        if (request != null) {
+            request.abortAction = abortAction;
+            if (request.isDone()) {
+                abortAction.run();
+            }
+        }
+    }
+
+    /**
+     * Shuts down the executor. Queued and parked requests are cancelled.
+     */
+    public void shutdown() {
+        for (Runnable r : executor.shutdownNow()) {
+            ((ShoreRequest<?>) r).cancel(false);
+        }
+        synchronized (endpoints) {
+            for (Endpoint e : endpoints.values()) {
+                synchronized (e) {
+                    for (ShoreRequest<?> r : e.waiting) {
+                        r.cancel(false);
+                    }
+                    e.waiting.clear();
+                }
+            }
+        }
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * Bookkeeping of the running and parked requests of an endpoint
+     */
+    private final class Endpoint {
+        final String name;
+        @GuardedBy("this")
+        int limit;
+        @GuardedBy("this")
+        int running;
+        @GuardedBy("this")
+        final PriorityQueue<ShoreRequest<?>> waiting = new PriorityQueue<>();
+
+        Endpoint(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+
+        /**
+         * Acquires a slot for the request, or parks it until a slot is released
+         */
+        synchronized boolean acquire(ShoreRequest<?> request) {
+            if (request.holdsSlot) {
+                return true;
+            } else if (running < limit) {
+                running++;
+                request.holdsSlot = true;
+                return true;
+            }
+            waiting.add(request);
+            return false;
+        }
+
+        /**
+         * Releases the slot of the request and hands it over to the first
+         * parked request that is not done
+         */
+        void release(ShoreRequest<?> request) {
+            ShoreRequest<?> next;
+            synchronized (this) {
+                request.holdsSlot = false;
+                running--;
+                do {
+                    next = waiting.poll();
+                } while (next != null && next.isDone());
+                if (next != null) {
+                    running++;
+                    next.holdsSlot = true;
+                }
+            }
+            if (next != null) {
+                try {
+                    executor.execute(next);
+                } catch (RejectedExecutionException e) {
+                    LOG.warn("Dropping " + name + " request, executor is shut down");
+                    next.cancel(false);
+                    release(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * A prioritized shore service request
+     */
+    private static final class ShoreRequest<T> extends FutureTask<T> implements Comparable<ShoreRequest<?>> {
+        final Endpoint endpoint;
+        final TaskPriority priority;
+        final long seq;
+        volatile boolean holdsSlot;
+        volatile ScheduledFuture<?> deadline;
+        volatile Runnable abortAction;
+
+        ShoreRequest(Callable<T> callable, Endpoint endpoint, TaskPriority priority, long seq) {
+            super(callable);
+            this.endpoint = endpoint;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            if (isDone() && !holdsSlot) {
+                return;
+            }
+            if (!endpoint.acquire(this)) {
+                // Parked until the endpoint releases a slot
+                return;
+            }
+            try {
+                if (!isDone()) {
+                    CURRENT.set(this);
+                    try {
+                        super.run();
+                    } finally {
+                        CURRENT.remove();
+                    }
+                }
+            } finally {
+                endpoint.release(this);
+            }
+        }
+
+        /**
+         * Called when the deadline of the request has passed
+         */
+        void expire() {
+            if (!isDone()) {
+                LOG.warn("Shore service request to " + endpoint.name + " timed out");
+                setException(new ShoreServiceException(ShoreServiceErrorCode.TIMEOUT));
+                abort();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                abort();
+            }
+            return cancelled;
+        }
+
+        private void abort() {
+            Runnable action = abortAction;
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed aborting shore service request: " + e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            ScheduledFuture<?> d = deadline;
+            if (d != null) {
+                d.cancel(false);
+            }
+        }
+
+        @Override
+        public int compareTo(ShoreRequest<?> other) {
+            if (priority != other.priority) {
+                return priority.ordinal() < other.priority.ordinal() ? -1 : 1;
+            }
+            return seq < other.seq ? -1 : (seq == other.seq ? 0 : 1);
+        }
+    }
+}
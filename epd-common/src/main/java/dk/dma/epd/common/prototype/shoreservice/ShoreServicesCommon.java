@@ -21,6 +21,9 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -33,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import com.bbn.openmap.MapHandlerChild;
 
 import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.EPD;
 import dk.dma.epd.common.prototype.ais.AisHandlerCommon;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreHttp;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceErrorCode;
@@ -44,9 +48,12 @@ import dk.dma.epd.common.prototype.monalisa.SSPAResponse;
 import dk.dma.epd.common.prototype.monalisa.XMLDialog;
 import dk.dma.epd.common.prototype.monalisa.sspa.RouterequestType;
 import dk.dma.epd.common.prototype.monalisa.sspa.RouteresponseType;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 import dk.dma.epd.common.prototype.sensor.pnt.PntData;
 import dk.dma.epd.common.prototype.sensor.pnt.PntHandler;
+import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
 import dk.dma.epd.common.prototype.settings.EnavSettings;
+import dk.dma.epd.common.prototype.shoreservice.MetocForecastStore.StoredPoint;
 import dk.dma.epd.common.prototype.status.ComponentStatus;
 import dk.dma.epd.common.prototype.status.IStatusComponent;
 import dk.dma.epd.common.prototype.status.ShoreServiceStatus;
@@ -54,7 +61,9 @@ import dk.frv.enav.common.xml.ShoreServiceRequest;
 import dk.frv.enav.common.xml.ShoreServiceResponse;
 import dk.frv.enav.common.xml.Waypoint;
 import dk.frv.enav.common.xml.metoc.MetocForecast;
+import dk.frv.enav.common.xml.metoc.MetocForecastPoint;
 import dk.frv.enav.common.xml.metoc.request.MetocForecastRequest;
+import dk.frv.enav.common.xml.metoc.request.MetocForecastRequestWp;
 import dk.frv.enav.common.xml.metoc.response.MetocForecastResponse;
 import dk.frv.enav.common.xml.msi.request.MsiPollRequest;
 import dk.frv.enav.common.xml.msi.response.MsiResponse;
@@ -76,11 +85,48 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
     protected EnavSettings enavSettings;
     private ShoreServiceStatus status = new ShoreServiceStatus();
     private static final String ENCODING = "UTF-8";
+    private static JAXBContext monaLisaRequestContext;
+    private static JAXBContext monaLisaResponseContext;
+    private static final String METOC_STORE_SAVE_TASK = "MetocStoreSave";
+    private MetocForecastStore metocStore;
+
+    private static final String NOGO_URI = "/api/xml/nogo";
+    private static final String MSI_URI = "/api/xml/msi";
+    private static final String RISK_URI = "/api/xml/risk";
+    private static final String METOC_URI = "/api/xml/routeMetoc";
+    private static final String MONALISA_ENDPOINT = "monalisa";
+    // A route METOC request may consist of several shore requests
+    private static final int METOC_TIMEOUT_FACTOR = 3;
+
+    private final ShoreServiceExecutor executor = new ShoreServiceExecutor();
 
     public ShoreServicesCommon(EnavSettings enavSettings) {
         this.enavSettings = enavSettings;
     }
 
+    /**
+     * Returns the executor used for the shore service requests
+     * @return the executor used for the shore service requests
+     */
+    protected ShoreServiceExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the deadline in milliseconds of a single shore request
+     * @return the deadline in milliseconds of a single shore request
+     */
+    protected long getRequestTimeout() {
+        return enavSettings.getConnectTimeout() + enavSettings.getReadTimeout();
+    }
+
+    /**
+     * Shuts down the shore service executor
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
     public static double floatToDouble(float converThisNumberToFloat) {
 
         String floatNumberInString = String.valueOf(converThisNumberToFloat);
@@ -142,6 +188,26 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
 
     public NogoResponse nogoPoll(double draught, Position northWestPoint, Position southEastPoint, Date startDate, Date endDate)
             throws ShoreServiceException {
+        return ShoreServiceExecutor.get(nogoPollAsync(draught, northWestPoint, southEastPoint, startDate, endDate));
+    }
+
+    /**
+     * Submits a NoGo request with high priority
+     * @return the future NoGo response
+     */
+    public Future<NogoResponse> nogoPollAsync(final double draught, final Position northWestPoint,
+            final Position southEastPoint, final Date startDate, final Date endDate) {
+        return executor.submit(NOGO_URI, TaskPriority.HIGH, getRequestTimeout(), TimeUnit.MILLISECONDS,
+                new Callable<NogoResponse>() {
+                    @Override
+                    public NogoResponse call() throws ShoreServiceException {
+                        return doNogoPoll(draught, northWestPoint, southEastPoint, startDate, endDate);
+                    }
+                });
+    }
+
+    protected NogoResponse doNogoPoll(double draught, Position northWestPoint, Position southEastPoint, Date startDate,
+            Date endDate) throws ShoreServiceException {
         // Create request
         NogoRequest nogoRequest = new NogoRequest();
 
@@ -157,12 +223,30 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
         // Add request parameters
         addRequestParameters(nogoRequest);
 
-        NogoResponse nogoResponse = (NogoResponse) makeRequest("/api/xml/nogo", "dk.frv.enav.common.xml.nogo.request",
+        NogoResponse nogoResponse = (NogoResponse) makeRequest(NOGO_URI, "dk.frv.enav.common.xml.nogo.request",
                 "dk.frv.enav.common.xml.nogo.response", nogoRequest);
         return nogoResponse;
     }
 
     public MsiResponse msiPoll(int lastMessage) throws ShoreServiceException {
+        return ShoreServiceExecutor.get(msiPollAsync(lastMessage));
+    }
+
+    /**
+     * Submits an MSI poll request with high priority
+     * @return the future MSI response
+     */
+    public Future<MsiResponse> msiPollAsync(final int lastMessage) {
+        return executor.submit(MSI_URI, TaskPriority.HIGH, getRequestTimeout(), TimeUnit.MILLISECONDS,
+                new Callable<MsiResponse>() {
+                    @Override
+                    public MsiResponse call() throws ShoreServiceException {
+                        return doMsiPoll(lastMessage);
+                    }
+                });
+    }
+
+    protected MsiResponse doMsiPoll(int lastMessage) throws ShoreServiceException {
         // Create request
         MsiPollRequest msiPollRequest = new MsiPollRequest();
         msiPollRequest.setLastMessage(lastMessage);
@@ -170,7 +254,7 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
         // Add request parameters
         addRequestParameters(msiPollRequest);
 
-        MsiResponse msiResponse = (MsiResponse) makeRequest("/api/xml/msi", "dk.frv.enav.common.xml.msi.request",
+        MsiResponse msiResponse = (MsiResponse) makeRequest(MSI_URI, "dk.frv.enav.common.xml.msi.request",
                 "dk.frv.enav.common.xml.msi.response", msiPollRequest);
 
         return msiResponse;
@@ -178,6 +262,26 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
 
     public List<RiskList> getRiskIndexes(double southWestLat, double northEastLat, double southWestLon, double northEastLon)
             throws ShoreServiceException {
+        return ShoreServiceExecutor.get(getRiskIndexesAsync(southWestLat, northEastLat, southWestLon, northEastLon));
+    }
+
+    /**
+     * Submits a risk index request with low priority
+     * @return the future risk lists
+     */
+    public Future<List<RiskList>> getRiskIndexesAsync(final double southWestLat, final double northEastLat,
+            final double southWestLon, final double northEastLon) {
+        return executor.submit(RISK_URI, TaskPriority.LOW, getRequestTimeout(), TimeUnit.MILLISECONDS,
+                new Callable<List<RiskList>>() {
+                    @Override
+                    public List<RiskList> call() throws ShoreServiceException {
+                        return doGetRiskIndexes(southWestLat, northEastLat, southWestLon, northEastLon);
+                    }
+                });
+    }
+
+    protected List<RiskList> doGetRiskIndexes(double southWestLat, double northEastLat, double southWestLon,
+            double northEastLon) throws ShoreServiceException {
         // Create request
         RiskRequest req = new RiskRequest();
         req.setLatMin(southWestLat);
@@ -188,13 +292,31 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
         // Add request parameters
         addRequestParameters(req);
 
-        RiskResponse resp = (RiskResponse) makeRequest("/api/xml/risk", "dk.frv.enav.common.xml.risk.request",
+        RiskResponse resp = (RiskResponse) makeRequest(RISK_URI, "dk.frv.enav.common.xml.risk.request",
                 "dk.frv.enav.common.xml.risk.response", req);
 
         return resp.getList();
     }
 
     public MetocForecast routeMetoc(Route route) throws ShoreServiceException {
+        return ShoreServiceExecutor.get(routeMetocAsync(route));
+    }
+
+    /**
+     * Submits a route METOC request with normal priority
+     * @return the future METOC forecast
+     */
+    public Future<MetocForecast> routeMetocAsync(final Route route) {
+        return executor.submit(METOC_URI, TaskPriority.NORMAL, METOC_TIMEOUT_FACTOR * getRequestTimeout(),
+                TimeUnit.MILLISECONDS, new Callable<MetocForecast>() {
+                    @Override
+                    public MetocForecast call() throws ShoreServiceException {
+                        return doRouteMetoc(route);
+                    }
+                });
+    }
+
+    protected MetocForecast doRouteMetoc(Route route) throws ShoreServiceException {
         // Get current position if active route
         Position pos = null;
         if (route instanceof ActiveRoute) {
@@ -210,13 +332,159 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
         // Add request parameters
         addRequestParameters(request);
 
-        // Make request
-        MetocForecastResponse res = (MetocForecastResponse) makeRequest("/api/xml/routeMetoc",
-                "dk.frv.enav.common.xml.metoc.request", "dk.frv.enav.common.xml.metoc.response", request);
+        // Serve what we can from the forecast store and fetch the rest
+        return routeMetoc(request);
+    }
+
+    /**
+     * Returns the METOC forecast for the given request.
+     * <p>
+     * Legs that are covered by the local forecast store are served from the store. 
+     * Only the remaining runs of consecutive legs are requested from shore, and the
+     * received forecast points are added to the store.
+     * 
+     * @param request the METOC forecast request
+     * @return the METOC forecast
+     */
+    MetocForecast routeMetoc(MetocForecastRequest request) throws ShoreServiceException {
+        List<MetocForecastRequestWp> wps = request.getWaypoints();
+        if (wps.size() < 2) {
+            return fetchMetoc(request, 0, wps.size() - 1, new ArrayList<MetocForecastPoint>());
+        }
+
+        MetocForecastStore store = getMetocStore();
+        long metocTtl = enavSettings.getMetocTtl() * 60 * 1000;
+        Date oldest = new Date(PntTime.getInstance().getDate().getTime() - metocTtl);
+        long dt = request.getDt() * 60 * 1000L;
+
+        MetocForecast result = new MetocForecast();
+        List<MetocForecastPoint> points = result.getForecasts();
+        Date created = null;
+        int fetchFrom = -1;
+        int cachedLegs = 0;
+        for (int i = 0; i < wps.size() - 1; i++) {
+            List<StoredPoint> leg = store.lookupLeg(wps.get(i), wps.get(i + 1), dt, oldest);
+            if (leg == null) {
+                if (fetchFrom < 0) {
+                    fetchFrom = i;
+                }
+                continue;
+            }
+            if (fetchFrom >= 0) {
+                created = oldestOf(created, fetchMetoc(request, fetchFrom, i, points).getCreated());
+                fetchFrom = -1;
+            }
+            for (StoredPoint point : leg) {
+                addMetocPoint(points, point.getPoint());
+                created = oldestOf(created, point.getCreated());
+            }
+            cachedLegs++;
+        }
+        if (fetchFrom == 0) {
+            // Nothing was cached
+            return fetchMetoc(request, 0, wps.size() - 1, new ArrayList<MetocForecastPoint>());
+        } else if (fetchFrom > 0) {
+            created = oldestOf(created, fetchMetoc(request, fetchFrom, wps.size() - 1, points).getCreated());
+        }
+        
+        LOG.debug("Served " + cachedLegs + " of " + (wps.size() - 1) + " METOC legs from the forecast store");
+        result.setCreated(created);
+        return result;
+    }
 
+    /**
+     * Requests the METOC forecast for the waypoints {@code from} to {@code to} of the 
+     * given request from shore, adds the forecast points to the forecast store and
+     * appends them to {@code points}
+     * 
+     * @param request the full METOC forecast request
+     * @param from the index of the first waypoint to request
+     * @param to the index of the last waypoint to request
+     * @param points the list to append the forecast points to
+     * @return the received forecast
+     */
+    private MetocForecast fetchMetoc(MetocForecastRequest request, int from, int to, List<MetocForecastPoint> points)
+            throws ShoreServiceException {
+        MetocForecastRequest legRequest = request;
+        if (from > 0 || to < request.getWaypoints().size() - 1) {
+            legRequest = new MetocForecastRequest();
+            legRequest.setDt(request.getDt());
+            legRequest.getDataTypes().addAll(request.getDataTypes());
+            legRequest.getWaypoints().addAll(request.getWaypoints().subList(from, to + 1));
+            addRequestParameters(legRequest);
+        }
+
+        MetocForecast forecast = requestMetoc(legRequest);
+        if (forecast == null && legRequest != request) {
+            throw new ShoreServiceException(ShoreServiceErrorCode.INVALID_RESPONSE);
+        }
+        
+        if (forecast != null && forecast.getForecasts() != null) {
+            getMetocStore().store(forecast);
+            EPD.getInstance().getTaskScheduler().trigger(METOC_STORE_SAVE_TASK);
+            for (MetocForecastPoint point : forecast.getForecasts()) {
+                addMetocPoint(points, point);
+            }
+        }
+        return forecast;
+    }
+
+    /**
+     * Sends the METOC forecast request to shore
+     * 
+     * @param request the METOC forecast request
+     * @return the received forecast
+     */
+    protected MetocForecast requestMetoc(MetocForecastRequest request) throws ShoreServiceException {
+        MetocForecastResponse res = (MetocForecastResponse) makeRequest(METOC_URI,
+                "dk.frv.enav.common.xml.metoc.request", "dk.frv.enav.common.xml.metoc.response", request);
         return res.getMetocForecast();
     }
 
+    /**
+     * Appends the point to the list, unless it is a repetition of the last point
+     */
+    private static void addMetocPoint(List<MetocForecastPoint> points, MetocForecastPoint point) {
+        if (!points.isEmpty()) {
+            MetocForecastPoint last = points.get(points.size() - 1);
+            if (last == point || (last.getTime().equals(point.getTime()) 
+                    && last.getLat() == point.getLat() && last.getLon() == point.getLon())) {
+                return;
+            }
+        }
+        points.add(point);
+    }
+
+    private static Date oldestOf(Date date1, Date date2) {
+        if (date1 == null) {
+            return date2;
+        }
+        return (date2 == null || date1.before(date2)) ? date1 : date2;
+    }
+
+    /**
+     * Returns the METOC forecast store, loading it from disk upon first access
+     * 
+     * @return the METOC forecast store
+     */
+    protected synchronized MetocForecastStore getMetocStore() {
+        if (metocStore == null) {
+            long metocTtl = enavSettings.getMetocTtl() * 60 * 1000;
+            Date oldest = new Date(PntTime.getInstance().getDate().getTime() - metocTtl);
+            final MetocForecastStore store = MetocForecastStore.loadFromFile(EPD.getInstance().getHomePath(), oldest);
+            EPD.getInstance().getTaskScheduler().registerTriggered(METOC_STORE_SAVE_TASK, TaskPriority.LOW, new Runnable() {
+                @Override
+                public void run() {
+                    long metocTtl = enavSettings.getMetocTtl() * 60 * 1000;
+                    store.expire(new Date(PntTime.getInstance().getDate().getTime() - metocTtl));
+                    store.saveToFile();
+                }
+            });
+            metocStore = store;
+        }
+        return metocStore;
+    }
+
     /**
      * Allow subclasses to adjust the shore service request
      * @param request the request to adjust
@@ -227,9 +495,16 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
     private ShoreServiceResponse makeRequest(String uri, String reqContextPath, String resContextPath, Object request)
             throws ShoreServiceException {
         // Create HTTP request
-        ShoreHttp shoreHttp = new ShoreHttp(uri, enavSettings);
+        final ShoreHttp shoreHttp = new ShoreHttp(uri, enavSettings);
         // Init HTTP
         shoreHttp.init();
+        // Abort the connection if the request deadline passes
+        ShoreServiceExecutor.onAbort(new Runnable() {
+            @Override
+            public void run() {
+                shoreHttp.abort();
+            }
+        });
         // Set content
         try {
             shoreHttp.setXmlMarshalContent(reqContextPath, request);
@@ -292,8 +567,47 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
         return status;
     }
 
+    /**
+     * Returns the JAXB context used for marshalling Mona Lisa route requests.
+     * JAXB contexts are thread safe and expensive to create, so the context is cached.
+     */
+    private static synchronized JAXBContext getMonaLisaRequestContext() throws JAXBException {
+        if (monaLisaRequestContext == null) {
+            monaLisaRequestContext = JAXBContext.newInstance(RouterequestType.class);
+        }
+        return monaLisaRequestContext;
+    }
+
+    /**
+     * Returns the JAXB context used for unmarshalling Mona Lisa route responses
+     */
+    private static synchronized JAXBContext getMonaLisaResponseContext() throws JAXBException {
+        if (monaLisaResponseContext == null) {
+            monaLisaResponseContext = JAXBContext.newInstance("dk.dma.epd.common.prototype.monalisa.sspa");
+        }
+        return monaLisaResponseContext;
+    }
+
+    public SSPAResponse makeMonaLisaRouteRequest(final RouterequestType monaLisaRoute, final int timeout,
+            final boolean showInput, final boolean showOutput) {
+        // The socket timeout applies to both connecting and reading
+        Future<SSPAResponse> response = executor.submit(MONALISA_ENDPOINT, TaskPriority.LOW, 2L * timeout,
+                TimeUnit.MILLISECONDS, new Callable<SSPAResponse>() {
+                    @Override
+                    public SSPAResponse call() {
+                        return doMakeMonaLisaRouteRequest(monaLisaRoute, timeout, showInput, showOutput);
+                    }
+                });
+        try {
+            return ShoreServiceExecutor.get(response);
+        } catch (ShoreServiceException e) {
+            return new SSPAResponse(null, e.getMessage());
+        }
+    }
+
     @SuppressWarnings({ "rawtypes", "unused" })
-    public SSPAResponse makeMonaLisaRouteRequest(RouterequestType monaLisaRoute, int timeout, boolean showInput, boolean showOutput) {
+    private SSPAResponse doMakeMonaLisaRouteRequest(RouterequestType monaLisaRoute, int timeout, boolean showInput,
+            boolean showOutput) {
 
         JAXBContext context = null;
         String xmlReturnRoute = "";
@@ -301,7 +615,7 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
         String xml = "";
 
         try {
-            context = JAXBContext.newInstance(RouterequestType.class);
+            context = getMonaLisaRequestContext();
             Marshaller m = context.createMarshaller();
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
             m.setProperty(Marshaller.JAXB_ENCODING, ENCODING);
@@ -340,9 +654,15 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
             // System.out.println(xml);
 
             // Create HTTP request
-            RouteHttp routeHttp = new RouteHttp(enavSettings);
+            final RouteHttp routeHttp = new RouteHttp(enavSettings);
             // Init HTTP
             routeHttp.init(timeout);
+            ShoreServiceExecutor.onAbort(new Runnable() {
+                @Override
+                public void run() {
+                    routeHttp.abort();
+                }
+            });
             // Set content
             routeHttp.setRequestBody(xml);
 
@@ -400,7 +720,7 @@ public class ShoreServicesCommon extends MapHandlerChild implements IStatusCompo
                 StringReader sr = new StringReader(xmlReturnRoute);
 
                 try {
-                    jc = JAXBContext.newInstance("dk.dma.epd.common.prototype.monalisa.sspa");
+                    jc = getMonaLisaResponseContext();
                     u = jc.createUnmarshaller();
 
                     routeResponse = (RouteresponseType) ((javax.xml.bind.JAXBElement) u.unmarshal(sr)).getValue();
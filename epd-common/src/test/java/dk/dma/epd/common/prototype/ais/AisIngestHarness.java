@@ -0,0 +1,300 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.ais;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import dk.dma.ais.message.AisMessage;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
+import dk.dma.epd.common.prototype.settings.AisSettings;
+
+/**
+ * Headless harness measuring the AIS ingest pipeline with a {@linkplain SyntheticAisGenerator} stream.
+ * <p>
+ * The following stages are measured:
+ * <ul>
+ * <li><b>generate</b>: creation of the synthetic {@code AisMessage}.</li>
+ * <li><b>receive</b>: {@code AisHandlerCommon.receive()}, including the {@code VesselTarget} and 
+ * {@code PastTrackSortedSet} updates and the fan-out to the target listeners.</li>
+ * <li><b>listeners</b>: the time spent in the target listeners, which mimic the 
+ * target graphic lookup of {@code AisLayerCommon}. Allocations are included in <i>receive</i>.</li>
+ * <li><b>updateStatus</b>: the periodic status sweep, run once per simulated 10 seconds.</li>
+ * </ul>
+ * For each stage the throughput, the latency percentiles and the allocation rate are reported.
+ * <p>
+ * Usage: {@code AisIngestHarness [vessels] [messages] [listeners]}
+ */
+public class AisIngestHarness {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_SAMPLES = 1000000;
+    private static final double TIME_STEP = 10.0; // seconds between position reports
+
+    /**
+     * Main method
+     * @param args the optional number of vessels, messages and listeners
+     */
+    public static void main(String[] args) throws IOException {
+        int vessels = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int messages = (args.length > 1) ? Integer.parseInt(args[1]) : 2000000;
+        int listeners = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        Report report = run(vessels, messages, listeners);
+        System.out.println(report);
+        System.exit(0);
+    }
+
+    /**
+     * Runs the harness. The first 10% of the messages are used for warm-up 
+     * and not included in the statistics.
+     * 
+     * @param vesselCount the number of vessels
+     * @param messageCount the number of messages
+     * @param listenerCount the number of target listeners
+     * @return the report
+     */
+    public static Report run(int vesselCount, int messageCount, int listenerCount) throws IOException {
+        HeadlessEPD.init();
+        PntTime.init();
+
+        AisHandlerCommon aisHandler = new AisHandlerCommon(new AisSettings()) {
+            @Override
+            protected boolean isWithinRange(Position pos) {
+                return true;
+            }
+        };
+
+        int samples = Math.min(messageCount, MAX_SAMPLES);
+        Stage generate = new Stage("generate", samples);
+        Stage receive = new Stage("receive", samples);
+        Stage listeners = new Stage("listeners", samples * Math.max(1, listenerCount));
+        Stage updateStatus = new Stage("updateStatus", 10000);
+        for (int i = 0; i < listenerCount; i++) {
+            aisHandler.addListener(new SimLayerListener(listeners));
+        }
+
+        SyntheticAisGenerator generator = new SyntheticAisGenerator(vesselCount, 0.3, vesselCount / 20, TIME_STEP, 42L);
+        AisMessage[] batch = new AisMessage[BATCH_SIZE];
+        int warmup = messageCount / 10;
+        int stride = Math.max(1, messageCount / samples);
+        int processed = 0;
+        int nextStatusUpdate = vesselCount;
+        long t0 = 0L;
+
+        while (processed < messageCount) {
+            int n = Math.min(BATCH_SIZE, messageCount - processed);
+            boolean record = processed >= warmup;
+            if (record && t0 == 0L) {
+                t0 = System.nanoTime();
+            }
+            listeners.enabled = record;
+
+            // Generate
+            long alloc = allocatedBytes();
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                long start = System.nanoTime();
+                batch[i] = generator.next();
+                if (record && (processed + i) % stride == 0) {
+                    generate.sample(System.nanoTime() - start);
+                }
+            }
+            if (record) {
+                generate.batch(n, System.nanoTime() - batchStart, allocatedBytes() - alloc);
+            }
+
+            // Receive
+            alloc = allocatedBytes();
+            batchStart = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                long start = System.nanoTime();
+                aisHandler.receive(batch[i]);
+                if (record && (processed + i) % stride == 0) {
+                    receive.sample(System.nanoTime() - start);
+                }
+                batch[i] = null;
+            }
+            if (record) {
+                receive.batch(n, System.nanoTime() - batchStart, allocatedBytes() - alloc);
+            }
+            processed += n;
+
+            // Periodic status update, once per simulated time step
+            if (processed >= nextStatusUpdate) {
+                nextStatusUpdate += vesselCount;
+                alloc = allocatedBytes();
+                long start = System.nanoTime();
+                aisHandler.updateStatus();
+                long elapsed = System.nanoTime() - start;
+                if (record) {
+                    updateStatus.sample(elapsed);
+                    updateStatus.batch(1, elapsed, allocatedBytes() - alloc);
+                }
+            }
+        }
+        long wallTime = System.nanoTime() - t0;
+
+        return new Report(messageCount - warmup, wallTime, aisHandler.getMobileTargets(null).size(), new Stage[] {
+                generate, receive, listeners, updateStatus });
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread, or 0 if not supported
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0L;
+    }
+
+    /**
+     * Target listener mimicking the target graphic lookup and update of {@code AisLayerCommon}
+     */
+    static final class SimLayerListener implements IAisTargetListener {
+        private final Stage stage;
+        private final Map<Long, double[]> graphics = new HashMap<>();
+
+        SimLayerListener(Stage stage) {
+            this.stage = stage;
+        }
+
+        @Override
+        public void targetUpdated(AisTarget aisTarget) {
+            long start = System.nanoTime();
+            if (aisTarget.isGone()) {
+                graphics.remove(aisTarget.getMmsi());
+            } else if (aisTarget instanceof MobileTarget) {
+                VesselPositionData pos = ((MobileTarget) aisTarget).getPositionData();
+                double[] graphic = graphics.get(aisTarget.getMmsi());
+                if (graphic == null) {
+                    graphic = new double[3];
+                    graphics.put(aisTarget.getMmsi(), graphic);
+                }
+                if (pos != null && pos.getPos() != null) {
+                    graphic[0] = pos.getPos().getLatitude();
+                    graphic[1] = pos.getPos().getLongitude();
+                    graphic[2] = pos.getCog();
+                }
+            }
+            if (stage.enabled) {
+                long elapsed = System.nanoTime() - start;
+                stage.sample(elapsed);
+                stage.batch(1, elapsed, 0L);
+            }
+        }
+    }
+
+    /**
+     * Statistics of a single stage
+     */
+    static final class Stage {
+        final String name;
+        final long[] samples;
+        int sampleCount;
+        long count;
+        long totalTime;
+        long allocated;
+        volatile boolean enabled = true;
+
+        Stage(String name, int maxSamples) {
+            this.name = name;
+            this.samples = new long[maxSamples];
+        }
+
+        void sample(long nanos) {
+            if (sampleCount < samples.length) {
+                samples[sampleCount++] = nanos;
+            }
+        }
+
+        void batch(int n, long nanos, long bytes) {
+            count += n;
+            totalTime += nanos;
+            allocated += bytes;
+        }
+
+        double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+            return sorted[index] / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            double seconds = totalTime / 1e9;
+            return String.format("%-13s %10d %14.0f %9.2f %9.2f %9.2f %9.2f %10.2f %11.1f %10.1f", name, count,
+                    (seconds > 0) ? count / seconds : 0.0, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1.0),
+                    (count > 0) ? (double) allocated / count : 0.0, (seconds > 0) ? allocated / seconds / 1e6 : 0.0);
+        }
+    }
+
+    /**
+     * The harness report
+     */
+    public static final class Report {
+        private final long messages;
+        private final long wallTime;
+        private final int targets;
+        private final Stage[] stages;
+
+        Report(long messages, long wallTime, int targets, Stage[] stages) {
+            this.messages = messages;
+            this.wallTime = wallTime;
+            this.targets = targets;
+            this.stages = stages;
+        }
+
+        /**
+         * Returns the sustained end-to-end throughput in messages per second
+         * @return the sustained end-to-end throughput
+         */
+        public double getThroughput() {
+            return (wallTime > 0) ? messages / (wallTime / 1e9) : 0.0;
+        }
+
+        public int getTargets() {
+            return targets;
+        }
+
+        public long getMessages() {
+            return messages;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Messages: %d, targets: %d, sustained throughput: %.0f msg/s%n", messages, targets,
+                    getThroughput()));
+            sb.append(String.format("%-13s %10s %14s %9s %9s %9s %9s %10s %11s %10s%n", "stage", "count", "ops/s",
+                    "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "alloc B/op", "alloc MB/s"));
+            for (Stage stage : stages) {
+                sb.append(stage).append(String.format("%n"));
+            }
+            return sb.toString();
+        }
+    }
+}
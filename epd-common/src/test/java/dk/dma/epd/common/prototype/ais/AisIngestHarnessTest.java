@@ -0,0 +1,42 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.ais;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the harness runs and processes every message. The throughput
+ * runs are made with {@linkplain AisIngestHarness#main(String[])}.
+ */
+public class AisIngestHarnessTest {
+
+    @After
+    public void tearDown() throws IOException {
+        HeadlessEPD.dispose();
+    }
+
+    @Test
+    public void smallRunTest() throws IOException {
+        AisIngestHarness.Report report = AisIngestHarness.run(20, 2000, 1);
+        // The first 10% of the messages are warm-up
+        Assert.assertEquals(1800, report.getMessages());
+        Assert.assertEquals(20, report.getTargets());
+    }
+}
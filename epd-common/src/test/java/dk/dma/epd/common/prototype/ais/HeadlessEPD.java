@@ -0,0 +1,142 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.ais;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.gui.MainFrameCommon;
+
+/**
+ * Minimal, headless {@linkplain EPD} system used by the test harnesses,
+ * with its home folder in a temporary directory.
+ * <p>
+ * Tests using it should call {@linkplain #dispose()} when done, which stops
+ * the task scheduler and deletes the home folder.
+ */
+public class HeadlessEPD extends EPD {
+
+    private final Path homePath;
+
+    /**
+     * Constructor
+     */
+    public HeadlessEPD() throws IOException {
+        super();
+        homePath = Files.createTempDirectory("epd-headless");
+    }
+
+    /**
+     * Returns the current headless EPD system, creating it if needed
+     * 
+     * @return the current headless EPD system
+     */
+    public static synchronized EPD init() throws IOException {
+        if (getInstance() == null) {
+            new HeadlessEPD();
+        }
+        return getInstance();
+    }
+
+    /**
+     * Shuts down the current headless EPD system, if any, and deletes its home folder
+     */
+    public static synchronized void dispose() throws IOException {
+        if (!(getInstance() instanceof HeadlessEPD)) {
+            return;
+        }
+        HeadlessEPD epd = (HeadlessEPD) getInstance();
+        instance = null;
+        epd.closeApp(false);
+        deleteRecursively(epd.homePath);
+    }
+
+    /**
+     * Deletes the given directory along with its content
+     * 
+     * @param dir the directory to delete
+     */
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public Path getHomePath() {
+        return homePath;
+    }
+
+    @Override
+    public Properties loadProperties() {
+        return properties;
+    }
+
+    @Override
+    protected void startSensors() {
+    }
+
+    @Override
+    protected void stopSensors() {
+    }
+
+    @Override
+    public MainFrameCommon getMainFrame() {
+        return null;
+    }
+
+    @Override
+    public Position getPosition() {
+        return null;
+    }
+
+    @Override
+    public String[] getDefaultMouseModeServiceList() {
+        return new String[0];
+    }
+
+    @Override
+    public void closeApp(boolean restart) {
+        taskScheduler.shutdown();
+    }
+
+    @Override
+    public void settingsChanged(Type type) {
+    }
+}
@@ -0,0 +1,250 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.ais;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.AisMessage1;
+import dk.dma.ais.message.AisMessage18;
+import dk.dma.ais.message.AisMessage2;
+import dk.dma.ais.message.AisMessage21;
+import dk.dma.ais.message.AisMessage24;
+import dk.dma.ais.message.AisMessage3;
+import dk.dma.ais.message.AisMessage5;
+import dk.dma.ais.message.AisPosition;
+import dk.dma.ais.message.AisPositionMessage;
+import dk.dma.enav.model.geometry.Position;
+
+/**
+ * Generates a synthetic, reproducible AIS message stream for a number of moving vessels.
+ * <p>
+ * The stream mixes the message types in roughly the proportions seen in a coastal feed:
+ * <ul>
+ * <li>Class A vessels send position reports (message 1, 2 and 3) and, 
+ * for every 30th report, a static and voyage related data message 5.</li>
+ * <li>Class B vessels send position reports (message 18) and, 
+ * for every 30th report, a static data report (message 24, part A and B).</li>
+ * <li>AtoNs send an AtoN report (message 21) for every 100th vessel message.</li>
+ * </ul>
+ * Each position report advances the vessel by {@code timeStep} seconds along its course.
+ */
+public class SyntheticAisGenerator {
+
+    private static final int FIRST_MMSI = 219000000;
+    private static final int FIRST_ATON_MMSI = 992190000;
+    private static final int STATIC_DATA_INTERVAL = 30;
+    private static final int ATON_INTERVAL = 100;
+
+    private final Random random;
+    private final List<SimVessel> vessels = new ArrayList<>();
+    private final int atonCount;
+    private final double timeStep;
+    private final double centerLat;
+    private final double centerLon;
+    private final double radius;
+    private long messageNo;
+    private int nextVessel;
+    private int nextAton;
+
+    /**
+     * Constructor
+     * 
+     * @param vesselCount the number of vessels
+     * @param classBRatio the ratio of class B vessels, between 0 and 1
+     * @param atonCount the number of AtoNs
+     * @param timeStep the simulated time in seconds between two position reports of a vessel
+     * @param seed the random seed
+     */
+    public SyntheticAisGenerator(int vesselCount, double classBRatio, int atonCount, double timeStep, long seed) {
+        this.random = new Random(seed);
+        this.atonCount = atonCount;
+        this.timeStep = timeStep;
+        this.centerLat = 56.0;
+        this.centerLon = 11.0;
+        this.radius = 1.5;
+        for (int i = 0; i < vesselCount; i++) {
+            SimVessel vessel = new SimVessel();
+            vessel.mmsi = FIRST_MMSI + i;
+            vessel.classB = random.nextDouble() < classBRatio;
+            vessel.lat = centerLat + (random.nextDouble() * 2 - 1) * radius;
+            vessel.lon = centerLon + (random.nextDouble() * 2 - 1) * radius;
+            vessel.cog = random.nextDouble() * 360.0;
+            vessel.sog = vessel.classB ? 3.0 + random.nextDouble() * 12.0 : 8.0 + random.nextDouble() * 14.0;
+            vessel.name = "SIM " + i;
+            vessels.add(vessel);
+        }
+    }
+
+    /**
+     * Returns the next message of the stream
+     * 
+     * @return the next message of the stream
+     */
+    public AisMessage next() {
+        messageNo++;
+        if (atonCount > 0 && messageNo % ATON_INTERVAL == 0) {
+            return nextAton();
+        }
+
+        SimVessel vessel = vessels.get(nextVessel);
+        nextVessel = (nextVessel + 1) % vessels.size();
+        vessel.reports++;
+
+        if (vessel.reports % STATIC_DATA_INTERVAL == 0) {
+            return vessel.classB ? staticDataReport(vessel) : staticAndVoyageData(vessel);
+        }
+        vessel.move(timeStep);
+        return vessel.classB ? classBPositionReport(vessel) : classAPositionReport(vessel);
+    }
+
+    /**
+     * Returns a class A position report, message 1, 2 or 3
+     */
+    private AisMessage classAPositionReport(SimVessel vessel) {
+        AisPositionMessage msg;
+        switch ((int) (vessel.reports % 3)) {
+        case 0:
+            msg = new AisMessage1();
+            break;
+        case 1:
+            msg = new AisMessage2();
+            break;
+        default:
+            msg = new AisMessage3();
+        }
+        msg.setUserId(vessel.mmsi);
+        msg.setNavStatus(0);
+        msg.setRot(0);
+        msg.setSog((int) Math.round(vessel.sog * 10));
+        msg.setPosAcc(1);
+        msg.setPos(new AisPosition(Position.create(vessel.lat, vessel.lon)));
+        msg.setCog((int) Math.round(vessel.cog * 10) % 3600);
+        msg.setTrueHeading((int) Math.round(vessel.cog) % 360);
+        msg.setUtcSec((int) (messageNo % 60));
+        return msg;
+    }
+
+    /**
+     * Returns a class B position report, message 18
+     */
+    private AisMessage classBPositionReport(SimVessel vessel) {
+        AisMessage18 msg = new AisMessage18();
+        msg.setUserId(vessel.mmsi);
+        msg.setSog((int) Math.round(vessel.sog * 10));
+        msg.setPosAcc(1);
+        msg.setPos(new AisPosition(Position.create(vessel.lat, vessel.lon)));
+        msg.setCog((int) Math.round(vessel.cog * 10) % 3600);
+        msg.setTrueHeading(511);
+        msg.setUtcSec((int) (messageNo % 60));
+        return msg;
+    }
+
+    /**
+     * Returns a class A static and voyage related data message, message 5
+     */
+    private AisMessage staticAndVoyageData(SimVessel vessel) {
+        AisMessage5 msg = new AisMessage5();
+        msg.setUserId(vessel.mmsi);
+        msg.setImo(9000000 + vessel.mmsi % 1000000);
+        msg.setCallsign("SIM" + vessel.mmsi % 10000);
+        msg.setName(vessel.name);
+        msg.setShipType(70);
+        msg.setDimBow(150);
+        msg.setDimStern(30);
+        msg.setDimPort(12);
+        msg.setDimStarboard(12);
+        msg.setDraught(85);
+        msg.setDest("AARHUS");
+        return msg;
+    }
+
+    /**
+     * Returns a class B static data report, message 24 alternating between part A and B
+     */
+    private AisMessage staticDataReport(SimVessel vessel) {
+        AisMessage24 msg = new AisMessage24();
+        msg.setUserId(vessel.mmsi);
+        if ((vessel.reports / STATIC_DATA_INTERVAL) % 2 == 0) {
+            msg.setPartNumber(0);
+            msg.setName(vessel.name);
+        } else {
+            msg.setPartNumber(1);
+            msg.setShipType(37);
+            msg.setCallsign("SIM" + vessel.mmsi % 10000);
+            msg.setDimBow(10);
+            msg.setDimStern(2);
+            msg.setDimPort(2);
+            msg.setDimStarboard(2);
+        }
+        return msg;
+    }
+
+    /**
+     * Returns an AtoN report, message 21
+     */
+    private AisMessage nextAton() {
+        int no = nextAton;
+        nextAton = (nextAton + 1) % atonCount;
+        Random atonRandom = new Random(no);
+        AisMessage21 msg = new AisMessage21();
+        msg.setUserId(FIRST_ATON_MMSI + no);
+        msg.setAtonType(atonRandom.nextInt(30) + 1);
+        msg.setName("SIM ATON " + no);
+        msg.setPos(new AisPosition(Position.create(centerLat + (atonRandom.nextDouble() * 2 - 1) * radius, centerLon
+                + (atonRandom.nextDouble() * 2 - 1) * radius)));
+        return msg;
+    }
+
+    /**
+     * Returns the number of messages generated
+     * @return the number of messages generated
+     */
+    public long getMessageCount() {
+        return messageNo;
+    }
+
+    /**
+     * A simulated vessel moving along a course with occasional course changes
+     */
+    private final class SimVessel {
+        int mmsi;
+        boolean classB;
+        double lat;
+        double lon;
+        double cog;
+        double sog;
+        String name;
+        long reports;
+
+        void move(double seconds) {
+            // Occasional course changes
+            if (random.nextInt(50) == 0) {
+                cog = (cog + random.nextGaussian() * 30.0 + 360.0) % 360.0;
+            }
+            double distanceNm = sog * seconds / 3600.0;
+            lat += distanceNm / 60.0 * Math.cos(Math.toRadians(cog));
+            lon += distanceNm / 60.0 * Math.sin(Math.toRadians(cog)) / Math.cos(Math.toRadians(lat));
+
+            // Turn around at the edge of the area
+            if (Math.abs(lat - centerLat) > radius || Math.abs(lon - centerLon) > radius) {
+                cog = (cog + 180.0) % 360.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+
+public class HistoryListTest {
+
+    private static HistoryPosition pos(double lat, double lon) {
+        return new HistoryPosition(Position.create(lat, lon), 50000f);
+    }
+
+    private static HistoryList filled(int capacity, int count) {
+        HistoryList history = new HistoryList(capacity);
+        for (int i = 0; i < count; i++) {
+            history.addHistoryElement(pos(55 + i, 11), true);
+        }
+        return history;
+    }
+
+    private static HistoryList smallPans() {
+        HistoryList history = new HistoryList();
+        history.addHistoryElement(pos(55, 11), true);
+        history.addHistoryElement(pos(56, 11), true);
+        history.addHistoryElement(pos(56.001, 11), true);
+        history.addHistoryElement(pos(56.002, 11), true);
+        history.addHistoryElement(pos(56.003, 11), true);
+        return history;
+    }
+
+    @Test
+    public void boundedSizeTest() {
+        Assert.assertEquals(10, filled(10, 25).size());
+    }
+
+    @Test
+    public void boundedPointerTest() {
+        HistoryList history = filled(10, 25);
+        Assert.assertTrue(history.isAtHighestElement());
+        Assert.assertEquals(9, history.getPointerInHistory());
+    }
+
+    @Test
+    public void boundedDropsOldestTest() {
+        HistoryList history = filled(10, 25);
+        Assert.assertEquals(78.0, history.goOneHistoryElementBack().getPosition().getLatitude(), 1e-6);
+    }
+
+    @Test
+    public void coalesceSmallPansTest() {
+        // The run of small pans collapses to its start and end
+        Assert.assertEquals(3, smallPans().size());
+    }
+
+    @Test
+    public void coalesceKeepsRunStartTest() {
+        HistoryList history = smallPans();
+        Assert.assertEquals(56.0, history.goOneHistoryElementBack().getPosition().getLatitude(), 1e-6);
+        Assert.assertEquals(55.0, history.goOneHistoryElementBack().getPosition().getLatitude(), 1e-6);
+    }
+
+    @Test
+    public void coalesceForwardTest() {
+        HistoryList history = smallPans();
+        history.goOneHistoryElementBack();
+        history.goOneHistoryElementBack();
+        Assert.assertEquals(56.0, history.goOneHistoryElementForward().getPosition().getLatitude(), 1e-6);
+    }
+
+    @Test
+    public void resetOnAddTest() {
+        HistoryList history = filled(20, 3);
+        history.goOneHistoryElementBack();
+        history.addHistoryElement(pos(58, 11), true);
+        Assert.assertEquals(2, history.size());
+    }
+
+    @Test
+    public void resetOnAddPointerTest() {
+        HistoryList history = filled(20, 3);
+        history.goOneHistoryElementBack();
+        history.addHistoryElement(pos(58, 11), true);
+        Assert.assertTrue(history.isAtHighestElement());
+    }
+}
@@ -0,0 +1,139 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.layers.util;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.omGraphics.OMLine;
+import com.bbn.openmap.omGraphics.OMRect;
+import com.bbn.openmap.proj.Mercator;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+
+public class GraphicSpatialIndexTest {
+
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    private final Projection projection = new Mercator(new LatLonPoint.Double(56.0, 10.0), 100000f, WIDTH, HEIGHT);
+    private final OMGraphicList list = new OMGraphicList();
+
+    /**
+     * Adds a generated screen-space rectangle to the list
+     */
+    private OMRect rect(int x1, int y1, int x2, int y2) {
+        OMRect rect = new OMRect(x1, y1, x2, y2);
+        rect.generate(projection);
+        list.add(rect);
+        return rect;
+    }
+
+    private GraphicSpatialIndex index() {
+        return new GraphicSpatialIndex(list, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void findAllTest() {
+        OMRect near = rect(10, 10, 20, 20);
+        rect(300, 300, 310, 310);
+
+        Assert.assertEquals(Arrays.<OMGraphic> asList(near), index().findAll(15, 15, 2f));
+        Assert.assertTrue(index().findAll(150, 150, 2f).isEmpty());
+    }
+
+    @Test
+    public void firstAddedOnTopTest() {
+        OMRect first = rect(10, 10, 40, 40);
+        OMRect second = rect(20, 20, 50, 50);
+
+        Assert.assertEquals(Arrays.<OMGraphic> asList(first, second), index().findAll(30, 30, 2f));
+    }
+
+    @Test
+    public void lastAddedOnTopTest() {
+        OMRect first = rect(10, 10, 40, 40);
+        OMRect second = rect(20, 20, 50, 50);
+        list.setTraverseMode(OMGraphicList.LAST_ADDED_ON_TOP);
+
+        Assert.assertEquals(Arrays.<OMGraphic> asList(second, first), index().findAll(30, 30, 2f));
+    }
+
+    @Test
+    public void nestedListTest() {
+        OMRect first = rect(10, 10, 40, 40);
+        OMGraphicList nested = new OMGraphicList();
+        OMRect inner = new OMRect(20, 20, 50, 50);
+        inner.generate(projection);
+        nested.add(inner);
+        list.add(nested);
+
+        Assert.assertEquals(Arrays.<OMGraphic> asList(first, inner), index().findAll(30, 30, 2f));
+    }
+
+    @Test
+    public void selectedGraphicTypeTest() {
+        rect(10, 10, 40, 40);
+        OMLine line = new OMLine(0, 25, 50, 25);
+        line.generate(projection);
+        list.add(line);
+
+        Assert.assertSame(line, index().getSelectedGraphic(25, 25, 2f, OMLine.class));
+    }
+
+    @Test
+    public void currentTest() {
+        rect(10, 10, 20, 20);
+        Assert.assertTrue(index().isCurrent(list));
+    }
+
+    @Test
+    public void addedGraphicTest() {
+        rect(10, 10, 20, 20);
+        GraphicSpatialIndex index = index();
+        rect(30, 30, 40, 40);
+        Assert.assertFalse(index.isCurrent(list));
+    }
+
+    @Test
+    public void removedGraphicTest() {
+        OMRect rect = rect(10, 10, 20, 20);
+        GraphicSpatialIndex index = index();
+        list.remove(rect);
+        Assert.assertFalse(index.isCurrent(list));
+    }
+
+    @Test
+    public void hiddenGraphicTest() {
+        OMRect rect = rect(10, 10, 20, 20);
+        GraphicSpatialIndex index = index();
+        rect.setVisible(false);
+        Assert.assertFalse(index.isCurrent(list));
+    }
+
+    @Test
+    public void regeneratedGraphicTest() {
+        OMRect rect = rect(10, 10, 20, 20);
+        GraphicSpatialIndex index = index();
+        rect.setLocation(100, 100, 110, 110);
+        rect.generate(projection);
+        Assert.assertFalse(index.isCurrent(list));
+    }
+}
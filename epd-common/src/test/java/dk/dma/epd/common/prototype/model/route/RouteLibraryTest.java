@@ -0,0 +1,132 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.route;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
+import dk.dma.epd.common.prototype.settings.NavSettings;
+import dk.dma.epd.common.text.Formatter;
+
+public class RouteLibraryTest {
+
+    private Path home;
+    private File dir;
+    private RouteLibrary library;
+
+    @BeforeClass
+    public static void init() {
+        PntTime.init();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        home = Files.createTempDirectory("routelibrary");
+        dir = Files.createDirectories(home.resolve("routes")).toFile();
+        writeRoute(new File(dir, "north.txt"), "North", new double[][] { { 57, 10 }, { 57.5, 10.5 }, { 58, 11 } });
+        writeRoute(new File(dir, "south.txt"), "South", new double[][] { { 54, 11 }, { 54.5, 12 } });
+        writeRoute(new File(dir, "ignored.dat"), "Ignored", new double[][] { { 54, 11 }, { 54.5, 12 } });
+        library = new RouteLibrary(home);
+    }
+
+    @After
+    public void tearDown() {
+        delete(home.toFile());
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void writeRoute(File file, String name, double[][] positions) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println(name + "\tCopenhagen\tAarhus");
+            for (int i = 0; i < positions.length; i++) {
+                out.println("WP_" + i + "\t" + Formatter.latToPrintable(positions[i][0]) + "\t"
+                        + Formatter.lonToPrintable(positions[i][1]) + "\t10.00\t1\t0.100\t0.500");
+            }
+        }
+    }
+
+    @Test
+    public void importTest() throws Exception {
+        Assert.assertEquals(2, library.importDirectory(dir, new NavSettings()));
+        Assert.assertEquals(2, library.size());
+    }
+
+    @Test
+    public void reimportUnchangedTest() throws Exception {
+        library.importDirectory(dir, new NavSettings());
+        Assert.assertEquals(0, library.importDirectory(dir, new NavSettings()));
+    }
+
+    @Test
+    public void searchByTextTest() throws Exception {
+        library.importDirectory(dir, new NavSettings());
+        List<RouteLibraryEntry> found = library.search("nor", null, null, null);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(3, found.get(0).getWaypointCount());
+        Assert.assertEquals(57.0, found.get(0).getMinLat(), 1e-3);
+    }
+
+    @Test
+    public void searchByBoundsTest() throws Exception {
+        library.importDirectory(dir, new NavSettings());
+        List<RouteLibraryEntry> found = library.search(null, new double[] { 54.2, 11.5, 54.3, 11.6 }, null, null);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals("South", found.get(0).getName());
+    }
+
+    @Test
+    public void removeMissingTest() throws Exception {
+        library.importDirectory(dir, new NavSettings());
+        Assert.assertTrue(new File(dir, "north.txt").delete());
+        Assert.assertEquals(1, library.removeMissing());
+        Assert.assertEquals(1, library.size());
+    }
+
+    @Test
+    public void reloadTest() throws Exception {
+        library.importDirectory(dir, new NavSettings());
+        library.saveToFile();
+        Assert.assertEquals(2, RouteLibrary.loadFromFile(home).size());
+    }
+
+    @Test
+    public void loadRouteTest() throws Exception {
+        library.importDirectory(dir, new NavSettings());
+        Route route = library.loadRoute(library.search("south", null, null, null).get(0), new NavSettings());
+        Assert.assertEquals(2, route.getWaypoints().size());
+    }
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.model.voct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.model.voct.SearchPatternGenerator.searchPattern;
+import dk.dma.epd.common.prototype.model.voct.sardata.EffortAllocationData;
+import dk.dma.epd.common.prototype.model.voct.sardata.SearchPatternRoute;
+
+public class SearchPatternPlannerTest {
+
+    private static final double LAT = 56.0;
+    private static final double LON = 10.0;
+
+    /**
+     * Returns the position x nm east and y nm south of the A corner
+     */
+    private static Position pos(double x, double y) {
+        return Position.create(LAT - y / 60.0, LON + x / (60.0 * Math.cos(Math.toRadians(LAT))));
+    }
+
+    /**
+     * A 1 x 1 nm effective area searched with a 0.25 nm sweep width
+     */
+    private static EffortAllocationData area() {
+        EffortAllocationData data = new EffortAllocationData();
+        data.setW(0.25);
+        data.setTrackSpacing(0.25);
+        data.setEffectiveAreaA(pos(0, 0));
+        data.setEffectiveAreaB(pos(1, 0));
+        data.setEffectiveAreaC(pos(0, 1));
+        data.setEffectiveAreaD(pos(1, 1));
+        return data;
+    }
+
+    /**
+     * Returns a parallel sweep route with the given number of 0.25 nm spaced tracks
+     */
+    private static SearchPatternRoute sweep(int tracks) {
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < tracks; i++) {
+            double y = 0.125 + i * 0.25;
+            positions.add(pos(i % 2 == 0 ? 0 : 1, y));
+            positions.add(pos(i % 2 == 0 ? 1 : 0, y));
+        }
+        return new SearchPatternRoute(positions);
+    }
+
+    private static SearchPatternCandidate score(SearchPatternRoute route) {
+        return SearchPatternPlanner.score(searchPattern.Parallel_Sweep_Search, 0, pos(0, 0), area(), route);
+    }
+
+    @Test
+    public void fullSweepCoverageTest() {
+        SearchPatternCandidate candidate = score(sweep(4));
+        Assert.assertEquals(1.0, candidate.getCoverage(), 1e-9);
+        Assert.assertTrue(candidate.getPod() >= 1 - Math.exp(-1));
+    }
+
+    @Test
+    public void partialSweepCoverageTest() {
+        SearchPatternCandidate full = score(sweep(4));
+        SearchPatternCandidate half = score(sweep(2));
+        Assert.assertEquals(0.5, half.getCoverage(), 1e-9);
+        Assert.assertTrue(half.getPod() < full.getPod());
+    }
+
+    @Test
+    public void trackLengthTest() {
+        // Four 1 nm tracks joined by three 0.25 nm legs
+        Assert.assertEquals(4.75, score(sweep(4)).getTrackLength(), 0.01);
+    }
+
+    @Test
+    public void orientationTest() {
+        Assert.assertEquals(90.0, score(sweep(4)).getOrientation(), 0.1);
+    }
+
+    @Test
+    public void transposedAreaTest() {
+        // Aligning the area with the A-C edge must not change the coverage of the same route
+        EffortAllocationData transposed = area();
+        transposed.setEffectiveAreaB(pos(0, 1));
+        transposed.setEffectiveAreaC(pos(1, 0));
+        SearchPatternCandidate candidate = SearchPatternPlanner.score(searchPattern.Parallel_Sweep_Search, 0,
+                pos(0, 0), transposed, sweep(4));
+        Assert.assertEquals(1.0, candidate.getCoverage(), 1e-9);
+        Assert.assertEquals(180.0, candidate.getOrientation(), 0.1);
+    }
+
+    @Test
+    public void routeOutsideAreaTest() {
+        List<Position> positions = new ArrayList<>();
+        positions.add(pos(0, 5));
+        positions.add(pos(1, 5));
+        SearchPatternCandidate candidate = score(new SearchPatternRoute(positions));
+        Assert.assertEquals(0.0, candidate.getCoverage(), 1e-9);
+        Assert.assertEquals(0.0, candidate.getPod(), 1e-9);
+    }
+
+    @Test
+    public void singleWaypointRouteTest() {
+        List<Position> positions = new ArrayList<>();
+        positions.add(pos(0.5, 0.5));
+        Assert.assertNull(score(new SearchPatternRoute(positions)));
+    }
+
+    @Test
+    public void candidateOrderTest() {
+        SearchPatternCandidate best = new SearchPatternCandidate(searchPattern.Parallel_Sweep_Search, 0, null, 90.0, 0.25,
+                null, 0.6, 0.9, 5.0);
+        SearchPatternCandidate shorter = new SearchPatternCandidate(searchPattern.Creeping_Line_Search, 0, null, 90.0, 0.25,
+                null, 0.5, 0.9, 4.0);
+        SearchPatternCandidate longer = new SearchPatternCandidate(searchPattern.Creeping_Line_Search, 0, null, 90.0, 0.25,
+                null, 0.5, 0.9, 6.0);
+        SearchPatternCandidate worst = new SearchPatternCandidate(searchPattern.Expanding_Square_Search, 0, null, 90.0, 0.25,
+                null, 0.5, 0.4, 1.0);
+
+        List<SearchPatternCandidate> candidates = new ArrayList<>();
+        Collections.addAll(candidates, worst, longer, best, shorter);
+        Collections.sort(candidates);
+        Assert.assertSame(best, candidates.get(0));
+        Assert.assertSame(shorter, candidates.get(1));
+        Assert.assertSame(longer, candidates.get(2));
+        Assert.assertSame(worst, candidates.get(3));
+    }
+}
@@ -0,0 +1,119 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.monalisa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteWaypoint;
+import dk.dma.epd.common.prototype.monalisa.sspa.RouterequestType;
+import dk.dma.epd.common.prototype.monalisa.sspa.RouteresponseType;
+import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
+
+/**
+ * Tests the Mona Lisa route optimization against a local stand-in optimizer
+ */
+public class MonaLisaRouteOptimizationTest {
+
+    private static final List<Boolean> ALL_WPS = Arrays.asList(true, true, true);
+
+    private MonaLisaRouteOptimizationCommon optimization;
+    private StandInOptimizer optimizer;
+    private Route route;
+
+    @Before
+    public void setUp() {
+        optimizer = new StandInOptimizer();
+        optimization = new MonaLisaRouteOptimizationCommon();
+        optimization.findAndInit(optimizer);
+
+        route = new Route();
+        List<Date> etas = new ArrayList<>();
+        for (int i = 0; i < ALL_WPS.size(); i++) {
+            RouteWaypoint wp = new RouteWaypoint();
+            wp.setName("WP " + i);
+            wp.setPos(Position.create(55.0 + i * 0.1, 11.0 + i * 0.1));
+            route.getWaypoints().add(wp);
+            etas.add(new Date(1400000000000L + i * 3600000L));
+        }
+        route.setEtas(etas);
+    }
+
+    @Test
+    public void cachedRequestTest() {
+        MonaLisaOptimizationResponse response = optimize(6.0f);
+        Assert.assertNotNull(response.getOptimizedRoute());
+        Assert.assertEquals(3, response.getOptimizedRoute().getWaypoints().size());
+        Assert.assertEquals(1, optimizer.requests.get());
+
+        // Same route, ship data and options
+        response = optimize(6.0f);
+        Assert.assertNotNull(response.getOptimizedRoute());
+        Assert.assertEquals(1, optimizer.requests.get());
+
+        // Changed draft
+        optimize(7.0f);
+        Assert.assertEquals(2, optimizer.requests.get());
+        Assert.assertEquals(2, optimization.getCache().size());
+    }
+
+    @Test
+    public void asyncRequestTest() throws Exception {
+        MonaLisaOptimizationResponse response = optimization.makeRouteRequestAsync(
+                route, false, 6.0f, 2, 10, ALL_WPS, false, false, null).get(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(response.getOptimizedRoute());
+        Assert.assertEquals(1, optimizer.requests.get());
+    }
+
+    private MonaLisaOptimizationResponse optimize(float draft) {
+        RouterequestType request = optimization.convertRoute(route, false, draft, 2, ALL_WPS);
+        return optimization.optimizeRoute(request, 10, false, false, null);
+    }
+
+    /**
+     * Stand-in optimizer that echoes the requested route
+     */
+    private static class StandInOptimizer extends ShoreServicesCommon {
+
+        final AtomicInteger requests = new AtomicInteger();
+
+        StandInOptimizer() {
+            super(null);
+        }
+
+        @Override
+        public SSPAResponse makeMonaLisaRouteRequest(RouterequestType monaLisaRoute, int timeout, boolean showInput,
+                boolean showOutput) {
+            requests.incrementAndGet();
+            RouteresponseType response = new RouteresponseType();
+            response.setRoute(monaLisaRoute.getRoute());
+            response.setFuelRequested(100.0f);
+            response.setFuelFinal(90.0f);
+            response.setUkcActual(2.0f);
+            return new SSPAResponse(response, "Success");
+        }
+    }
+}
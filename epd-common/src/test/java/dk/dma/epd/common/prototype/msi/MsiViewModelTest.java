@@ -0,0 +1,189 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.msi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.frv.enav.common.xml.msi.MsiMessage;
+
+public class MsiViewModelTest {
+
+    private final MsiViewModel viewModel = new MsiViewModel();
+    private final Map<Integer, MsiMessage> messages = new TreeMap<>();
+    private final Set<Integer> acknowledged = new HashSet<>();
+    private final Set<Integer> visible = new HashSet<>();
+    private final Set<Integer> relevant = new HashSet<>();
+
+    private final List<MsiMessageExtended> changed = new ArrayList<>();
+    private final List<MsiMessageExtended> removed = new ArrayList<>();
+    private final IMsiViewListener listener = new IMsiViewListener() {
+        @Override
+        public void msiViewChanged(List<MsiMessageExtended> changedMessages, List<MsiMessageExtended> removedMessages) {
+            changed.addAll(changedMessages);
+            removed.addAll(removedMessages);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        for (int id = 1; id <= 4; id++) {
+            messages.put(id, new MsiMessage());
+        }
+        visible.addAll(Arrays.asList(1, 3));
+        acknowledged.add(1);
+        viewModel.update(messages, acknowledged, visible, relevant);
+
+        viewModel.addListener(listener);
+    }
+
+    @Test
+    public void countersTest() {
+        Assert.assertEquals(4, viewModel.getMessages().size());
+        Assert.assertEquals(3, viewModel.getUnacknowledgedCount());
+        Assert.assertEquals(1, viewModel.getUnacknowledgedFilteredCount());
+    }
+
+    @Test
+    public void filteredListTest() {
+        List<MsiMessageExtended> filtered = viewModel.getFilteredMessages();
+        Assert.assertEquals(2, filtered.size());
+        Assert.assertSame(messages.get(1), filtered.get(0).msiMessage);
+        Assert.assertSame(messages.get(3), filtered.get(1).msiMessage);
+    }
+
+    @Test
+    public void orderTest() {
+        List<MsiMessageExtended> all = viewModel.getMessages();
+        for (int i = 0; i < all.size(); i++) {
+            Assert.assertSame(messages.get(i + 1), all.get(i).msiMessage);
+        }
+    }
+
+    @Test
+    public void unchangedTest() {
+        long version = viewModel.getVersion();
+        Assert.assertFalse(viewModel.update(messages, acknowledged, visible, relevant));
+        Assert.assertTrue(changed.isEmpty());
+        Assert.assertTrue(removed.isEmpty());
+        Assert.assertEquals(version, viewModel.getVersion());
+    }
+
+    @Test
+    public void changedTest() {
+        visible.add(2);
+        Assert.assertTrue(viewModel.update(Arrays.asList(2, 4), messages, acknowledged, visible, relevant));
+
+        Assert.assertEquals(1, changed.size());
+        Assert.assertSame(messages.get(2), changed.get(0).msiMessage);
+        Assert.assertTrue(changed.get(0).visible);
+        Assert.assertTrue(removed.isEmpty());
+        Assert.assertEquals(3, viewModel.getFilteredMessages().size());
+        Assert.assertEquals(2, viewModel.getUnacknowledgedFilteredCount());
+    }
+
+    @Test
+    public void replacedMessageTest() {
+        messages.put(4, new MsiMessage());
+        viewModel.update(Arrays.asList(4), messages, acknowledged, visible, relevant);
+
+        Assert.assertEquals(1, changed.size());
+        Assert.assertSame(messages.get(4), viewModel.getMessages().get(3).msiMessage);
+    }
+
+    @Test
+    public void removedTest() {
+        MsiMessage message = messages.remove(3);
+        viewModel.update(Arrays.asList(3), messages, acknowledged, visible, relevant);
+
+        Assert.assertTrue(changed.isEmpty());
+        Assert.assertEquals(1, removed.size());
+        Assert.assertSame(message, removed.get(0).msiMessage);
+        Assert.assertEquals(3, viewModel.getMessages().size());
+        Assert.assertEquals(1, viewModel.getFilteredMessages().size());
+        Assert.assertEquals(2, viewModel.getUnacknowledgedCount());
+        Assert.assertEquals(0, viewModel.getUnacknowledgedFilteredCount());
+    }
+
+    @Test
+    public void acknowledgeTest() {
+        Assert.assertTrue(viewModel.acknowledge(3));
+        Assert.assertFalse(viewModel.acknowledge(3));
+        Assert.assertFalse(viewModel.acknowledge(42));
+
+        Assert.assertEquals(1, changed.size());
+        Assert.assertTrue(changed.get(0).acknowledged);
+        Assert.assertEquals(2, viewModel.getUnacknowledgedCount());
+        Assert.assertEquals(0, viewModel.getUnacknowledgedFilteredCount());
+    }
+
+    @Test
+    public void removeTest() {
+        Assert.assertTrue(viewModel.remove(2));
+        Assert.assertFalse(viewModel.remove(2));
+
+        Assert.assertEquals(1, removed.size());
+        Assert.assertEquals(3, viewModel.getMessages().size());
+        Assert.assertEquals(2, viewModel.getUnacknowledgedCount());
+    }
+
+    @Test
+    public void removeListenerTest() {
+        viewModel.removeListener(listener);
+        Assert.assertTrue(viewModel.remove(2));
+        Assert.assertTrue(removed.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotUnmodifiableTest() {
+        viewModel.getMessages().clear();
+    }
+
+    @Test
+    public void snapshotCachedTest() {
+        List<MsiMessageExtended> all = viewModel.getMessages();
+        List<MsiMessageExtended> filtered = viewModel.getFilteredMessages();
+        Assert.assertSame(all, viewModel.getMessages());
+
+        // Changing a hidden message keeps the filtered snapshot
+        viewModel.acknowledge(2);
+        Assert.assertNotSame(all, viewModel.getMessages());
+        Assert.assertSame(filtered, viewModel.getFilteredMessages());
+        Assert.assertEquals(4, all.size());
+        Assert.assertFalse(all.get(1).acknowledged);
+    }
+
+    @Test
+    public void firstNonAcknowledgedTest() {
+        Assert.assertEquals(1, viewModel.getFirstNonAcknowledged());
+        Assert.assertEquals(1, viewModel.getFirstNonAcknowledgedFiltered());
+
+        viewModel.acknowledge(2);
+        viewModel.acknowledge(3);
+        Assert.assertEquals(3, viewModel.getFirstNonAcknowledged());
+        // All visible messages are acknowledged
+        Assert.assertEquals(1, viewModel.getFirstNonAcknowledgedFiltered());
+    }
+}
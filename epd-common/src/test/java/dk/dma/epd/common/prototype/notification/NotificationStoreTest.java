@@ -0,0 +1,144 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
+import dk.dma.epd.common.prototype.notification.NotificationAlert.AlertType;
+
+public class NotificationStoreTest {
+
+    private final NotificationStore<GeneralNotification> store = new NotificationStore<>();
+    private final List<GeneralNotification> triggered = new ArrayList<>();
+    private final NotificationStore.AlertHandler<GeneralNotification> handler = new NotificationStore.AlertHandler<GeneralNotification>() {
+        @Override
+        public void triggerAlert(GeneralNotification notification, NotificationAlert alert) {
+            triggered.add(notification);
+            alert.flagTriggered();
+        }
+    };
+
+    private GeneralNotification n1;
+    private GeneralNotification n2;
+    private GeneralNotification n3;
+
+    private static GeneralNotification notification(long id, NotificationSeverity severity) {
+        GeneralNotification notification = new GeneralNotification(null, id);
+        notification.setSeverity(severity);
+        return notification;
+    }
+
+    @Before
+    public void setUp() {
+        n1 = notification(1L, NotificationSeverity.ALERT);
+        n2 = notification(2L, NotificationSeverity.WARNING);
+        n3 = notification(3L, NotificationSeverity.ALERT);
+        store.add(n1);
+        store.add(n2);
+        store.add(n3);
+    }
+
+    /**
+     * Adds a notification with a one-off alert and one with a repeating alert
+     */
+    private GeneralNotification addAlerts() {
+        GeneralNotification once = notification(4L, NotificationSeverity.MESSAGE);
+        once.addAlerts(new NotificationAlert(AlertType.BEEP));
+        GeneralNotification repeating = notification(5L, NotificationSeverity.ALERT);
+        repeating.addAlerts(new NotificationAlert(AlertType.POPUP).setRepeatEvery(1));
+        store.add(once);
+        store.add(repeating);
+        return repeating;
+    }
+
+    @Test
+    public void countersTest() {
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(3, store.getUnreadCount());
+        Assert.assertEquals(2, store.getCount(NotificationSeverity.ALERT));
+        Assert.assertEquals(2, store.getUnacknowledgedCount(NotificationSeverity.ALERT));
+    }
+
+    @Test
+    public void lookupTest() {
+        Assert.assertSame(n2, store.getById(2L));
+        Assert.assertEquals(2, store.indexOf(3L));
+    }
+
+    @Test
+    public void readTest() {
+        store.setRead(n1, true);
+        Assert.assertEquals(2, store.getUnreadCount());
+        Assert.assertEquals(2, store.getUnacknowledgedCount(NotificationSeverity.ALERT));
+    }
+
+    @Test
+    public void acknowledgeTest() {
+        store.setAcknowledged(n1, true);
+        Assert.assertEquals(1, store.getUnacknowledgedCount(NotificationSeverity.ALERT));
+        Assert.assertEquals(2, store.getCount(NotificationSeverity.ALERT));
+        Assert.assertEquals(1, store.getFirstUnacknowledgedIndex());
+    }
+
+    @Test
+    public void removeTest() {
+        Assert.assertTrue(store.remove(n3));
+        Assert.assertFalse(store.remove(n3));
+        Assert.assertNull(store.getById(3L));
+        Assert.assertEquals(1, store.getCount(NotificationSeverity.ALERT));
+        Assert.assertEquals(1, store.getUnacknowledgedCount(NotificationSeverity.ALERT));
+    }
+
+    @Test
+    public void initialAlertsTest() {
+        addAlerts();
+        Assert.assertEquals(0L, store.getNextAlertTime());
+        store.triggerDueAlerts(System.currentTimeMillis(), handler);
+        Assert.assertEquals(2, triggered.size());
+    }
+
+    @Test
+    public void repeatingAlertTest() {
+        addAlerts();
+        long now = System.currentTimeMillis();
+        store.triggerDueAlerts(now, handler);
+
+        // Only the repeating alert is still indexed, about a minute from now
+        long next = store.getNextAlertTime();
+        Assert.assertTrue(next > now);
+        store.triggerDueAlerts(now, handler);
+        Assert.assertEquals(2, triggered.size());
+    }
+
+    @Test
+    public void acknowledgeStopsAlertTest() {
+        GeneralNotification repeating = addAlerts();
+        long now = System.currentTimeMillis();
+        store.triggerDueAlerts(now, handler);
+        long next = store.getNextAlertTime();
+
+        store.setAcknowledged(repeating, true);
+        store.triggerDueAlerts(next, handler);
+        Assert.assertEquals(2, triggered.size());
+        Assert.assertEquals(-1L, store.getNextAlertTime());
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.route;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteUpdate;
+import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
+
+public class RouteEventBusTest {
+
+    private final Route route1 = new Route();
+    private final Route route2 = new Route();
+
+    private static List<RouteUpdate> coalesce(RouteUpdate... updates) {
+        List<RouteUpdate> pending = new LinkedList<>();
+        for (RouteUpdate update : updates) {
+            RouteEventBus.coalesce(pending, update);
+        }
+        return pending;
+    }
+
+    private static RouteUpdate update(RoutesUpdateEvent event, Route route) {
+        return new RouteUpdate(event, route, 0, -1);
+    }
+
+    @Test
+    public void coalesceSameEventTest() {
+        RouteUpdate first = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        RouteUpdate second = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        List<RouteUpdate> pending = coalesce(first, second);
+        Assert.assertEquals(1, pending.size());
+        Assert.assertSame(second, pending.get(0));
+    }
+
+    @Test
+    public void coalesceKeepsRouteOrderTest() {
+        RouteUpdate changed = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        RouteUpdate moved = update(RoutesUpdateEvent.ROUTE_WAYPOINT_DELETED, route1);
+        RouteUpdate changedAgain = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        List<RouteUpdate> pending = coalesce(changed, moved, changedAgain);
+
+        // The second change may not be moved before the other update of the route
+        Assert.assertEquals(3, pending.size());
+        Assert.assertSame(changed, pending.get(0));
+        Assert.assertSame(changedAgain, pending.get(2));
+    }
+
+    @Test
+    public void coalesceAcrossOtherRoutesTest() {
+        RouteUpdate first = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        RouteUpdate other = update(RoutesUpdateEvent.ROUTE_CHANGED, route2);
+        RouteUpdate second = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        List<RouteUpdate> pending = coalesce(first, other, second);
+        Assert.assertEquals(2, pending.size());
+        Assert.assertSame(other, pending.get(0));
+        Assert.assertSame(second, pending.get(1));
+    }
+
+    @Test
+    public void coalesceStopsAtBarrierTest() {
+        RouteUpdate first = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        RouteUpdate barrier = new RouteUpdate(RoutesUpdateEvent.ROUTE_ADDED);
+        RouteUpdate second = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        List<RouteUpdate> pending = coalesce(first, barrier, second);
+        Assert.assertEquals(3, pending.size());
+    }
+
+    @Test
+    public void coalesceBarrierNotMovedTest() {
+        RouteUpdate barrier = new RouteUpdate(RoutesUpdateEvent.ROUTE_ADDED);
+        RouteUpdate changed = update(RoutesUpdateEvent.ROUTE_CHANGED, route1);
+        RouteUpdate barrierAgain = new RouteUpdate(RoutesUpdateEvent.ROUTE_ADDED);
+        List<RouteUpdate> pending = coalesce(barrier, changed, barrierAgain);
+        Assert.assertEquals(Arrays.asList(barrier, changed, barrierAgain), pending);
+    }
+
+    @Test
+    public void coalesceConsecutiveBarriersTest() {
+        RouteUpdate barrier = new RouteUpdate(RoutesUpdateEvent.ROUTE_ADDED);
+        RouteUpdate barrierAgain = new RouteUpdate(RoutesUpdateEvent.ROUTE_ADDED);
+        List<RouteUpdate> pending = coalesce(barrier, barrierAgain);
+        Assert.assertEquals(1, pending.size());
+        Assert.assertSame(barrierAgain, pending.get(0));
+    }
+}
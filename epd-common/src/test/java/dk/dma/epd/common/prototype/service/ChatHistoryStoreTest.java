@@ -0,0 +1,230 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import net.maritimecloud.core.id.MaritimeId;
+import net.maritimecloud.core.id.MmsiId;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.enavcloud.ChatService.ChatServiceMessage;
+import dk.dma.epd.common.prototype.service.ChatHistoryStore.ChatHistoryEntry;
+
+public class ChatHistoryStoreTest {
+
+    private static final MaritimeId SHIP = new MmsiId(219000001);
+    private static final MaritimeId OTHER_SHIP = new MmsiId(219000002);
+    private static final long BASE = System.currentTimeMillis() - 3600000L;
+    private static final long MAX_AGE = 3600000L;
+
+    private Path home;
+    private ChatHistoryStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        home = Files.createTempDirectory("chathistory");
+        store = ChatHistoryStore.loadFromFile(home);
+    }
+
+    @After
+    public void tearDown() {
+        delete(home.toFile());
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static ChatServiceMessage message(String text, long sendDate) {
+        return new ChatServiceMessage(text, sendDate, BASE + sendDate, "sender");
+    }
+
+    /**
+     * Adds ten messages with SHIP, every other one incoming, and one incoming from OTHER_SHIP
+     */
+    private void addConversations() {
+        for (int i = 0; i < 10; i++) {
+            store.add(SHIP, message("Message " + i, 1000L * i), i % 2 == 0);
+        }
+        store.add(OTHER_SHIP, message("Hello", 50000L), true);
+    }
+
+    private File historyFile() {
+        return home.resolve(".chathistory").toFile();
+    }
+
+    @Test
+    public void messageCountTest() {
+        addConversations();
+        Assert.assertEquals(10, store.getMessageCount(SHIP));
+        Assert.assertEquals(1, store.getMessageCount(OTHER_SHIP));
+    }
+
+    @Test
+    public void unreadCountTest() {
+        addConversations();
+        Assert.assertEquals(5, store.getUnreadCount(SHIP));
+        Assert.assertEquals(6, store.getUnreadCount());
+    }
+
+    @Test
+    public void conversationOrderTest() {
+        addConversations();
+        Assert.assertEquals((Integer) 219000002, store.getConversations().get(0));
+        Assert.assertEquals((Integer) 219000001, store.getConversations().get(1));
+    }
+
+    @Test
+    public void latestMessagesTest() {
+        addConversations();
+        List<ChatHistoryEntry> latest = store.getMessagesBefore(SHIP, null, 3);
+        Assert.assertEquals(3, latest.size());
+        Assert.assertEquals("Message 7", latest.get(0).getMessage());
+        Assert.assertEquals("Message 9", latest.get(2).getMessage());
+    }
+
+    @Test
+    public void olderMessagesTest() {
+        addConversations();
+        List<ChatHistoryEntry> older = store.getMessagesBefore(SHIP, new Date(BASE + 7000L), 3);
+        Assert.assertEquals(3, older.size());
+        Assert.assertEquals("Message 4", older.get(0).getMessage());
+        Assert.assertEquals("Message 6", older.get(2).getMessage());
+    }
+
+    @Test
+    public void searchTest() {
+        addConversations();
+        List<ChatHistoryEntry> found = store.search("message 3", 10);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals("Message 3", found.get(0).getMessage());
+    }
+
+    @Test
+    public void markReadTest() {
+        addConversations();
+        store.markRead(SHIP);
+        Assert.assertEquals(0, store.getUnreadCount(SHIP));
+        Assert.assertEquals(1, store.getUnreadCount(OTHER_SHIP));
+    }
+
+    @Test
+    public void reloadTest() {
+        addConversations();
+        store.markRead(SHIP);
+
+        ChatHistoryStore reloaded = ChatHistoryStore.loadFromFile(home);
+        Assert.assertEquals(10, reloaded.getMessageCount(SHIP));
+        Assert.assertEquals(0, reloaded.getUnreadCount(SHIP));
+        Assert.assertEquals(1, reloaded.getUnreadCount(OTHER_SHIP));
+    }
+
+    @Test
+    public void truncatesIncompleteRecordTest() throws IOException {
+        store.add(SHIP, message("First", 1000L), true);
+        store.add(SHIP, message("Second", 2000L), true);
+        try (RandomAccessFile raf = new RandomAccessFile(historyFile(), "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        Assert.assertEquals(1, ChatHistoryStore.loadFromFile(home).getMessageCount(SHIP));
+    }
+
+    @Test
+    public void appendAfterTruncationTest() throws IOException {
+        store.add(SHIP, message("First", 1000L), true);
+        store.add(SHIP, message("Second", 2000L), true);
+        try (RandomAccessFile raf = new RandomAccessFile(historyFile(), "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        ChatHistoryStore.loadFromFile(home).add(SHIP, message("Third", 3000L), true);
+        Assert.assertEquals(2, ChatHistoryStore.loadFromFile(home).getMessageCount(SHIP));
+    }
+
+    @Test
+    public void retentionByAgeTest() {
+        store = ChatHistoryStore.loadFromFile(home, 3, MAX_AGE);
+        store.add(SHIP, message("Expired", -1000L), true);
+        Assert.assertEquals(0, store.getMessageCount(SHIP));
+        Assert.assertTrue(store.getConversations().isEmpty());
+    }
+
+    @Test
+    public void retentionByCountTest() {
+        store = ChatHistoryStore.loadFromFile(home, 3, MAX_AGE);
+        for (int i = 0; i < 5; i++) {
+            store.add(SHIP, message("Message " + i, 1000L * i), true);
+        }
+        Assert.assertEquals(3, store.getMessageCount(SHIP));
+        Assert.assertEquals(3, store.getUnreadCount(SHIP));
+        Assert.assertEquals("Message 2", store.getMessages(SHIP, 0, 1).get(0).getMessage());
+    }
+
+    @Test
+    public void retentionOnLoadTest() {
+        for (int i = 0; i < 5; i++) {
+            store.add(SHIP, message("Message " + i, 1000L * i), true);
+        }
+        Assert.assertEquals(3, ChatHistoryStore.loadFromFile(home, 3, MAX_AGE).getMessageCount(SHIP));
+    }
+
+    @Test
+    public void compactShrinksFileTest() {
+        store = ChatHistoryStore.loadFromFile(home, 2, MAX_AGE);
+        for (int i = 0; i < 100; i++) {
+            store.add(SHIP, message("Message " + i, i), i % 2 == 0);
+            store.markRead(SHIP);
+        }
+        long length = historyFile().length();
+
+        Assert.assertTrue(store.compact());
+        Assert.assertTrue(historyFile().length() < length / 10);
+    }
+
+    @Test
+    public void compactKeepsReadStateTest() {
+        store = ChatHistoryStore.loadFromFile(home, 2, MAX_AGE);
+        for (int i = 0; i < 100; i++) {
+            store.add(SHIP, message("Message " + i, i), i % 2 == 0);
+            store.markRead(SHIP);
+        }
+        store.add(SHIP, message("Unread", 100L), true);
+        Assert.assertTrue(store.compact());
+
+        ChatHistoryStore reloaded = ChatHistoryStore.loadFromFile(home, 2, MAX_AGE);
+        Assert.assertEquals(2, reloaded.getMessageCount(SHIP));
+        Assert.assertEquals(1, reloaded.getUnreadCount(SHIP));
+        Assert.assertEquals("Unread", reloaded.getMessages(SHIP, 1, 1).get(0).getMessage());
+    }
+}
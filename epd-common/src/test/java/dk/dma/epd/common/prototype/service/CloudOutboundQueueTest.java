@@ -0,0 +1,154 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+import net.maritimecloud.net.MaritimeCloudClient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
+
+public class CloudOutboundQueueTest {
+
+    private static ICloudSender sender() {
+        return new ICloudSender() {
+            @Override
+            public void send(MaritimeCloudClient connection) {
+            }
+        };
+    }
+
+    @Test
+    public void priorityOrderTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(10);
+        queue.offer(CloudMessagePriority.BULK, "bulk", 0, sender());
+        queue.offer(CloudMessagePriority.NORMAL, "normal", 0, sender());
+        queue.offer(CloudMessagePriority.SAFETY, "safety", 0, sender());
+
+        Assert.assertEquals("safety", queue.poll().getKey());
+        Assert.assertEquals("normal", queue.poll().getKey());
+        Assert.assertEquals("bulk", queue.poll().getKey());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void fifoTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(10);
+        queue.offer(CloudMessagePriority.NORMAL, "a", 0, sender());
+        queue.offer(CloudMessagePriority.NORMAL, "b", 0, sender());
+
+        Assert.assertEquals("a", queue.poll().getKey());
+        Assert.assertEquals("b", queue.poll().getKey());
+    }
+
+    @Test
+    public void coalesceTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(10);
+        ICloudSender latest = sender();
+        queue.offer(CloudMessagePriority.NORMAL, "route", 0, sender());
+        queue.offer(CloudMessagePriority.NORMAL, "route", 0, latest);
+
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals(1, queue.getCoalescedCount());
+        Assert.assertSame(latest, queue.poll().getSender());
+    }
+
+    @Test
+    public void coalesceFullQueueTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(2);
+        ICloudSender latest = sender();
+        queue.offer(CloudMessagePriority.SAFETY, "a", 0, sender());
+        queue.offer(CloudMessagePriority.SAFETY, "b", 0, sender());
+
+        // Supersedes "a" even though nothing can be evicted for a BULK message
+        Assert.assertTrue(queue.offer(CloudMessagePriority.BULK, "a", 0, latest));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(0, queue.getDroppedCount());
+        Assert.assertEquals("b", queue.poll().getKey());
+        Assert.assertSame(latest, queue.poll().getSender());
+    }
+
+    @Test
+    public void evictLowestPriorityTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(2);
+        queue.offer(CloudMessagePriority.NORMAL, "normal", 0, sender());
+        queue.offer(CloudMessagePriority.BULK, "bulk", 0, sender());
+
+        Assert.assertTrue(queue.offer(CloudMessagePriority.SAFETY, "safety", 0, sender()));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(1, queue.getDroppedCount());
+        Assert.assertEquals("safety", queue.poll().getKey());
+        Assert.assertEquals("normal", queue.poll().getKey());
+    }
+
+    @Test
+    public void rejectTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(2);
+        queue.offer(CloudMessagePriority.SAFETY, "a", 0, sender());
+        queue.offer(CloudMessagePriority.SAFETY, "b", 0, sender());
+
+        Assert.assertFalse(queue.offer(CloudMessagePriority.NORMAL, "c", 0, sender()));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(1, queue.getDroppedCount());
+        Assert.assertEquals("a", queue.poll().getKey());
+        Assert.assertEquals("b", queue.poll().getKey());
+    }
+
+    @Test
+    public void expiryTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(10);
+        queue.offer(CloudMessagePriority.NORMAL, "expired", System.currentTimeMillis() - 1000L, sender());
+        queue.offer(CloudMessagePriority.NORMAL, "live", System.currentTimeMillis() + 60000L, sender());
+
+        Assert.assertEquals("live", queue.poll().getKey());
+        Assert.assertEquals(1, queue.getDroppedCount());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void requeueTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(10);
+        queue.offer(CloudMessagePriority.NORMAL, "a", 0, sender());
+        queue.offer(CloudMessagePriority.NORMAL, "b", 0, sender());
+
+        Assert.assertTrue(queue.requeue(queue.poll()));
+        Assert.assertEquals("a", queue.poll().getKey());
+    }
+
+    @Test
+    public void requeueSupersededTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(10);
+        queue.offer(CloudMessagePriority.NORMAL, "route", 0, sender());
+        CloudOutboundQueue.Entry entry = queue.poll();
+        queue.offer(CloudMessagePriority.NORMAL, "route", 0, sender());
+
+        Assert.assertFalse(queue.requeue(entry));
+        Assert.assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void requeueFullQueueTest() {
+        CloudOutboundQueue queue = new CloudOutboundQueue(1);
+        queue.offer(CloudMessagePriority.NORMAL, "a", 0, sender());
+        CloudOutboundQueue.Entry entry = queue.poll();
+        queue.offer(CloudMessagePriority.SAFETY, "b", 0, sender());
+
+        Assert.assertFalse(queue.requeue(entry));
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals("b", queue.poll().getKey());
+    }
+}
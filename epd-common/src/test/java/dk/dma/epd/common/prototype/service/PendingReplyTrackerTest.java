@@ -0,0 +1,154 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.service.PendingReplyTracker.TimeoutListener;
+
+public class PendingReplyTrackerTest {
+
+    private static final long TICK = 100L;
+    private static final int WHEEL_SIZE = 4;
+
+    private long now = 10000L;
+    private final List<String> timedOut = new ArrayList<>();
+    private PendingReplyTracker<String, Integer> tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new PendingReplyTracker<String, Integer>(TICK, WHEEL_SIZE) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+        tracker.addTimeoutListener(new TimeoutListener<String, Integer>() {
+            @Override
+            public void replyTimedOut(String key, Integer value) {
+                timedOut.add(key + "=" + value);
+            }
+        });
+    }
+
+    /**
+     * Moves the clock forward one tick at a time, advancing the tracker at every tick
+     */
+    private void advanceTo(long time) {
+        while (now + TICK <= time) {
+            now += TICK;
+            tracker.advance();
+        }
+        now = time;
+        tracker.advance();
+    }
+
+    @Test
+    public void expiryTest() {
+        tracker.track("a", 1, 250L);
+        Assert.assertEquals(Integer.valueOf(1), tracker.get("a"));
+
+        advanceTo(10200L);
+        Assert.assertTrue(timedOut.isEmpty());
+        Assert.assertTrue(tracker.containsKey("a"));
+
+        advanceTo(10300L);
+        Assert.assertEquals(1, timedOut.size());
+        Assert.assertEquals("a=1", timedOut.get(0));
+        Assert.assertFalse(tracker.containsKey("a"));
+        Assert.assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void deadlineInsideTickTest() {
+        // Expired no earlier than the deadline, and by the end of its tick
+        tracker.track("a", 1, 150L);
+        advanceTo(10149L);
+        Assert.assertTrue(timedOut.isEmpty());
+
+        advanceTo(10200L);
+        Assert.assertEquals(1, timedOut.size());
+    }
+
+    @Test
+    public void completeTest() {
+        tracker.track("a", 1, 100L);
+        tracker.track("b", 2, 100L);
+        Assert.assertEquals(Integer.valueOf(1), tracker.complete("a"));
+        Assert.assertNull(tracker.complete("a"));
+        Assert.assertEquals(1, tracker.size());
+
+        advanceTo(10500L);
+        Assert.assertEquals(1, timedOut.size());
+        Assert.assertEquals("b=2", timedOut.get(0));
+    }
+
+    @Test
+    public void replaceTest() {
+        tracker.track("a", 1, 100L);
+        tracker.track("a", 2, 300L);
+
+        advanceTo(10200L);
+        Assert.assertTrue(timedOut.isEmpty());
+
+        advanceTo(10300L);
+        Assert.assertEquals(1, timedOut.size());
+        Assert.assertEquals("a=2", timedOut.get(0));
+    }
+
+    @Test
+    public void wrapAroundTest() {
+        // The timeout spans two and a half rotations of the wheel
+        long timeout = WHEEL_SIZE * TICK * 5 / 2;
+        tracker.track("a", 1, timeout);
+
+        advanceTo(10000L + timeout - 1);
+        Assert.assertTrue(timedOut.isEmpty());
+        Assert.assertTrue(tracker.containsKey("a"));
+
+        advanceTo(10000L + timeout);
+        Assert.assertEquals(1, timedOut.size());
+    }
+
+    @Test
+    public void skippedTicksTest() {
+        tracker.track("a", 1, 100L);
+        tracker.track("b", 2, 1000L);
+
+        // Advance once, more than a full rotation later
+        now = 12000L;
+        tracker.advance();
+        Assert.assertEquals(2, timedOut.size());
+        Assert.assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void processedTickTest() {
+        advanceTo(10500L);
+
+        // The deadline tick has already been processed
+        tracker.track("a", 1, -200L);
+        Assert.assertTrue(timedOut.isEmpty());
+
+        advanceTo(10600L);
+        Assert.assertEquals(1, timedOut.size());
+    }
+}
@@ -0,0 +1,162 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.shoreservice;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.shoreservice.MetocForecastStore.CellKey;
+import dk.dma.epd.common.prototype.shoreservice.MetocForecastStore.StoredPoint;
+import dk.frv.enav.common.xml.metoc.MetocForecast;
+import dk.frv.enav.common.xml.metoc.MetocForecastPoint;
+import dk.frv.enav.common.xml.metoc.request.MetocForecastRequestWp;
+
+public class MetocForecastStoreTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long T0 = 1000 * HOUR;
+
+    private final MetocForecastStore store = new MetocForecastStore(null);
+
+    static MetocForecastPoint point(double lat, double lon, long time) {
+        MetocForecastPoint point = new MetocForecastPoint();
+        point.setLat(lat);
+        point.setLon(lon);
+        point.setTime(new Date(time));
+        return point;
+    }
+
+    static MetocForecast forecast(long created, MetocForecastPoint... points) {
+        MetocForecast forecast = new MetocForecast();
+        forecast.setCreated(new Date(created));
+        for (MetocForecastPoint point : points) {
+            forecast.getForecasts().add(point);
+        }
+        return forecast;
+    }
+
+    static MetocForecastRequestWp wp(double lat, double lon, long eta) {
+        MetocForecastRequestWp wp = new MetocForecastRequestWp();
+        wp.setLat(lat);
+        wp.setLon(lon);
+        wp.setEta(new Date(eta));
+        return wp;
+    }
+
+    /**
+     * Looks up the single position and time
+     */
+    private List<StoredPoint> lookup(MetocForecastStore s, double lat, double lon, long time) {
+        MetocForecastRequestWp wp = wp(lat, lon, time);
+        return s.lookupLeg(wp, wp, HOUR, new Date(0));
+    }
+
+    @Test
+    public void cellKeyTest() {
+        Assert.assertEquals(CellKey.of(55.05, 11.05, T0), CellKey.of(55.15, 11.19, T0 + HOUR - 1));
+        Assert.assertNotEquals(CellKey.of(55.15, 11.05, T0), CellKey.of(55.25, 11.05, T0));
+        Assert.assertNotEquals(CellKey.of(55.05, 11.15, T0), CellKey.of(55.05, 11.25, T0));
+        Assert.assertNotEquals(CellKey.of(55.05, 11.05, T0), CellKey.of(55.05, 11.05, T0 + HOUR));
+        // Cells are floored, also for negative coordinates
+        Assert.assertNotEquals(CellKey.of(55.05, -0.1, T0), CellKey.of(55.05, 0.1, T0));
+        Assert.assertEquals(CellKey.of(55.05, -0.1, T0), CellKey.of(55.05, -0.19, T0));
+    }
+
+    @Test
+    public void sameCellTest() {
+        store.store(forecast(T0, point(55.05, 11.05, T0), point(55.1, 11.1, T0 + 10)));
+        Assert.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void newerForecastTest() {
+        MetocForecastPoint older = point(55.05, 11.05, T0);
+        MetocForecastPoint newer = point(55.05, 11.05, T0);
+        store.store(forecast(T0 + HOUR, newer));
+        store.store(forecast(T0, older));
+        Assert.assertSame(newer, lookup(store, 55.05, 11.05, T0).get(0).getPoint());
+
+        MetocForecastPoint newest = point(55.05, 11.05, T0);
+        store.store(forecast(T0 + 2 * HOUR, newest));
+        Assert.assertSame(newest, lookup(store, 55.05, 11.05, T0).get(0).getPoint());
+        Assert.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void coveredLegTest() {
+        store.store(forecast(T0, point(55.0, 11.0, T0), point(55.0, 11.5, T0 + HOUR), point(55.0, 12.0, T0 + 2 * HOUR)));
+
+        List<StoredPoint> leg = store.lookupLeg(wp(55.0, 11.0, T0), wp(55.0, 12.0, T0 + 2 * HOUR), HOUR, new Date(0));
+        Assert.assertNotNull(leg);
+        Assert.assertEquals(3, leg.size());
+        Assert.assertEquals(11.5, leg.get(1).getPoint().getLon(), 1e-9);
+    }
+
+    @Test
+    public void uncoveredLegTest() {
+        store.store(forecast(T0, point(55.0, 11.0, T0), point(55.0, 12.0, T0 + 2 * HOUR)));
+        Assert.assertNull(store.lookupLeg(wp(55.0, 11.0, T0), wp(55.0, 12.0, T0 + 2 * HOUR), HOUR, new Date(0)));
+    }
+
+    @Test
+    public void nearbyPointTest() {
+        // Within one cell and one time bucket of the sample
+        store.store(forecast(T0, point(55.1, 11.1, T0 + HOUR / 2)));
+        Assert.assertNotNull(lookup(store, 55.0, 11.0, T0));
+        // More than one cell away
+        Assert.assertNull(lookup(store, 55.35, 11.0, T0));
+        // More than one time bucket away
+        Assert.assertNull(lookup(store, 55.0, 11.0, T0 + 2 * HOUR));
+    }
+
+    @Test
+    public void createdTest() {
+        store.store(forecast(T0, point(55.0, 11.0, T0)));
+        MetocForecastRequestWp wp = wp(55.0, 11.0, T0);
+        Assert.assertNotNull(store.lookupLeg(wp, wp, HOUR, new Date(T0)));
+        Assert.assertNull(store.lookupLeg(wp, wp, HOUR, new Date(T0 + 1)));
+    }
+
+    @Test
+    public void expireTest() {
+        store.store(forecast(T0, point(55.0, 11.0, T0)));
+        store.store(forecast(T0 + HOUR, point(57.0, 11.0, T0)));
+        Assert.assertEquals(2, store.size());
+
+        store.expire(new Date(T0 + 1));
+        Assert.assertEquals(1, store.size());
+        Assert.assertNull(lookup(store, 55.0, 11.0, T0));
+        Assert.assertNotNull(lookup(store, 57.0, 11.0, T0));
+    }
+
+    @Test
+    public void lruEvictionTest() {
+        MetocForecastStore small = new MetocForecastStore(null, 2);
+        small.store(forecast(T0, point(50.0, 11.0, T0), point(52.0, 11.0, T0)));
+
+        // Use the first point, making the second the least recently used
+        Assert.assertNotNull(lookup(small, 50.0, 11.0, T0));
+        small.store(forecast(T0, point(54.0, 11.0, T0)));
+
+        Assert.assertEquals(2, small.size());
+        Assert.assertNotNull(lookup(small, 50.0, 11.0, T0));
+        Assert.assertNull(lookup(small, 52.0, 11.0, T0));
+        Assert.assertNotNull(lookup(small, 54.0, 11.0, T0));
+    }
+}
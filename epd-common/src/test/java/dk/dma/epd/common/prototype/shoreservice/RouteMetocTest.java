@@ -0,0 +1,181 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.shoreservice;
+
+import static dk.dma.epd.common.prototype.shoreservice.MetocForecastStoreTest.point;
+import static dk.dma.epd.common.prototype.shoreservice.MetocForecastStoreTest.wp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.ais.HeadlessEPD;
+import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
+import dk.dma.epd.common.prototype.settings.EnavSettings;
+import dk.frv.enav.common.xml.metoc.MetocForecast;
+import dk.frv.enav.common.xml.metoc.MetocForecastPoint;
+import dk.frv.enav.common.xml.metoc.request.MetocForecastRequest;
+import dk.frv.enav.common.xml.metoc.request.MetocForecastRequestWp;
+
+/**
+ * Tests the merging of stored and fetched legs in
+ * {@linkplain ShoreServicesCommon#routeMetoc(MetocForecastRequest)}
+ */
+public class RouteMetocTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final MetocForecastStore store = new MetocForecastStore(null);
+    private final List<List<MetocForecastRequestWp>> requests = new ArrayList<>();
+    private final List<MetocForecastRequestWp> wps = new ArrayList<>();
+    private ShoreServicesCommon shoreServices;
+
+    @Before
+    public void setUp() throws IOException {
+        HeadlessEPD.init();
+        PntTime.init();
+
+        // Four waypoints, one hour and one degree apart
+        long t0 = System.currentTimeMillis() / HOUR * HOUR + HOUR;
+        for (int i = 0; i < 4; i++) {
+            wps.add(wp(55.0, 10.0 + i, t0 + i * HOUR));
+        }
+
+        shoreServices = new ShoreServicesCommon(new EnavSettings()) {
+            @Override
+            protected MetocForecastStore getMetocStore() {
+                return store;
+            }
+
+            @Override
+            protected MetocForecast requestMetoc(MetocForecastRequest request) {
+                requests.add(new ArrayList<>(request.getWaypoints()));
+                return forecast(request.getWaypoints());
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        shoreServices.shutdown();
+        HeadlessEPD.dispose();
+    }
+
+    /**
+     * Returns a forecast with a point at every waypoint
+     */
+    private static MetocForecast forecast(List<MetocForecastRequestWp> wps) {
+        MetocForecast forecast = new MetocForecast();
+        forecast.setCreated(new Date());
+        for (MetocForecastRequestWp wp : wps) {
+            forecast.getForecasts().add(point(wp.getLat(), wp.getLon(), wp.getEta().getTime()));
+        }
+        return forecast;
+    }
+
+    private MetocForecastRequest request() {
+        MetocForecastRequest request = new MetocForecastRequest();
+        request.setDt(60);
+        request.getWaypoints().addAll(wps);
+        return request;
+    }
+
+    /**
+     * Stores the forecast of the given leg
+     */
+    private void storeLeg(int leg) {
+        store.store(forecast(wps.subList(leg, leg + 2)));
+    }
+
+    /**
+     * Asserts that the forecast spans the route in time order
+     */
+    private void assertSpansRoute(MetocForecast forecast) {
+        List<MetocForecastPoint> points = forecast.getForecasts();
+        Assert.assertEquals(wps.get(0).getEta(), points.get(0).getTime());
+        Assert.assertEquals(wps.get(wps.size() - 1).getEta(), points.get(points.size() - 1).getTime());
+        for (int i = 1; i < points.size(); i++) {
+            Assert.assertFalse(points.get(i).getTime().before(points.get(i - 1).getTime()));
+        }
+        Assert.assertNotNull(forecast.getCreated());
+    }
+
+    @Test
+    public void uncoveredTest() throws ShoreServiceException {
+        MetocForecast forecast = shoreServices.routeMetoc(request());
+
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(wps, requests.get(0));
+        Assert.assertEquals(4, forecast.getForecasts().size());
+        Assert.assertEquals(4, store.size());
+    }
+
+    @Test
+    public void coveredTest() throws ShoreServiceException {
+        MetocForecast first = shoreServices.routeMetoc(request());
+        requests.clear();
+
+        MetocForecast second = shoreServices.routeMetoc(request());
+        Assert.assertTrue(requests.isEmpty());
+        assertSpansRoute(second);
+        Assert.assertEquals(first.getCreated(), second.getCreated());
+    }
+
+    @Test
+    public void coveredStartTest() throws ShoreServiceException {
+        storeLeg(0);
+        assertSpansRoute(shoreServices.routeMetoc(request()));
+
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(wps.subList(1, 4), requests.get(0));
+    }
+
+    @Test
+    public void coveredEndTest() throws ShoreServiceException {
+        storeLeg(2);
+        assertSpansRoute(shoreServices.routeMetoc(request()));
+
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(wps.subList(0, 3), requests.get(0));
+    }
+
+    @Test
+    public void coveredEndsTest() throws ShoreServiceException {
+        storeLeg(0);
+        storeLeg(2);
+        assertSpansRoute(shoreServices.routeMetoc(request()));
+
+        // Only the middle leg is fetched
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(wps.subList(1, 3), requests.get(0));
+    }
+
+    @Test
+    public void coveredMiddleTest() throws ShoreServiceException {
+        storeLeg(1);
+        assertSpansRoute(shoreServices.routeMetoc(request()));
+
+        // The two uncovered runs are fetched separately
+        Assert.assertEquals(Arrays.asList(wps.subList(0, 2), wps.subList(2, 4)), requests);
+    }
+}
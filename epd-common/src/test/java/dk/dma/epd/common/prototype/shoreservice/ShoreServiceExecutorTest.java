@@ -0,0 +1,164 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.common.prototype.shoreservice;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceErrorCode;
+import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+
+public class ShoreServiceExecutorTest {
+
+    private final ShoreServiceExecutor executor = new ShoreServiceExecutor(2, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch slowStarted = new CountDownLatch(1);
+    private final CountDownLatch aborted = new CountDownLatch(1);
+    private final List<String> order = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    private static Callable<String> record(final List<String> order, final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    /**
+     * Submits a request occupying the single slot of the endpoint until released
+     */
+    private Future<String> occupy(String endpoint) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        Future<String> blocking = executor.submit(endpoint, TaskPriority.NORMAL, 10, TimeUnit.SECONDS,
+                new Callable<String>() {
+                    @Override
+                    public String call() throws InterruptedException {
+                        started.countDown();
+                        release.await();
+                        return "blocking";
+                    }
+                });
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        return blocking;
+    }
+
+    /**
+     * Waits until the given number of requests are parked at the endpoint
+     */
+    private void awaitParked(String endpoint, int count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 1000L;
+        while (executor.getParkedCount(endpoint) < count) {
+            Assert.assertTrue("Requests not parked", System.currentTimeMillis() < timeout);
+            Thread.sleep(1L);
+        }
+    }
+
+    /**
+     * Submits a request registering an abort action and then sleeping past the deadline
+     */
+    private Future<String> submitSlow(long timeout) {
+        return executor.submit("nogo", TaskPriority.HIGH, timeout, TimeUnit.MILLISECONDS, new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                ShoreServiceExecutor.onAbort(new Runnable() {
+                    @Override
+                    public void run() {
+                        aborted.countDown();
+                    }
+                });
+                slowStarted.countDown();
+                Thread.sleep(5000);
+                return "slow";
+            }
+        });
+    }
+
+    @Test
+    public void endpointLimitTest() throws Exception {
+        Future<String> blocking = occupy("metoc");
+        Future<String> parked = executor.submit("metoc", TaskPriority.HIGH, 10, TimeUnit.SECONDS,
+                record(order, "parked"));
+        awaitParked("metoc", 1);
+        Assert.assertFalse(parked.isDone());
+
+        release.countDown();
+        Assert.assertEquals("blocking", ShoreServiceExecutor.get(blocking));
+        Assert.assertEquals("parked", ShoreServiceExecutor.get(parked));
+    }
+
+    @Test
+    public void priorityOrderTest() throws Exception {
+        occupy("metoc");
+        Future<String> low = executor.submit("metoc", TaskPriority.LOW, 10, TimeUnit.SECONDS, record(order, "low"));
+        Future<String> high = executor.submit("metoc", TaskPriority.HIGH, 10, TimeUnit.SECONDS, record(order, "high"));
+        // Both must be parked before the slot is released, or the first one to arrive gets it
+        awaitParked("metoc", 2);
+
+        release.countDown();
+        ShoreServiceExecutor.get(low);
+        ShoreServiceExecutor.get(high);
+        Assert.assertEquals("high", order.get(0));
+        Assert.assertEquals("low", order.get(1));
+    }
+
+    @Test
+    public void endpointIsolationTest() throws Exception {
+        occupy("metoc");
+        Future<String> msi = executor.submit("msi", TaskPriority.HIGH, 10, TimeUnit.SECONDS, record(order, "msi"));
+        Assert.assertEquals("msi", ShoreServiceExecutor.get(msi));
+    }
+
+    @Test
+    public void deadlineTimeoutTest() {
+        try {
+            ShoreServiceExecutor.get(submitSlow(100));
+            Assert.fail("Expected a timeout");
+        } catch (ShoreServiceException e) {
+            Assert.assertEquals(ShoreServiceErrorCode.TIMEOUT, e.getErrroCode());
+        }
+    }
+
+    @Test
+    public void deadlineAbortTest() throws Exception {
+        submitSlow(100);
+        Assert.assertTrue(aborted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelAbortTest() throws Exception {
+        Future<String> slow = submitSlow(10000);
+        Assert.assertTrue(slowStarted.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(slow.cancel(true));
+        Assert.assertTrue(aborted.await(1, TimeUnit.SECONDS));
+    }
+}
@@ -72,7 +72,10 @@ import dk.dma.epd.ship.gui.MainFrame;
 import dk.dma.epd.ship.gui.route.RouteManagerDialog;
 import dk.dma.epd.ship.monalisa.MonaLisaRouteOptimization;
 import dk.dma.epd.ship.nogo.DynamicNogoHandler;
+import dk.dma.epd.ship.nogo.NogoGroundingMonitor;
+import dk.dma.epd.ship.nogo.NogoGroundingNotifier;
 import dk.dma.epd.ship.nogo.NogoHandler;
+import dk.dma.epd.ship.nogo.NogoStore;
 import dk.dma.epd.ship.ownship.OwnShipHandler;
 import dk.dma.epd.ship.risk.RiskHandler;
 import dk.dma.epd.ship.route.RouteManager;
@@ -111,6 +114,8 @@ public final class EPDShip extends EPD {
     private MonaLisaRouteOptimization monaLisaRouteExchange;
     private NogoHandler nogoHandler;
     private DynamicNogoHandler dynamicNoGoHandler;
+    private NogoStore nogoStore;
+    private NogoGroundingMonitor nogoGroundingMonitor;
     private TransponderFrame transponderFrame;
     private VoyageEventDispatcher voyageEventDispatcher;
     private VOCTManager voctManager;
@@ -194,9 +199,12 @@ public final class EPDShip extends EPD {
         // Start AIS target monitoring
         aisHandler = new AisHandler(settings.getSensorSettings(), settings.getAisSettings());
         aisHandler.loadView();
-        EPD.startThread(aisHandler, "AisHandler");
+        aisHandler.start();
         mapHandler.add(aisHandler);
 
+        // Expose operational metrics through JMX
+        metrics.register();
+
         // Start own-ship handler
         ownShipHandler = new OwnShipHandler(settings.getAisSettings());
         ownShipHandler.loadView();
@@ -230,6 +238,12 @@ public final class EPDShip extends EPD {
         dynamicNoGoHandler = new DynamicNogoHandler(getSettings().getEnavSettings());
         mapHandler.add(dynamicNoGoHandler);
 
+        // Create the NoGo store and the grounding monitor checking against it
+        nogoStore = new NogoStore();
+        nogoGroundingMonitor = new NogoGroundingMonitor(nogoStore);
+        mapHandler.add(nogoGroundingMonitor);
+        mapHandler.add(new NogoGroundingNotifier());
+
         // Create Maritime Cloud service
         maritimeCloudService = new MaritimeCloudService();
         mapHandler.add(maritimeCloudService);
@@ -688,12 +702,16 @@ public final class EPDShip extends EPD {
         routeSuggestionHandler.shutdown();
         intendedRouteHandler.shutdown();
         chatServiceHandler.shutdown();
+        shoreServices.shutdown();
 
         // Stop the system tray
         systemTray.shutdown();
         
         // Stop sensors
         stopSensors();
+        
+        // Stop the scheduled tasks
+        taskScheduler.shutdown();
 
         LOG.info("Closing EPD-ship");
         System.exit(restart ? 2 : 0);
@@ -753,7 +771,7 @@ public final class EPDShip extends EPD {
      */
     @Override
     public Position getPosition() {
-        return getPntHandler().getCurrentData().getPosition();
+        return getPntHandler().getSnapshot().getPosition();
     }
 
     /**
@@ -798,6 +816,14 @@ public final class EPDShip extends EPD {
         return riskHandler;
     }
 
+    public NogoStore getNogoStore() {
+        return nogoStore;
+    }
+
+    public NogoGroundingMonitor getNogoGroundingMonitor() {
+        return nogoGroundingMonitor;
+    }
+
     /**
      * @return the monaLisaHandler
      */
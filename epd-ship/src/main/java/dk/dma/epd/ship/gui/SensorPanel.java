@@ -57,6 +57,7 @@ import dk.dma.epd.ship.route.RouteManager;
 public class SensorPanel extends OMComponentPanel implements IPntDataListener, Runnable, ProjectionListener, IMapCoordListener, IRoutesUpdateListener {
     
     private static final long serialVersionUID = 1L;
+    private static final long ROUTE_UPDATE_INTERVAL = 500L; // ms
     
     private PntHandler gpsHandler;
     private OwnShipHandler ownShipHandler;
@@ -274,7 +275,7 @@ public class SensorPanel extends OMComponentPanel implements IPntDataListener, R
         if (obj instanceof RouteManager) {
             routeManager = (RouteManager)obj;
             activeWaypointPanel.setRouteManager(routeManager);
-            routeManager.addListener(this);
+            routeManager.addListener(this, ROUTE_UPDATE_INTERVAL);
             return;
         }
         if (gpsHandler == null && obj instanceof PntHandler) {
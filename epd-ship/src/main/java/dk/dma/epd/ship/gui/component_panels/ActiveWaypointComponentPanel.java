@@ -25,6 +25,7 @@ import com.bbn.openmap.gui.OMComponentPanel;
 import com.bbn.openmap.proj.coords.LatLonPoint;
 
 import dk.dma.epd.common.prototype.event.mouse.IMapCoordListener;
+import dk.dma.epd.common.prototype.gui.util.ViewModel;
 import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
 import dk.dma.epd.common.prototype.sensor.pnt.IPntDataListener;
@@ -36,9 +37,22 @@ import dk.dma.epd.ship.route.RouteManager;
 public class ActiveWaypointComponentPanel extends OMComponentPanel implements IPntDataListener, Runnable, ProjectionListener, IMapCoordListener, IRoutesUpdateListener {
 
     private static final long serialVersionUID = 1L;
+    private static final long ROUTE_UPDATE_INTERVAL = 500L; // ms
     private final ActiveWaypointPanel activeWaypointPanel;
     private RouteManager routeManager;
     
+    private final ViewModel<String[]> viewModel = new ViewModel<String[]>("ActiveWaypointComponentPanel", 500) {
+        @Override
+        protected String[] computeSnapshot() {
+            return activeWaypointPanel.formatActiveNavData();
+        }
+
+        @Override
+        protected void publish(String[] texts) {
+            activeWaypointPanel.setActiveNavData(texts);
+        }
+    };
+    
     public ActiveWaypointComponentPanel(){
         super();
                 
@@ -56,7 +70,7 @@ public class ActiveWaypointComponentPanel extends OMComponentPanel implements IP
      */
     @Override
     public void routesChanged(RoutesUpdateEvent e) {
-        activeWaypointPanel.updateActiveNavData();
+        viewModel.invalidate();
     }
     @Override
     public void receiveCoord(LatLonPoint llp) {
@@ -78,7 +92,7 @@ public class ActiveWaypointComponentPanel extends OMComponentPanel implements IP
      */
     @Override
     public void pntDataUpdate(PntData pntData) {
-        activeWaypointPanel.updateActiveNavData();
+        viewModel.invalidate();
     }
     
     @Override
@@ -86,7 +100,7 @@ public class ActiveWaypointComponentPanel extends OMComponentPanel implements IP
         if (obj instanceof RouteManager) {
             routeManager = (RouteManager)obj;
             activeWaypointPanel.setRouteManager(routeManager);
-            routeManager.addListener(this);
+            routeManager.addListener(this, ROUTE_UPDATE_INTERVAL);
             return;
         }
         if (obj instanceof PntHandler) {
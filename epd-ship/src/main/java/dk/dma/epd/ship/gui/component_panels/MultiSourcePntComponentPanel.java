@@ -21,6 +21,7 @@ import javax.swing.border.EtchedBorder;
 
 import com.bbn.openmap.gui.OMComponentPanel;
 
+import dk.dma.epd.common.prototype.gui.util.ViewModel;
 import dk.dma.epd.common.prototype.sensor.rpnt.IResilientPntDataListener;
 import dk.dma.epd.common.prototype.sensor.rpnt.MultiSourcePntHandler;
 import dk.dma.epd.common.prototype.sensor.rpnt.ResilientPntData;
@@ -35,6 +36,19 @@ public class MultiSourcePntComponentPanel extends OMComponentPanel implements IR
 
     private MultiSourcePntPanel msPntPanel = new MultiSourcePntPanel();
     private MultiSourcePntHandler msPntHandler;
+    private volatile ResilientPntData rpntData;
+    
+    private final ViewModel<ResilientPntData> viewModel = new ViewModel<ResilientPntData>("MultiSourcePntComponentPanel", 500) {
+        @Override
+        protected ResilientPntData computeSnapshot() {
+            return rpntData;
+        }
+
+        @Override
+        protected void publish(ResilientPntData rpntData) {
+            msPntPanel.setRpntData(rpntData);
+        }
+    };
     
     /**
      * Constructor
@@ -56,8 +70,9 @@ public class MultiSourcePntComponentPanel extends OMComponentPanel implements IR
      */
     @Override
     public void rpntDataUpdate(ResilientPntData rpntData) {
-        // Update the panel
-        msPntPanel.setRpntData(rpntData);
+        // Update the panel at a bounded rate
+        this.rpntData = rpntData;
+        viewModel.invalidate();
     }
 
     /**
@@ -23,6 +23,7 @@ import com.bbn.openmap.gui.OMComponentPanel;
 
 import dk.dma.ais.message.AisMessage;
 import dk.dma.epd.common.prototype.ais.VesselStaticData;
+import dk.dma.epd.common.prototype.gui.util.ViewModel;
 import dk.dma.epd.common.prototype.sensor.pnt.IPntDataListener;
 import dk.dma.epd.common.prototype.sensor.pnt.PntData;
 import dk.dma.epd.common.prototype.sensor.pnt.PntHandler;
@@ -43,6 +44,20 @@ public class OwnShipComponentPanel extends OMComponentPanel implements IPntDataL
     private OwnShipHandler ownShipHandler;
     private PntHandler pntHandler;
     
+    private final ViewModel<String[]> viewModel = new ViewModel<String[]>("OwnShipComponentPanel", 1000) {
+        @Override
+        protected String[] computeSnapshot() {
+            return formatOwnShipData();
+        }
+
+        @Override
+        protected void publish(String[] texts) {
+            ownShipPanel.getNameLabel().setText(texts[0]);
+            ownShipPanel.getCallsignLabel().setText(texts[1]);
+            ownShipPanel.getMmsiLabel().setText(texts[2]);
+        }
+    };
+    
     public OwnShipComponentPanel(){
         super();
         
@@ -62,6 +77,16 @@ public class OwnShipComponentPanel extends OMComponentPanel implements IPntDataL
 
     @Override
     public void pntDataUpdate(PntData pntData) {
+        viewModel.invalidate();
+    }
+    
+    /**
+     * Formats the texts of the name, call sign and MMSI labels.
+     * Called off the Swing event dispatch thread
+     * 
+     * @return the label texts
+     */
+    private String[] formatOwnShipData() {
 
         String ownName = null;
         String ownCallsign = null;
@@ -79,9 +104,11 @@ public class OwnShipComponentPanel extends OMComponentPanel implements IPntDataL
 
         }
         
-        ownShipPanel.getNameLabel().setText("<html>" + Formatter.formatString(ownName, "N/A") + "</html>");
-        ownShipPanel.getCallsignLabel().setText("<html>" + Formatter.formatString(ownCallsign, "N/A") + "</html>");
-        ownShipPanel.getMmsiLabel().setText(Formatter.formatLong(ownMmsi));
+        return new String[] {
+                "<html>" + Formatter.formatString(ownName, "N/A") + "</html>",
+                "<html>" + Formatter.formatString(ownCallsign, "N/A") + "</html>",
+                Formatter.formatLong(ownMmsi)
+        };
     }
     
     @Override
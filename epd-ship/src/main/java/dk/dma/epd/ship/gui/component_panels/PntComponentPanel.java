@@ -23,6 +23,7 @@ import com.bbn.openmap.gui.OMComponentPanel;
 
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.ais.VesselPositionData;
+import dk.dma.epd.common.prototype.gui.util.ViewModel;
 import dk.dma.epd.common.prototype.sensor.pnt.IPntDataListener;
 import dk.dma.epd.common.prototype.sensor.pnt.PntData;
 import dk.dma.epd.common.prototype.sensor.pnt.PntHandler;
@@ -41,6 +42,22 @@ public class PntComponentPanel extends OMComponentPanel implements
     private PntData pntData;
     
     private final PntPanel pntPanel = new PntPanel();
+    
+    private final ViewModel<String[]> viewModel = new ViewModel<String[]>("PntComponentPanel", 500) {
+        @Override
+        protected String[] computeSnapshot() {
+            return formatPntData(getPntData());
+        }
+
+        @Override
+        protected void publish(String[] texts) {
+            pntPanel.getLatLabel().setText(texts[0]);
+            pntPanel.getLonLabel().setText(texts[1]);
+            pntPanel.getSogLabel().setText(texts[2]);
+            pntPanel.getCogLabel().setText(texts[3]);
+            pntPanel.getHdgLabel().setText(texts[4]);
+        }
+    };
 
     public PntComponentPanel() {
         super();
@@ -72,25 +89,37 @@ public class PntComponentPanel extends OMComponentPanel implements
     @Override
     public void pntDataUpdate(PntData pntData) {
         this.setGpsData(pntData);
+        viewModel.invalidate();
+    }
+    
+    /**
+     * Formats the texts of the latitude, longitude, SOG, COG and heading labels.
+     * Called off the Swing event dispatch thread
+     * 
+     * @param pntData the PNT data to format
+     * @return the label texts
+     */
+    private String[] formatPntData(PntData pntData) {
+        String[] texts = new String[5];
         Position pos = pntData.getPosition();
         if (pntData.isBadPosition() || pos == null) {
-            pntPanel.getLatLabel().setText("N/A");
-            pntPanel.getLonLabel().setText("N/A");
+            texts[0] = "N/A";
+            texts[1] = "N/A";
         } else {
-            pntPanel.getLatLabel().setText(Formatter.latToPrintable(pos.getLatitude()));
-            pntPanel.getLonLabel().setText(Formatter.lonToPrintable(pos.getLongitude()));
+            texts[0] = Formatter.latToPrintable(pos.getLatitude());
+            texts[1] = Formatter.lonToPrintable(pos.getLongitude());
         }
         
         if (pntData.isBadPosition() || pntData.getSog() == null) {
-            pntPanel.getSogLabel().setText("N/A");
+            texts[2] = "N/A";
         } else {
-            pntPanel.getSogLabel().setText(Formatter.formatSpeed(pntData.getSog()));
+            texts[2] = Formatter.formatSpeed(pntData.getSog());
         }
         
         if (pntData.isBadPosition() || pntData.getCog() == null) {
-            pntPanel.getCogLabel().setText("N/A");
+            texts[3] = "N/A";
         } else {
-            pntPanel.getCogLabel().setText(Formatter.formatDegrees(pntData.getCog(), 1));
+            texts[3] = Formatter.formatDegrees(pntData.getCog(), 1);
         }
         
         Double heading = null;
@@ -104,9 +133,8 @@ public class PntComponentPanel extends OMComponentPanel implements
 
         }
         
-        pntPanel.getHdgLabel().setText(Formatter.formatDegrees(heading, 1));
-
-        
+        texts[4] = Formatter.formatDegrees(heading, 1);
+        return texts;
     }
     
     @Override
@@ -19,6 +19,8 @@ import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -28,6 +30,7 @@ import javax.swing.SwingConstants;
 import javax.swing.WindowConstants;
 
 import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.monalisa.MonaLisaOptimizationListener;
 import dk.dma.epd.common.prototype.monalisa.MonaLisaOptimizationResponse;
 import dk.dma.epd.ship.monalisa.MonaLisaRouteOptimization;
 import dk.dma.epd.ship.route.RouteManager;
@@ -35,17 +38,17 @@ import dk.dma.epd.ship.route.RouteManager;
 /**
  * Dialog shown when requesting Mona Lisa Route Exchange
  */
-public class MonaLisaSSPARequestDialog extends JDialog implements Runnable,
+public class MonaLisaSSPARequestDialog extends JDialog implements MonaLisaOptimizationListener,
         ActionListener {
 
     private static final long serialVersionUID = 1L;
 
-    // private RouteManager routeManager;
+    private RouteManager routeManager;
     private Route route;
     private Window parent;
     private JLabel statusLbl;
     private JButton cancelBtn;
-    private Boolean cancelReq = false;
+    private Future<MonaLisaOptimizationResponse> request;
     MonaLisaRouteOptimization monaLisaRouteExchange;
     boolean removeIntermediateETA;
     float draft;
@@ -60,7 +63,7 @@ public class MonaLisaSSPARequestDialog extends JDialog implements Runnable,
             boolean removeIntermediateETA, float draft, int ukc, int timeout,
             List<Boolean> selectedWp, boolean showInput, boolean showOutput) {
         super(parent, "Request Mona Lisa Route Exchange");
-        // this.routeManager = routeManager;
+        this.routeManager = routeManager;
         this.route = route;
         this.parent = parent;
         this.monaLisaRouteExchange = monaLisaRouteExchange;
@@ -91,48 +94,49 @@ public class MonaLisaSSPARequestDialog extends JDialog implements Runnable,
     }
 
     private void doRequestRoute() {
-        // Start thread
-        new Thread(this).start();
+        // Submit the request to the optimization worker pool
+        try {
+            request = monaLisaRouteExchange.makeRouteRequestAsync(
+                    route, removeIntermediateETA, draft, ukc, timeout,
+                    selectedWp, showInput, showOutput, this);
+        } catch (RejectedExecutionException e) {
+            JOptionPane.showMessageDialog(parent, "Too many pending Mona Lisa requests, please try again later",
+                    "Mona Lisa response", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
         // Set dialog visible
         setVisible(true);
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
-    public void run() {
+    public void optimizationProgress(String status) {
+        statusLbl.setText(status);
+    }
 
-        if (monaLisaRouteExchange != null || route != null
-                || selectedWp != null) {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void optimizationCompleted(MonaLisaOptimizationResponse response) {
+        if (request != null && request.isCancelled()) {
+            return;
+        }
 
-            MonaLisaOptimizationResponse response = monaLisaRouteExchange.makeRouteRequest(
-                    route, removeIntermediateETA, draft, ukc, timeout,
-                    selectedWp, showInput, showOutput);
+        // Close dialog
+        setVisible(false);
 
-            // Close dialog
-            setVisible(false);
-
-            // Give response
-            JOptionPane.showMessageDialog(parent, response.getType() + " " + response.getResponse(),
-                    "Mona Lisa response", JOptionPane.INFORMATION_MESSAGE);
-
-            // ShoreServiceException error = null;
-            // try {
-            // routeManager.requestRouteMetoc(route);
-            // } catch (ShoreServiceException e) {
-            // error = e;
-            // }
-            //
-            // if (isCancelReq()) {
-            // route.removeMetoc();
-            // routeManager.notifyListeners(RoutesUpdateEvent.ROUTE_METOC_CHANGED);
-            // return;
-            // }
-            //
-            // if (error == null) {
-            // routeManager.notifyListeners(RoutesUpdateEvent.ROUTE_METOC_CHANGED);
-            // }
-            //
+        if (response.getOptimizedRoute() != null) {
+            route.setVisible(false);
+            routeManager.addRoute(response.getOptimizedRoute());
         }
+
+        // Give response
+        JOptionPane.showMessageDialog(parent, response.getType() + " " + response.getResponse(),
+                "Mona Lisa response", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void initGui() {
@@ -152,22 +156,12 @@ public class MonaLisaSSPARequestDialog extends JDialog implements Runnable,
         getContentPane().add(statusLbl);
     }
 
-    // private boolean isCancelReq() {
-    // synchronized (cancelReq) {
-    // return cancelReq.booleanValue();
-    // }
-    // }
-
-    private void setCancelReq(boolean cancel) {
-        synchronized (cancelReq) {
-            this.cancelReq = cancel;
-        }
-    }
-
     @Override
     public void actionPerformed(ActionEvent e) {
         if (e.getSource() == cancelBtn) {
-            setCancelReq(true);
+            if (request != null) {
+                request.cancel(true);
+            }
             setVisible(false);
         }
     }
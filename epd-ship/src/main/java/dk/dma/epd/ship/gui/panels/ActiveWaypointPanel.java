@@ -200,24 +200,50 @@ public class ActiveWaypointPanel extends JPanel {
         if (routeManager == null) {
             return;
         }
+        setActiveNavData(formatActiveNavData());
+    }
+    
+    /**
+     * Formats the texts of the active navigation data labels. 
+     * May be called off the Swing event dispatch thread
+     * 
+     * @return the label texts, or {@code null} if the route manager is not set
+     */
+    public String[] formatActiveNavData() {
+        if (routeManager == null) {
+            return null;
+        }
         if(!routeManager.isRouteActive()){
-            wptLabel.setText("N/A");
-            brgLabel.setText("N/A");
-            rngLabel.setText("N/A");
-            ttgLegLabel.setText("N/A");
-            ttgRouteLabel.setText("N/A");
-            etaNextLabel.setText("N/A");
-            etaRouteLabel.setText("N/A");
-        }else{
+            return new String[] { "N/A", "N/A", "N/A", "N/A", "N/A", "N/A", "N/A" };
+        }
         ActiveRoute activeRoute = routeManager.getActiveRoute();
-        wptLabel.setText(activeRoute.getActiveWp().getName());
-        brgLabel.setText(Formatter.formatDegrees(activeRoute.getActiveWpBrg(), 1));
-        rngLabel.setText(Formatter.formatDistNM(activeRoute.getActiveWpRng()));
-        ttgLegLabel.setText(Formatter.formatTime(activeRoute.getActiveWpTtg()));
-        ttgRouteLabel.setText(Formatter.formatTime(activeRoute.getRouteTtg()));
-        etaNextLabel.setText(Formatter.formatShortDateTime(activeRoute.getActiveWaypointEta()));
-        etaRouteLabel.setText(Formatter.formatShortDateTime(activeRoute.getEta()));
+        return new String[] {
+                activeRoute.getActiveWp().getName(),
+                Formatter.formatDegrees(activeRoute.getActiveWpBrg(), 1),
+                Formatter.formatDistNM(activeRoute.getActiveWpRng()),
+                Formatter.formatTime(activeRoute.getActiveWpTtg()),
+                Formatter.formatTime(activeRoute.getRouteTtg()),
+                Formatter.formatShortDateTime(activeRoute.getActiveWaypointEta()),
+                Formatter.formatShortDateTime(activeRoute.getEta())
+        };
+    }
+    
+    /**
+     * Displays the label texts computed by {@linkplain #formatActiveNavData()}
+     * 
+     * @param texts the label texts
+     */
+    public void setActiveNavData(String[] texts) {
+        if (texts == null) {
+            return;
         }
+        wptLabel.setText(texts[0]);
+        brgLabel.setText(texts[1]);
+        rngLabel.setText(texts[2]);
+        ttgLegLabel.setText(texts[3]);
+        ttgRouteLabel.setText(texts[4]);
+        etaNextLabel.setText(texts[5]);
+        etaRouteLabel.setText(texts[6]);
     }
     
     public void setRouteManager(RouteManager routeManager) {
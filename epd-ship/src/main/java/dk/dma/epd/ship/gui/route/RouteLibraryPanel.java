@@ -0,0 +1,256 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.gui.route;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.epd.common.prototype.model.route.RouteLibraryEntry;
+import dk.dma.epd.common.text.Formatter;
+import dk.dma.epd.ship.EPDShip;
+import dk.dma.epd.ship.route.RouteManager;
+
+/**
+ * Route manager tab for searching the route library, importing route
+ * folders into it and loading library routes.
+ * <p>
+ * All library access is done off the EDT, since the library index
+ * is loaded in the background and imports parse every route file.
+ */
+public class RouteLibraryPanel extends JPanel implements ActionListener {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LoggerFactory.getLogger(RouteLibraryPanel.class);
+
+    private final RouteManager routeManager;
+
+    private JTextField searchTxt = new JTextField(20);
+    private JButton searchBtn = new JButton("Search");
+    private JButton importBtn = new JButton("Import folder...");
+    private JButton loadBtn = new JButton("Load");
+    private JTable libraryTable = new JTable();
+    private LibraryTableModel libraryTableModel = new LibraryTableModel();
+
+    public RouteLibraryPanel(RouteManager routeManager) {
+        super(new BorderLayout());
+        this.routeManager = routeManager;
+
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(new JLabel("Name, departure or destination:"));
+        searchPanel.add(searchTxt);
+        searchPanel.add(searchBtn);
+        add(searchPanel, BorderLayout.NORTH);
+
+        libraryTable.setModel(libraryTableModel);
+        libraryTable.setShowHorizontalLines(false);
+        libraryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        libraryTable.setFillsViewportHeight(true);
+        add(new JScrollPane(libraryTable), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(importBtn);
+        buttonPanel.add(loadBtn);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        searchTxt.addActionListener(this);
+        searchBtn.addActionListener(this);
+        importBtn.addActionListener(this);
+        loadBtn.addActionListener(this);
+
+        search();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == searchBtn || e.getSource() == searchTxt) {
+            search();
+        } else if (e.getSource() == importBtn) {
+            importFolder();
+        } else if (e.getSource() == loadBtn) {
+            load();
+        }
+    }
+
+    /**
+     * Enables or disables the buttons while a library operation is running
+     */
+    private void setBusy(boolean busy) {
+        searchBtn.setEnabled(!busy);
+        importBtn.setEnabled(!busy);
+        loadBtn.setEnabled(!busy);
+    }
+
+    /**
+     * Searches the library for the current search text
+     */
+    private void search() {
+        final String text = searchTxt.getText().trim();
+        setBusy(true);
+        new SwingWorker<List<RouteLibraryEntry>, Void>() {
+            @Override
+            protected List<RouteLibraryEntry> doInBackground() throws Exception {
+                return routeManager.getRouteLibrary().search(text.isEmpty() ? null : text, null, null, null);
+            }
+
+            @Override
+            protected void done() {
+                setBusy(false);
+                try {
+                    libraryTableModel.setEntries(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    LOG.error("Failed searching route library", e);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Imports a folder of route files into the library
+     */
+    private void importFolder() {
+        JFileChooser fc = new JFileChooser(EPDShip.getInstance().getHomePath().resolve("routes").toString());
+        fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File dir = fc.getSelectedFile();
+
+        setBusy(true);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return routeManager.importRouteLibrary(dir);
+            }
+
+            @Override
+            protected void done() {
+                setBusy(false);
+                try {
+                    JOptionPane.showMessageDialog(RouteLibraryPanel.this, "Imported " + get() + " routes from "
+                            + dir.getName(), "Route library", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    LOG.error("Failed importing route library folder " + dir, e);
+                    JOptionPane.showMessageDialog(RouteLibraryPanel.this, "Failed importing " + dir.getName(),
+                            "Route library", JOptionPane.ERROR_MESSAGE);
+                }
+                search();
+            }
+        }.execute();
+    }
+
+    /**
+     * Loads the selected library route into the route manager
+     */
+    private void load() {
+        int row = libraryTable.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+        final RouteLibraryEntry entry = libraryTableModel.getEntry(row);
+
+        setBusy(true);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                routeManager.loadFromLibrary(entry);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                setBusy(false);
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(RouteLibraryPanel.this, cause.getMessage() + ": " + entry.getName(),
+                            "Route load error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Table model for the library search result
+     */
+    private static class LibraryTableModel extends AbstractTableModel {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final String[] COLUMN_NAMES = { "Name", "Departure", "Destination", "Waypoints" };
+
+        private List<RouteLibraryEntry> entries = new ArrayList<>();
+
+        void setEntries(List<RouteLibraryEntry> entries) {
+            this.entries = entries;
+            fireTableDataChanged();
+        }
+
+        RouteLibraryEntry getEntry(int row) {
+            return entries.get(row);
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            RouteLibraryEntry entry = entries.get(rowIndex);
+            switch (columnIndex) {
+            case 0: return Formatter.formatString(entry.getName());
+            case 1: return Formatter.formatString(entry.getDeparture());
+            case 2: return Formatter.formatString(entry.getDestination());
+            case 3: return entry.getWaypointCount();
+            default:
+                LOG.error("Unknown column " + columnIndex);
+                return "";
+            }
+        }
+    }
+}
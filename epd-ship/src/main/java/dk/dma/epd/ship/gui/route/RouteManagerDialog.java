@@ -59,6 +59,7 @@ public class RouteManagerDialog extends JDialog implements IRoutesUpdateListener
         
         tabbedPane.addTab("Routes", null, routePanel, null);
         tabbedPane.addTab("RouteExchange Routes", null, routeExchangePanel, null);
+        tabbedPane.addTab("Route Library", null, new RouteLibraryPanel(routeManager), null);
 
         
         routeManager.addListener(this);
@@ -31,6 +31,7 @@ import dk.dma.epd.common.prototype.layers.route.RouteLayerCommon;
 import dk.dma.epd.common.prototype.layers.route.SafeHavenArea;
 import dk.dma.epd.common.prototype.model.route.ActiveRoute;
 import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteUpdate;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
 import dk.dma.epd.common.util.Util;
 import dk.dma.epd.ship.EPDShip;
@@ -135,16 +136,10 @@ public class RouteLayer extends RouteLayerCommon implements Runnable {
             return;
         }
 
-        graphics.clear();
+        clearGraphics();
 
         float routeWidth = EPD.getInstance().getSettings().getNavSettings().getRouteWidth();
-        Stroke stroke = new BasicStroke(
-                routeWidth,             // Width
-                BasicStroke.CAP_SQUARE, // End cap
-                BasicStroke.JOIN_MITER, // Join style
-                10.0f,                  // Miter limit
-                new float[] { 3.0f, 10.0f }, // Dash pattern
-                0.0f);
+        Stroke stroke = createRouteStroke(routeWidth);
         Stroke activeStroke = new BasicStroke(
                 routeWidth,             // Width
                 BasicStroke.CAP_SQUARE, // End cap
@@ -153,25 +148,11 @@ public class RouteLayer extends RouteLayerCommon implements Runnable {
                 new float[] { 10.0f, 8.0f }, // Dash pattern
                 0.0f); // Dash phase
 
-        Color ECDISOrange = new Color(213, 103, 45, 255);
-
         int activeRouteIndex = routeManager.getActiveRouteIndex();
         for (int i = 0; i < routeManager.getRoutes().size(); i++) {
             Route route = routeManager.getRoutes().get(i);
             if (route.isVisible() && i != activeRouteIndex) {
-                RouteGraphic routeGraphic;
-
-                if (route.isStccApproved()) {
-                    Color greenApproved = new Color(0.39f, 0.69f, 0.49f, 0.6f);
-
-                    routeGraphic = new RouteGraphic(route, i, arrowsVisible,
-                            stroke, ECDISOrange, greenApproved, false, false);
-                } else {
-                    routeGraphic = new RouteGraphic(route, i, arrowsVisible,
-                            stroke, ECDISOrange);
-                }
-
-                graphics.add(routeGraphic);
+                addRouteGraphic(createRouteGraphic(route, i, stroke));
             }
         }
 
@@ -194,7 +175,7 @@ public class RouteLayer extends RouteLayerCommon implements Runnable {
                             Color.RED);
                 }
 
-                graphics.add(activeRouteExtend);
+                addRouteGraphic(activeRouteExtend);
 
                 if (activeSafeHaven) {
                     // System.out.println("Activating safehaven");
@@ -264,6 +245,69 @@ public class RouteLayer extends RouteLayerCommon implements Runnable {
     }
 
 
+    /**
+     * Creates the stroke used for inactive routes
+     * @param routeWidth the route width
+     * @return the stroke used for inactive routes
+     */
+    private static Stroke createRouteStroke(float routeWidth) {
+        return new BasicStroke(
+                routeWidth,             // Width
+                BasicStroke.CAP_SQUARE, // End cap
+                BasicStroke.JOIN_MITER, // Join style
+                10.0f,                  // Miter limit
+                new float[] { 3.0f, 10.0f }, // Dash pattern
+                0.0f);
+    }
+    
+    /**
+     * Creates the graphic for the given inactive route
+     * @param route the route
+     * @param routeIndex the route index
+     * @param stroke the stroke to use
+     * @return the route graphic
+     */
+    private RouteGraphic createRouteGraphic(Route route, int routeIndex, Stroke stroke) {
+        Color ECDISOrange = new Color(213, 103, 45, 255);
+        if (route.isStccApproved()) {
+            Color greenApproved = new Color(0.39f, 0.69f, 0.49f, 0.6f);
+
+            return new RouteGraphic(route, routeIndex, arrowsVisible,
+                    stroke, ECDISOrange, greenApproved, false, false);
+        }
+        return new RouteGraphic(route, routeIndex, arrowsVisible,
+                stroke, ECDISOrange);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RouteGraphic createRouteGraphic(Route route, int routeIndex) {
+        if (routeManager.isActiveRoute(routeIndex)) {
+            return null;
+        }
+        float routeWidth = EPD.getInstance().getSettings().getNavSettings().getRouteWidth();
+        return createRouteGraphic(route, routeIndex, createRouteStroke(routeWidth));
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Moves the safe haven along with the active waypoint.
+     */
+    @Override
+    protected synchronized boolean patchRouteGraphic(RouteUpdate update) {
+        if (!super.patchRouteGraphic(update)) {
+            return false;
+        }
+        if (update.getEvent() == RoutesUpdateEvent.ACTIVE_ROUTE_UPDATE) {
+            updateSafeHaven();
+            safeHavenArea.project(getProjection(), true);
+        }
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -17,6 +17,7 @@ package dk.dma.epd.ship.nogo;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,8 @@ import com.bbn.openmap.MapHandlerChild;
 
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 import dk.dma.epd.common.prototype.sensor.pnt.PntHandler;
 import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
 import dk.dma.epd.ship.EPDShip;
@@ -41,7 +44,7 @@ import dk.frv.enav.common.xml.nogo.types.NogoPolygon;
 /**
  * Component for handling MSI messages
  */
-public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
+public class DynamicNogoHandler extends MapHandlerChild {
 
     private static final Logger LOG = LoggerFactory.getLogger(NogoHandler.class);
 
@@ -80,7 +83,7 @@ public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
     private Date validToTarget;
     private int noGoErrorCodeTarget;
     private String noGoMessageTarget;
-    private Thread self;
+    private ScheduledTask task;
 
     private boolean dynamicNoGoActive;
 
@@ -98,48 +101,29 @@ public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
 
     public DynamicNogoHandler(EPDEnavSettings enavSettings) {
         // pollInterval = enavSettings.getNogoPollInterval();
-        self = EPDShip.startThread(this, "DynamicNoGoHandler");
+        task = EPDShip.getInstance().getTaskScheduler().schedulePeriodic("DynamicNoGoHandler", TaskPriority.NORMAL,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        updateDynamicNogo();
+                    }
+                }, 80, 80, 2, TimeUnit.SECONDS);
     }
 
-    @Override
-    public void run() {
-
-        // EeINS.sleep(15000);
-        // updateNogo();
-
-        while (true) {
-
-            try {
-                if (dynamicNoGoActive) {
-                    System.out.println("ello?");
-                    nogoLayer.setVisible(true);
-                    updateNogo();
-                }
-                Thread.sleep(80000);
-            } catch (InterruptedException e) {
-                // System.out.println("Interrupted " + dynamicNoGoActive);
-            }
-
-            if (!dynamicNoGoActive && nogoLayer != null) {
-                // System.out.println("cleanup");
-                nogoLayer.setVisible(false);
-                nogoLayer.cleanUp();
-                nogoPanel.inactive();
-            }
+    /**
+     * Called periodically, or when triggered upon (de)activation.
+     * Updates the dynamic NoGo or cleans up the layer if inactive.
+     */
+    private void updateDynamicNogo() {
+        if (dynamicNoGoActive) {
+            nogoLayer.setVisible(true);
+            updateNogo();
+        }
 
-            // EeINS.sleep(10000);
-            // while (dynamicNoGoActive) {
-            // nogoLayer.setVisible(true);
-            // updateNogo();
-            // EeINS.sleep(60000);
-            // }
-
-            // EeINS.sleep(300000);
-            // EeINS.sleep(60000);
-            //
-            // if (dynamicNoGoActive) {
-            // updateNogo();
-            // }
+        if (!dynamicNoGoActive && nogoLayer != null) {
+            nogoLayer.setVisible(false);
+            nogoLayer.cleanUp();
+            nogoPanel.inactive();
         }
     }
 
@@ -168,8 +152,6 @@ public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
                     && aisHandler.getVesselTarget(mmsiTarget)
                             .getPositionData() != null) {
 
-                System.out.println("Really really update");
-
                 Position shipLocation = ownShipHandler.getPositionData().getPos();
                 southEastPointOwn = Position.create(
                         shipLocation.getLatitude() - 0.04,
@@ -196,7 +178,7 @@ public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
                     draughtOwn = ownShipHandler.getStaticData()
                             .getDraught() / 10;
                 } else {
-                    System.out.println("Setting draught to 5");
+                    LOG.debug("No static data for own ship, setting draught to 5");
                     draughtOwn = 5;
                 }
 
@@ -286,7 +268,7 @@ public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
                 && aisHandler.getVesselTarget(mmsiTarget)
                         .getPositionData() != null) {
 
-            System.out.println("Making a request to the server");
+            LOG.debug("Requesting dynamic NoGo from shore");
 
             // Send a rest to shoreServices for NoGo
             NogoResponse nogoResponseOwn = shoreServices.nogoPoll(-draughtOwn,
@@ -441,10 +423,9 @@ public class DynamicNogoHandler extends MapHandlerChild implements Runnable {
     public void setDynamicNoGoActive(boolean dynamicNoGoActive) {
         this.dynamicNoGoActive = dynamicNoGoActive;
 
-        System.out.println(dynamicNoGoActive);
+        LOG.debug("Dynamic NoGo active: " + dynamicNoGoActive);
 
-        // System.out.println("Interrupting!");
-        self.interrupt();
+        task.trigger();
 
         if (dynamicNoGoActive) {
             // If the dock isn't visible should it show it?
@@ -0,0 +1,31 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+/**
+ * Interface for classes listening for changes to the NoGo grounding status
+ */
+public interface INogoGroundingListener {
+
+    /**
+     * Called when the NoGo grounding status along the active route
+     * or the predicted track changes
+     * 
+     * @param routeResult the result of checking the active route, or null if no route is active
+     * @param trackResult the result of checking the predicted track, or null if own ship is not moving
+     */
+    void groundingStatusChanged(NogoCheckResult routeResult, NogoCheckResult trackResult);
+}
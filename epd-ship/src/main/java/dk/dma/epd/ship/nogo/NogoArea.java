@@ -0,0 +1,204 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import net.jcip.annotations.Immutable;
+import dk.frv.enav.common.xml.nogo.types.NogoPolygon;
+
+/**
+ * Immutable, compact representation of a NoGo polygon with a pre-computed bounding box.
+ * <p>
+ * Intersection tests are performed in the plane of latitude and longitude,
+ * which is adequate for the small extents of the NoGo polygons. The tests are
+ * inclusive: points on the boundary are inside the area, and legs touching
+ * the boundary or running along an edge intersect the area.
+ */
+@Immutable
+public final class NogoArea {
+
+    /** Tolerance of the orientation test, in square degrees */
+    private static final double EPSILON = 1e-12;
+
+    private final double[] lats;
+    private final double[] lons;
+    private final double minLat;
+    private final double maxLat;
+    private final double minLon;
+    private final double maxLon;
+
+    /**
+     * Constructor
+     * 
+     * @param polygon the NoGo polygon received from shore
+     */
+    public NogoArea(NogoPolygon polygon) {
+        this(latitudes(polygon), longitudes(polygon));
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param lats the latitudes of the polygon points
+     * @param lons the longitudes of the polygon points
+     */
+    NogoArea(double[] lats, double[] lons) {
+        this.lats = lats;
+        this.lons = lons;
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < lats.length; i++) {
+            minLat = Math.min(minLat, lats[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+            minLon = Math.min(minLon, lons[i]);
+            maxLon = Math.max(maxLon, lons[i]);
+        }
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+    }
+
+    private static double[] latitudes(NogoPolygon polygon) {
+        double[] lats = new double[polygon.getPolygon().size()];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = polygon.getPolygon().get(i).getLat();
+        }
+        return lats;
+    }
+
+    private static double[] longitudes(NogoPolygon polygon) {
+        double[] lons = new double[polygon.getPolygon().size()];
+        for (int i = 0; i < lons.length; i++) {
+            lons[i] = polygon.getPolygon().get(i).getLon();
+        }
+        return lons;
+    }
+
+    /**
+     * Returns if the bounding box of the area intersects the given box
+     */
+    public boolean intersectsBox(double minLat, double minLon, double maxLat, double maxLon) {
+        return lats.length > 2 && this.minLat <= maxLat && this.maxLat >= minLat && this.minLon <= maxLon
+                && this.maxLon >= minLon;
+    }
+
+    /**
+     * Returns if the given point is inside the area or on its boundary, using ray casting
+     * 
+     * @param lat the latitude of the point
+     * @param lon the longitude of the point
+     * @return if the point is inside the area
+     */
+    public boolean contains(double lat, double lon) {
+        if (!intersectsBox(lat, lon, lat, lon)) {
+            return false;
+        }
+        boolean inside = false;
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if (Math.abs(direction(lats[j], lons[j], lats[i], lons[i], lat, lon)) <= EPSILON
+                    && onSegment(lats[j], lons[j], lats[i], lons[i], lat, lon)) {
+                return true;
+            }
+            if ((lats[i] > lat) != (lats[j] > lat)
+                    && lon < (lons[j] - lons[i]) * (lat - lats[i]) / (lats[j] - lats[i]) + lons[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Returns if the line segment between the two points intersects the area
+     * 
+     * @param lat1 the latitude of the first point
+     * @param lon1 the longitude of the first point
+     * @param lat2 the latitude of the second point
+     * @param lon2 the longitude of the second point
+     * @return if the line segment intersects the area
+     */
+    public boolean intersects(double lat1, double lon1, double lat2, double lon2) {
+        if (!intersectsBox(Math.min(lat1, lat2), Math.min(lon1, lon2), Math.max(lat1, lat2), Math.max(lon1, lon2))) {
+            return false;
+        }
+        if (contains(lat1, lon1) || contains(lat2, lon2)) {
+            return true;
+        }
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if (segmentsIntersect(lat1, lon1, lat2, lon2, lats[j], lons[j], lats[i], lons[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns if the two line segments p1-p2 and p3-p4 intersect or touch
+     */
+    private static boolean segmentsIntersect(double y1, double x1, double y2, double x2, double y3, double x3, double y4,
+            double x4) {
+        int d1 = sign(direction(y3, x3, y4, x4, y1, x1));
+        int d2 = sign(direction(y3, x3, y4, x4, y2, x2));
+        int d3 = sign(direction(y1, x1, y2, x2, y3, x3));
+        int d4 = sign(direction(y1, x1, y2, x2, y4, x4));
+        if (d1 * d2 < 0 && d3 * d4 < 0) {
+            return true;
+        }
+        // Collinear or touching cases
+        return d1 == 0 && onSegment(y3, x3, y4, x4, y1, x1) || d2 == 0 && onSegment(y3, x3, y4, x4, y2, x2)
+                || d3 == 0 && onSegment(y1, x1, y2, x2, y3, x3) || d4 == 0 && onSegment(y1, x1, y2, x2, y4, x4);
+    }
+
+    /**
+     * Returns the sign of the orientation, treating values within the tolerance as collinear
+     */
+    private static int sign(double d) {
+        return d > EPSILON ? 1 : (d < -EPSILON ? -1 : 0);
+    }
+
+    /**
+     * Returns if p3, known to be collinear with p1-p2, lies within the bounding box of p1-p2
+     */
+    private static boolean onSegment(double y1, double x1, double y2, double x2, double y3, double x3) {
+        return y3 >= Math.min(y1, y2) && y3 <= Math.max(y1, y2) && x3 >= Math.min(x1, x2) && x3 <= Math.max(x1, x2);
+    }
+
+    /**
+     * Returns the cross product of (p2 - p1) and (p3 - p1)
+     */
+    private static double direction(double y1, double x1, double y2, double x2, double y3, double x3) {
+        return (x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1);
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    public int getPointCount() {
+        return lats.length;
+    }
+}
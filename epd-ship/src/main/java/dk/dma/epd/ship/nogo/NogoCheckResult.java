@@ -0,0 +1,104 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * The result of checking a path against the {@linkplain NogoStore}.
+ * <p>
+ * A path is only {@linkplain Status#CLEAR} if all the tiles it crosses are
+ * cached and none of their NoGo areas are intersected. If a tile is missing or 
+ * expired, and no intersection is found in the cached tiles, the result is
+ * {@linkplain Status#UNKNOWN}.
+ */
+@Immutable
+public final class NogoCheckResult {
+
+    /**
+     * The NoGo status of a path
+     */
+    public enum Status {
+        CLEAR, NOGO, UNKNOWN;
+    }
+
+    public static final NogoCheckResult CLEAR = new NogoCheckResult(Status.CLEAR, null);
+    public static final NogoCheckResult UNKNOWN = new NogoCheckResult(Status.UNKNOWN, null);
+
+    private final Status status;
+    private final NogoArea area;
+
+    private NogoCheckResult(Status status, NogoArea area) {
+        this.status = status;
+        this.area = area;
+    }
+
+    /**
+     * Returns a result for a path intersecting the given NoGo area
+     * 
+     * @param area the intersected NoGo area
+     * @return the result
+     */
+    public static NogoCheckResult nogo(NogoArea area) {
+        return new NogoCheckResult(Status.NOGO, area);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the intersected NoGo area if the status is {@linkplain Status#NOGO}, and null otherwise
+     * @return the intersected NoGo area
+     */
+    public NogoArea getArea() {
+        return area;
+    }
+
+    public boolean isClear() {
+        return status == Status.CLEAR;
+    }
+
+    public boolean isNogo() {
+        return status == Status.NOGO;
+    }
+
+    public boolean isUnknown() {
+        return status == Status.UNKNOWN;
+    }
+
+    @Override
+    public int hashCode() {
+        return status.hashCode() * 31 + System.identityHashCode(area);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof NogoCheckResult)) {
+            return false;
+        }
+        NogoCheckResult other = (NogoCheckResult) obj;
+        return status == other.status && area == other.area;
+    }
+
+    @Override
+    public String toString() {
+        return status.toString();
+    }
+}
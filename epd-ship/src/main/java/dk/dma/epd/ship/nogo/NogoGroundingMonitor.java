@@ -0,0 +1,234 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.openmap.MapHandlerChild;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.sensor.pnt.IPntDataListener;
+import dk.dma.epd.common.prototype.sensor.pnt.PntData;
+import dk.dma.epd.common.prototype.sensor.pnt.PntHandler;
+import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
+import dk.dma.epd.common.util.Calculator;
+import dk.dma.epd.common.util.Converter;
+import dk.dma.epd.ship.EPDShip;
+import dk.dma.epd.ship.nogo.NogoStore.TileKey;
+import dk.dma.epd.ship.ownship.OwnShipHandler;
+import dk.dma.epd.ship.route.RouteManager;
+
+/**
+ * Checks the active route and the predicted track of own ship 
+ * against the {@linkplain NogoStore} on every PNT update.
+ * <p>
+ * The checks only use the locally cached NoGo tiles. Tiles that are
+ * missing along the route or track are fetched from shore in the background.
+ */
+@ThreadSafe
+public class NogoGroundingMonitor extends MapHandlerChild implements IPntDataListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NogoGroundingMonitor.class);
+
+    private static final double ROUTE_LOOKAHEAD = Converter.nmToMeters(10.0);
+    private static final long TRACK_PREDICTION_TIME = 10 * 60; // 10 minutes
+    private static final double MIN_TRACK_SOG = 0.5; // knots
+    private static final float DEFAULT_DRAUGHT = 5.0f;
+
+    private final NogoStore nogoStore;
+    private final ScheduledTask fetchTask;
+    private final Set<TileKey> pendingTiles = Collections.newSetFromMap(new ConcurrentHashMap<TileKey, Boolean>());
+    private final CopyOnWriteArrayList<INogoGroundingListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile PntHandler pntHandler;
+    private volatile RouteManager routeManager;
+    private volatile OwnShipHandler ownShipHandler;
+    private volatile ShoreServicesCommon shoreServices;
+
+    private volatile NogoCheckResult routeResult;
+    private volatile NogoCheckResult trackResult;
+
+    /**
+     * Constructor
+     * 
+     * @param nogoStore the NoGo store to check against
+     */
+    public NogoGroundingMonitor(NogoStore nogoStore) {
+        this.nogoStore = nogoStore;
+        fetchTask = EPDShip.getInstance().getTaskScheduler().registerTriggered("NogoTileFetcher", TaskPriority.NORMAL,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        fetchPendingTiles();
+                    }
+                });
+    }
+
+    /**
+     * Checks the active route and the predicted track against the NoGo store
+     */
+    @Override
+    public void pntDataUpdate(PntData pntData) {
+        Position pos = pntData.getPosition();
+        if (pntData.isBadPosition() || pos == null) {
+            return;
+        }
+        double draught = getDraught();
+
+        // Check the remaining part of the active route
+        NogoCheckResult newRouteResult = null;
+        RouteManager routeManager = this.routeManager;
+        if (routeManager != null && routeManager.isRouteActive()) {
+            List<Position> routePath = NogoStore.getActiveRoutePath(routeManager.getActiveRoute(), pos, ROUTE_LOOKAHEAD);
+            requestMissingTiles(routePath, draught);
+            newRouteResult = nogoStore.check(routePath, draught);
+        }
+
+        // Check the predicted track
+        NogoCheckResult newTrackResult = null;
+        if (pntData.getCog() != null && pntData.getSog() != null && pntData.getSog() > MIN_TRACK_SOG) {
+            double distance = Converter.nmToMeters(Calculator.distanceAfterTimeMph(pntData.getSog(), TRACK_PREDICTION_TIME));
+            List<Position> trackPath = new ArrayList<>(2);
+            trackPath.add(pos);
+            trackPath.add(Calculator.findPosition(pos, pntData.getCog(), distance));
+            requestMissingTiles(trackPath, draught);
+            newTrackResult = nogoStore.check(trackPath, draught);
+        }
+
+        if (!equals(newRouteResult, routeResult) || !equals(newTrackResult, trackResult)) {
+            routeResult = newRouteResult;
+            trackResult = newTrackResult;
+            LOG.info("NoGo status changed. Active route: " + newRouteResult + ", predicted track: " + newTrackResult);
+            for (INogoGroundingListener listener : listeners) {
+                listener.groundingStatusChanged(newRouteResult, newTrackResult);
+            }
+        }
+    }
+
+    private static boolean equals(NogoCheckResult r1, NogoCheckResult r2) {
+        return r1 == null ? r2 == null : r1.equals(r2);
+    }
+
+    /**
+     * Queues the missing tiles along the path for fetching
+     */
+    private void requestMissingTiles(List<Position> path, double draught) {
+        if (shoreServices == null) {
+            return;
+        }
+        List<TileKey> missing = nogoStore.getMissingTiles(path, draught);
+        if (!missing.isEmpty() && pendingTiles.addAll(missing)) {
+            fetchTask.trigger();
+        }
+    }
+
+    /**
+     * Fetches the pending tiles from shore
+     */
+    private void fetchPendingTiles() {
+        ShoreServicesCommon shoreServices = this.shoreServices;
+        if (shoreServices == null) {
+            return;
+        }
+        List<TileKey> keys = new ArrayList<>(pendingTiles);
+        int fetched = nogoStore.fetchTiles(keys, shoreServices);
+        pendingTiles.removeAll(keys);
+        LOG.debug("Fetched " + fetched + " of " + keys.size() + " NoGo tiles");
+    }
+
+    /**
+     * Returns the own ship draught in meters
+     */
+    private double getDraught() {
+        OwnShipHandler ownShipHandler = this.ownShipHandler;
+        if (ownShipHandler != null && ownShipHandler.getStaticData() != null
+                && ownShipHandler.getStaticData().getDraught() > 0) {
+            return ownShipHandler.getStaticData().getDraught() / 10.0;
+        }
+        return DEFAULT_DRAUGHT;
+    }
+
+    /**
+     * Returns the result of the last check of the active route, or null if no route is active
+     * @return the result of the last check of the active route
+     */
+    public NogoCheckResult getRouteResult() {
+        return routeResult;
+    }
+
+    /**
+     * Returns the result of the last check of the predicted track, or null if own ship is not moving
+     * @return the result of the last check of the predicted track
+     */
+    public NogoCheckResult getTrackResult() {
+        return trackResult;
+    }
+
+    public NogoStore getNogoStore() {
+        return nogoStore;
+    }
+
+    public void addListener(INogoGroundingListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(INogoGroundingListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void findAndInit(Object obj) {
+        if (obj instanceof ShoreServicesCommon) {
+            shoreServices = (ShoreServicesCommon) obj;
+        }
+        if (obj instanceof RouteManager) {
+            routeManager = (RouteManager) obj;
+        }
+        if (obj instanceof OwnShipHandler) {
+            ownShipHandler = (OwnShipHandler) obj;
+        }
+        if (obj instanceof INogoGroundingListener) {
+            addListener((INogoGroundingListener) obj);
+        }
+        if (pntHandler == null && obj instanceof PntHandler) {
+            pntHandler = (PntHandler) obj;
+            pntHandler.addListener(this);
+        }
+    }
+
+    @Override
+    public void findAndUndo(Object obj) {
+        if (pntHandler == obj) {
+            pntHandler.removeListener(this);
+            pntHandler = null;
+        }
+        if (obj instanceof INogoGroundingListener) {
+            removeListener((INogoGroundingListener) obj);
+        }
+    }
+}
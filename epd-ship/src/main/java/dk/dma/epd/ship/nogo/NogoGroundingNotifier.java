@@ -0,0 +1,147 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.openmap.MapHandlerChild;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.EPD;
+import dk.dma.epd.common.prototype.notification.GeneralNotification;
+import dk.dma.epd.common.prototype.notification.Notification.NotificationSeverity;
+import dk.dma.epd.common.prototype.notification.NotificationAlert;
+import dk.dma.epd.common.prototype.notification.NotificationAlert.AlertType;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.sensor.pnt.PntTime;
+import dk.dma.epd.ship.nogo.NogoCheckResult.Status;
+
+/**
+ * Raises notifications when the {@linkplain NogoGroundingMonitor} finds
+ * a NoGo area along the active route or the predicted track.
+ * <p>
+ * If the NoGo status cannot be determined because tiles are missing, e.g. when
+ * the shore services are unavailable, a warning is raised once the status has
+ * remained unknown for a minute.
+ */
+@ThreadSafe
+public class NogoGroundingNotifier extends MapHandlerChild implements INogoGroundingListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NogoGroundingNotifier.class);
+
+    private static final long UNKNOWN_WARNING_DELAY = 60; // seconds
+    private static final String UNKNOWN_WARNING_TASK = "NogoUnknownWarning";
+
+    @GuardedBy("this")
+    private Status status = Status.CLEAR;
+
+    @GuardedBy("this")
+    private NogoArea alertedArea;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void groundingStatusChanged(NogoCheckResult routeResult, NogoCheckResult trackResult) {
+        Status oldStatus = status;
+        status = worst(routeResult, trackResult);
+
+        if (status == Status.NOGO) {
+            NogoCheckResult result = trackResult != null && trackResult.isNogo() ? trackResult : routeResult;
+            if (result.getArea() != alertedArea) {
+                alertedArea = result.getArea();
+                sendNogoAlert(result.getArea(), result == trackResult);
+            }
+        } else {
+            alertedArea = null;
+        }
+
+        if (status == Status.UNKNOWN && oldStatus != Status.UNKNOWN) {
+            EPD.getInstance().getTaskScheduler().schedule(UNKNOWN_WARNING_TASK, TaskPriority.LOW, new Runnable() {
+                @Override
+                public void run() {
+                    checkUnknownStatus();
+                }
+            }, UNKNOWN_WARNING_DELAY, TimeUnit.SECONDS);
+        } else if (status != Status.UNKNOWN && oldStatus == Status.UNKNOWN) {
+            EPD.getInstance().getTaskScheduler().cancel(UNKNOWN_WARNING_TASK);
+        }
+    }
+
+    /**
+     * Returns the most severe status of the two results
+     */
+    private static Status worst(NogoCheckResult routeResult, NogoCheckResult trackResult) {
+        Status result = Status.CLEAR;
+        for (NogoCheckResult r : new NogoCheckResult[] { routeResult, trackResult }) {
+            if (r != null && r.getStatus().ordinal() > result.ordinal()) {
+                result = r.getStatus();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Called when the status may have remained unknown for the warning delay
+     */
+    private synchronized void checkUnknownStatus() {
+        if (status != Status.UNKNOWN) {
+            return;
+        }
+        LOG.warn("NoGo status ahead unknown for " + UNKNOWN_WARNING_DELAY + " seconds");
+        sendNotification(NotificationSeverity.WARNING, "NoGo status unknown",
+                "NoGo data is not available for the waters ahead of own ship. "
+                        + "Grounding checks of the active route and predicted track are not possible.",
+                null, new NotificationAlert(AlertType.POPUP, AlertType.SYSTEM_TRAY));
+    }
+
+    /**
+     * Sends an alert for the given NoGo area
+     */
+    private void sendNogoAlert(NogoArea area, boolean track) {
+        LOG.warn("NoGo area ahead on the " + (track ? "predicted track" : "active route"));
+        Position location = Position.create((area.getMinLat() + area.getMaxLat()) / 2.0,
+                (area.getMinLon() + area.getMaxLon()) / 2.0);
+        sendNotification(NotificationSeverity.ALERT, "NoGo area ahead",
+                "The " + (track ? "predicted track" : "active route") + " of own ship intersects a NoGo area.",
+                location, new NotificationAlert(AlertType.POPUP, AlertType.SYSTEM_TRAY, AlertType.BEEP)
+                        .setRepeatEvery(1));
+    }
+
+    /**
+     * Sends a new notification to the notification center with the given parameters
+     */
+    private void sendNotification(NotificationSeverity severity, String title, String desc, Position location,
+            NotificationAlert alert) {
+        if (EPD.getInstance().getNotificationCenter() == null) {
+            return;
+        }
+        GeneralNotification notification = new GeneralNotification();
+        notification.setSeverity(severity);
+        notification.setTitle(title);
+        notification.setDescription(desc);
+        notification.setLocation(location);
+        notification.setDate(PntTime.getInstance().getDate());
+        notification.addAlerts(alert);
+        EPD.getInstance().getNotificationCenter().addNotification(notification);
+    }
+}
@@ -28,7 +28,6 @@ import com.bbn.openmap.MapHandlerChild;
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
 import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
-import dk.dma.epd.common.util.Util;
 import dk.dma.epd.ship.EPDShip;
 import dk.dma.epd.ship.gui.component_panels.NoGoComponentPanel;
 import dk.dma.epd.ship.gui.component_panels.ShowDockableDialog;
@@ -42,7 +41,7 @@ import dk.frv.enav.common.xml.nogo.types.NogoPolygon;
  * Component for handling NOGO areas
  */
 @ThreadSafe
-public class NogoHandler extends MapHandlerChild implements Runnable {
+public class NogoHandler extends MapHandlerChild {
 
     private static final Logger LOG = LoggerFactory.getLogger(NogoHandler.class);
 
@@ -67,6 +66,7 @@ public class NogoHandler extends MapHandlerChild implements Runnable {
     private String noGoMessage;
 
     private NoGoComponentPanel nogoPanel;
+    private NogoStore nogoStore;
     
     
     public NogoLayer getNogoLayer() {
@@ -109,15 +109,6 @@ public class NogoHandler extends MapHandlerChild implements Runnable {
 
     public NogoHandler(EPDEnavSettings enavSettings) {
         // pollInterval = enavSettings.getNogoPollInterval();
-        EPDShip.startThread(this, "NogoHandler");
-    }
-
-    @Override
-    public void run() {
-        while (true) {
-            Util.sleep(30000);
-            // updateNogo();
-        }
     }
 
     public synchronized void updateNogo() {
@@ -229,6 +220,11 @@ public class NogoHandler extends MapHandlerChild implements Runnable {
         if (nogoResponse == null || nogoResponse.getPolygons() == null) {
             return false;
         }
+
+        // Let the grounding monitor use the received areas as well
+        if (nogoStore != null && draught != null) {
+            nogoStore.addArea(northWestPoint, southEastPoint, draught, nogoResponse);
+        }
         return true;
 
     }
@@ -283,6 +279,9 @@ public class NogoHandler extends MapHandlerChild implements Runnable {
         if (obj instanceof NoGoComponentPanel) {
             nogoPanel = (NoGoComponentPanel) obj;
         }
+        if (obj instanceof NogoGroundingMonitor) {
+            nogoStore = ((NogoGroundingMonitor) obj).getNogoStore();
+        }
 
     }
 
@@ -0,0 +1,522 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
+import dk.dma.epd.common.prototype.model.route.ActiveRoute;
+import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteWaypoint;
+import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
+import dk.frv.enav.common.xml.nogo.response.NogoResponse;
+import dk.frv.enav.common.xml.nogo.types.NogoPolygon;
+
+/**
+ * Local store of NoGo areas received from shore, indexed by tile and draught.
+ * <p>
+ * The NoGo areas are fetched from shore one fixed-size tile at a time. A tile
+ * is fetched for a draught rounded up to {@linkplain #DRAUGHT_RESOLUTION},
+ * so a cached tile is always conservative for the actual draught.
+ * <p>
+ * The store answers "does this leg or track intersect NoGo" queries against
+ * the cached tiles only, which makes it cheap enough to run on every PNT update.
+ * Use {@linkplain #getMissingTiles(List, double)} to determine the tiles
+ * that must be fetched with {@linkplain #fetchTiles(List, ShoreServicesCommon)}.
+ * Areas requested by other components can be added with
+ * {@linkplain #addArea(Position, Position, double, NogoResponse)}.
+ */
+@ThreadSafe
+public class NogoStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NogoStore.class);
+
+    /** The size of a tile in degrees */
+    public static final double TILE_SIZE = 0.1;
+
+    /** The draught resolution in meters */
+    public static final double DRAUGHT_RESOLUTION = 0.5;
+
+    private static final long TILE_TTL = 60 * 60 * 1000L; // 1 hour
+    private static final long FAILED_TILE_RETRY = 2 * 60 * 1000L; // 2 minutes
+    private static final int MAX_TILES = 2000;
+
+    private final ConcurrentHashMap<TileKey, NogoTile> tiles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TileKey, Long> failedTiles = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the tiles along the given path which are not in the store, or are expired
+     * 
+     * @param path the path
+     * @param draught the draught in meters
+     * @return the missing tiles
+     */
+    public List<TileKey> getMissingTiles(List<Position> path, double draught) {
+        long now = System.currentTimeMillis();
+        List<TileKey> missing = new ArrayList<>();
+        for (TileKey key : getTiles(path, draught)) {
+            NogoTile tile = tiles.get(key);
+            if (tile != null && !tile.isExpired(now)) {
+                continue;
+            }
+            Long failed = failedTiles.get(key);
+            if (failed != null && now - failed < FAILED_TILE_RETRY) {
+                continue;
+            }
+            missing.add(key);
+        }
+        return missing;
+    }
+
+    /**
+     * Fetches the given tiles from shore and adds them to the store
+     * 
+     * @param keys the tiles to fetch
+     * @param shoreServices the shore services
+     * @return the number of tiles successfully fetched
+     */
+    public int fetchTiles(List<TileKey> keys, ShoreServicesCommon shoreServices) {
+        int fetched = 0;
+        for (TileKey key : keys) {
+            // Request the tile for the full TTL, so that the tile remains valid while cached
+            Date now = new Date();
+            Date validTo = new Date(now.getTime() + TILE_TTL);
+            try {
+                NogoResponse response = shoreServices.nogoPoll(-key.getDraught(),
+                        Position.create(key.getMaxLat(), key.getMinLon()), Position.create(key.getMinLat(), key.getMaxLon()),
+                        now, validTo);
+                if (response == null || response.getPolygons() == null || response.getNoGoErrorCode() != 0) {
+                    failedTiles.put(key, now.getTime());
+                    continue;
+                }
+                addTile(key, response.getPolygons(), response.getValidTo());
+                fetched++;
+            } catch (ShoreServiceException e) {
+                LOG.error("Failed to get NoGo tile " + key + " from shore: " + e.getMessage());
+                failedTiles.put(key, now.getTime());
+            }
+        }
+        return fetched;
+    }
+
+    /**
+     * Adds the NoGo polygons of a tile to the store
+     * 
+     * @param key the tile key
+     * @param polygons the NoGo polygons of the tile
+     * @param validTo the end of the validity of the polygons. May be null
+     */
+    public void addTile(TileKey key, List<NogoPolygon> polygons, Date validTo) {
+        List<NogoArea> areas = new ArrayList<>(polygons.size());
+        for (NogoPolygon polygon : polygons) {
+            areas.add(new NogoArea(polygon));
+        }
+        addTileAreas(key, areas, validTo);
+    }
+
+    /**
+     * Adds the NoGo areas of a tile to the store
+     * 
+     * @param key the tile key
+     * @param areas the NoGo areas of the tile
+     * @param validTo the end of the validity of the areas. May be null
+     */
+    void addTileAreas(TileKey key, List<NogoArea> areas, Date validTo) {
+        for (Iterator<NogoArea> it = areas.iterator(); it.hasNext();) {
+            if (it.next().getPointCount() <= 2) {
+                it.remove();
+            }
+        }
+        tiles.put(key, new NogoTile(areas, validTo, System.currentTimeMillis()));
+        failedTiles.remove(key);
+        evictTiles();
+    }
+
+    /**
+     * Adds the NoGo polygons of a response to a request made outside the store,
+     * e.g. by the {@linkplain NogoHandler}, so that the area need not be fetched again.
+     * <p>
+     * Only the tiles lying fully inside the requested area are filled, and only if
+     * the response is valid now. The tiles are stored for the draught rounded down
+     * to {@linkplain #DRAUGHT_RESOLUTION}, so that they remain conservative.
+     * 
+     * @param northWest the north-west corner of the requested area
+     * @param southEast the south-east corner of the requested area
+     * @param draught the requested draught. The sign is ignored
+     * @param response the NoGo response
+     * @return the number of tiles added
+     */
+    public int addArea(Position northWest, Position southEast, double draught, NogoResponse response) {
+        if (northWest == null || southEast == null || response == null || response.getPolygons() == null
+                || response.getNoGoErrorCode() != 0) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        Date validFrom = response.getValidFrom();
+        Date validTo = response.getValidTo();
+        if (validFrom != null && validFrom.getTime() > now || validTo != null && validTo.getTime() < now) {
+            return 0;
+        }
+
+        List<NogoArea> areas = new ArrayList<>(response.getPolygons().size());
+        for (NogoPolygon polygon : response.getPolygons()) {
+            NogoArea area = new NogoArea(polygon);
+            if (area.getPointCount() > 2) {
+                areas.add(area);
+            }
+        }
+
+        int draughtIndex = (int) Math.floor(Math.abs(draught) / DRAUGHT_RESOLUTION);
+        int minLatIndex = (int) Math.ceil(southEast.getLatitude() / TILE_SIZE);
+        int maxLatIndex = tileIndex(northWest.getLatitude()) - 1;
+        int minLonIndex = (int) Math.ceil(northWest.getLongitude() / TILE_SIZE);
+        int maxLonIndex = tileIndex(southEast.getLongitude()) - 1;
+        int added = 0;
+        for (int latIndex = minLatIndex; latIndex <= maxLatIndex; latIndex++) {
+            for (int lonIndex = minLonIndex; lonIndex <= maxLonIndex; lonIndex++) {
+                TileKey key = new TileKey(latIndex, lonIndex, draughtIndex);
+                List<NogoArea> tileAreas = new ArrayList<>();
+                for (NogoArea area : areas) {
+                    if (area.intersectsBox(key.getMinLat(), key.getMinLon(), key.getMaxLat(), key.getMaxLon())) {
+                        tileAreas.add(area);
+                    }
+                }
+                tiles.put(key, new NogoTile(tileAreas, validTo, now));
+                failedTiles.remove(key);
+                added++;
+            }
+        }
+        evictTiles();
+        return added;
+    }
+
+    /**
+     * Evicts the oldest tiles if the store has grown beyond its maximum size
+     */
+    private void evictTiles() {
+        while (tiles.size() > MAX_TILES) {
+            TileKey oldest = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (Map.Entry<TileKey, NogoTile> entry : tiles.entrySet()) {
+                if (entry.getValue().fetched < oldestTime) {
+                    oldest = entry.getKey();
+                    oldestTime = entry.getValue().fetched;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            tiles.remove(oldest);
+        }
+    }
+
+    /**
+     * Removes all tiles from the store
+     */
+    public void clear() {
+        tiles.clear();
+        failedTiles.clear();
+    }
+
+    /**
+     * Checks the given path against the cached NoGo tiles.
+     * <p>
+     * Missing or expired tiles along the path yield {@linkplain NogoCheckResult#UNKNOWN}
+     * unless an intersection is found in the cached tiles. Missing tiles should be
+     * requested with {@linkplain #getMissingTiles(List, double)}.
+     * 
+     * @param path the path
+     * @param draught the draught in meters
+     * @return the result of the check
+     */
+    public NogoCheckResult check(List<Position> path, double draught) {
+        boolean unknown = false;
+        for (int i = 0; i < path.size() - 1; i++) {
+            NogoCheckResult result = check(path.get(i), path.get(i + 1), draught);
+            if (result.isNogo()) {
+                return result;
+            }
+            unknown |= result.isUnknown();
+        }
+        return unknown ? NogoCheckResult.UNKNOWN : NogoCheckResult.CLEAR;
+    }
+
+    /**
+     * Checks the given leg against the cached NoGo tiles.
+     * 
+     * @param start the start position
+     * @param end the end position
+     * @param draught the draught in meters
+     * @return the result of the check
+     */
+    public NogoCheckResult check(Position start, Position end, double draught) {
+        long now = System.currentTimeMillis();
+        double lat1 = start.getLatitude(), lon1 = start.getLongitude();
+        double lat2 = end.getLatitude(), lon2 = end.getLongitude();
+        boolean unknown = false;
+        for (TileKey key : getTiles(start, end, draught)) {
+            NogoTile tile = tiles.get(key);
+            if (tile == null || tile.isExpired(now)) {
+                unknown = true;
+                continue;
+            }
+            for (NogoArea area : tile.areas) {
+                if (area.intersects(lat1, lon1, lat2, lon2)) {
+                    return NogoCheckResult.nogo(area);
+                }
+            }
+        }
+        return unknown ? NogoCheckResult.UNKNOWN : NogoCheckResult.CLEAR;
+    }
+
+    /**
+     * Checks the given route against the cached NoGo tiles.
+     * 
+     * @param route the route
+     * @param draught the draught in meters
+     * @return the result of the check
+     */
+    public NogoCheckResult check(Route route, double draught) {
+        return check(getRoutePath(route), draught);
+    }
+
+    /**
+     * Returns the positions of the route waypoints
+     * 
+     * @param route the route
+     * @return the positions of the route waypoints
+     */
+    public static List<Position> getRoutePath(Route route) {
+        List<Position> path = new ArrayList<>(route.getWaypoints().size());
+        for (RouteWaypoint wp : route.getWaypoints()) {
+            path.add(wp.getPos());
+        }
+        return path;
+    }
+
+    /**
+     * Returns the remaining path of the active route, starting at the given position 
+     * and following the route from the active waypoint for the given distance.
+     * 
+     * @param activeRoute the active route
+     * @param pos the current position
+     * @param lookahead the distance to follow the route in meters
+     * @return the remaining path of the active route
+     */
+    public static List<Position> getActiveRoutePath(ActiveRoute activeRoute, Position pos, double lookahead) {
+        List<Position> path = new ArrayList<>();
+        path.add(pos);
+        int index = activeRoute.getActiveWaypointIndex();
+        if (index < 0 || index >= activeRoute.getWaypoints().size()) {
+            return path;
+        }
+        double distance = 0.0;
+        Position last = pos;
+        ListIterator<RouteWaypoint> it = activeRoute.getWaypoints().listIterator(index);
+        while (it.hasNext() && distance < lookahead) {
+            Position wpPos = it.next().getPos();
+            distance += last.rhumbLineDistanceTo(wpPos);
+            path.add(wpPos);
+            last = wpPos;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the tiles covering the given path
+     */
+    private Set<TileKey> getTiles(List<Position> path, double draught) {
+        Set<TileKey> keys = new LinkedHashSet<>();
+        if (path.size() == 1) {
+            keys.addAll(getTiles(path.get(0), path.get(0), draught));
+        }
+        for (int i = 0; i < path.size() - 1; i++) {
+            keys.addAll(getTiles(path.get(i), path.get(i + 1), draught));
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the tiles covering the given leg. Only the tiles 
+     * of the leg bounding box that are actually crossed by the leg are included.
+     */
+    private List<TileKey> getTiles(Position start, Position end, double draught) {
+        int draughtIndex = (int) Math.ceil(draught / DRAUGHT_RESOLUTION);
+        double lat1 = start.getLatitude(), lon1 = start.getLongitude();
+        double lat2 = end.getLatitude(), lon2 = end.getLongitude();
+        int minLatIndex = tileIndex(Math.min(lat1, lat2));
+        int maxLatIndex = tileIndex(Math.max(lat1, lat2));
+        int minLonIndex = tileIndex(Math.min(lon1, lon2));
+        int maxLonIndex = tileIndex(Math.max(lon1, lon2));
+
+        List<TileKey> keys = new ArrayList<>();
+        for (int latIndex = minLatIndex; latIndex <= maxLatIndex; latIndex++) {
+            for (int lonIndex = minLonIndex; lonIndex <= maxLonIndex; lonIndex++) {
+                TileKey key = new TileKey(latIndex, lonIndex, draughtIndex);
+                if (key.isCrossedBy(lat1, lon1, lat2, lon2)) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static int tileIndex(double degrees) {
+        return (int) Math.floor(degrees / TILE_SIZE);
+    }
+
+    /**
+     * Returns the number of cached tiles
+     * @return the number of cached tiles
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns a snapshot of the cached NoGo areas, e.g. for display
+     * @return a snapshot of the cached NoGo areas
+     */
+    public List<NogoArea> getAreas() {
+        List<NogoArea> areas = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Iterator<NogoTile> it = tiles.values().iterator(); it.hasNext();) {
+            NogoTile tile = it.next();
+            if (!tile.isExpired(now)) {
+                areas.addAll(tile.areas);
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * Key of a NoGo tile, defined by the tile indexes and the draught index
+     */
+    @Immutable
+    public static final class TileKey {
+        private final int latIndex;
+        private final int lonIndex;
+        private final int draughtIndex;
+
+        TileKey(int latIndex, int lonIndex, int draughtIndex) {
+            this.latIndex = latIndex;
+            this.lonIndex = lonIndex;
+            this.draughtIndex = draughtIndex;
+        }
+
+        public double getMinLat() {
+            return latIndex * TILE_SIZE;
+        }
+
+        public double getMaxLat() {
+            return (latIndex + 1) * TILE_SIZE;
+        }
+
+        public double getMinLon() {
+            return lonIndex * TILE_SIZE;
+        }
+
+        public double getMaxLon() {
+            return (lonIndex + 1) * TILE_SIZE;
+        }
+
+        public double getDraught() {
+            return draughtIndex * DRAUGHT_RESOLUTION;
+        }
+
+        /**
+         * Returns if the given line segment crosses this tile
+         */
+        boolean isCrossedBy(double lat1, double lon1, double lat2, double lon2) {
+            double minLat = getMinLat(), maxLat = getMaxLat();
+            double minLon = getMinLon(), maxLon = getMaxLon();
+            if (Math.abs(lat2 - lat1) < 1e-12) {
+                return lat1 >= minLat && lat1 <= maxLat;
+            }
+            if (Math.abs(lon2 - lon1) < 1e-12) {
+                return lon1 >= minLon && lon1 <= maxLon;
+            }
+            // Clip the segment against the latitude band and check the longitude extent
+            double t0 = (minLat - lat1) / (lat2 - lat1);
+            double t1 = (maxLat - lat1) / (lat2 - lat1);
+            double tMin = Math.max(0.0, Math.min(t0, t1));
+            double tMax = Math.min(1.0, Math.max(t0, t1));
+            if (tMin > tMax) {
+                return false;
+            }
+            double lonA = lon1 + tMin * (lon2 - lon1);
+            double lonB = lon1 + tMax * (lon2 - lon1);
+            return Math.max(lonA, lonB) >= minLon && Math.min(lonA, lonB) <= maxLon;
+        }
+
+        @Override
+        public int hashCode() {
+            return (latIndex * 31 + lonIndex) * 31 + draughtIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return latIndex == other.latIndex && lonIndex == other.lonIndex && draughtIndex == other.draughtIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + getMinLat() + ", " + getMinLon() + ", draught " + getDraught() + "]";
+        }
+    }
+
+    /**
+     * A cached NoGo tile
+     */
+    private static final class NogoTile {
+        final List<NogoArea> areas;
+        final Date validTo;
+        final long fetched;
+
+        NogoTile(List<NogoArea> areas, Date validTo, long fetched) {
+            this.areas = Collections.unmodifiableList(areas);
+            this.validTo = validTo;
+            this.fetched = fetched;
+        }
+
+        boolean isExpired(long now) {
+            return now - fetched > TILE_TTL || (validTo != null && validTo.getTime() < now);
+        }
+    }
+}
@@ -19,17 +19,21 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
-import dk.dma.epd.common.util.Util;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.shoreservice.ShoreServiceExecutor;
 import dk.dma.epd.ship.EPDShip;
 import dk.frv.enav.common.xml.risk.response.Risk;
 import dk.frv.enav.common.xml.risk.response.RiskList;
 
-public class RiskHandler implements Runnable {
+public class RiskHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(RiskHandler.class);
 
@@ -40,31 +44,70 @@ public class RiskHandler implements Runnable {
     private Map<Long, RiskList> riskListMap = new HashMap<>();
     private static final Object MUTEX = new Object();
 
+    private volatile ScheduledTask task;
+    private volatile Future<List<RiskList>> pendingRequest;
+
     public RiskHandler() {
         super();
-        EPDShip.startThread(this, "RiskHandler");
+        task = EPDShip.getInstance().getTaskScheduler().schedulePeriodic("RiskHandler", TaskPriority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                updateRiskIndexes();
+            }
+        }, 0, 10, 1, TimeUnit.SECONDS);
     }
 
-    @Override
-    public void run() {
-
-        while (EPDShip.getInstance().getSettings().getAisSettings().isShowRisk()) {
-            //VesselTarget ownShip = EeINS.getAisHandler().getOwnShip();
-            List<RiskList> riskLists = new ArrayList<>();
-            try {
-                riskLists = EPDShip.getInstance().getShoreServices().getRiskIndexes(54.75, 56.0, 10.65, 11.25);
-            } catch (ShoreServiceException e) {
-                LOG.warn("cannot get risk indexes", e);
+    /**
+     * Fetches the risk indexes from shore. Cancels the periodic task 
+     * when risk indexes are no longer displayed.
+     * <p>
+     * The request is submitted without waiting for the response, which
+     * is collected by the next run. A new request is not submitted while
+     * the previous one is still pending.
+     */
+    private void updateRiskIndexes() {
+        if (!EPDShip.getInstance().getSettings().getAisSettings().isShowRisk()) {
+            if (task != null) {
+                task.cancel();
             }
-            synchronized (MUTEX) {
-                riskListMap.clear();
-                for (RiskList list : riskLists) {
-                    riskListMap.put(list.getMmsi().longValue(), list);
-                }
+            Future<List<RiskList>> request = pendingRequest;
+            if (request != null) {
+                request.cancel(true);
+                pendingRequest = null;
+            }
+            return;
+        }
+
+        Future<List<RiskList>> request = pendingRequest;
+        if (request != null) {
+            if (!request.isDone()) {
+                return;
             }
-            Util.sleep(10000);
+            collectRiskIndexes(request);
         }
 
+        //VesselTarget ownShip = EeINS.getAisHandler().getOwnShip();
+        pendingRequest = EPDShip.getInstance().getShoreServices().getRiskIndexesAsync(54.75, 56.0, 10.65, 11.25);
+    }
+
+    /**
+     * Updates the risk indexes from the completed request
+     * 
+     * @param request the completed request
+     */
+    private void collectRiskIndexes(Future<List<RiskList>> request) {
+        List<RiskList> riskLists = new ArrayList<>();
+        try {
+            riskLists = ShoreServiceExecutor.get(request);
+        } catch (ShoreServiceException e) {
+            LOG.warn("cannot get risk indexes", e);
+        }
+        synchronized (MUTEX) {
+            riskListMap.clear();
+            for (RiskList list : riskLists) {
+                riskListMap.put(list.getMmsi().longValue(), list);
+            }
+        }
     }
 
     public void toggleRiskHandler(boolean onOff) {
@@ -37,6 +37,7 @@ import dk.dma.epd.common.prototype.enavcloud.RouteSuggestionService.RouteSuggest
 import dk.dma.epd.common.prototype.model.route.ActiveRoute;
 import dk.dma.epd.common.prototype.model.route.ActiveRoute.ActiveWpSelectionResult;
 import dk.dma.epd.common.prototype.model.route.Route;
+import dk.dma.epd.common.prototype.model.route.RouteUpdate;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
 import dk.dma.epd.common.prototype.route.RouteManagerCommon;
 import dk.dma.epd.common.prototype.sensor.pnt.IPntDataListener;
@@ -91,6 +92,7 @@ public class RouteManager extends RouteManagerCommon implements IPntDataListener
 
         ActiveWpSelectionResult endRes;
         ActiveWpSelectionResult res;
+        RouteUpdate update;
         synchronized (this) {
             activeRoute.update(pntData);
             endRes = activeRoute.chooseActiveWp();
@@ -99,6 +101,8 @@ public class RouteManager extends RouteManagerCommon implements IPntDataListener
             while (res == ActiveWpSelectionResult.CHANGED) {
                 res = activeRoute.chooseActiveWp();
             }
+            update = new RouteUpdate(RoutesUpdateEvent.ACTIVE_ROUTE_UPDATE, activeRoute, 
+                    activeRouteIndex, activeRoute.getActiveWaypointIndex());
         }
 
         // If last change ended route, this will be result
@@ -107,7 +111,8 @@ public class RouteManager extends RouteManagerCommon implements IPntDataListener
         }
 
         if (endRes == ActiveWpSelectionResult.CHANGED) {
-            notifyListeners(RoutesUpdateEvent.ACTIVE_ROUTE_UPDATE);
+            // Only the active waypoint of the active route has changed
+            notifyListeners(update);
         } else if (endRes == ActiveWpSelectionResult.ROUTE_FINISHED) {
             synchronized (this) {
                 activeRoute = null;
@@ -143,7 +148,7 @@ public class RouteManager extends RouteManagerCommon implements IPntDataListener
             activeRouteIndex = index;
 
             // Create new
-            activeRoute = new ActiveRoute(route, pntHandler.getCurrentData());
+            activeRoute = new ActiveRoute(route, pntHandler.getSnapshot());
 
             // Set the minimum WP circle radius
             activeRoute.setWpCircleMin(EPDShip.getInstance().getSettings().getNavSettings()
@@ -152,7 +157,7 @@ public class RouteManager extends RouteManagerCommon implements IPntDataListener
             activeRoute.setRelaxedWpChange(EPDShip.getInstance().getSettings().getNavSettings()
                     .isRelaxedWpChange());
             // Inject the current position
-            activeRoute.update(pntHandler.getCurrentData());
+            activeRoute.update(pntHandler.getSnapshot());
             // Set start time to now
             activeRoute.setStarttime(PntTime.getInstance().getDate());
         }
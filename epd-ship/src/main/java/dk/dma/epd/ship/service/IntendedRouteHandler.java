@@ -18,6 +18,7 @@ package dk.dma.epd.ship.service;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import net.maritimecloud.net.MaritimeCloudClient;
 import net.maritimecloud.net.broadcast.BroadcastOptions;
@@ -35,8 +36,11 @@ import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
 import dk.dma.epd.common.prototype.model.route.IntendedRoute;
 import dk.dma.epd.common.prototype.model.route.PartialRouteFilter;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
+import dk.dma.epd.common.prototype.scheduler.ScheduledTask;
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
+import dk.dma.epd.common.prototype.service.CloudMessagePriority;
 import dk.dma.epd.common.prototype.service.IntendedRouteHandlerCommon;
-import dk.dma.epd.common.util.Util;
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
 import dk.dma.epd.ship.EPDShip;
 import dk.dma.epd.ship.route.RouteManager;
 
@@ -50,17 +54,19 @@ import dk.dma.epd.ship.route.RouteManager;
  * <li>Use a worker pool rather than spawning a new thread for each broadcast.</li>
  * </ul>
  */
-public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements IRoutesUpdateListener, Runnable {
+public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements IRoutesUpdateListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(IntendedRouteHandler.class);
     private static final long BROADCAST_TIME = 60; // Broadcast intended route every minute for now
     private static final long ADAPTIVE_TIME = 60 * 10; // Set to 10 minutes?
     private static final int BROADCAST_RADIUS = Integer.MAX_VALUE;
+    private static final long BROADCAST_TTL = BROADCAST_TIME * 1000L; // Outdated once the next periodic broadcast is due
 
     private DateTime lastTransmitActiveWp;
     private DateTime lastSend = new DateTime(1);
     private RouteManager routeManager;
-    private boolean running;
+    private volatile boolean running;
+    private ScheduledTask broadcastTask;
     
     private IntendedRouteLayerCommon intendedRouteLayerCommon;
 
@@ -81,7 +87,13 @@ public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements
 
         // Start broadcasting our own active route
         running = true;
-        new Thread(this).start();
+        broadcastTask = EPDShip.getInstance().getTaskScheduler().schedulePeriodic("IntendedRouteHandler",
+                TaskPriority.NORMAL, new Runnable() {
+                    @Override
+                    public void run() {
+                        checkBroadcast();
+                    }
+                }, 1, 1, 0, TimeUnit.SECONDS);
     }
 
     /**
@@ -90,81 +102,68 @@ public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements
     @Override
     public void cloudDisconnected() {
         running = false;
+        if (broadcastTask != null) {
+            broadcastTask.cancel();
+        }
     }
 
     /**
-     * Main thread run method. Broadcasts the intended route
+     * Called every second by the task scheduler. Broadcasts the intended route
+     * periodically or when the ETA of the active waypoint has changed significantly
      */
-    public void run() {
-
-        // Initialize first send
-        // lastSend = new DateTime();
-        // broadcastIntendedRoute();
-
-        while (running) {
-
-            if (routeManager != null) {
-
-                // We have no active route, keep sleeping
-                if (routeManager.getActiveRoute() == null) {
-                    Util.sleep(BROADCAST_TIME * 1000L);
-                } else {
-
-                    // Here we handle the periodical broadcasts
-                    DateTime calculatedTimeOfLastSend = new DateTime();
-                    calculatedTimeOfLastSend = calculatedTimeOfLastSend.minus(BROADCAST_TIME * 1000L);
-
-                    // Do we need to rebroadcast based on the broadcast time setting
-                    if (calculatedTimeOfLastSend.isAfter(lastSend)) {
-                        System.out.println("Periodically rebroadcasting");
-                        broadcastIntendedRoute();
-                        lastSend = new DateTime();
-                    } else if (lastTransmitActiveWp != null) {
-
-                        // We check for the adaptive route broadcast here
-                        // We need to compare lastTransmitActiveWp which is the last stored
-                        // ETA of the waypoint we sent to the current one
-                        DateTime currentActiveWaypointETA = new DateTime(routeManager.getActiveRoute().getActiveWaypointEta());
+    private void checkBroadcast() {
+        // We have no active route, nothing to broadcast
+        if (!running || routeManager == null || routeManager.getActiveRoute() == null) {
+            return;
+        }
 
-                        // System.out.println("The ETA at last transmission was : " + lastTransmitActiveWp);
-                        // System.out.println("It is now                        : " + currentActiveWaypointETA);
+        // Here we handle the periodical broadcasts
+        DateTime calculatedTimeOfLastSend = new DateTime();
+        calculatedTimeOfLastSend = calculatedTimeOfLastSend.minus(BROADCAST_TIME * 1000L);
 
-                        // //It can either be before or after
-                        //
-                        if (currentActiveWaypointETA.isAfter(lastTransmitActiveWp)
-                                || currentActiveWaypointETA.isBefore(lastTransmitActiveWp)) {
+        // Do we need to rebroadcast based on the broadcast time setting
+        if (calculatedTimeOfLastSend.isAfter(lastSend)) {
+            LOG.debug("Periodically rebroadcasting");
+            broadcastIntendedRoute();
+            lastSend = new DateTime();
+        } else if (lastTransmitActiveWp != null) {
 
-                            long etaTimeChange;
+            // We check for the adaptive route broadcast here
+            // We need to compare lastTransmitActiveWp which is the last stored
+            // ETA of the waypoint we sent to the current one
+            DateTime currentActiveWaypointETA = new DateTime(routeManager.getActiveRoute().getActiveWaypointEta());
 
-                            // Is it before?
-                            if (currentActiveWaypointETA.isAfter(lastTransmitActiveWp)) {
+            // System.out.println("The ETA at last transmission was : " + lastTransmitActiveWp);
+            // System.out.println("It is now                        : " + currentActiveWaypointETA);
 
-                                etaTimeChange = currentActiveWaypointETA.minus(lastTransmitActiveWp.getMillis()).getMillis();
+            // //It can either be before or after
+            //
+            if (currentActiveWaypointETA.isAfter(lastTransmitActiveWp)
+                    || currentActiveWaypointETA.isBefore(lastTransmitActiveWp)) {
 
-                                // Must be after
-                            } else {
-                                etaTimeChange = currentActiveWaypointETA.plus(lastTransmitActiveWp.getMillis()).getMillis();
-                            }
+                long etaTimeChange;
 
-                            if (etaTimeChange > ADAPTIVE_TIME * 1000L) {
-                                System.out.println("Broadcast based on adaptive time!");
-                                broadcastIntendedRoute();
-                                lastSend = new DateTime();
-                            }
+                // Is it before?
+                if (currentActiveWaypointETA.isAfter(lastTransmitActiveWp)) {
 
-                            // System.out.println("ETA has changed with " + etaTimeChange + " mili seconds" );
+                    etaTimeChange = currentActiveWaypointETA.minus(lastTransmitActiveWp.getMillis()).getMillis();
 
-                        }
+                    // Must be after
+                } else {
+                    etaTimeChange = currentActiveWaypointETA.plus(lastTransmitActiveWp.getMillis()).getMillis();
+                }
 
-                    }
+                if (etaTimeChange > ADAPTIVE_TIME * 1000L) {
+                    LOG.debug("Broadcast based on adaptive time");
+                    broadcastIntendedRoute();
+                    lastSend = new DateTime();
+                }
 
-                    Util.sleep(1000L);
+                // System.out.println("ETA has changed with " + etaTimeChange + " mili seconds" );
 
-                }
             }
 
         }
-
     }
 
     /**
@@ -172,7 +171,7 @@ public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements
      */
     public void broadcastIntendedRoute() {
         // Sanity check
-        if (!running || routeManager == null || getMaritimeCloudConnection() == null) {
+        if (!running || routeManager == null || maritimeCloudService == null) {
             return;
         }
 
@@ -192,12 +191,13 @@ public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements
         // send message
         LOG.debug("Broadcasting intended route");
 
-        submitIfConnected(new Runnable() {
+        // A newer broadcast supersedes any queued, unsent broadcast
+        maritimeCloudService.send(CloudMessagePriority.NORMAL, "IntendedRouteBroadcast", BROADCAST_TTL, new ICloudSender() {
             @Override
-            public void run() {
+            public void send(MaritimeCloudClient connection) {
                 BroadcastOptions options = new BroadcastOptions();
                 options.setBroadcastRadius(BROADCAST_RADIUS);
-                getMaritimeCloudConnection().broadcast(message, options);
+                connection.broadcast(message, options);
                 getStatus().markSuccesfullSend();
             }
         });
@@ -337,7 +337,7 @@ public class IntendedRouteHandler extends IntendedRouteHandlerCommon implements
                 //Remove it, if it exists
                 if (this.filteredIntendedRoutes.containsKey(route.getMmsi())){
                     filteredIntendedRoutes.remove(route.getMmsi());
-                    System.out.println("Remove from filter");
+                    LOG.debug("Removed intended route of " + route.getMmsi() + " from filter");
                 }
                 
             } else {
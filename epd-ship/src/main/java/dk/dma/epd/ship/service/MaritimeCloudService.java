@@ -49,7 +49,7 @@ public class MaritimeCloudService extends MaritimeCloudServiceCommon {
     @Override
     public Position getCurrentPosition() {
         if (pntHandler != null) {
-            return pntHandler.getCurrentData().getPosition();
+            return pntHandler.getSnapshot().getPosition();
         }
         return null;
     }
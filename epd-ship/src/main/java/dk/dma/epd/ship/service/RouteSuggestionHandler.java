@@ -49,11 +49,11 @@ public class RouteSuggestionHandler extends EnavServiceHandlerCommon {
     public RouteSuggestionHandler() {
         super();
         
-        // Schedule a clean-up check of the routeExchangeContexts every 10 minutes
+        // Expire timed-out routeExchangeContexts once per tick of the context map
         getScheduler().scheduleWithFixedDelay(new Runnable() {
             @Override public void run() {
                 routeExchangeContexts.cleanup();
-            }}, 10, 10, TimeUnit.MINUTES);
+            }}, routeExchangeContexts.getTickMillis(), routeExchangeContexts.getTickMillis(), TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -101,8 +101,9 @@ public class RouteSuggestionHandler extends EnavServiceHandlerCommon {
     public void sendRouteExchangeReply(RouteSuggestionStatus receivedAccepted, long id, String message) {
         try {
             long ownMmsi = (maritimeCloudService.getMaritimeId() == null) ? -1 : MaritimeCloudUtils.toMmsi(maritimeCloudService.getMaritimeId());
-            if (routeExchangeContexts.containsKey(id)) {
-                routeExchangeContexts.remove(id).complete(new RouteSuggestionReply(
+            Context<RouteSuggestionReply> context = routeExchangeContexts.remove(id);
+            if (context != null) {
+                context.complete(new RouteSuggestionReply(
                         message, 
                         id, 
                         ownMmsi, 
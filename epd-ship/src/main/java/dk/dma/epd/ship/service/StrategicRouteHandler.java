@@ -40,8 +40,12 @@ import dk.dma.epd.common.prototype.enavcloud.StrategicRouteService.StrategicRout
 import dk.dma.epd.common.prototype.enavcloud.StrategicRouteService.StrategicRouteStatus;
 import dk.dma.epd.common.prototype.model.route.Route;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
+import dk.dma.epd.common.prototype.service.CloudMessagePriority;
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
 import dk.dma.epd.common.prototype.service.MaritimeCloudUtils;
 import dk.dma.epd.common.prototype.service.EnavServiceHandlerCommon;
+import dk.dma.epd.common.prototype.service.PendingReplyTracker;
+import dk.dma.epd.common.prototype.service.PendingReplyTracker.TimeoutListener;
 import dk.dma.epd.common.prototype.status.ComponentStatus;
 import dk.dma.epd.ship.EPDShip;
 import dk.dma.epd.ship.gui.route.strategic.RequestStrategicRouteDialog;
@@ -55,6 +59,8 @@ import dk.dma.epd.ship.route.RouteManager;
 public class StrategicRouteHandler extends EnavServiceHandlerCommon {
 
     private static final Logger LOG = LoggerFactory.getLogger(StrategicRouteHandler.class);
+    private static final long REPLY_TIMEOUT = 60 * 60 * 1000L; // 60 minutes, as the STCC callback TTL
+    private static final long REPLY_TICK = 60 * 1000L;
     
     private RequestStrategicRouteDialog strategicRouteSTCCDialog;
     
@@ -70,6 +76,7 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
     private Map<Long, StrategicRouteNegotiationData> strategicRouteNegotiationData = new ConcurrentHashMap<>();
     private List<ServiceEndpoint<StrategicRouteRequestMessage, StrategicRouteRequestReply>> strategicRouteSTCCList = new ArrayList<>();
     private List<ServiceEndpoint<StrategicRouteAckMsg, Void>> strategicRouteRouteAckList = new ArrayList<>();
+    private PendingReplyTracker<Long, StrategicRouteRequestMessage> pendingReplies = new PendingReplyTracker<>(REPLY_TICK, 64);
     
     /**
      * Constructor
@@ -88,6 +95,19 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
             @Override public void run() {
                 fetchStrategicRouteAckList();
             }}, 15, 59, TimeUnit.SECONDS);        
+        
+        // Flag strategic route requests that the STCC never replied to
+        pendingReplies.addTimeoutListener(new TimeoutListener<Long, StrategicRouteRequestMessage>() {
+            @Override
+            public void replyTimedOut(Long id, StrategicRouteRequestMessage message) {
+                LOG.warn("No reply received from STCC for strategic route request " + id);
+                getStatus().markFailedReceive();
+            }
+        });
+        getScheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override public void run() {
+                pendingReplies.advance();
+            }}, REPLY_TICK, REPLY_TICK, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -249,32 +269,38 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
      * Sends a strategic route request
      * @param routeMessage the strategic route request
      */
-    private void sendStrategicRouteRequest(StrategicRouteRequestMessage routeMessage) {
-
-        ServiceEndpoint<StrategicRouteRequestMessage, StrategicRouteRequestReply> end 
-            = MaritimeCloudUtils.findSTCCService(strategicRouteSTCCList);
-
-        // Each request has a unique ID, talk to Kasper?
-
-        if (end != null) {
-            ConnectionFuture<StrategicRouteRequestReply> f = end
-                    .invoke(routeMessage);
-            getStatus().markSuccesfullSend();
-            f.handle(new BiConsumer<StrategicRouteRequestReply, Throwable>() {
+    private void sendStrategicRouteRequest(final StrategicRouteRequestMessage routeMessage) {
+
+        maritimeCloudService.send(CloudMessagePriority.NORMAL, null, 0L, new ICloudSender() {
+            @Override
+            public void send(MaritimeCloudClient connection) {
+                ServiceEndpoint<StrategicRouteRequestMessage, StrategicRouteRequestReply> end 
+                    = MaritimeCloudUtils.findSTCCService(strategicRouteSTCCList);
+
+                // Each request has a unique ID, talk to Kasper?
+
+                if (end != null) {
+                    ConnectionFuture<StrategicRouteRequestReply> f = end
+                            .invoke(routeMessage);
+                    getStatus().markSuccesfullSend();
+                    pendingReplies.track(routeMessage.getId(), routeMessage, REPLY_TIMEOUT);
+                    f.handle(new BiConsumer<StrategicRouteRequestReply, Throwable>() {
+
+                        @Override
+                        public void accept(StrategicRouteRequestReply l, Throwable r) {
+                            pendingReplies.complete(routeMessage.getId());
+                            handleReply(l);
+                            getStatus().markCloudReception();
+                        }
+                    });
 
-                @Override
-                public void accept(StrategicRouteRequestReply l, Throwable r) {
-                    handleReply(l);
-                    getStatus().markCloudReception();
+                } else {
+                    // notifyRouteExchangeListeners();
+                    getStatus().markFailedSend();
+                    LOG.error("Did not find strategic route STCC");
                 }
-            });
-
-        } else {
-            // notifyRouteExchangeListeners();
-            getStatus().markFailedSend();
-            LOG.error("Did not find strategic route STCC");
-        }
-
+            }
+        });
     }
 
 
@@ -579,24 +605,29 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
      */
     private void sendStrategicRouteAck(long addressMMSI, long id, long ownMMSI, boolean ack, String message) {
 
-        fetchStrategicRouteAckList();
+        final StrategicRouteAckMsg msg = new StrategicRouteAckMsg(ack, id, ownMMSI,
+                message);
 
-        ServiceEndpoint<StrategicRouteAckMsg, Void> end 
-            = MaritimeCloudUtils.findSTCCService(strategicRouteRouteAckList);
+        maritimeCloudService.send(CloudMessagePriority.NORMAL, null, 0L, new ICloudSender() {
+            @Override
+            public void send(MaritimeCloudClient connection) {
+                fetchStrategicRouteAckList();
 
-        StrategicRouteAckMsg msg = new StrategicRouteAckMsg(ack, id, ownMMSI,
-                message);
+                ServiceEndpoint<StrategicRouteAckMsg, Void> end 
+                    = MaritimeCloudUtils.findSTCCService(strategicRouteRouteAckList);
 
-        if (end != null) {
+                if (end != null) {
 
-            // ConnectionFuture<Void> f =
-            end.invoke(msg);
-            getStatus().markSuccesfullSend();
-        } else {
-            System.out.println("Failed to send ack "
-                    + strategicRouteRouteAckList.size());
-            getStatus().markFailedSend();
-        }
+                    // ConnectionFuture<Void> f =
+                    end.invoke(msg);
+                    getStatus().markSuccesfullSend();
+                } else {
+                    System.out.println("Failed to send ack "
+                            + strategicRouteRouteAckList.size());
+                    getStatus().markFailedSend();
+                }
+            }
+        });
     }
     
     /**
@@ -0,0 +1,330 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.util.route;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.AisPositionMessage;
+import dk.dma.ais.reader.AisReader;
+import dk.dma.ais.reader.AisReaders;
+import dk.dma.enav.util.function.Consumer;
+
+/**
+ * Batch extraction of routes from an AIS archive.
+ * <p>
+ * The archive is read once. Position reports are partitioned by MMSI onto a
+ * worker per core, and each worker feeds its vessels' positions into
+ * {@link StreamingRouteBuilder}s. Completed routes are written to the output
+ * directory in the simple route format as soon as they are done, and
+ * vessels that have been silent longer than the maximum gap are finished
+ * and dropped, so memory does not grow with the length of the archive.
+ * <p>
+ * A vessel whose route builder fails is counted, and its route so far
+ * is discarded. If a worker fails otherwise, it keeps draining
+ * its queue so the reader never blocks, and the failure is rethrown by
+ * {@link #extract(String)} once all workers are done.
+ */
+public class RouteExtractor implements Consumer<AisMessage> {
+
+    private static final int BATCH_SIZE = 256;
+    private static final int QUEUE_BATCHES = 64;
+    private static final long MAX_GAP = 60 * 60 * 1000L; // 1 hour
+    private static final int EXPIRE_INTERVAL = 100000; // reports between expiry sweeps
+
+    private static final List<Report> END_OF_STREAM = new ArrayList<>();
+
+    private final File outDir;
+    private final int minWaypoints;
+    private final Worker[] workers;
+    private final List<List<Report>> batches = new ArrayList<>();
+
+    private final AtomicInteger routeCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private long reportCount;
+
+    /**
+     * A position report for a vessel
+     */
+    private static final class Report {
+        final long mmsi;
+        final TimePoint point;
+
+        Report(long mmsi, TimePoint point) {
+            this.mmsi = mmsi;
+            this.point = point;
+        }
+    }
+
+    public RouteExtractor(File outDir, int minWaypoints, int workerCount) {
+        this.outDir = outDir;
+        this.minWaypoints = minWaypoints;
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+            batches.add(new ArrayList<Report>(BATCH_SIZE));
+        }
+    }
+
+    /**
+     * Partitions position reports by MMSI. Called on the reader thread.
+     */
+    @Override
+    public void accept(AisMessage aisMessage) {
+        if (!(aisMessage instanceof AisPositionMessage)) {
+            return;
+        }
+        if (aisMessage.getSourceTag() == null || aisMessage.getSourceTag().getTimestamp() == null) {
+            return;
+        }
+        AisPositionMessage posMessage = (AisPositionMessage) aisMessage;
+        if (posMessage.getPos().getGeoLocation() == null) {
+            return;
+        }
+
+        long mmsi = aisMessage.getUserId();
+        int index = (int) ((mmsi & Long.MAX_VALUE) % workers.length);
+        List<Report> batch = batches.get(index);
+        batch.add(new Report(mmsi, new TimePoint(posMessage.getPos().getGeoLocation(), aisMessage.getSourceTag()
+                .getTimestamp())));
+        reportCount++;
+        if (batch.size() >= BATCH_SIZE) {
+            workers[index].put(batch);
+            batches.set(index, new ArrayList<Report>(BATCH_SIZE));
+        }
+    }
+
+    /**
+     * Reads the archive and blocks until all routes have been written
+     * 
+     * @param inFilename
+     *            the AIS archive
+     */
+    public void extract(String inFilename) throws Exception {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+
+        try (FileInputStream in = new FileInputStream(inFilename)) {
+            AisReader aisReader = AisReaders.createReaderFromInputStream(in);
+            aisReader.registerHandler(this);
+            aisReader.start();
+            aisReader.join();
+        }
+
+        for (int i = 0; i < workers.length; i++) {
+            if (!batches.get(i).isEmpty()) {
+                workers[i].put(batches.get(i));
+            }
+            workers[i].put(END_OF_STREAM);
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new Exception("Route extraction failed in " + worker.getName(), worker.failure);
+            }
+        }
+    }
+
+    private void writeRoute(long mmsi, List<TimePoint> route) {
+        if (route.size() < minWaypoints) {
+            return;
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd'T'HHmm");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String start = dateFormat.format(route.get(0).getTime());
+        String name = mmsi + "_" + start;
+
+        // Only the worker owning the vessel writes its files
+        File file = new File(outDir, name + ".txt");
+        for (int i = 2; file.exists(); i++) {
+            file = new File(outDir, name + "_" + i + ".txt");
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            SimpleRouteWriter.write(out, "MMSI " + mmsi + " " + start, route);
+            routeCount.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Failed to write route " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Owns the route builders for its share of the vessels
+     */
+    private final class Worker extends Thread implements StreamingRouteBuilder.RouteSink {
+
+        private final BlockingQueue<List<Report>> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        private final Map<Long, StreamingRouteBuilder> builders = new HashMap<>();
+        private long streamTime;
+        private int sinceExpire;
+        private volatile Throwable failure;
+
+        Worker(int index) {
+            super("RouteExtractor-" + index);
+        }
+
+        void put(List<Report> batch) {
+            try {
+                queue.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    List<Report> batch = queue.take();
+                    if (batch == END_OF_STREAM) {
+                        break;
+                    }
+                    if (failure != null) {
+                        // Drain the queue so the reader does not block
+                        continue;
+                    }
+                    try {
+                        for (Report report : batch) {
+                            handle(report);
+                        }
+                    } catch (Throwable t) {
+                        failure = t;
+                        builders.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Map.Entry<Long, StreamingRouteBuilder> entry : builders.entrySet()) {
+                finish(entry.getKey(), entry.getValue());
+            }
+            builders.clear();
+        }
+
+        /**
+         * Feeds the report to its vessel's route builder. If the builder fails,
+         * the error is counted and the vessel's route so far is discarded.
+         */
+        private void handle(Report report) {
+            StreamingRouteBuilder builder = builders.get(report.mmsi);
+            if (builder == null) {
+                builder = new StreamingRouteBuilder(report.mmsi, this);
+                builder.setMaxGap(MAX_GAP);
+                builders.put(report.mmsi, builder);
+            }
+            try {
+                builder.accept(report.point);
+            } catch (RuntimeException e) {
+                failed(report.mmsi, e);
+                builders.remove(report.mmsi);
+            }
+
+            streamTime = Math.max(streamTime, report.point.getTime().getTime());
+            if (++sinceExpire >= EXPIRE_INTERVAL) {
+                sinceExpire = 0;
+                expire();
+            }
+        }
+
+        /**
+         * Finishes and drops vessels not heard from within the maximum gap
+         */
+        private void expire() {
+            Iterator<Map.Entry<Long, StreamingRouteBuilder>> it = builders.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, StreamingRouteBuilder> entry = it.next();
+                TimePoint last = entry.getValue().getLast();
+                if (last == null || streamTime - last.getTime().getTime() > MAX_GAP) {
+                    it.remove();
+                    finish(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private void finish(long mmsi, StreamingRouteBuilder builder) {
+            try {
+                builder.finish();
+            } catch (RuntimeException e) {
+                failed(mmsi, e);
+            }
+        }
+
+        /**
+         * Counts a failed vessel, logging only the first failure
+         */
+        private void failed(long mmsi, RuntimeException e) {
+            if (errorCount.incrementAndGet() == 1) {
+                System.err.println("Failed to build route for " + mmsi + ": " + e);
+            }
+        }
+
+        @Override
+        public void routeCompleted(long mmsi, List<TimePoint> route) {
+            writeRoute(mmsi, route);
+        }
+    }
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.println("Route Extractor");
+        if (args.length < 2) {
+            usage();
+        }
+        String inFilename = args[0];
+        File outDir = new File(args[1]);
+        int minWaypoints = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            System.err.println("Cannot create output directory " + outDir);
+            System.exit(1);
+        }
+
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        RouteExtractor extractor = new RouteExtractor(outDir, minWaypoints, workerCount);
+        long start = System.currentTimeMillis();
+        extractor.extract(inFilename);
+        System.out.println("Extracted " + extractor.routeCount.get() + " routes from " + extractor.reportCount
+                + " position reports in " + (System.currentTimeMillis() - start) / 1000 + " s using " + workerCount
+                + " workers");
+        if (extractor.errorCount.get() > 0) {
+            System.err.println("Route building failed " + extractor.errorCount.get() + " times");
+        }
+    }
+
+    public static void usage() {
+        System.out.println("Usage: RouteExtractor <infile> <outdir> [min waypoints]");
+        System.exit(0);
+    }
+
+}
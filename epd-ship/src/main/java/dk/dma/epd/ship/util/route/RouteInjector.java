@@ -19,14 +19,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang.StringUtils;
-
 import dk.dma.ais.reader.AisReader;
 import dk.dma.ais.reader.AisReaders;
-import dk.dma.epd.common.text.Formatter;
 
 /**
  * Inject intended route broadcasts into AIS stream based on vessel tracks
@@ -74,20 +70,7 @@ public class RouteInjector {
         try (
         FileWriter outFile = new FileWriter("generated_route.txt");
         PrintWriter out = new PrintWriter(outFile);) {
-        out.println("Generated route");
-        int i = 0;
-        for (TimePoint point : route) {
-            List<String> fields = new ArrayList<>();
-            fields.add(String.format("WP_%03d", i));
-            fields.add(Formatter.latToPrintable(point.getLatitude()));
-            fields.add(Formatter.lonToPrintable(point.getLongitude()));
-            fields.add("17.00");
-            fields.add("1");
-            fields.add("0.100");
-            fields.add("0.500");
-            out.println(StringUtils.join(fields.iterator(), "\t"));
-            i++;
-        }
+            SimpleRouteWriter.write(out, "Generated route", route);
         }
     }
 
@@ -0,0 +1,81 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.util.route;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang.StringUtils;
+
+import dk.dma.enav.model.geometry.CoordinateSystem;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.text.Formatter;
+
+/**
+ * Writes generated routes in the simple tab separated route format read by
+ * {@code RouteLoader.loadSimple}
+ */
+public final class SimpleRouteWriter {
+
+    private static final double DEFAULT_SPEED = 17.0;
+    private static final double MIN_SPEED = 0.1;
+    private static final double MAX_SPEED = 50.0;
+
+    private SimpleRouteWriter() {
+    }
+
+    /**
+     * Writes the route. The speed of each leg is derived from the times of
+     * its waypoints, falling back to a default speed where the times do not
+     * give a plausible speed.
+     * 
+     * @param out
+     *            the writer
+     * @param name
+     *            route name
+     * @param route
+     *            the waypoints
+     */
+    public static void write(PrintWriter out, String name, List<TimePoint> route) {
+        out.println(name);
+        for (int i = 0; i < route.size(); i++) {
+            TimePoint point = route.get(i);
+            List<String> fields = new ArrayList<>();
+            fields.add(String.format("WP_%03d", i));
+            fields.add(Formatter.latToPrintable(point.getLatitude()));
+            fields.add(Formatter.lonToPrintable(point.getLongitude()));
+            fields.add(String.format(Locale.US, "%.2f", i + 1 < route.size() ? legSpeed(point, route.get(i + 1))
+                    : DEFAULT_SPEED));
+            fields.add("1");
+            fields.add("0.100");
+            fields.add("0.500");
+            out.println(StringUtils.join(fields.iterator(), "\t"));
+        }
+    }
+
+    private static double legSpeed(TimePoint start, TimePoint end) {
+        double hours = (end.getTime().getTime() - start.getTime().getTime()) / 3600000.0;
+        if (hours <= 0) {
+            return DEFAULT_SPEED;
+        }
+        double meters = Position.create(start.getLatitude(), start.getLongitude()).distanceTo(
+                Position.create(end.getLatitude(), end.getLongitude()), CoordinateSystem.CARTESIAN);
+        double speed = meters / 1852.0 / hours;
+        return speed < MIN_SPEED || speed > MAX_SPEED ? DEFAULT_SPEED : speed;
+    }
+}
@@ -0,0 +1,184 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.util.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds routes from the track of a single vessel as positions arrive, using
+ * an opening window simplification.
+ * <p>
+ * Positions since the last waypoint are kept in a window. When a new
+ * position makes any position in the window deviate more than the tolerance
+ * from the line between the last waypoint and the new position, the previous
+ * position becomes a waypoint and the window restarts from it. Memory is
+ * bounded by the window size and the maximum number of waypoints per route.
+ * <p>
+ * A gap in the track longer than the maximum gap ends the current route.
+ * Positions older than the last accepted position are dropped, so the input
+ * must be roughly in time order.
+ */
+public class StreamingRouteBuilder {
+
+    /**
+     * Receives the routes completed by a builder
+     */
+    public interface RouteSink {
+        void routeCompleted(long mmsi, List<TimePoint> route);
+    }
+
+    private static final double METERS_PER_DEGREE = 1852.0 * 60.0;
+
+    private final long mmsi;
+    private final RouteSink sink;
+
+    private double toleranceMeters = 100;
+    private double minDistanceMeters = 50;
+    private long maxGap = 60 * 60 * 1000L; // 1 hour
+    private int maxWindow = 500;
+    private int maxWaypoints = 500;
+
+    private List<TimePoint> route = new ArrayList<>();
+    private final List<TimePoint> window = new ArrayList<>();
+    private TimePoint last;
+
+    public StreamingRouteBuilder(long mmsi, RouteSink sink) {
+        this.mmsi = mmsi;
+        this.sink = sink;
+    }
+
+    /**
+     * Adds the next position of the track
+     * 
+     * @param point
+     *            the position
+     */
+    public void accept(TimePoint point) {
+        if (last != null) {
+            long elapsed = point.getTime().getTime() - last.getTime().getTime();
+            if (elapsed < 0) {
+                return;
+            }
+            if (elapsed > maxGap) {
+                finish();
+            } else if (distance(last, point) < minDistanceMeters) {
+                return;
+            }
+        }
+        last = point;
+
+        if (route.isEmpty()) {
+            route.add(point);
+            return;
+        }
+
+        window.add(point);
+        if (window.size() >= maxWindow || !withinTolerance(route.get(route.size() - 1), point)) {
+            // The previous position is the last one the segment could reach
+            TimePoint waypoint = window.size() > 1 ? window.get(window.size() - 2) : point;
+            route.add(waypoint);
+            window.clear();
+            if (waypoint != point) {
+                window.add(point);
+            }
+
+            if (route.size() >= maxWaypoints) {
+                // Continue in a new route from the last waypoint
+                sink.routeCompleted(mmsi, route);
+                route = new ArrayList<>();
+                route.add(waypoint);
+            }
+        }
+    }
+
+    /**
+     * Completes the current route, if it has at least two waypoints
+     */
+    public void finish() {
+        if (!window.isEmpty()) {
+            route.add(window.get(window.size() - 1));
+            window.clear();
+        }
+        if (route.size() >= 2) {
+            sink.routeCompleted(mmsi, route);
+        }
+        route = new ArrayList<>();
+        last = null;
+    }
+
+    /**
+     * @return the last accepted position, or null
+     */
+    public TimePoint getLast() {
+        return last;
+    }
+
+    private boolean withinTolerance(TimePoint start, TimePoint end) {
+        for (int i = 0; i < window.size() - 1; i++) {
+            if (crossTrackDistance(start, end, window.get(i)) > toleranceMeters) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distance from the point to the line segment, on a local plane around
+     * the start of the segment
+     */
+    private static double crossTrackDistance(TimePoint start, TimePoint end, TimePoint point) {
+        double cosLat = Math.cos(Math.toRadians(start.getLatitude()));
+        double dx = (end.getLongitude() - start.getLongitude()) * cosLat;
+        double dy = end.getLatitude() - start.getLatitude();
+        double px = (point.getLongitude() - start.getLongitude()) * cosLat;
+        double py = point.getLatitude() - start.getLatitude();
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSq)) : 0;
+        return Math.hypot(px - t * dx, py - t * dy) * METERS_PER_DEGREE;
+    }
+
+    private static double distance(TimePoint a, TimePoint b) {
+        double cosLat = Math.cos(Math.toRadians(a.getLatitude()));
+        double dx = (b.getLongitude() - a.getLongitude()) * cosLat;
+        double dy = b.getLatitude() - a.getLatitude();
+        return Math.hypot(dx, dy) * METERS_PER_DEGREE;
+    }
+
+    public double getToleranceMeters() {
+        return toleranceMeters;
+    }
+
+    public void setToleranceMeters(double toleranceMeters) {
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    public void setMinDistanceMeters(double minDistanceMeters) {
+        this.minDistanceMeters = minDistanceMeters;
+    }
+
+    public void setMaxGap(long maxGap) {
+        this.maxGap = maxGap;
+    }
+
+    public void setMaxWindow(int maxWindow) {
+        this.maxWindow = maxWindow;
+    }
+
+    public void setMaxWaypoints(int maxWaypoints) {
+        this.maxWaypoints = maxWaypoints;
+    }
+}
@@ -0,0 +1,70 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NogoAreaTest {
+
+    /** A square from 56.02N 10.02E to 56.08N 10.08E */
+    private final NogoArea area = new NogoArea(new double[] { 56.02, 56.02, 56.08, 56.08 }, new double[] { 10.02,
+            10.08, 10.08, 10.02 });
+
+    @Test
+    public void crossingLegTest() {
+        Assert.assertTrue(area.intersects(56.05, 10.0, 56.05, 10.1));
+    }
+
+    @Test
+    public void clearLegTest() {
+        Assert.assertFalse(area.intersects(56.1, 10.0, 56.1, 10.1));
+    }
+
+    @Test
+    public void vertexLegTest() {
+        // Passes through the south-west corner only
+        Assert.assertTrue(area.intersects(56.0, 10.04, 56.04, 10.0));
+    }
+
+    @Test
+    public void collinearLegTest() {
+        // Runs along the southern edge, with both endpoints outside the area
+        Assert.assertTrue(area.intersects(56.02, 10.0, 56.02, 10.1));
+    }
+
+    @Test
+    public void grazingLegTest() {
+        // Ends on the southern edge
+        Assert.assertTrue(area.intersects(56.0, 10.05, 56.02, 10.05));
+    }
+
+    @Test
+    public void containedLegTest() {
+        Assert.assertTrue(area.intersects(56.04, 10.04, 56.06, 10.06));
+    }
+
+    @Test
+    public void boundaryPointTest() {
+        Assert.assertTrue(area.contains(56.02, 10.05));
+        Assert.assertTrue(area.contains(56.08, 10.08));
+    }
+
+    @Test
+    public void outsidePointTest() {
+        Assert.assertFalse(area.contains(56.01, 10.05));
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.nogo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+
+public class NogoStoreTest {
+
+    private static final double DRAUGHT = 5.0;
+
+    private final NogoStore store = new NogoStore();
+
+    /** A square from 56.02N 10.02E to 56.08N 10.08E */
+    private final NogoArea area = new NogoArea(new double[] { 56.02, 56.02, 56.08, 56.08 }, new double[] { 10.02,
+            10.08, 10.08, 10.02 });
+
+    private static List<Position> leg(double lat1, double lon1, double lat2, double lon2) {
+        return Arrays.asList(Position.create(lat1, lon1), Position.create(lat2, lon2));
+    }
+
+    /**
+     * Fills the missing tiles along the path with the NoGo area
+     */
+    private void fill(List<Position> path, Date validTo) {
+        for (NogoStore.TileKey key : store.getMissingTiles(path, DRAUGHT)) {
+            List<NogoArea> areas = new ArrayList<>();
+            if (area.intersectsBox(key.getMinLat(), key.getMinLon(), key.getMaxLat(), key.getMaxLon())) {
+                areas.add(area);
+            }
+            store.addTileAreas(key, areas, validTo);
+        }
+        Assert.assertTrue(store.getMissingTiles(path, DRAUGHT).isEmpty());
+    }
+
+    @Test
+    public void missingTileTest() {
+        Assert.assertTrue(store.check(leg(56.05, 10.0, 56.05, 10.1), DRAUGHT).isUnknown());
+    }
+
+    @Test
+    public void expiredTileTest() {
+        List<Position> path = leg(56.15, 10.0, 56.15, 10.1);
+        fill(path, new Date(System.currentTimeMillis() - 1000L));
+        Assert.assertTrue(store.check(path, DRAUGHT).isUnknown());
+    }
+
+    @Test
+    public void clearLegTest() {
+        List<Position> path = leg(56.15, 10.0, 56.15, 10.1);
+        fill(path, null);
+        Assert.assertTrue(store.check(path, DRAUGHT).isClear());
+    }
+
+    @Test
+    public void crossingLegTest() {
+        List<Position> path = leg(56.05, 10.0, 56.05, 10.1);
+        fill(path, null);
+        NogoCheckResult result = store.check(path, DRAUGHT);
+        Assert.assertTrue(result.isNogo());
+        Assert.assertSame(area, result.getArea());
+    }
+
+    @Test
+    public void vertexLegTest() {
+        List<Position> path = leg(56.0, 10.04, 56.04, 10.0);
+        fill(path, null);
+        Assert.assertTrue(store.check(path, DRAUGHT).isNogo());
+    }
+
+    @Test
+    public void collinearLegTest() {
+        List<Position> path = leg(56.02, 10.0, 56.02, 10.1);
+        fill(path, null);
+        Assert.assertTrue(store.check(path, DRAUGHT).isNogo());
+    }
+
+    @Test
+    public void containedLegTest() {
+        List<Position> path = leg(56.04, 10.04, 56.06, 10.06);
+        fill(path, null);
+        Assert.assertTrue(store.check(path, DRAUGHT).isNogo());
+    }
+}
@@ -0,0 +1,125 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.ship.util.route;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+
+public class StreamingRouteBuilderTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private final List<List<TimePoint>> routes = new ArrayList<>();
+
+    private final StreamingRouteBuilder builder = new StreamingRouteBuilder(219000001L,
+            new StreamingRouteBuilder.RouteSink() {
+                @Override
+                public void routeCompleted(long mmsi, List<TimePoint> route) {
+                    routes.add(route);
+                }
+            });
+
+    /**
+     * Returns a point the given number of steps north and east of 56N 10E.
+     * A step is roughly 111 m north or 124 m east.
+     */
+    private static TimePoint point(int north, int east, long minutes) {
+        return new TimePoint(Position.create(56.0 + 0.001 * north, 10.0 + 0.002 * east), new Date(minutes * MINUTE));
+    }
+
+    @Test
+    public void straightLineTest() {
+        List<TimePoint> track = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            track.add(point(i, 0, i));
+            builder.accept(track.get(i));
+        }
+        builder.finish();
+
+        Assert.assertEquals(1, routes.size());
+        Assert.assertEquals(2, routes.get(0).size());
+        Assert.assertSame(track.get(0), routes.get(0).get(0));
+        Assert.assertSame(track.get(9), routes.get(0).get(1));
+    }
+
+    @Test
+    public void toleranceTest() {
+        // North four steps, then east five steps
+        TimePoint start = point(0, 0, 0);
+        TimePoint corner = point(4, 0, 4);
+        TimePoint end = point(4, 5, 9);
+        builder.accept(start);
+        for (int i = 1; i < 4; i++) {
+            builder.accept(point(i, 0, i));
+        }
+        builder.accept(corner);
+        for (int i = 1; i < 5; i++) {
+            builder.accept(point(4, i, 4 + i));
+        }
+        builder.accept(end);
+        builder.finish();
+
+        // The corner deviates about 119 m from the line to the first point east of it
+        Assert.assertEquals(1, routes.size());
+        List<TimePoint> route = routes.get(0);
+        Assert.assertEquals(3, route.size());
+        Assert.assertSame(start, route.get(0));
+        Assert.assertSame(corner, route.get(1));
+        Assert.assertSame(end, route.get(2));
+    }
+
+    @Test
+    public void gapSplitTest() {
+        builder.setMaxGap(60 * MINUTE);
+        for (int i = 0; i < 3; i++) {
+            builder.accept(point(i, 0, i));
+        }
+        TimePoint afterGap = point(3, 0, 180);
+        builder.accept(afterGap);
+        builder.accept(point(4, 0, 181));
+        builder.finish();
+
+        Assert.assertEquals(2, routes.size());
+        Assert.assertEquals(2, routes.get(0).size());
+        Assert.assertSame(afterGap, routes.get(1).get(0));
+    }
+
+    @Test
+    public void maxWaypointsTest() {
+        // A window of two makes every position but the last a waypoint
+        builder.setMaxWindow(2);
+        builder.setMaxWaypoints(3);
+        for (int i = 0; i < 7; i++) {
+            builder.accept(point(i, 0, i));
+        }
+        builder.finish();
+
+        // Each route continues from the last waypoint of the previous one
+        Assert.assertEquals(3, routes.size());
+        for (int i = 0; i < routes.size(); i++) {
+            Assert.assertEquals(3, routes.get(i).size());
+            if (i > 0) {
+                Assert.assertSame(routes.get(i - 1).get(2), routes.get(i).get(0));
+            }
+        }
+    }
+}
@@ -172,11 +172,14 @@ public final class EPDShore extends EPD {
         beanHandler.add(PntTime.getInstance());
 
         // aisHandler = new AisHandlerCommon();
-        aisHandler = new AisHandler(settings.getAisSettings());
+        aisHandler = new AisHandler(getSettings().getAisSettings());
         aisHandler.loadView();
-        EPD.startThread(aisHandler, "AisHandler");
+        aisHandler.start();
         beanHandler.add(aisHandler);
 
+        // Expose operational metrics through JMX
+        metrics.register();
+
         // Add StaticImages handler
         staticImages = new StaticImages();
         beanHandler.add(staticImages);
@@ -354,12 +357,16 @@ public final class EPDShore extends EPD {
         routeSuggestionHandler.shutdown();
         intendedRouteHandler.shutdown();
         chatServiceHandler.shutdown();
+        shoreServicesCommon.shutdown();
 
         // Stop the system tray
         systemTray.shutdown();
         
         // Stop sensors
         stopSensors();
+        
+        // Stop the scheduled tasks
+        taskScheduler.shutdown();
 
         LOG.info("Closing ESD");
         System.exit(restart ? 2 : 0);
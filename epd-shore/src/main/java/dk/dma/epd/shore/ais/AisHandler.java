@@ -19,8 +19,9 @@ import java.util.Map;
 
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.ais.AisHandlerCommon;
+import dk.dma.epd.common.prototype.ais.AisRetentionPolicy;
 import dk.dma.epd.common.prototype.ais.VesselTarget;
-import dk.dma.epd.common.prototype.settings.AisSettings;
+import dk.dma.epd.shore.settings.EPDAisSettings;
 
 /**
  * Class for handling incoming AIS messages on a vessel and maintainer of AIS target tables.
@@ -29,11 +30,15 @@ import dk.dma.epd.common.prototype.settings.AisSettings;
  */
 public class AisHandler extends AisHandlerCommon {
 
+    private final AisRetentionZones retentionZones;
+
     /**
-     * Empty constructor not used
+     * Constructor
+     * @param aisSettings the AIS settings
      */
-    public AisHandler(AisSettings aisSettings) {
+    public AisHandler(EPDAisSettings aisSettings) {
         super(aisSettings);
+        retentionZones = new AisRetentionZones(aisSettings);
     }
 
     /**
@@ -47,6 +52,17 @@ public class AisHandler extends AisHandlerCommon {
         return true;
     }
 
+    /**
+     * Returns the retention policy of the zone containing the given position
+     * 
+     * @param pos the position of the vessel target
+     * @return the retention policy for the position
+     */
+    @Override
+    protected AisRetentionPolicy getRetentionPolicy(Position pos) {
+        return retentionZones.getPolicy(pos);
+    }
+
     public Map<Long, VesselTarget> getVesselTargets() {
         return vesselTargets;
         
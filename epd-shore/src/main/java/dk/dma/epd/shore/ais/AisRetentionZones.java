@@ -0,0 +1,182 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.shore.ais;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.ais.AisRetentionPolicy;
+import dk.dma.epd.shore.settings.EPDAisSettings;
+
+/**
+ * Maps vessel positions to an {@linkplain AisRetentionPolicy}.
+ * <p>
+ * Positions inside one of the core areas use the core policy, positions
+ * inside one of the buffer areas use the buffer policy, and all other
+ * positions use the out-of-area policy. If no core areas are defined,
+ * all targets are retained in full.
+ * <p>
+ * Areas are specified as polygons with vertices separated by ';' and
+ * latitude and longitude separated by ','. Multiple polygons are
+ * separated by '|', e.g. {@code 54.5,9.5;58.0,9.5;58.0,13.0;54.5,13.0}.
+ */
+@Immutable
+public class AisRetentionZones {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AisRetentionZones.class);
+
+    private final List<Area> coreAreas;
+    private final List<Area> bufferAreas;
+    private final AisRetentionPolicy corePolicy;
+    private final AisRetentionPolicy bufferPolicy;
+    private final AisRetentionPolicy outsidePolicy;
+
+    /**
+     * Constructor
+     * @param aisSettings the AIS settings defining the zones
+     */
+    public AisRetentionZones(EPDAisSettings aisSettings) {
+        coreAreas = parseAreas(aisSettings.getRetentionCoreAreas());
+        bufferAreas = parseAreas(aisSettings.getRetentionBufferAreas());
+        corePolicy = aisSettings.getRetentionCorePolicy();
+        bufferPolicy = aisSettings.getRetentionBufferPolicy();
+        outsidePolicy = aisSettings.getRetentionOutsidePolicy();
+        if (isEnabled()) {
+            LOG.info(String.format("AIS retention enabled with %d core areas (%s), %d buffer areas (%s), outside (%s)",
+                    coreAreas.size(), corePolicy, bufferAreas.size(), bufferPolicy, outsidePolicy));
+        }
+    }
+
+    /**
+     * Returns whether any areas of interest have been defined
+     * @return whether any areas of interest have been defined
+     */
+    public boolean isEnabled() {
+        return !coreAreas.isEmpty();
+    }
+
+    /**
+     * Returns the retention policy for the given position
+     * @param pos the position
+     * @return the retention policy for the position
+     */
+    public AisRetentionPolicy getPolicy(Position pos) {
+        if (!isEnabled() || pos == null) {
+            return AisRetentionPolicy.FULL;
+        }
+        if (contains(coreAreas, pos)) {
+            return corePolicy;
+        }
+        if (contains(bufferAreas, pos)) {
+            return bufferPolicy;
+        }
+        return outsidePolicy;
+    }
+
+    private static boolean contains(List<Area> areas, Position pos) {
+        for (Area area : areas) {
+            if (area.contains(pos.getLatitude(), pos.getLongitude())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the given area specification
+     * @param spec the area specification
+     * @return the parsed areas
+     */
+    static List<Area> parseAreas(String spec) {
+        if (StringUtils.isBlank(spec)) {
+            return Collections.emptyList();
+        }
+        List<Area> areas = new ArrayList<>();
+        for (String polygon : StringUtils.split(spec, '|')) {
+            String[] vertices = StringUtils.split(polygon, ';');
+            if (vertices.length < 3) {
+                LOG.error("Ignoring AIS retention area with less than 3 vertices: " + polygon);
+                continue;
+            }
+            double[] lats = new double[vertices.length];
+            double[] lons = new double[vertices.length];
+            try {
+                for (int i = 0; i < vertices.length; i++) {
+                    String[] latLon = StringUtils.split(vertices[i], ',');
+                    lats[i] = Double.parseDouble(latLon[0].trim());
+                    lons[i] = Double.parseDouble(latLon[1].trim());
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                LOG.error("Ignoring invalid AIS retention area: " + polygon);
+                continue;
+            }
+            areas.add(new Area(lats, lons));
+        }
+        return areas;
+    }
+
+    /**
+     * A polygon with a pre-computed bounding box
+     */
+    @Immutable
+    static final class Area {
+        private final double[] lats;
+        private final double[] lons;
+        private final double minLat, maxLat, minLon, maxLon;
+
+        Area(double[] lats, double[] lons) {
+            this.lats = lats;
+            this.lons = lons;
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+            double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = 0; i < lats.length; i++) {
+                minLat = Math.min(minLat, lats[i]);
+                maxLat = Math.max(maxLat, lats[i]);
+                minLon = Math.min(minLon, lons[i]);
+                maxLon = Math.max(maxLon, lons[i]);
+            }
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLon = minLon;
+            this.maxLon = maxLon;
+        }
+
+        /**
+         * Ray casting point-in-polygon test
+         */
+        boolean contains(double lat, double lon) {
+            if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon) {
+                return false;
+            }
+            boolean inside = false;
+            for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+                if ((lats[i] > lat) != (lats[j] > lat)
+                        && lon < (lons[j] - lons[i]) * (lat - lats[i]) / (lats[j] - lats[i]) + lons[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+}
@@ -19,6 +19,8 @@ import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Image;
 import java.awt.event.ActionEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.ImageIcon;
@@ -30,19 +32,26 @@ import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.JTextPane;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.FormatException;
 import dk.dma.epd.common.prototype.gui.voct.SearchPatternDialogCommon;
+import dk.dma.epd.common.prototype.model.voct.SearchPatternCandidate;
 import dk.dma.epd.common.prototype.model.voct.SearchPatternGenerator;
 import dk.dma.epd.common.prototype.voct.VOCTManagerCommon;
 import dk.dma.epd.common.util.ParseUtils;
+import dk.dma.epd.shore.voct.VOCTManager;
 
 public class SearchPatternDialog extends SearchPatternDialogCommon{
 
     private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LoggerFactory.getLogger(SearchPatternDialog.class);
     private final JPanel contentPanel = new JPanel();
     private JTextField cssFirstLat;
     private JTextField cssSecondLat;
@@ -62,6 +71,7 @@ public class SearchPatternDialog extends SearchPatternDialogCommon{
 
     private VOCTManagerCommon voctManager;
 
+    private JButton suggestButton;
     private JButton generateButton;
     private JButton cancelButton;
 
@@ -236,6 +246,12 @@ public class SearchPatternDialog extends SearchPatternDialogCommon{
             JPanel buttonPane = new JPanel();
             buttonPane.setLayout(new FlowLayout(FlowLayout.RIGHT));
             getContentPane().add(buttonPane, BorderLayout.SOUTH);
+            {
+                suggestButton = new JButton("Suggest...");
+                suggestButton.setToolTipText("Compare generated search patterns by their coverage of the effective area");
+                suggestButton.addActionListener(this);
+                buttonPane.add(suggestButton);
+            }
             {
                 generateButton = new JButton("Generate");
                 generateButton.addActionListener(this);
@@ -435,6 +451,11 @@ public class SearchPatternDialog extends SearchPatternDialogCommon{
 
         }
 
+        if (arg0.getSource() == suggestButton) {
+            suggestSearchPatterns();
+            return;
+        }
+
         if (arg0.getSource() == cancelButton) {
             this.setVisible(false);
             return;
@@ -446,6 +467,57 @@ public class SearchPatternDialog extends SearchPatternDialogCommon{
     }
 
     
+    /**
+     * Plans the search pattern candidates in the background and lets
+     * the user pick one of them, best first
+     */
+    private void suggestSearchPatterns() {
+        if (!(voctManager instanceof VOCTManager)) {
+            return;
+        }
+        final VOCTManager manager = (VOCTManager) voctManager;
+        final int id = currentID;
+        final boolean generateEnabled = generateButton.isEnabled();
+        suggestButton.setEnabled(false);
+        generateButton.setEnabled(false);
+
+        new SwingWorker<List<SearchPatternCandidate>, Void>() {
+            @Override
+            protected List<SearchPatternCandidate> doInBackground() throws Exception {
+                return manager.planSearchPatterns(id);
+            }
+
+            @Override
+            protected void done() {
+                suggestButton.setEnabled(true);
+                generateButton.setEnabled(generateEnabled);
+                List<SearchPatternCandidate> candidates;
+                try {
+                    candidates = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    LOG.error("Failed planning search patterns", e);
+                    JOptionPane.showMessageDialog(SearchPatternDialog.this, "Failed to generate search patterns",
+                            "Search Pattern Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (candidates.isEmpty()) {
+                    JOptionPane.showMessageDialog(SearchPatternDialog.this, "No search patterns could be generated",
+                            "Search Pattern Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                SearchPatternCandidate[] options = candidates.toArray(new SearchPatternCandidate[candidates.size()]);
+                SearchPatternCandidate selected = (SearchPatternCandidate) JOptionPane.showInputDialog(
+                        SearchPatternDialog.this, "Choose a search pattern, best coverage first", "Suggested Search Patterns",
+                        JOptionPane.INFORMATION_MESSAGE, null, options, options[0]);
+                if (selected != null) {
+                    manager.applySearchPatternCandidate(selected);
+                    setVisible(false);
+                }
+            }
+        }.execute();
+    }
+
     private void toggleInput(boolean enabled){
         cssFirstLat.setEnabled(enabled);
         cssSecondLat.setEnabled(enabled);
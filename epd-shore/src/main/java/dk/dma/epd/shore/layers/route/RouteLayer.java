@@ -71,7 +71,7 @@ public class RouteLayer extends RouteLayerCommon {
             return;
         }
 
-        graphics.clear();
+        clearGraphics();
 
         float routeWidth = EPD.getInstance().getSettings().getNavSettings().getRouteWidth();
         Stroke stroke = new BasicStroke(
@@ -95,7 +95,7 @@ public class RouteLayer extends RouteLayerCommon {
             Route route = routeManager.getRoutes().get(i);
             if(route.isVisible() && i != activeRouteIndex){
                 RouteGraphic routeGraphic = new RouteGraphic(route, i, arrowsVisible, stroke, ECDISOrange);
-                graphics.add(routeGraphic);
+                addRouteGraphic(routeGraphic);
             }
         }
 
@@ -103,7 +103,7 @@ public class RouteLayer extends RouteLayerCommon {
             ActiveRoute activeRoute = routeManager.getActiveRoute();
             if (activeRoute.isVisible()) {
                 ActiveRouteGraphic activeRouteExtend = new ActiveRouteGraphic(activeRoute, activeRouteIndex, arrowsVisible, activeStroke, Color.RED);
-                graphics.add(activeRouteExtend);
+                addRouteGraphic(activeRouteExtend);
             }
         }
 
@@ -131,4 +131,23 @@ public class RouteLayer extends RouteLayerCommon {
 
         doPrepare();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RouteGraphic createRouteGraphic(Route route, int routeIndex) {
+        if (routeManager.isActiveRoute(routeIndex)) {
+            return null;
+        }
+        float routeWidth = EPD.getInstance().getSettings().getNavSettings().getRouteWidth();
+        Stroke stroke = new BasicStroke(
+                routeWidth,                // Width
+                BasicStroke.CAP_SQUARE,    // End cap
+                BasicStroke.JOIN_MITER,    // Join style
+                10.0f,                     // Miter limit
+                new float[] { 3.0f, 10.0f }, // Dash pattern
+                0.0f);
+        return new RouteGraphic(route, routeIndex, arrowsVisible, stroke, new Color(213, 103, 45, 255));
+    }
 }
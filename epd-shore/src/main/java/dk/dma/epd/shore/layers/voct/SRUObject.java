@@ -15,23 +15,35 @@
  */
 package dk.dma.epd.shore.layers.voct;
 
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.Date;
+import java.util.List;
+
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
 import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.omGraphics.OMLine;
 
 import dk.dma.enav.model.geometry.Position;
-import dk.dma.epd.common.prototype.ais.PastTrackSortedSet;
-import dk.dma.epd.common.prototype.layers.ais.PastTrackGraphic;
+import dk.dma.epd.common.prototype.ais.PastTrackPoint;
 import dk.dma.epd.shore.voct.SRUCommunicationObject;
+import dk.dma.epd.shore.voct.SRUTrack;
 
 public class SRUObject extends OMGraphicList {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Color TRACK_COLOR = Color.darkGray;
+
     private SRUVesselGraphic sruVesselGraphic;
-    private PastTrackGraphic pastTrackGraphic = new PastTrackGraphic();
+    private OMGraphicList trackGraphics = new OMGraphicList();
 //    private IntendedRouteGraphic routeGraphic = new IntendedRouteGraphic();
 
     private SRUCommunicationObject sruCommunicationObject;
-    PastTrackSortedSet pastTrack = new PastTrackSortedSet();
+
+    // Track state already drawn, new samples are appended as legs
+    private long drawnRevision = -1;
+    private PastTrackPoint lastDrawnPoint;
 
     /**
      * SRU Object creation, the SRU handles its own position, pasttrack graphics
@@ -50,7 +62,7 @@ public class SRUObject extends OMGraphicList {
 
         this.add(sruVesselGraphic);
 //        this.add(routeGraphic);
-        this.add(pastTrackGraphic);
+        this.add(trackGraphics);
         
         
     }
@@ -60,21 +72,17 @@ public class SRUObject extends OMGraphicList {
         return sruCommunicationObject.isVisible();
     }
     
-    public void updateSRU() {
-
-        Position latestPosition = sruCommunicationObject.getPositions().get(
-                sruCommunicationObject.getPositions().size() - 1);
-
-        pastTrack.addPosition(latestPosition, 1);
+    public synchronized void updateSRU() {
 
-        System.out.println(latestPosition);
+        Position latestPosition = sruCommunicationObject.getLatestPosition();
+        if (latestPosition == null) {
+            return;
+        }
 
         if (sruVesselGraphic.getLat() != latestPosition.getLatitude()
                 && sruVesselGraphic.getLon() != latestPosition.getLongitude()) {
             sruVesselGraphic.setLocation(latestPosition.getLatitude(),
                     latestPosition.getLongitude());
-
-//            pastTrackGraphic.update(pastTrack, latestPosition);
         }
 
         if (sruVesselGraphic.getTrueHeading() != sruCommunicationObject
@@ -82,21 +90,52 @@ public class SRUObject extends OMGraphicList {
             sruVesselGraphic.setHeading(sruCommunicationObject.getHeading());
         }
 
+        updateTrack(sruCommunicationObject.getTrack());
+
 //        if (sruCommunicationObject.getIntendedSearchPattern() != null) {
 //            routeGraphic.update(null, "", new CloudIntendedRoute(
 //                    sruCommunicationObject.getIntendedSearchPattern()
 //                            .getFullRouteData()), latestPosition);
 //        }
 
-        // if (sruVesselGraphic.getLat() ==)
+        // Possible new route
 
-        // Position might have changed
-        // If position has changed also update pasttrack graphics
+    }
+
+    /**
+     * Appends legs for the samples stored since the last update. The legs
+     * are only rebuilt from scratch when the track has been downsampled.
+     */
+    private void updateTrack(SRUTrack track) {
+        long revision = track.getRevision();
+        List<PastTrackPoint> points;
+        if (revision != drawnRevision) {
+            trackGraphics.clear();
+            lastDrawnPoint = null;
+            points = track.getPoints();
+        } else {
+            Date after = lastDrawnPoint == null ? null : lastDrawnPoint.getDate();
+            points = track.getPointsNewerThan(after);
+        }
 
-        // Heading could also have changed
+        for (PastTrackPoint point : points) {
+            if (lastDrawnPoint != null) {
+                trackGraphics.add(createLeg(lastDrawnPoint.getPosition(), point.getPosition()));
+            }
+            lastDrawnPoint = point;
+        }
 
-        // Possible new route
+        // Rebuild on the next update if the track was downsampled meanwhile
+        drawnRevision = track.getRevision() == revision ? revision : -1;
+    }
 
+    private static OMLine createLeg(Position start, Position end) {
+        OMLine leg = new OMLine(start.getLatitude(), start.getLongitude(),
+                end.getLatitude(), end.getLongitude(),
+                OMGraphicConstants.LINETYPE_RHUMB);
+        leg.setLinePaint(TRACK_COLOR);
+        leg.setStroke(new BasicStroke(2));
+        return leg;
     }
 
 }
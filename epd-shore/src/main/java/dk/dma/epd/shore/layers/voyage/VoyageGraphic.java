@@ -42,14 +42,11 @@ public class VoyageGraphic extends OMGraphicList {
     protected Stroke voyageStroke;
     protected Color color;
 
-    private int voyageIndex;
-
     boolean animation;
 
-    public VoyageGraphic(Voyage voyage, int voyageIndex, Color color) {
+    public VoyageGraphic(Voyage voyage, Color color) {
         super();
         this.voyage = voyage;
-        this.voyageIndex = voyageIndex;
 
         voyageStroke = new BasicStroke(12.0f, // Width
 //        stroke = new BasicStroke(5.0f, // Width
@@ -83,7 +80,7 @@ public class VoyageGraphic extends OMGraphicList {
             if (routeWaypoint.getOutLeg() != null) {
                 RouteLeg routeLeg = routeWaypoint.getOutLeg();
                 VoyageLegGraphic voyageLegGraphic = new VoyageLegGraphic(routeLeg,
-                        voyageIndex, this.color, this.voyageStroke);
+                        voyage.getId(), this.color, this.voyageStroke);
                 add(voyageLegGraphic);
                 routeLegs.add(0, voyageLegGraphic);
             }
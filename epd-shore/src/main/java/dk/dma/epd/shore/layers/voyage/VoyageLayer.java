@@ -62,6 +62,7 @@ public class VoyageLayer extends EPDLayerCommon implements VoyageUpdateListener,
 
     private VoyageInfoPanel voyageInfoPanel = new VoyageInfoPanel();
     private Map<Long, ShipIndicatorPanel> shipIndicatorPanels = new HashMap<>();
+    private Map<Long, VoyageGraphic> voyageGraphics = new HashMap<>();
 
     private boolean windowHandling;
 
@@ -87,6 +88,7 @@ public class VoyageLayer extends EPDLayerCommon implements VoyageUpdateListener,
 
         voyageManager = EPDShore.getInstance().getVoyageManager();
         voyageManager.addListener(this);
+        voyagesChanged(null, null);
     }
 
     /**
@@ -127,10 +129,9 @@ public class VoyageLayer extends EPDLayerCommon implements VoyageUpdateListener,
 
         if (clickedGraphics instanceof VoyageLegGraphic) {
             VoyageLegGraphic rlg = (VoyageLegGraphic) clickedGraphics;
-            int voyageIndex = rlg.getVoyageIndex();
+            Voyage currentVoyage = voyageManager.getVoyage(rlg.getVoyageId());
 
-            if (voyageManager.getVoyageCount() > voyageIndex) {
-                Voyage currentVoyage = voyageManager.getVoyage(voyageIndex);
+            if (currentVoyage != null) {
                 getMapMenu().voyageGeneralMenu(currentVoyage.getId(), currentVoyage.getMmsi(), currentVoyage.getRoute(), mapBean);
             }
         }
@@ -158,8 +159,10 @@ public class VoyageLayer extends EPDLayerCommon implements VoyageUpdateListener,
             voyageInfoPanel.setPos((int) containerPoint.getX(), (int) containerPoint.getY() - 10);
 
             VoyageLegGraphic wpLeg = (VoyageLegGraphic) newClosest;
-            int voyageIndex = wpLeg.getVoyageIndex();
-            Voyage currentVoyage = voyageManager.getVoyage(voyageIndex);
+            Voyage currentVoyage = voyageManager.getVoyage(wpLeg.getVoyageId());
+            if (currentVoyage == null) {
+                return false;
+            }
             VesselTarget ship = aisHandler.getVesselTarget(currentVoyage.getMmsi());
             String name = "" + currentVoyage.getMmsi();
             if (ship != null) {
@@ -174,33 +177,51 @@ public class VoyageLayer extends EPDLayerCommon implements VoyageUpdateListener,
     }
 
     /**
-     * Called by the {@linkplain VoyageManager} when the voyage is changed
+     * Called by the {@linkplain VoyageManager} when a voyage is added, changed or removed.
+     * <p>
+     * Only the graphic of the given voyage is updated. If no voyage is
+     * given, the graphics of all voyages are rebuilt.
      * 
      * @param e
      *            the voyage update event
+     * @param voyage
+     *            the affected voyage, or null
      */
     @Override
-    public void voyagesChanged(VoyageUpdateEvent e) {
-
-        graphics.clear();
-
-        for (int i = 0; i < voyageManager.getVoyages().size(); i++) {
-            // Route route = voyageManager.getVoyages().get(i).getRoute();
-            Voyage voyage = voyageManager.getVoyages().get(i);
-            // System.out.println(route);
-            if (voyage.getRoute().isVisible()) {
-                System.out.println("Adding Voyage");
-                VoyageGraphic voyageGraphic = new VoyageGraphic(voyage, i, new Color(0.4f, 0.8f, 0.5f, 0.5f));
-                graphics.add(voyageGraphic);
+    public void voyagesChanged(VoyageUpdateEvent e, Voyage voyage) {
+        synchronized (graphics) {
+            if (voyage == null) {
+                graphics.clear();
+                voyageGraphics.clear();
+                for (Voyage v : voyageManager.getVoyages()) {
+                    addVoyageGraphic(v);
+                }
+            } else {
+                VoyageGraphic oldGraphic = voyageGraphics.remove(voyage.getId());
+                if (oldGraphic != null) {
+                    graphics.remove(oldGraphic);
+                }
+                if (e != VoyageUpdateEvent.VOYAGE_REMOVED) {
+                    addVoyageGraphic(voyage);
+                }
             }
-
         }
 
-        graphics.project(getProjection(), true);
-
         doPrepare();
     }
 
+    /**
+     * Adds a graphic for the given voyage if the voyage route is visible
+     * @param voyage the voyage to add a graphic for
+     */
+    private void addVoyageGraphic(Voyage voyage) {
+        if (voyage.getRoute().isVisible()) {
+            VoyageGraphic voyageGraphic = new VoyageGraphic(voyage, new Color(0.4f, 0.8f, 0.5f, 0.5f));
+            voyageGraphics.put(voyage.getId(), voyageGraphic);
+            graphics.add(voyageGraphic);
+        }
+    }
+
     /**
      * Adjusts the position of the ship indicator that is displayed for ships with unhandled transactions
      */
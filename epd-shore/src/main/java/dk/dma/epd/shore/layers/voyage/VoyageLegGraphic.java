@@ -41,7 +41,7 @@ public class VoyageLegGraphic extends OMGraphicList {
     private Color color;
 
 
-    private int voyageIndex;
+    private long voyageId;
     
     float[] dash = { 35.0f, 35.0f };
     float dashPhase;
@@ -51,17 +51,17 @@ public class VoyageLegGraphic extends OMGraphicList {
      * 
      * @param routeLeg
      *            RouteLeg object containing information about the route leg
-     * @param voyageIndex
-     *            TODO
+     * @param voyageId
+     *            The id of the voyage the leg belongs to
      * @param color
      *            Color of the route leg
      * @param stroke
      *            Stroke type of the route leg
      */
-    public VoyageLegGraphic(RouteLeg routeLeg, int voyageIndex, Color color,
+    public VoyageLegGraphic(RouteLeg routeLeg, long voyageId, Color color,
             Stroke stroke) {
         super();
-        this.voyageIndex = voyageIndex;
+        this.voyageId = voyageId;
         this.routeLeg = routeLeg;
         this.color = color;
         this.stroke = stroke;
@@ -105,10 +105,10 @@ public class VoyageLegGraphic extends OMGraphicList {
 
 
     /**
-     * @return the voyageIndex
+     * @return the voyageId
      */
-    public int getVoyageIndex() {
-        return voyageIndex;
+    public long getVoyageId() {
+        return voyageId;
     }
 
     public RouteLeg getRouteLeg() {
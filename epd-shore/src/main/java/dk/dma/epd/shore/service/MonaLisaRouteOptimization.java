@@ -19,7 +19,6 @@ import java.util.List;
 
 import dk.dma.epd.common.prototype.model.route.Route;
 import dk.dma.epd.common.prototype.monalisa.MonaLisaOptimizationResponse;
-import dk.dma.epd.common.prototype.monalisa.SSPAResponse;
 import dk.dma.epd.common.prototype.monalisa.sspa.RouterequestType;
 import dk.dma.epd.shore.layers.voyage.VoyageHandlingLayer;
 
@@ -36,64 +35,26 @@ public class MonaLisaRouteOptimization extends dk.dma.epd.common.prototype.monal
             boolean removeIntermediateETA, float draft, int ukc, int timeout,
             List<Boolean> selectedWp, boolean showInput, boolean showOutput, VoyageHandlingLayer voyageHandlingLayer) {
 
-        
-        // new Thread(this).start();
-
         RouterequestType monaLisaRoute = convertRoute(route,
                 removeIntermediateETA, draft, ukc, selectedWp);
 
-        // monaLisaRoute.
-
-        SSPAResponse routeResponse = null;
-        try {
-            routeResponse = shoreService
-                    .makeMonaLisaRouteRequest(monaLisaRoute, timeout,
-                            showInput, showOutput);
-        } catch (Exception e) {
-            System.out.println("Exception when trying to talk to shore service");
-            System.out.println(e.getMessage());
-            return new MonaLisaOptimizationResponse("An exception occured", e.getMessage());
-        }
-
-        if (!routeResponse.isValid()) {
-            return new MonaLisaOptimizationResponse("Server error",
-                    routeResponse.getErrorMessage());
-        }
-
-        Route newRoute = null;
+        MonaLisaOptimizationResponse response = optimizeRoute(monaLisaRoute,
+                timeout, showInput, showOutput, null);
 
-        if (routeResponse.isValid()) {
-            try {
-                newRoute = convertRouteBack(routeResponse.getMonaLisaResponse());
-            } catch (Exception e) {
-                return new MonaLisaOptimizationResponse("An exception occured",
-                        e.getMessage());
-            }
+        if (response.getOptimizedRoute() != null) {
+            applyOptimizedRoute(response.getOptimizedRoute(), voyageHandlingLayer);
         }
+        return response;
+    }
 
-        if (newRoute != null) {
-//            String originalRouteName = route.getName();
-            //How to handle the reply
-//            route = newRoute;
-//            newRoute.setName("Optimized: " + originalRouteName);
-            voyageHandlingLayer.setNewRoute(newRoute);
-            voyageHandlingLayer.updateVoyages();
-            
-        }
-
-        float fuelSaving = (routeResponse.getMonaLisaResponse().getFuelRequested() - routeResponse.getMonaLisaResponse().getFuelFinal()) / routeResponse.getMonaLisaResponse().getFuelRequested() * 100;
-
-        return new MonaLisaOptimizationResponse("Succesfully received optimized route",
-
-        "\nInitial route consumption is "
-                + routeResponse.getMonaLisaResponse().getFuelRequested()
-                + " Metric Tons.\n"
-                + "MonaLisa optimized route consumption is "
-                + routeResponse.getMonaLisaResponse().getFuelFinal()
-                + " Metric Tons.\n" + "The relative fuel saving is "
-                + fuelSaving + " percent\n\n" + "Minimum route UKC is "
-                + routeResponse.getMonaLisaResponse().getUkcActual()
-                + " meters.\n");
-
+    /**
+     * Hands the optimized route to the voyage handling layer
+     * 
+     * @param newRoute the optimized route
+     * @param voyageHandlingLayer the voyage handling layer
+     */
+    public void applyOptimizedRoute(Route newRoute, VoyageHandlingLayer voyageHandlingLayer) {
+        voyageHandlingLayer.setNewRoute(newRoute);
+        voyageHandlingLayer.updateVoyages();
     }
 }
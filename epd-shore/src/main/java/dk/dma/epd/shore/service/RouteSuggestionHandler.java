@@ -40,8 +40,12 @@ import dk.dma.epd.common.prototype.enavcloud.RouteSuggestionService;
 import dk.dma.epd.common.prototype.enavcloud.RouteSuggestionService.RouteSuggestionMessage;
 import dk.dma.epd.common.prototype.enavcloud.RouteSuggestionService.RouteSuggestionReply;
 import dk.dma.epd.common.prototype.enavcloud.RouteSuggestionService.RouteSuggestionStatus;
+import dk.dma.epd.common.prototype.service.CloudMessagePriority;
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
 import dk.dma.epd.common.prototype.service.MaritimeCloudUtils;
 import dk.dma.epd.common.prototype.service.EnavServiceHandlerCommon;
+import dk.dma.epd.common.prototype.service.PendingReplyTracker;
+import dk.dma.epd.common.prototype.service.PendingReplyTracker.TimeoutListener;
 
 /**
  * Shore-specific route suggestion e-Nav service.
@@ -49,10 +53,13 @@ import dk.dma.epd.common.prototype.service.EnavServiceHandlerCommon;
 public class RouteSuggestionHandler extends EnavServiceHandlerCommon {
 
     private static final Logger LOG = LoggerFactory.getLogger(RouteSuggestionHandler.class);  
+    private static final long REPLY_TIMEOUT = 60 * 60 * 1000L; // 60 minutes, as the ship-side callback TTL
+    private static final long REPLY_TICK = 60 * 1000L;
 
     private Map<RouteSuggestionKey, RouteSuggestionData> routeSuggestions = new ConcurrentHashMap<>();
     private Set<RouteSuggestionListener> routeExchangeListener = new HashSet<RouteSuggestionListener>();
     private List<ServiceEndpoint<RouteSuggestionMessage, RouteSuggestionReply>> routeSuggestionServiceList = new ArrayList<>();
+    private PendingReplyTracker<RouteSuggestionKey, RouteSuggestionData> pendingReplies = new PendingReplyTracker<>(REPLY_TICK, 64);
     
     /**
      * Constructor
@@ -65,6 +72,20 @@ public class RouteSuggestionHandler extends EnavServiceHandlerCommon {
             @Override public void run() {
                 fetchRouteSuggestionServices();
             }}, 5, 62, TimeUnit.SECONDS);        
+        
+        // Flag route suggestions that the ship never replied to
+        pendingReplies.addTimeoutListener(new TimeoutListener<RouteSuggestionKey, RouteSuggestionData>() {
+            @Override
+            public void replyTimedOut(RouteSuggestionKey key, RouteSuggestionData data) {
+                LOG.warn("No reply received for route suggestion " + data.getId() + " to MMSI " + data.getMmsi());
+                data.setStatus(RouteSuggestionStatus.SENT_NOT_ACK);
+                notifyRouteSuggestionListeners();
+            }
+        });
+        getScheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override public void run() {
+                pendingReplies.advance();
+            }}, REPLY_TICK, REPLY_TICK, TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -114,38 +135,44 @@ public class RouteSuggestionHandler extends EnavServiceHandlerCommon {
      * @param sender the sender
      * @param message an additional message
      */
-    public void sendRouteSuggestion(long mmsi, Route route, String sender, String message) throws InterruptedException,
+    public void sendRouteSuggestion(final long mmsi, Route route, String sender, String message) throws InterruptedException,
             ExecutionException, TimeoutException {
 
-        ServiceEndpoint<RouteSuggestionMessage, RouteSuggestionReply> end 
-            = MaritimeCloudUtils.findServiceWithMmsi(routeSuggestionServiceList, (int)mmsi);
-
-        RouteSuggestionMessage routeMessage = new RouteSuggestionMessage(route, sender, message);
+        final RouteSuggestionMessage routeMessage = new RouteSuggestionMessage(route, sender, message);
 
         LOG.info("Sending to mmsi: " + mmsi + " with ID: " + routeMessage.getId());
 
         RouteSuggestionData suggestionData = new RouteSuggestionData(routeMessage, null, routeMessage.getId(), mmsi, false,
                 RouteSuggestionStatus.RECEIVED_APP_ACK);
-        RouteSuggestionKey routeSuggestionKey = new RouteSuggestionKey(mmsi, routeMessage.getId());
+        final RouteSuggestionKey routeSuggestionKey = new RouteSuggestionKey(mmsi, routeMessage.getId());
         routeSuggestions.put(routeSuggestionKey, suggestionData);
+        pendingReplies.track(routeSuggestionKey, suggestionData, REPLY_TIMEOUT);
 
-        if (end != null) {
-            ConnectionFuture<RouteSuggestionReply> f = end.invoke(routeMessage);
-
-            notifyRouteSuggestionListeners();
+        maritimeCloudService.send(CloudMessagePriority.NORMAL, null, 0L, new ICloudSender() {
+            @Override
+            public void send(MaritimeCloudClient connection) {
+                ServiceEndpoint<RouteSuggestionMessage, RouteSuggestionReply> end 
+                    = MaritimeCloudUtils.findServiceWithMmsi(routeSuggestionServiceList, (int)mmsi);
 
-            f.handle(new BiConsumer<RouteSuggestionReply, Throwable>() {
-                @Override
-                public void accept(RouteSuggestionReply l, Throwable r) {
-                    routeSuggestionReplyReceived(l);
-                }
-            });
+                if (end != null) {
+                    ConnectionFuture<RouteSuggestionReply> f = end.invoke(routeMessage);
 
-        } else {
-            // notifyRouteExchangeListeners();
-            LOG.error("Could not find route suggestion service for MMSI " + mmsi);
-        }
+                    notifyRouteSuggestionListeners();
 
+                    f.handle(new BiConsumer<RouteSuggestionReply, Throwable>() {
+                        @Override
+                        public void accept(RouteSuggestionReply l, Throwable r) {
+                            routeSuggestionReplyReceived(l);
+                        }
+                    });
+
+                } else {
+                    // notifyRouteExchangeListeners();
+                    pendingReplies.complete(routeSuggestionKey);
+                    LOG.error("Could not find route suggestion service for MMSI " + mmsi);
+                }
+            }
+        });
     }
 
     /**
@@ -232,6 +259,7 @@ public class RouteSuggestionHandler extends EnavServiceHandlerCommon {
         if (routeSuggestions.containsKey(new RouteSuggestionKey(message.getMmsi(), message.getId()))) {
 
             RouteSuggestionStatus response = message.getStatus();
+            pendingReplies.complete(new RouteSuggestionKey(message.getMmsi(), message.getId()));
 
             long mmsi = message.getMmsi();
             long id = message.getId();
@@ -39,6 +39,8 @@ import dk.dma.epd.common.prototype.enavcloud.StrategicRouteService;
 import dk.dma.epd.common.prototype.enavcloud.StrategicRouteService.StrategicRouteRequestMessage;
 import dk.dma.epd.common.prototype.enavcloud.StrategicRouteService.StrategicRouteRequestReply;
 import dk.dma.epd.common.prototype.enavcloud.StrategicRouteService.StrategicRouteStatus;
+import dk.dma.epd.common.prototype.service.CloudMessagePriority;
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
 import dk.dma.epd.common.prototype.service.MaritimeCloudUtils;
 import dk.dma.epd.common.prototype.service.EnavServiceHandlerCommon;
 import dk.dma.epd.common.prototype.service.InvocationCallbackContextMap;
@@ -75,11 +77,11 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
                 fetchStrategicRouteShipList();
             }}, 13, 61, TimeUnit.SECONDS);
 
-        // Schedule a clean-up check of the strategicRouteContexts every 10 minutes
+        // Expire timed-out strategicRouteContexts once per tick of the context map
         getScheduler().scheduleWithFixedDelay(new Runnable() {
             @Override public void run() {
                 strategicRouteContexts.cleanup();
-            }}, 9, 10, TimeUnit.MINUTES);
+            }}, strategicRouteContexts.getTickMillis(), strategicRouteContexts.getTickMillis(), TimeUnit.MILLISECONDS);
     }
 
     
@@ -149,22 +151,27 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
      * @param mmsiDestination the destination mmsi
      * @param routeMessage the strategic route to send
      */
-    private void sendStrategicRenegotiateRequest(long mmsiDestination, StrategicRouteRequestMessage routeMessage) {
+    private void sendStrategicRenegotiateRequest(final long mmsiDestination, final StrategicRouteRequestMessage routeMessage) {
 
-        ServiceEndpoint<StrategicRouteRequestMessage, StrategicRouteRequestReply> end 
-            = MaritimeCloudUtils.findServiceWithMmsi(strategicRouteShipList, (int)mmsiDestination);
+        maritimeCloudService.send(CloudMessagePriority.NORMAL, null, 0L, new ICloudSender() {
+            @Override
+            public void send(MaritimeCloudClient connection) {
+                ServiceEndpoint<StrategicRouteRequestMessage, StrategicRouteRequestReply> end 
+                    = MaritimeCloudUtils.findServiceWithMmsi(strategicRouteShipList, (int)mmsiDestination);
 
-        // Each request has a unique ID, talk to Kasper?
+                // Each request has a unique ID, talk to Kasper?
 
-        if (end != null) {
-            end.invoke(routeMessage);
+                if (end != null) {
+                    end.invoke(routeMessage);
 
-            // we don't need to handle a reply, a new one will be sent as a
-            // normal transaction
+                    // we don't need to handle a reply, a new one will be sent as a
+                    // normal transaction
 
-        } else {
-            LOG.error("Failed to find ship with id " + mmsiDestination);
-        }
+                } else {
+                    LOG.error("Failed to find ship with id " + mmsiDestination);
+                }
+            }
+        });
     }
 
     /**
@@ -249,11 +256,7 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
                         text, id, mmsi, System.currentTimeMillis(), StrategicRouteStatus.NEGOTIATING,
                         route);
                 
-                for (int i = 0; i < voyageManager.getVoyages().size(); i++) {
-                    if (voyageManager.getVoyages().get(i).getId() == id){
-                        voyageManager.removeVoyage(i);
-                    }
-                }
+                voyageManager.deleteVoyage(id);
                 
                 strategicNegotiationData.get(id).addMessage(internalMessage);
                 strategicNegotiationData.get(id).addReply(shoreInternalReply);
@@ -282,9 +285,10 @@ public class StrategicRouteHandler extends EnavServiceHandlerCommon {
     private void sendStrategicRouteReply(StrategicRouteService.StrategicRouteRequestReply reply) {
         try {
 
-            if (strategicRouteContexts.containsKey(reply.getId())) {
+            Context<StrategicRouteRequestReply> context = strategicRouteContexts.remove(reply.getId());
+            if (context != null) {
                 System.out.println("Sending");
-                strategicRouteContexts.remove(reply.getId()).complete(reply);
+                context.complete(reply);
             } else {
                 LOG.error("No strategic route context found for route request " + reply.getId());
             }
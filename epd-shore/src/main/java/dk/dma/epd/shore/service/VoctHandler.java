@@ -20,6 +20,9 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import net.maritimecloud.net.ConnectionFuture;
 import net.maritimecloud.net.MaritimeCloudClient;
 import net.maritimecloud.net.broadcast.BroadcastListener;
@@ -42,8 +45,10 @@ import dk.dma.epd.common.prototype.model.voct.SAR_TYPE;
 import dk.dma.epd.common.prototype.model.voct.sardata.DatumPointData;
 import dk.dma.epd.common.prototype.model.voct.sardata.RapidResponseData;
 import dk.dma.epd.common.prototype.model.voct.sardata.SARData;
+import dk.dma.epd.common.prototype.service.CloudMessagePriority;
+import dk.dma.epd.common.prototype.service.MaritimeCloudServiceCommon.ICloudSender;
+import dk.dma.epd.common.prototype.service.MaritimeCloudUtils;
 import dk.dma.epd.common.prototype.service.VoctHandlerCommon;
-import dk.dma.epd.common.util.Util;
 
 /**
  * Ship specific intended route service implementation.
@@ -56,7 +61,9 @@ import dk.dma.epd.common.util.Util;
  * </ul>
  */
 @SuppressWarnings("unused")
-public class VoctHandler extends VoctHandlerCommon implements Runnable {
+public class VoctHandler extends VoctHandlerCommon {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VoctHandler.class);
 
     private boolean listenToSAR;
     /**
@@ -109,9 +116,7 @@ public class VoctHandler extends VoctHandlerCommon implements Runnable {
         
 
 
-        // Start broadcasting our own active route
         running = true;
-        new Thread(this).start();
     }
     
     
@@ -144,26 +149,13 @@ public class VoctHandler extends VoctHandlerCommon implements Runnable {
     }
 
     
-    public void sendVOCTMessage(long mmsi, SARData sarData, String sender,
+    public void sendVOCTMessage(final long mmsi, SARData sarData, String sender,
             String message, int id, boolean isAO, boolean isSearchPattern)
             throws InterruptedException, ExecutionException, TimeoutException {
 
         // System.out.println("Send to : " + mmsi);
-        String mmsiStr = "mmsi://" + mmsi;
 
         if (sarData instanceof RapidResponseData) {
-            ServiceEndpoint<VOCTCommunicationServiceRapidResponse.VOCTCommunicationMessageRapidResponse, VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse> end = null;
-
-            for (int i = 0; i < voctMessageListRapidResponse.size(); i++) {
-                if (voctMessageListRapidResponse.get(i).getId().toString()
-                        .equals(mmsiStr)) {
-                    end = voctMessageListRapidResponse.get(i);
-
-                    break;
-                }
-            }
-            // end = voctMessageList.get(voctMessageList.size() - 1);
-
             VOCTCommunicationMessageRapidResponse voctMessage = null;
 
             if (sarData instanceof RapidResponseData) {
@@ -226,43 +218,42 @@ public class VoctHandler extends VoctHandlerCommon implements Runnable {
             // routeSuggestions.put(routeSuggestionKey, suggestionData);
             //
 
-            if (end != null) {
-                ConnectionFuture<VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse> f = end
-                        .invoke(voctMessage);
-
-                f.handle(new BiConsumer<VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse, Throwable>() {
-
-                    @Override
-                    public void accept(VOCTCommunicationReplyRapidResponse l,
-                            Throwable r) {
-                        // TODO Auto-generated method stub
-                        System.out.println("Reply recieved SAR with status: "
-                                + l.getStatus());
+            final VOCTCommunicationMessageRapidResponse sarMessage = voctMessage;
+            
+            // SAR messages take precedence over other queued cloud messages
+            maritimeCloudService.send(CloudMessagePriority.SAFETY, null, 0L, new ICloudSender() {
+                @Override
+                public void send(MaritimeCloudClient connection) {
+                    ServiceEndpoint<VOCTCommunicationServiceRapidResponse.VOCTCommunicationMessageRapidResponse, VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse> end 
+                        = MaritimeCloudUtils.findServiceWithMmsi(voctMessageListRapidResponse, (int) mmsi);
+
+                    if (end != null) {
+                        ConnectionFuture<VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse> f = end
+                                .invoke(sarMessage);
+
+                        f.handle(new BiConsumer<VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse, Throwable>() {
+
+                            @Override
+                            public void accept(VOCTCommunicationReplyRapidResponse l,
+                                    Throwable r) {
+                                if (r != null) {
+                                    LOG.error("Failed sending SAR to mmsi " + mmsi + ": " + r.getMessage());
+                                } else {
+                                    LOG.info("Reply received for SAR sent to mmsi " + mmsi + " with status: " + l.getStatus());
+                                }
 //                        sruManager.handleSRUReply(l.getMmsi(), l.getStatus());
-                    }
-                });
+                            }
+                        });
 
-            } else {
-                // notifyRouteExchangeListeners();
-                System.out.println("Failed to send");
-                // replyRecieved(f.get());
-            }
+                    } else {
+                        LOG.warn("No VOCT service found for mmsi " + mmsi + ", SAR not sent");
+                    }
+                }
+            });
 
         }
 
         if (sarData instanceof DatumPointData) {
-            ServiceEndpoint<VOCTCommunicationServiceDatumPoint.VOCTCommunicationMessageDatumPoint, VOCTCommunicationServiceDatumPoint.VOCTCommunicationReplyDatumPoint> end = null;
-
-            for (int i = 0; i < voctMessageListDatumPoint.size(); i++) {
-                if (voctMessageListDatumPoint.get(i).getId().toString()
-                        .equals(mmsiStr)) {
-                    end = voctMessageListDatumPoint.get(i);
-
-                    break;
-                }
-            }
-            // end = voctMessageList.get(voctMessageList.size() - 1);
-
             VOCTCommunicationMessageDatumPoint voctMessage = null;
 
             if (sarData instanceof DatumPointData) {
@@ -325,26 +316,38 @@ public class VoctHandler extends VoctHandlerCommon implements Runnable {
             // routeSuggestions.put(routeSuggestionKey, suggestionData);
             //
 
-            if (end != null) {
-                ConnectionFuture<VOCTCommunicationServiceDatumPoint.VOCTCommunicationReplyDatumPoint> f = end
-                        .invoke(voctMessage);
-
-                f.handle(new BiConsumer<VOCTCommunicationServiceDatumPoint.VOCTCommunicationReplyDatumPoint, Throwable>() {
-
-                    @Override
-                    public void accept(VOCTCommunicationReplyDatumPoint l,
-                            Throwable r) {
-                        // TODO Auto-generated method stub
-                        System.out.println("Reply recieved SAR");
+            final VOCTCommunicationMessageDatumPoint sarMessage = voctMessage;
+            
+            // SAR messages take precedence over other queued cloud messages
+            maritimeCloudService.send(CloudMessagePriority.SAFETY, null, 0L, new ICloudSender() {
+                @Override
+                public void send(MaritimeCloudClient connection) {
+                    ServiceEndpoint<VOCTCommunicationServiceDatumPoint.VOCTCommunicationMessageDatumPoint, VOCTCommunicationServiceDatumPoint.VOCTCommunicationReplyDatumPoint> end 
+                        = MaritimeCloudUtils.findServiceWithMmsi(voctMessageListDatumPoint, (int) mmsi);
+
+                    if (end != null) {
+                        ConnectionFuture<VOCTCommunicationServiceDatumPoint.VOCTCommunicationReplyDatumPoint> f = end
+                                .invoke(sarMessage);
+
+                        f.handle(new BiConsumer<VOCTCommunicationServiceDatumPoint.VOCTCommunicationReplyDatumPoint, Throwable>() {
+
+                            @Override
+                            public void accept(VOCTCommunicationReplyDatumPoint l,
+                                    Throwable r) {
+                                if (r != null) {
+                                    LOG.error("Failed sending SAR to mmsi " + mmsi + ": " + r.getMessage());
+                                } else {
+                                    LOG.info("Reply received for SAR sent to mmsi " + mmsi);
+                                }
 //                        sruManager.handleSRUReply(l.getMmsi(), l.getStatus());
-                    }
-                });
+                            }
+                        });
 
-            } else {
-                // notifyRouteExchangeListeners();
-                System.out.println("Failed to send");
-                // replyRecieved(f.get());
-            }
+                    } else {
+                        LOG.warn("No VOCT service found for mmsi " + mmsi + ", SAR not sent");
+                    }
+                }
+            });
 
         }
 
@@ -360,21 +363,6 @@ public class VoctHandler extends VoctHandlerCommon implements Runnable {
         running = false;
     }
 
-    /**
-     * Main thread run method. Broadcasts the intended route
-     */
-    public void run() {
-
-        // Initialize first send
-        // lastSend = new DateTime();
-        // broadcastIntendedRoute();
-
-        while (running) {
-            Util.sleep(1000L);
-        }
-
-    }
-
     public void sendVOCTReply(CLOUD_STATUS recievedAccepted, long id, String message, SAR_TYPE type) {
 
 //        if (type == SAR_TYPE.RAPID_RESPONSE) {
@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreHttp;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceErrorCode;
 import dk.dma.epd.common.prototype.communication.webservice.ShoreServiceException;
+import dk.dma.epd.common.prototype.shoreservice.ShoreServiceExecutor;
 import dk.dma.epd.common.prototype.shoreservice.ShoreServicesCommon;
 import dk.dma.epd.common.prototype.status.ComponentStatus;
 import dk.dma.epd.common.prototype.status.IStatusComponent;
@@ -54,7 +55,8 @@ public class ShoreServices extends ShoreServicesCommon implements IStatusCompone
 
     }
 
-    public MsiResponse msiPoll(int lastMessage) throws ShoreServiceException {
+    @Override
+    protected MsiResponse doMsiPoll(int lastMessage) throws ShoreServiceException {
         // Create request
         MsiPollRequest msiPollRequest = new MsiPollRequest();
         msiPollRequest.setLastMessage(lastMessage);
@@ -71,9 +73,16 @@ public class ShoreServices extends ShoreServicesCommon implements IStatusCompone
     private ShoreServiceResponse makeRequest(String uri, String reqContextPath, String resContextPath, Object request)
             throws ShoreServiceException {
         // Create HTTP request
-        ShoreHttp shoreHttp = new ShoreHttp(uri, enavSettings);
+        final ShoreHttp shoreHttp = new ShoreHttp(uri, enavSettings);
         // Init HTTP
         shoreHttp.init();
+        // Abort the connection if the request deadline passes
+        ShoreServiceExecutor.onAbort(new Runnable() {
+            @Override
+            public void run() {
+                shoreHttp.abort();
+            }
+        });
         // Set content
         try {
             shoreHttp.setXmlMarshalContent(reqContextPath, request);
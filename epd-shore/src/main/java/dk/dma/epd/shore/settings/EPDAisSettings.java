@@ -15,6 +15,13 @@
  */
 package dk.dma.epd.shore.settings;
 
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.bbn.openmap.util.PropUtils;
+
+import dk.dma.epd.common.prototype.ais.AisRetentionPolicy;
 import dk.dma.epd.common.prototype.settings.AisSettings;
 
 /**
@@ -24,4 +31,95 @@ public class EPDAisSettings extends AisSettings {
 
     private static final long serialVersionUID = -168971257958406201L;
 
+    private String retentionCoreAreas = "";
+    private String retentionBufferAreas = "";
+    private AisRetentionPolicy retentionCorePolicy = AisRetentionPolicy.FULL;
+    private AisRetentionPolicy retentionBufferPolicy = AisRetentionPolicy.POSITION_ONLY;
+    private AisRetentionPolicy retentionOutsidePolicy = AisRetentionPolicy.DROP;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readProperties(Properties props) {
+        super.readProperties(props);
+        retentionCoreAreas = readAreas(props, "retentionCoreAreas", retentionCoreAreas);
+        retentionBufferAreas = readAreas(props, "retentionBufferAreas", retentionBufferAreas);
+        retentionCorePolicy = readPolicy(props, "retentionCorePolicy", retentionCorePolicy);
+        retentionBufferPolicy = readPolicy(props, "retentionBufferPolicy", retentionBufferPolicy);
+        retentionOutsidePolicy = readPolicy(props, "retentionOutsidePolicy", retentionOutsidePolicy);
+    }
+
+    /**
+     * Reads an area specification, in which the polygons are separated by '|'
+     */
+    private static String readAreas(Properties props, String name, String defaultAreas) {
+        String[] polygons = PropUtils.stringArrayFromProperties(props, getPrefix() + name, "|");
+        return (polygons == null) ? defaultAreas : StringUtils.join(polygons, '|');
+    }
+
+    private static AisRetentionPolicy readPolicy(Properties props, String name, AisRetentionPolicy defaultPolicy) {
+        String[] value = PropUtils.stringArrayFromProperties(props, getPrefix() + name, " ");
+        if (value == null || value.length != 1) {
+            return defaultPolicy;
+        }
+        try {
+            return AisRetentionPolicy.valueOf(StringUtils.upperCase(value[0]));
+        } catch (IllegalArgumentException e) {
+            return defaultPolicy;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProperties(Properties props) {
+        super.setProperties(props);
+        props.put(getPrefix() + "retentionCoreAreas", StringUtils.defaultString(retentionCoreAreas));
+        props.put(getPrefix() + "retentionBufferAreas", StringUtils.defaultString(retentionBufferAreas));
+        props.put(getPrefix() + "retentionCorePolicy", retentionCorePolicy.name());
+        props.put(getPrefix() + "retentionBufferPolicy", retentionBufferPolicy.name());
+        props.put(getPrefix() + "retentionOutsidePolicy", retentionOutsidePolicy.name());
+    }
+
+    public String getRetentionCoreAreas() {
+        return retentionCoreAreas;
+    }
+
+    public void setRetentionCoreAreas(String retentionCoreAreas) {
+        this.retentionCoreAreas = retentionCoreAreas;
+    }
+
+    public String getRetentionBufferAreas() {
+        return retentionBufferAreas;
+    }
+
+    public void setRetentionBufferAreas(String retentionBufferAreas) {
+        this.retentionBufferAreas = retentionBufferAreas;
+    }
+
+    public AisRetentionPolicy getRetentionCorePolicy() {
+        return retentionCorePolicy;
+    }
+
+    public void setRetentionCorePolicy(AisRetentionPolicy retentionCorePolicy) {
+        this.retentionCorePolicy = retentionCorePolicy;
+    }
+
+    public AisRetentionPolicy getRetentionBufferPolicy() {
+        return retentionBufferPolicy;
+    }
+
+    public void setRetentionBufferPolicy(AisRetentionPolicy retentionBufferPolicy) {
+        this.retentionBufferPolicy = retentionBufferPolicy;
+    }
+
+    public AisRetentionPolicy getRetentionOutsidePolicy() {
+        return retentionOutsidePolicy;
+    }
+
+    public void setRetentionOutsidePolicy(AisRetentionPolicy retentionOutsidePolicy) {
+        this.retentionOutsidePolicy = retentionOutsidePolicy;
+    }
 }
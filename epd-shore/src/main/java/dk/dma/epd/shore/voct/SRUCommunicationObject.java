@@ -15,9 +15,7 @@
  */
 package dk.dma.epd.shore.voct;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.enavcloud.VOCTSARBroadCast;
@@ -30,8 +28,7 @@ public class SRUCommunicationObject {
     // List<VOCTSARBroadCast> sruCommunicationObjects = new
     // ArrayList<VOCTSARBroadCast>();
 
-    List<Position> positions = new ArrayList<Position>();
-    List<Date> messageDates = new ArrayList<Date>();
+    private final SRUTrack track = new SRUTrack();
 
     private double heading;
     private boolean visible = true;
@@ -47,7 +44,8 @@ public class SRUCommunicationObject {
 
     public synchronized void addBroadcastMessage(VOCTSARBroadCast message) {
 
-        positions.add(Position.create(message.getLat(), message.getLon()));
+        track.add(new Date(message.getDate()),
+                Position.create(message.getLat(), message.getLon()));
         this.heading = message.getHeading();
 
         if (message.getIntendedSearchPattern() != null) {
@@ -55,17 +53,19 @@ public class SRUCommunicationObject {
             intendedSearchPattern = new Route(
                     message.getIntendedSearchPattern());
         }
-        messageDates.add(new Date(message.getDate()));
 
         // sruCommunicationObjects.add(message);
     }
 
     public Date getLastMessageDate() {
-        if (messageDates.size() == 0) {
-            return null;
-        } else {
-            return messageDates.get(messageDates.size() - 1);
-        }
+        return track.getLatestDate();
+    }
+
+    /**
+     * @return the latest reported position, or null if nothing was reported
+     */
+    public Position getLatestPosition() {
+        return track.getLatestPosition();
     }
 
     /**
@@ -84,17 +84,10 @@ public class SRUCommunicationObject {
     }
 
     /**
-     * @return the positions
-     */
-    public List<Position> getPositions() {
-        return positions;
-    }
-
-    /**
-     * @return the messageDates
+     * @return the reported track
      */
-    public List<Date> getMessageDates() {
-        return messageDates;
+    public SRUTrack getTrack() {
+        return track;
     }
 
     /**
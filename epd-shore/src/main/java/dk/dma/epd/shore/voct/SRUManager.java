@@ -28,11 +28,10 @@ import dk.dma.epd.common.prototype.enavcloud.VOCTCommunicationServiceDatumPoint.
 import dk.dma.epd.common.prototype.enavcloud.VOCTCommunicationServiceRapidResponse.CLOUD_STATUS;
 import dk.dma.epd.common.prototype.enavcloud.VOCTCommunicationServiceRapidResponse.VOCTCommunicationReplyRapidResponse;
 import dk.dma.epd.common.prototype.enavcloud.VOCTSARBroadCast;
-import dk.dma.epd.shore.EPDShore;
 import dk.dma.epd.shore.layers.voct.VoctLayerTracking;
 import dk.dma.epd.shore.voct.SRU.sru_status;
 
-public class SRUManager extends MapHandlerChild implements Runnable {
+public class SRUManager extends MapHandlerChild {
 
     private List<SRU> srus = new LinkedList<SRU>();
 
@@ -45,7 +44,6 @@ public class SRUManager extends MapHandlerChild implements Runnable {
     private CopyOnWriteArrayList<SRUUpdateListener> listeners = new CopyOnWriteArrayList<>();
 
     public SRUManager() {
-        EPDShore.startThread(this, "sruManager");
     }
 
     public void setVoctTrackingLayer(VoctLayerTracking layer) {
@@ -69,19 +67,6 @@ public class SRUManager extends MapHandlerChild implements Runnable {
         listeners.remove(listener);
     }
 
-    @Override
-    public void run() {
-
-        // Maintanaince routines
-        while (true) {
-            EPDShore.sleep(1000);
-            updateSRUsStatus();
-            // maintainAvailableSRUs();
-            // Maintain list of available SRUs
-        }
-
-    }
-
     private void updateSRUsStatus() {
 
 //        for (int i = 0; i < enavServiceHandler.getVoctMessageList().size(); i++) {
@@ -0,0 +1,209 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.shore.voct;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.ais.PastTrackPoint;
+
+/**
+ * Bounded, downsampled time series of the positions reported by a single SRU.
+ * <p>
+ * Reports arriving closer than the sample interval to the last stored sample
+ * only update the latest position. When the store is full every other sample
+ * is dropped and the sample interval is doubled, so the track of a long
+ * operation is kept with decreasing resolution in a fixed amount of memory.
+ * <p>
+ * The revision is bumped whenever stored samples are dropped, which tells
+ * incremental readers that they must rebuild rather than append.
+ */
+@ThreadSafe
+public class SRUTrack {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final long DEFAULT_SAMPLE_INTERVAL = 30 * 1000L; // 30 seconds
+
+    private final int capacity;
+
+    @GuardedBy("this") private final long[] times;
+    @GuardedBy("this") private final double[] lats;
+    @GuardedBy("this") private final double[] lons;
+    @GuardedBy("this") private int size;
+    @GuardedBy("this") private long sampleInterval;
+    @GuardedBy("this") private long revision;
+
+    @GuardedBy("this") private Position latestPosition;
+    @GuardedBy("this") private Date latestDate;
+
+    public SRUTrack() {
+        this(DEFAULT_CAPACITY, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    public SRUTrack(int capacity, long sampleInterval) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        this.capacity = capacity;
+        this.sampleInterval = sampleInterval;
+        times = new long[capacity];
+        lats = new double[capacity];
+        lons = new double[capacity];
+    }
+
+    /**
+     * Adds a reported position. Reports older than the latest report are
+     * ignored.
+     * 
+     * @param date
+     *            time of the report
+     * @param position
+     *            the reported position
+     * @return if the report was stored as a new sample
+     */
+    public synchronized boolean add(Date date, Position position) {
+        long time = date.getTime();
+        if (latestDate != null && time < latestDate.getTime()) {
+            return false;
+        }
+        latestDate = date;
+        latestPosition = position;
+
+        if (size > 0 && time - times[size - 1] < sampleInterval) {
+            return false;
+        }
+
+        if (size == capacity) {
+            compact();
+        }
+        times[size] = time;
+        lats[size] = position.getLatitude();
+        lons[size] = position.getLongitude();
+        size++;
+        return true;
+    }
+
+    /**
+     * Drops every other sample, always keeping the newest, and halves the
+     * resolution of future samples accordingly
+     */
+    @GuardedBy("this")
+    private void compact() {
+        int kept = 0;
+        for (int i = (size - 1) % 2; i < size; i += 2) {
+            times[kept] = times[i];
+            lats[kept] = lats[i];
+            lons[kept] = lons[i];
+            kept++;
+        }
+        size = kept;
+        sampleInterval *= 2;
+        revision++;
+    }
+
+    /**
+     * @return the latest reported position, which may not be a stored sample
+     */
+    public synchronized Position getLatestPosition() {
+        return latestPosition;
+    }
+
+    /**
+     * @return the time of the latest report
+     */
+    public synchronized Date getLatestDate() {
+        return latestDate;
+    }
+
+    /**
+     * @return the number of stored samples
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return a counter that changes whenever stored samples are dropped
+     */
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return all stored samples, oldest first
+     */
+    public synchronized List<PastTrackPoint> getPoints() {
+        return copy(0, size);
+    }
+
+    /**
+     * Returns the stored samples within the given time range, both ends
+     * inclusive
+     * 
+     * @param from
+     *            start of the range, or null for no lower bound
+     * @param to
+     *            end of the range, or null for no upper bound
+     * @return the samples, oldest first
+     */
+    public synchronized List<PastTrackPoint> getPoints(Date from, Date to) {
+        int start = from == null ? 0 : indexOf(from.getTime());
+        int end = to == null ? size : indexOf(to.getTime() + 1);
+        return copy(start, end);
+    }
+
+    /**
+     * Returns the stored samples newer than the given time
+     * 
+     * @param time
+     *            the time, or null for all samples
+     * @return the samples, oldest first
+     */
+    public synchronized List<PastTrackPoint> getPointsNewerThan(Date time) {
+        return copy(time == null ? 0 : indexOf(time.getTime() + 1), size);
+    }
+
+    /**
+     * @return the index of the first sample at or after the given time
+     */
+    @GuardedBy("this")
+    private int indexOf(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @GuardedBy("this")
+    private List<PastTrackPoint> copy(int start, int end) {
+        List<PastTrackPoint> result = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            result.add(new PastTrackPoint(new Date(times[i]), Position.create(lats[i], lons[i])));
+        }
+        return result;
+    }
+}
@@ -26,12 +26,13 @@ import org.slf4j.LoggerFactory;
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.epd.common.prototype.model.route.IRoutesUpdateListener;
 import dk.dma.epd.common.prototype.model.route.RoutesUpdateEvent;
+import dk.dma.epd.common.prototype.model.voct.SearchPatternCandidate;
 import dk.dma.epd.common.prototype.model.voct.SearchPatternGenerator;
+import dk.dma.epd.common.prototype.model.voct.SearchPatternPlanner;
 import dk.dma.epd.common.prototype.model.voct.sardata.SearchPatternRoute;
 import dk.dma.epd.common.prototype.voct.VOCTManagerCommon;
 import dk.dma.epd.common.prototype.voct.VOCTUpdateEvent;
 import dk.dma.epd.common.prototype.voct.VOCTUpdateListener;
-import dk.dma.epd.common.util.Util;
 import dk.dma.epd.shore.EPDShore;
 import dk.dma.epd.shore.gui.views.MapFrameType;
 import dk.dma.epd.shore.gui.voct.SARInput;
@@ -60,13 +61,16 @@ public class VOCTManager extends VOCTManagerCommon implements
 
     private SRUManager sruManager;
 
+    private SearchPatternPlanner searchPatternPlanner;
+
     List<VoctLayerCommon> voctLayers = new ArrayList<VoctLayerCommon>();
 
     private static final Logger LOG = LoggerFactory
             .getLogger(VOCTManagerCommon.class);
 
     public VOCTManager() {
-        EPDShore.startThread(this, "VOCTManager");
+        // SRU reports are pushed through the SRUManager listeners, so there
+        // is no maintenance thread polling for them
         LOG.info("Started VOCT Manager");
     }
 
@@ -127,17 +131,6 @@ public class VOCTManager extends VOCTManagerCommon implements
         }
     }
 
-    @Override
-    public void run() {
-
-        // Maintanaince routines
-        while (true) {
-            Util.sleep(10000);
-
-        }
-
-    }
-
     public static VOCTManager loadVOCTManager() {
 
         // Where we load or serialize old VOCTS
@@ -160,6 +153,46 @@ public class VOCTManager extends VOCTManagerCommon implements
                 .generateSearchPattern(type, sarData, EPDShore.getInstance().getSettings()
                         .getNavSettings(), id);
 
+        setSearchPatternRoute(id, searchRoute);
+    }
+
+    /**
+     * Generates and ranks search pattern candidates for the given SRU. Blocks
+     * while the candidates are generated, call off the EDT after the effective
+     * area location has been updated.
+     * 
+     * @param id
+     *            index of the SRU effort allocation
+     * @return the candidates, best first
+     */
+    public List<SearchPatternCandidate> planSearchPatterns(int id)
+            throws InterruptedException {
+
+        SearchPatternPlanner planner;
+        synchronized (this) {
+            if (searchPatternPlanner == null) {
+                searchPatternPlanner = new SearchPatternPlanner();
+            }
+            planner = searchPatternPlanner;
+        }
+
+        return planner.plan(sarOperation, sarData, id, EPDShore.getInstance().getSettings()
+                .getNavSettings());
+    }
+
+    /**
+     * Uses the route of a planned candidate as the search pattern of its SRU
+     * 
+     * @param candidate
+     *            the candidate to apply
+     */
+    public void applySearchPatternCandidate(SearchPatternCandidate candidate) {
+        sarData.setCSP(candidate.getCsp());
+        setSearchPatternRoute(candidate.getSruIndex(), candidate.getRoute());
+    }
+
+    private void setSearchPatternRoute(int id, SearchPatternRoute searchRoute) {
+
         // Remove old and overwrite
         if (sarData.getEffortAllocationData().get(id).getSearchPatternRoute() != null) {
             System.out.println("Previous route found");
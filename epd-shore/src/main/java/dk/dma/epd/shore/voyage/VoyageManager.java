@@ -23,66 +23,93 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.openmap.MapHandlerChild;
 
+import dk.dma.epd.common.prototype.scheduler.TaskPriority;
 import dk.dma.epd.shore.EPDShore;
 import dk.dma.epd.shore.ais.AisHandler;
 import dk.dma.epd.shore.services.shore.ShoreServices;
 
 
 /**
- * Manager for handling a collection of routes and active route
+ * Registry of the voyages agreed with ships.
+ * <p>
+ * Voyages are indexed by voyage id and by MMSI. Listeners are notified
+ * with the specific voyage that was added, changed or removed.
  */
-public class VoyageManager extends MapHandlerChild implements Runnable, Serializable {
+@ThreadSafe
+public class VoyageManager extends MapHandlerChild implements Serializable {
 
     private static final long serialVersionUID = 1L;
     private static final String VOYAGESFILE = EPDShore.getInstance().getHomePath().resolve(".voyages").toString();
     private static final Logger LOG = LoggerFactory.getLogger(VoyageManager.class);
 
-    private List<Voyage> voyages = new LinkedList<Voyage>();
+    @GuardedBy("this")
+    private final Map<Long, Voyage> voyages = new LinkedHashMap<>();
+
+    @GuardedBy("this")
+    private final Map<Long, Set<Long>> voyageIdsByMmsi = new HashMap<>();
 
     private ShoreServices shoreServices;
     private AisHandler aisHandler;
 
-    private Set<VoyageUpdateListener> listeners = new HashSet<VoyageUpdateListener>();
+    private final List<VoyageUpdateListener> listeners = new CopyOnWriteArrayList<>();
 
     public VoyageManager() {
-        EPDShore.startThread(this, "VoyageManager");
+        EPDShore.getInstance().getTaskScheduler().schedulePeriodic("VoyageManager", TaskPriority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                checkForExpires();
+            }
+        }, 10, 10, 1, TimeUnit.SECONDS);
     }
 
-    public void notifyListeners(VoyageUpdateEvent e) {
+    /**
+     * Notifies the listeners of a change to the given voyage and persists the voyages
+     * 
+     * @param e the voyage update event
+     * @param voyage the voyage, or null if the change is not limited to a single voyage
+     */
+    public void notifyListeners(VoyageUpdateEvent e, Voyage voyage) {
         for (VoyageUpdateListener listener : listeners) {
-            listener.voyagesChanged(e);
+            listener.voyagesChanged(e, voyage);
         }
         // Persist routes on update
         saveToFile();
     }
 
-    public void removeVoyage(int index) {
-        synchronized (voyages) {
-            if (index < 0 || index >= voyages.size()) {
-                LOG.error("Could not deactivate route with index: " + index);
-                return;
-            }
-            voyages.remove(index);
-        }
-
-        notifyListeners(VoyageUpdateEvent.VOYAGE_REMOVED);
-    }
-
+    /**
+     * Adds the given voyage. If a voyage with the same id exists, it is replaced.
+     * @param voyage the voyage to add
+     */
     public void addVoyage(Voyage voyage) {
-        synchronized (voyages) {
-            voyages.add(voyage);
+        Voyage old;
+        synchronized (this) {
+            old = voyages.put(voyage.getId(), voyage);
+            if (old != null) {
+                unindex(old);
+            }
+            index(voyage);
         }
-        notifyListeners(VoyageUpdateEvent.VOYAGE_ADDED);
+        notifyListeners(old == null ? VoyageUpdateEvent.VOYAGE_ADDED : VoyageUpdateEvent.VOYAGE_CHANGED, voyage);
     }
 
     /**
@@ -92,35 +119,75 @@ public class VoyageManager extends MapHandlerChild implements Runnable, Serializ
      * False if ID is not a valid voyageId.
      */
     public boolean deleteVoyage(long voyageId) {
-        synchronized (this.voyages) {
-            for(int i = 0; i < this.voyages.size(); i++) {
-                Voyage v = this.voyages.get(i);
-                if(v.getId() == voyageId) {
-                    this.removeVoyage(i);
-                    return true;
-                }
+        Voyage voyage;
+        synchronized (this) {
+            voyage = voyages.remove(voyageId);
+            if (voyage == null) {
+                return false;
             }
-            return false;
+            unindex(voyage);
         }
+        notifyListeners(VoyageUpdateEvent.VOYAGE_REMOVED, voyage);
+        return true;
     }
-    
-    public Voyage getVoyage(int index) {
-        synchronized (voyages) {
- 
-            return getVoyages().get(index);
+
+    @GuardedBy("this")
+    private void index(Voyage voyage) {
+        Set<Long> ids = voyageIdsByMmsi.get(voyage.getMmsi());
+        if (ids == null) {
+            ids = new LinkedHashSet<>();
+            voyageIdsByMmsi.put(voyage.getMmsi(), ids);
         }
+        ids.add(voyage.getId());
     }
 
-    public List<Voyage> getVoyages() {
-        synchronized (voyages) {
-            return voyages;
+    @GuardedBy("this")
+    private void unindex(Voyage voyage) {
+        Set<Long> ids = voyageIdsByMmsi.get(voyage.getMmsi());
+        if (ids != null) {
+            ids.remove(voyage.getId());
+            if (ids.isEmpty()) {
+                voyageIdsByMmsi.remove(voyage.getMmsi());
+            }
         }
     }
 
-    public int getVoyageCount() {
-        synchronized (voyages) {
-            return voyages.size();
+    /**
+     * Returns the voyage with the given id
+     * @param voyageId the voyage id
+     * @return the voyage, or null if not found
+     */
+    public synchronized Voyage getVoyage(long voyageId) {
+        return voyages.get(voyageId);
+    }
+
+    /**
+     * Returns the voyages of the ship with the given MMSI
+     * @param mmsi the MMSI of the ship
+     * @return the voyages of the ship
+     */
+    public synchronized List<Voyage> getVoyagesByMmsi(long mmsi) {
+        Set<Long> ids = voyageIdsByMmsi.get(mmsi);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Voyage> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(voyages.get(id));
         }
+        return result;
+    }
+
+    /**
+     * Returns a snapshot of all voyages in the order they were added
+     * @return a snapshot of all voyages
+     */
+    public synchronized List<Voyage> getVoyages() {
+        return new ArrayList<>(voyages.values());
+    }
+
+    public synchronized int getVoyageCount() {
+        return voyages.size();
     }
 
     public void addListener(VoyageUpdateListener listener) {
@@ -152,29 +219,22 @@ public class VoyageManager extends MapHandlerChild implements Runnable, Serializ
         return manager;
     }
 
-
-
-    private void setVoyages(List<Voyage> voyages) {
+    private synchronized void setVoyages(List<Voyage> voyages) {
         if (voyages != null) {
-            
-            this.voyages = new LinkedList<>();
-            
-            for (int i = 0; i < voyages.size(); i++) {
-//                System.out.println(voyages.get(i).getRoute().getEtas().get(voyages.get(i).getRoute().getEtas().size()-1));
-                long date = voyages.get(i).getRoute().getEtas().get(voyages.get(i).getRoute().getEtas().size()-1).getTime();
-
-//                System.out.println("Found date in long is " + date);
-//                System.out.println(System.currentTimeMillis());
-                
-                if (date > System.currentTimeMillis()){
-                    this.voyages.add(voyages.get(i));
+            this.voyages.clear();
+            this.voyageIdsByMmsi.clear();
+            long now = System.currentTimeMillis();
+            for (Voyage voyage : voyages) {
+                if (!isExpired(voyage, now)) {
+                    this.voyages.put(voyage.getId(), voyage);
+                    index(voyage);
                 }
             }
         }
     }
 
     public void saveToFile() {
-        synchronized (voyages) {
+        synchronized (this) {
             VoyageStore voyageStore = new VoyageStore(this);
             
             try {
@@ -206,29 +266,24 @@ public class VoyageManager extends MapHandlerChild implements Runnable, Serializ
         }
     }
 
-    private void checkForExpires(){
-        for (int i = 0; i < voyages.size(); i++) {
-//          System.out.println(voyages.get(i).getRoute().getEtas().get(voyages.get(i).getRoute().getEtas().size()-1));
-          long date = voyages.get(i).getRoute().getEtas().get(voyages.get(i).getRoute().getEtas().size()-1).getTime();
-
-//          System.out.println("Found date in long is " + date);
-//          System.out.println(System.currentTimeMillis());
-          
-          if (date < System.currentTimeMillis()){
-              removeVoyage(i);
-          }
-      }
+    /**
+     * Returns if the ETA of the last waypoint of the voyage has passed
+     */
+    private static boolean isExpired(Voyage voyage, long now) {
+        List<Date> etas = voyage.getRoute().getEtas();
+        return etas.get(etas.size() - 1).getTime() < now;
     }
 
-    @Override
-    public void run() {
-
-        // Maintanaince routines
-        while (true) {
-            EPDShore.sleep(10000);
-            checkForExpires();
+    /**
+     * Removes the voyages that have expired
+     */
+    private void checkForExpires() {
+        long now = System.currentTimeMillis();
+        for (Voyage voyage : getVoyages()) {
+            if (isExpired(voyage, now)) {
+                deleteVoyage(voyage.getId());
+            }
         }
-
     }
 
 }
@@ -20,6 +20,12 @@ package dk.dma.epd.shore.voyage;
  */
 public interface VoyageUpdateListener {
     
-    void voyagesChanged(VoyageUpdateEvent e);
+    /**
+     * Called when voyages have been added, changed or removed
+     * 
+     * @param e the voyage update event
+     * @param voyage the affected voyage, or null if the change is not limited to a single voyage
+     */
+    void voyagesChanged(VoyageUpdateEvent e, Voyage voyage);
 
 }
@@ -0,0 +1,118 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.epd.shore.voct;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.epd.common.prototype.ais.PastTrackPoint;
+
+public class SRUTrackTest {
+
+    private static final long T0 = 1000000000000L;
+    private static final long INTERVAL = SRUTrack.DEFAULT_SAMPLE_INTERVAL;
+
+    private final SRUTrack track = new SRUTrack();
+
+    private boolean add(long time) {
+        return track.add(new Date(time), Position.create(55.0, 11.0 + (time - T0) / 1e9));
+    }
+
+    /**
+     * Fills the track to its default capacity with samples one interval apart
+     * @return the time of the last sample
+     */
+    private long fill() {
+        long time = T0;
+        for (int i = 0; i < SRUTrack.DEFAULT_CAPACITY; i++) {
+            time = T0 + i * INTERVAL;
+            Assert.assertTrue(add(time));
+        }
+        return time;
+    }
+
+    @Test
+    public void intervalTest() {
+        Assert.assertTrue(add(T0));
+        Assert.assertFalse(add(T0 + INTERVAL - 1));
+        Assert.assertEquals(1, track.size());
+        // The latest position is updated even if no sample is stored
+        Assert.assertEquals(new Date(T0 + INTERVAL - 1), track.getLatestDate());
+
+        Assert.assertTrue(add(T0 + INTERVAL));
+        Assert.assertEquals(2, track.size());
+    }
+
+    @Test
+    public void olderReportTest() {
+        add(T0);
+        add(T0 + INTERVAL);
+        Assert.assertFalse(add(T0 + INTERVAL / 2));
+        Assert.assertEquals(new Date(T0 + INTERVAL), track.getLatestDate());
+        Assert.assertEquals(2, track.size());
+    }
+
+    @Test
+    public void fullTest() {
+        fill();
+        Assert.assertEquals(SRUTrack.DEFAULT_CAPACITY, track.size());
+        Assert.assertEquals(0, track.getRevision());
+    }
+
+    @Test
+    public void compactionTest() {
+        long last = fill();
+        Assert.assertTrue(add(last + INTERVAL));
+
+        // Every other sample is dropped, keeping the newest, before the new sample is added
+        Assert.assertEquals(SRUTrack.DEFAULT_CAPACITY / 2 + 1, track.size());
+        Assert.assertEquals(1, track.getRevision());
+
+        List<PastTrackPoint> points = track.getPoints();
+        Assert.assertEquals(new Date(T0 + INTERVAL), points.get(0).getDate());
+        Assert.assertEquals(new Date(last), points.get(points.size() - 2).getDate());
+        Assert.assertEquals(new Date(last + INTERVAL), points.get(points.size() - 1).getDate());
+        for (int i = 1; i < points.size() - 1; i++) {
+            Assert.assertEquals(2 * INTERVAL, points.get(i).getDate().getTime() - points.get(i - 1).getDate().getTime());
+        }
+    }
+
+    @Test
+    public void compactionIntervalTest() {
+        long last = fill() + INTERVAL;
+        add(last);
+
+        // The sample interval is doubled after compaction
+        Assert.assertFalse(add(last + INTERVAL));
+        Assert.assertTrue(add(last + 2 * INTERVAL));
+    }
+
+    @Test
+    public void pointsInRangeTest() {
+        for (int i = 0; i < 10; i++) {
+            add(T0 + i * INTERVAL);
+        }
+        List<PastTrackPoint> points = track.getPoints(new Date(T0 + 2 * INTERVAL), new Date(T0 + 4 * INTERVAL));
+        Assert.assertEquals(3, points.size());
+        Assert.assertEquals(new Date(T0 + 2 * INTERVAL), points.get(0).getDate());
+
+        Assert.assertEquals(2, track.getPointsNewerThan(new Date(T0 + 7 * INTERVAL)).size());
+    }
+}